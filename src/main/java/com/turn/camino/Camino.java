@@ -20,17 +20,32 @@ import com.turn.camino.render.RenderException;
 import com.turn.camino.render.Renderer;
 import com.turn.camino.render.TimeValue;
 import com.turn.camino.render.functions.FunctionEnum;
+import com.turn.camino.render.functions.MetricFunctions.AggregateResult;
+import com.turn.camino.render.functions.MetricFunctions.MetricAggregateFunction;
 import com.turn.camino.util.Message;
 import com.turn.camino.util.MessageExceptionFactory;
 import com.turn.camino.util.Validation;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 
@@ -43,8 +58,31 @@ import org.apache.hadoop.fs.FileSystem;
  */
 public class Camino {
 
+	private final static Logger LOGGER = Logger.getLogger(Camino.class.getCanonicalName());
+
+	private final static List<Metric> SIMPLE_METRICS = ImmutableList.of(
+			new Metric("age", FunctionEnum.AGE.getName(), "max", null, 0),
+			new Metric("size", FunctionEnum.SIZE.getName(), "sum", null, 0),
+			new Metric("count", null, null, FunctionEnum.COUNT.getName(), 0));
+	private final static List<Metric> WILDCARD_METRICS = ImmutableList.of(
+			new Metric("maxAge", FunctionEnum.AGE.getName(), "max", null, 0),
+			new Metric("minAge", FunctionEnum.AGE.getName(), "min", null, 0),
+			new Metric("avgAge", FunctionEnum.AGE.getName(), "avg", null, 0),
+			new Metric("maxSize", FunctionEnum.SIZE.getName(), "max", null, 0),
+			new Metric("minSize", FunctionEnum.SIZE.getName(), "min", null, 0),
+			new Metric("avgSize", FunctionEnum.SIZE.getName(), "avg", null, 0),
+			new Metric("sumSize", FunctionEnum.SIZE.getName(), "sum", null, 0));
+	private final static Metric CREATION_DELAY_METRIC = new Metric("creationDelay", null, null,
+			FunctionEnum.CREATION_DELAY.getName(), 0);
+	private final static List<String> DEFAULT_METRIC_FUNCTIONS = ImmutableList.of(
+			FunctionEnum.AGE.getName(), FunctionEnum.SIZE.getName(), FunctionEnum.COUNT.getName(),
+			FunctionEnum.CREATION_DELAY.getName());
+	private final static Interner<List<Tag>> TAG_INTERNER = Interners.newWeakInterner();
+
 	private final Env env;
 	private final Config config;
+	private final Map<Path, Set<String>> pathReferences = new ConcurrentHashMap<>();
+	private volatile PropertyGraph propertyGraph;
 	private final Validation<WrongTypeException> validation =
 			new Validation<>(new MessageExceptionFactory<WrongTypeException>() {
 				@Override
@@ -72,10 +110,63 @@ public class Camino {
 	/**
 	 * Run Camino
 	 *
+	 * Returns metrics of all paths in the order paths are defined in config, once all paths
+	 * are done, followed by overflow series of repeats and metrics of rollups.
+	 * Path metrics of overflow series and rollups have a null path.
+	 *
+	 * @return path metrics
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
 	 * @throws RenderException
+	 * @throws IOException
 	 */
 	public List<PathMetrics> getPathMetrics() throws InvalidNameException, WrongTypeException,
 			RenderException, IOException {
+		List<PathMetrics> pathMetrics = Lists.newArrayList();
+		run(false, pathMetrics::add);
+		return pathMetrics;
+	}
+
+	/**
+	 * Run Camino, streaming metrics of each path to a consumer as soon as the path is done
+	 *
+	 * Consumer is called on the calling thread, in the order paths finish, as soon as they
+	 * finish, even while later paths and repeats are still being submitted. Metrics already
+	 * passed to consumer are not retained. Overflow series of repeats and metrics of rollups
+	 * are passed after all paths.
+	 *
+	 * @param consumer consumer of path metrics
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	public void getPathMetrics(Consumer<PathMetrics> consumer) throws InvalidNameException,
+			WrongTypeException, RenderException, IOException {
+		run(true, consumer);
+	}
+
+	/**
+	 * Run Camino
+	 *
+	 * @param inCompletionOrder true to pass path metrics to consumer as paths finish, false
+	 *                          to pass them in order of config after all paths finish
+	 * @param consumer consumer of path metrics
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	protected void run(boolean inCompletionOrder, Consumer<PathMetrics> consumer)
+			throws InvalidNameException, WrongTypeException, RenderException, IOException {
+
+		// roll up metrics of paths on their way to consumer
+		MetricRollup metricRollup = null;
+		Consumer<PathMetrics> pathConsumer = consumer;
+		if (!config.getRollups().isEmpty()) {
+			final MetricRollup rollup = metricRollup = new MetricRollup(config.getRollups());
+			pathConsumer = pathMetrics -> consumer.accept(rollup.add(pathMetrics));
+		}
 
 		Renderer renderer = env.getRenderer();
 		Context context = env.newContext();
@@ -90,30 +181,89 @@ public class Camino {
 				shutdownExecutor = true;
 			}
 
-			// render properties
-			for (Property property : config.getProperties()) {
-				renderProperty(property, renderer, context);
+			// drop materialized paths affected by changes since last run
+			PathDetailCache pathDetailCache = env.getPathDetailCache();
+			if (pathDetailCache != null) {
+				pathDetailCache.refresh();
 			}
 
+			// share file statuses and directory listings among all lookups of this run
+			FileStatusCache fileStatusCache = context.getFileStatusCache();
+			GlobPlanner globPlanner = fileStatusCache != null ?
+					new GlobPlanner(fileStatusCache) : new GlobPlanner(env.getFileSystem());
+
+			// render properties
+			PropertyFutures propertyFutures = renderProperties(config.getProperties(), renderer,
+					context, executorService);
+			RunState runState = new RunState(propertyFutures, globPlanner,
+					inCompletionOrder ? new LinkedBlockingQueue<>() : null,
+					new SeriesBudget(config.getMaxSeries(), null),
+					inCompletionOrder ? pathConsumer : null);
+
 			// render and materialize paths and compute metrics
 			processPathMetrics(config.getPaths(), renderer, context, executorService,
-					futures);
+					futures, runState);
+			drainCompleted(futures, runState, null);
 
 			// process repeats
 			for (Repeat repeat : config.getRepeats()) {
-				processRepeat(repeat, renderer, context, executorService, futures);
+				processRepeat(repeat, renderer, context, executorService, futures, runState);
 			}
 
-			// return computed metrics
-			List<PathMetrics> pathMetrics = Lists.newArrayListWithCapacity(futures.size());
-			for (Future<PathMetrics> future : futures) {
-				try {
-					pathMetrics.add(future.get());
-				} catch (Throwable error) {
-					env.getErrorHandler().onWaitError(error);
+			// fail if any property failed to render
+			drainCompleted(futures, runState, propertyFutures.await(null));
+			try {
+				propertyFutures.join();
+			} catch (InvalidNameException | WrongTypeException | RenderException |
+					RuntimeException error) {
+				for (Future<PathMetrics> future : futures) {
+					future.cancel(false);
+				}
+				for (Future<PathMetrics> future : runState.pending) {
+					future.cancel(false);
 				}
+				throw error;
 			}
-			return pathMetrics;
+
+			// pass computed metrics to consumer
+			if (runState.completed == null) {
+				for (Future<PathMetrics> future : futures) {
+					accept(future, pathConsumer);
+				}
+			} else {
+				runState.pending.addAll(futures);
+				futures.clear();
+				while (!runState.pending.isEmpty()) {
+					acceptCompleted(takeCompleted(runState), runState);
+				}
+			}
+
+			// pass overflow series of repeats once all their paths are aggregated
+			for (RepeatOverflow overflow : runState.overflows.values()) {
+				pathConsumer.accept(overflow.getPathMetrics());
+			}
+
+			// pass rollups once all paths are rolled up
+			if (metricRollup != null) {
+				for (PathMetrics pathMetrics : metricRollup.getPathMetrics()) {
+					consumer.accept(pathMetrics);
+				}
+			}
+
+			// report file status cache effectiveness
+			fileStatusCache = globPlanner.getFileStatusCache();
+			if (LOGGER.isLoggable(Level.FINE)) {
+				LOGGER.fine(String.format("File status cache: %d hits, %d misses, %.1f%% hit ratio",
+						fileStatusCache.getHitCount(), fileStatusCache.getMissCount(),
+						fileStatusCache.getHitRatio() * 100));
+				if (pathDetailCache != null) {
+					LOGGER.fine(String.format("Path detail cache: %d hits, %d misses, %d paths",
+							pathDetailCache.getHitCount(), pathDetailCache.getMissCount(),
+							pathDetailCache.size()));
+				}
+			}
+		} catch (ConsumerException e) {
+			throw (RuntimeException) e.getCause();
 		} finally {
 			if (shutdownExecutor) {
 				executorService.shutdown();
@@ -121,6 +271,171 @@ public class Camino {
 		}
 	}
 
+	/**
+	 * Waits for path metrics and passes them to consumer
+	 *
+	 * @param future future of path metrics
+	 * @param consumer consumer of path metrics
+	 */
+	private void accept(Future<PathMetrics> future, Consumer<PathMetrics> consumer) {
+		PathMetrics pathMetrics;
+		try {
+			pathMetrics = future.get();
+		} catch (Throwable error) {
+			env.getErrorHandler().onWaitError(error);
+			return;
+		}
+
+		// paths aggregated into overflow series of repeats have no metrics of their own
+		if (pathMetrics != null) {
+			consumer.accept(pathMetrics);
+		}
+	}
+
+	/**
+	 * Passes metrics of paths completed so far to consumer of a run in completion order
+	 *
+	 * Futures of paths are moved from list of futures to pending futures of the run, so
+	 * they are dropped once consumed. Does nothing if run passes metrics in order of config.
+	 *
+	 * @param futures futures of paths submitted since last call
+	 * @param runState state shared by paths of the run
+	 * @param until future to wait for while passing metrics, or null to pass metrics of
+	 *              paths already completed without waiting
+	 * @throws InterruptedIOException
+	 */
+	private void drainCompleted(List<Future<PathMetrics>> futures, RunState runState,
+			CompletableFuture<?> until) throws InterruptedIOException {
+		if (runState.completed == null) {
+			return;
+		}
+		runState.pending.addAll(futures);
+		futures.clear();
+
+		// wake up taking thread once future is done
+		if (until != null && !until.isDone()) {
+			until.whenComplete((result, error) ->
+					runState.completed.add(RunState.WAKE_UP));
+		}
+		while (true) {
+			Future<PathMetrics> future;
+			if (until == null || until.isDone()) {
+				future = runState.completed.poll();
+				if (future == null) {
+					return;
+				}
+			} else {
+				future = takeCompleted(runState);
+			}
+			acceptCompleted(future, runState);
+		}
+	}
+
+	/**
+	 * Waits for next completed future of a run in completion order
+	 *
+	 * @param runState state shared by paths of the run
+	 * @return completed future
+	 * @throws InterruptedIOException
+	 */
+	private Future<PathMetrics> takeCompleted(RunState runState) throws InterruptedIOException {
+		try {
+			return runState.completed.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for paths");
+		}
+	}
+
+	/**
+	 * Passes metrics of completed future to consumer of a run, unless future only wakes up
+	 * taking thread
+	 *
+	 * Exceptions of consumer are wrapped so they pass through error handling of repeats,
+	 * and are rethrown by the run.
+	 *
+	 * @param future completed future
+	 * @param runState state shared by paths of the run
+	 */
+	private void acceptCompleted(Future<PathMetrics> future, RunState runState) {
+		if (future != RunState.WAKE_UP) {
+			runState.pending.remove(future);
+			try {
+				accept(future, runState.consumer);
+			} catch (RuntimeException e) {
+				throw new ConsumerException(e);
+			}
+		}
+	}
+
+	/**
+	 * Render properties
+	 *
+	 * Properties whose names are literals are rendered concurrently on the executor service,
+	 * each one as soon as the properties it depends on are rendered. If any property name
+	 * is itself an expression, properties are rendered one by one in the calling thread.
+	 *
+	 * @param properties properties to render
+	 * @param renderer renderer
+	 * @param context context
+	 * @param executorService executor service
+	 * @return futures of rendered properties
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 */
+	protected PropertyFutures renderProperties(List<Property> properties, final Renderer renderer,
+			final Context context, ExecutorService executorService)
+			throws InvalidNameException, WrongTypeException, RenderException {
+
+		// render in order if dependencies cannot be determined
+		PropertyGraph graph = getPropertyGraph(properties);
+		if (!graph.isAnalyzable()) {
+			for (Property property : properties) {
+				renderProperty(property, renderer, context);
+			}
+			return PropertyFutures.completed();
+		}
+
+		// render each property after its dependencies
+		List<CompletableFuture<Void>> futures = Lists.newArrayListWithCapacity(properties.size());
+		for (int i = 0; i < properties.size(); i++) {
+			final Property property = properties.get(i);
+			Set<Integer> dependencies = graph.getDependencies(i);
+			CompletableFuture<?>[] dependencyFutures = new CompletableFuture<?>[dependencies.size()];
+			int j = 0;
+			for (int dependency : dependencies) {
+				dependencyFutures[j++] = futures.get(dependency);
+			}
+			futures.add(CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+				try {
+					renderProperty(property, renderer, context);
+				} catch (InvalidNameException | WrongTypeException | RenderException e) {
+					throw new CompletionException(e);
+				}
+			}, executorService));
+		}
+		return new PropertyFutures(graph, futures);
+	}
+
+	/**
+	 * Gets dependency graph of properties
+	 *
+	 * Graph is built once for the properties of this Camino's configuration.
+	 *
+	 * @param properties properties
+	 * @return property graph
+	 */
+	protected PropertyGraph getPropertyGraph(List<Property> properties) {
+		if (properties != config.getProperties()) {
+			return new PropertyGraph(properties);
+		}
+		if (propertyGraph == null) {
+			propertyGraph = new PropertyGraph(properties);
+		}
+		return propertyGraph;
+	}
+
 	/**
 	 * Render property
 	 *
@@ -191,20 +506,126 @@ public class Camino {
 	protected void processPathMetrics(List<Path> paths, final Renderer renderer, final Context context,
 			ExecutorService executorService, List<Future<PathMetrics>> futures)
 			throws InvalidNameException, WrongTypeException, RenderException, IOException {
+		processPathMetrics(paths, renderer, context, executorService, futures,
+				RunState.DEFAULT);
+	}
+
+	/**
+	 * Process path and metrics once properties they reference are rendered
+	 *
+	 * @param paths paths to process
+	 * @param renderer renderer
+	 * @param context context
+	 * @param executorService executor service
+	 * @param futures list to add futures of path metrics to
+	 * @param runState state shared by paths of the run
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	protected void processPathMetrics(List<Path> paths, final Renderer renderer, final Context context,
+			ExecutorService executorService, List<Future<PathMetrics>> futures,
+			final RunState runState)
+			throws InvalidNameException, WrongTypeException, RenderException, IOException {
+		processPathMetrics(paths, renderer, context, executorService, futures, runState, null);
+	}
+
+	/**
+	 * Process path and metrics once properties they reference are rendered, optionally
+	 * aggregating them into overflow series of a repeat
+	 *
+	 * @param paths paths to process
+	 * @param renderer renderer
+	 * @param context context
+	 * @param executorService executor service
+	 * @param futures list to add futures of path metrics to
+	 * @param runState state shared by paths of the run
+	 * @param overflow overflow series to aggregate metrics into, in which case futures
+	 *                 return null, or null to return metrics of each path
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	protected void processPathMetrics(List<Path> paths, final Renderer renderer, final Context context,
+			ExecutorService executorService, List<Future<PathMetrics>> futures,
+			final RunState runState, final RepeatOverflow overflow)
+			throws InvalidNameException, WrongTypeException, RenderException, IOException {
 
 		for (final Path path : paths) {
 			Callable<PathMetrics> callable = () -> {
+				PathMetrics pathMetrics;
 				try {
-					return computePathMetrics(path, renderer, context);
+					pathMetrics = computePathMetrics(path, renderer, context,
+							runState.globPlanner);
 				} catch (Throwable error) {
 					context.getEnv().getErrorHandler().onPathError(path, error);
-					return new PathMetrics(path, null, null);
+					pathMetrics = new PathMetrics(path, null, null);
+				}
+				if (overflow != null) {
+					overflow.add(pathMetrics);
+					return null;
 				}
+				return pathMetrics;
 			};
-			futures.add(executorService.submit(callable));
+
+			// submit path right away if all properties are rendered
+			PropertyFutures propertyFutures = runState.propertyFutures;
+			if (propertyFutures.isDone() && runState.completed == null) {
+				futures.add(executorService.submit(callable));
+			} else {
+				final CompletableFuture<PathMetrics> future = propertyFutures.submit(
+						propertyFutures.isDone() ? null : getReferences(path), callable,
+						executorService);
+				if (runState.completed != null) {
+					future.whenComplete((result, error) -> runState.completed.add(future));
+				}
+				futures.add(future);
+			}
 		}
 	}
 
+	/**
+	 * Gets identifiers a path may reference
+	 *
+	 * Includes identifiers in all expressions of the path, and names of functions used by
+	 * its metrics.
+	 *
+	 * @param path path
+	 * @return referenced identifiers, or null if they cannot be determined
+	 */
+	protected Set<String> getReferences(Path path) {
+		Set<String> references = pathReferences.get(path);
+		if (references != null) {
+			return references;
+		}
+		references = Sets.newHashSet(DEFAULT_METRIC_FUNCTIONS);
+		try {
+			references.addAll(PropertyGraph.findReferences(path.getName()));
+			references.addAll(PropertyGraph.findReferences(path.getValue()));
+			if (path.getExpectedCreationTime() != null) {
+				references.addAll(PropertyGraph.findReferences(path.getExpectedCreationTime()));
+			}
+			for (Tag tag : path.getTags()) {
+				references.addAll(PropertyGraph.findReferences(tag.getKey()));
+				references.addAll(PropertyGraph.findReferences(tag.getValue()));
+			}
+		} catch (RenderException e) {
+			return null;
+		}
+		for (Metric metric : path.getMetrics()) {
+			if (metric.getFunction() != null) {
+				references.add(metric.getFunction());
+			}
+			if (metric.getAggFunction() != null) {
+				references.add(metric.getAggFunction());
+			}
+		}
+		pathReferences.put(path, references);
+		return references;
+	}
+
 	/**
 	 * Renders and materializes one path, then computes its metrics
 	 *
@@ -218,10 +639,30 @@ public class Camino {
 	 */
 	protected PathMetrics computePathMetrics(Path path, Renderer renderer, Context context)
 			throws InvalidNameException, WrongTypeException, RenderException, IOException {
+		return computePathMetrics(path, renderer, context, null);
+	}
+
+	/**
+	 * Renders and materializes one path with glob planner, then computes its metrics
+	 *
+	 * @param path path to process
+	 * @param renderer renderer
+	 * @param context context
+	 * @param globPlanner glob planner shared by paths of the run, or null to glob path on
+	 *                    its own
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	protected PathMetrics computePathMetrics(Path path, Renderer renderer, Context context,
+			GlobPlanner globPlanner) throws InvalidNameException, WrongTypeException,
+			RenderException, IOException {
 
 		// render and materialize path
-		PathStatus pathStatus = renderAndMaterializePath(path, renderer, context,
-				context.getEnv().getFileSystem());
+		PathStatus pathStatus = globPlanner != null ?
+				renderAndMaterializePath(path, renderer, context, globPlanner) :
+				renderAndMaterializePath(path, renderer, context, context.getEnv().getFileSystem());
 
 		// add default metrics
 		List<Metric> metrics = Lists.newLinkedList();
@@ -230,15 +671,83 @@ public class Camino {
 		// add custom metrics
 		metrics.addAll(pathStatus.getPath().getMetrics());
 
-		// compute metrics
+		// compute metrics, summarizing path details once for all built-in aggregates
+		PathDetailSummary summary = null;
 		List<MetricDatum> metricData = Lists.newArrayListWithCapacity(metrics.size());
 		for (Metric metric : metrics) {
-			MetricDatum metricDatum = computeMetric(metric, pathStatus, renderer, context);
+			MetricDatum metricDatum;
+			if (pathStatus.getSample() != null) {
+				metricDatum = computeSampledMetric(metric, pathStatus, renderer, context);
+			} else if (isSummarized(metric, context)) {
+				if (summary == null) {
+					summary = new PathDetailSummary(pathStatus.getPathDetails(),
+							context.getGlobalInstanceTime());
+				}
+				metricDatum = computeMetric(metric, pathStatus, summary, renderer, context);
+			} else {
+				metricDatum = computeMetric(metric, pathStatus, renderer, context);
+			}
 			metricData.add(metricDatum);
+			recordHistory(metricDatum, context);
 		}
 		return new PathMetrics(path, pathStatus, metricData);
 	}
 
+	/**
+	 * Records value of metric in metric history of environment, if it keeps one
+	 *
+	 * Failing to record history is logged, and does not fail the metric.
+	 *
+	 * @param metricDatum metric datum
+	 * @param context context
+	 */
+	protected void recordHistory(MetricDatum metricDatum, Context context) {
+		MetricHistory metricHistory = context.getEnv().getMetricHistory();
+		if (metricHistory == null || Double.isNaN(metricDatum.getValue())) {
+			return;
+		}
+		try {
+			metricHistory.append(metricDatum.getMetricId(), context.getGlobalInstanceTime(),
+					metricDatum.getValue());
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, String.format("Cannot record history of %s",
+					metricDatum.getMetricId()), e);
+		}
+	}
+
+	/**
+	 * Returns true if metric can be computed from a summary of path details
+	 *
+	 * Only count, and built-in aggregates of age and size are summarized, and only if their
+	 * functions have not been replaced in context. Metrics that report top path details are
+	 * not summarized.
+	 *
+	 * @param metric metric definition
+	 * @param context context
+	 * @return true if metric can be summarized, false otherwise
+	 */
+	protected boolean isSummarized(Metric metric, Context context) {
+		if (metric.getTop() > 0) {
+			return false;
+		}
+		if (metric.getAggFunction() != null) {
+			return FunctionEnum.COUNT.getName().equals(metric.getAggFunction()) &&
+					context.getProperty(metric.getAggFunction()) == FunctionEnum.COUNT.getFunction();
+		}
+		FunctionEnum function;
+		if (FunctionEnum.AGE.getName().equals(metric.getFunction())) {
+			function = FunctionEnum.AGE;
+		} else if (FunctionEnum.SIZE.getName().equals(metric.getFunction())) {
+			function = FunctionEnum.SIZE;
+		} else {
+			return false;
+		}
+		return PathDetailSummary.isSupported(metric.getAggregate()) &&
+				context.getProperty(function.getName()) == function.getFunction() &&
+				context.getProperty(FunctionEnum.METRIC_AGG.getName()) ==
+						FunctionEnum.METRIC_AGG.getFunction();
+	}
+
 	/**
 	 * Get default metrics for a path status
 	 *
@@ -250,24 +759,16 @@ public class Camino {
 		List<Metric> metrics = Lists.newLinkedList();
 
 		// add simple metrics
-		metrics.add(new Metric("age", FunctionEnum.AGE.getName(), "max", null, 0));
-		metrics.add(new Metric("size", FunctionEnum.SIZE.getName(), "sum", null, 0));
-		metrics.add(new Metric("count", null, null, FunctionEnum.COUNT.getName(), 0));
+		metrics.addAll(SIMPLE_METRICS);
 
 		// add agg metrics if path contains wild card
 		if (containsWildcard(pathStatus.getValue())) {
-			metrics.add(new Metric("maxAge", FunctionEnum.AGE.getName(), "max", null, 0));
-			metrics.add(new Metric("minAge", FunctionEnum.AGE.getName(), "min", null, 0));
-			metrics.add(new Metric("avgAge", FunctionEnum.AGE.getName(), "avg", null, 0));
-			metrics.add(new Metric("maxSize", FunctionEnum.SIZE.getName(), "max", null, 0));
-			metrics.add(new Metric("minSize", FunctionEnum.SIZE.getName(), "min", null, 0));
-			metrics.add(new Metric("avgSize", FunctionEnum.SIZE.getName(), "avg", null, 0));
-			metrics.add(new Metric("sumSize", FunctionEnum.SIZE.getName(), "sum", null, 0));
+			metrics.addAll(WILDCARD_METRICS);
 		}
 
 		// add creation delay if expected creation time is defined
 		if (pathStatus.getExpectedCreationTime() != null) {
-			metrics.add(new Metric("creationDelay", null, null, FunctionEnum.CREATION_DELAY.getName(), 0));
+			metrics.add(CREATION_DELAY_METRIC);
 		}
 
 		return metrics;
@@ -277,7 +778,9 @@ public class Camino {
 	 * Process repeat
 	 *
 	 * Iterate through each value of the list and process all paths and metrics for each
-	 * repeat.
+	 * repeat. Futures of paths past the series budget of the repeat return null, and a
+	 * future of each overflow series is added after them, returning the overflow series
+	 * once all paths aggregated into it are done.
 	 *
 	 * @param repeat repeat
 	 * @param renderer renderer
@@ -290,8 +793,87 @@ public class Camino {
 	protected void processRepeat(final Repeat repeat, final Renderer renderer, final Context context,
 			final ExecutorService executorService, final List<Future<PathMetrics>> futures)
 			throws InvalidNameException, WrongTypeException, RenderException, IOException {
+		RunState runState = new RunState(PropertyFutures.completed(), null, null,
+				new SeriesBudget(null, null), null);
+		int start = futures.size();
+		processRepeat(repeat, renderer, context, executorService, futures, runState);
 
+		// report overflow series after paths aggregated into them
+		List<Future<PathMetrics>> pathFutures = ImmutableList.copyOf(
+				futures.subList(start, futures.size()));
+		for (RepeatOverflow overflow : runState.overflows.values()) {
+			futures.add(new OverflowFuture(overflow, pathFutures));
+		}
+	}
+
+	/**
+	 * Process repeat once properties it references are rendered
+	 *
+	 * @param repeat repeat
+	 * @param renderer renderer
+	 * @param context context
+	 * @param executorService executor service
+	 * @param futures list to add futures of path metrics to
+	 * @param runState state shared by paths of the run
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	protected void processRepeat(final Repeat repeat, final Renderer renderer, final Context context,
+			final ExecutorService executorService, final List<Future<PathMetrics>> futures,
+			final RunState runState)
+			throws InvalidNameException, WrongTypeException, RenderException, IOException {
+		processRepeat(repeat, renderer, context, executorService, futures, runState,
+				runState.budget, null);
+	}
+
+	/**
+	 * Process repeat within series budget of enclosing repeats and config
+	 *
+	 * Each element takes as many series from the budget of the repeat and of all enclosing
+	 * budgets as the repeat has paths. Once any budget runs short, paths of the element and
+	 * of all further elements, including those of nested repeats, are aggregated into the
+	 * overflow series of the repeat.
+	 *
+	 * @param repeat repeat
+	 * @param renderer renderer
+	 * @param context context
+	 * @param executorService executor service
+	 * @param futures list to add futures of path metrics to
+	 * @param runState state shared by paths of the run
+	 * @param parentBudget series budget of enclosing repeat or config
+	 * @param parentOverflow overflow series of enclosing repeat if element of enclosing
+	 *                       repeat overflowed, or null
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	private void processRepeat(final Repeat repeat, final Renderer renderer,
+			final Context context, final ExecutorService executorService,
+			final List<Future<PathMetrics>> futures, final RunState runState,
+			final SeriesBudget parentBudget, final RepeatOverflow parentOverflow)
+			throws InvalidNameException, WrongTypeException, RenderException, IOException {
+
+		SeriesBudget budget = new SeriesBudget(repeat.getMaxSeries(), parentBudget);
+		RepeatOverflow overflow = parentOverflow;
+		int overflowCount = 0;
 		try {
+			// wait for properties referenced by list, passing on paths completed meanwhile
+			PropertyFutures propertyFutures = runState.propertyFutures;
+			if (!propertyFutures.isDone()) {
+				Set<String> references;
+				try {
+					references = PropertyGraph.findReferences(repeat.getList());
+				} catch (RenderException e) {
+					references = null;
+				}
+				CompletableFuture<Void> ready = propertyFutures.await(references);
+				drainCompleted(futures, runState, ready);
+				ready.join();
+			}
+
 			// render repeat
 			checkIdentifier(repeat.getVar());
 			List<?> list = validation.requireType(renderer.render(repeat.getList(), context),
@@ -304,19 +886,39 @@ public class Camino {
 				Context repeatContext = context.createChild();
 				repeatContext.setProperty(repeat.getVar(), value);
 
+				// aggregate element into overflow series once series budget is used up
+				if (overflow == null && !budget.take(repeat.getPaths().size())) {
+					overflow = runState.getOverflow(RepeatOverflow.getName(repeat.getVar()));
+				}
+				if (overflow != parentOverflow) {
+					overflowCount++;
+				}
+
 				// process path and metrics
 				processPathMetrics(repeat.getPaths(), renderer, repeatContext, executorService,
-						futures);
+						futures, runState, overflow);
 
 				// process nested repeats
 				for (Repeat childRepeat : repeat.getRepeats()) {
-					processRepeat(childRepeat, renderer, repeatContext, executorService, futures);
+					processRepeat(childRepeat, renderer, repeatContext, executorService, futures,
+							runState, budget, overflow);
 				}
+
+				// pass on paths completed so far
+				drainCompleted(futures, runState, null);
 			}
+		} catch (ConsumerException e) {
+			throw e;
 		} catch (Throwable error) {
 			// log error
 			context.getEnv().getErrorHandler().onRepeatError(repeat, error);
 		}
+
+		// report elements aggregated into overflow series
+		if (overflowCount > 0) {
+			context.getEnv().getErrorHandler().onRepeatOverflow(repeat,
+					RepeatOverflow.getName(repeat.getVar()), overflowCount);
+		}
 	}
 
 	/**
@@ -335,6 +937,32 @@ public class Camino {
 	protected PathStatus renderAndMaterializePath(Path path, Renderer renderer, Context context,
 			FileSystem fileSystem) throws InvalidNameException, WrongTypeException,
 			RenderException, IOException {
+		return renderAndMaterializePath(path, renderer, context, fileSystem, null);
+	}
+
+	/**
+	 * Render path and materialize it with glob planner
+	 *
+	 * @param path path to render and materialize
+	 * @param renderer renderer
+	 * @param context context
+	 * @param globPlanner glob planner
+	 * @return path status
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	protected PathStatus renderAndMaterializePath(Path path, Renderer renderer, Context context,
+			GlobPlanner globPlanner) throws InvalidNameException, WrongTypeException,
+			RenderException, IOException {
+		return renderAndMaterializePath(path, renderer, context, globPlanner.getFileSystem(),
+				globPlanner);
+	}
+
+	private PathStatus renderAndMaterializePath(Path path, Renderer renderer, Context context,
+			FileSystem fileSystem, GlobPlanner globPlanner) throws InvalidNameException,
+			WrongTypeException, RenderException, IOException {
 
 		String name = renderName(path.getName(), renderer, context);
 		String value = validation.requireType(renderer.render(path.getValue(), context),
@@ -346,8 +974,43 @@ public class Camino {
 					Message.prefix(String.format("Expected creation time %s must be a time value",
 					path.getExpectedCreationTime())));
 		}
-		return new PathStatus(name, value, path, materializePath(value, fileSystem),
-				expectedCreationTime);
+		List<Tag> tags = renderTags(path.getTags(), renderer, context);
+		if (path.getSample() != null && globPlanner != null) {
+			PathSample sample = samplePath(value, globPlanner, path.getSample());
+			return new PathStatus(name, value, path, sample.getPathDetails(),
+					expectedCreationTime, false, sample, tags);
+		}
+		List<PathDetail> pathDetails = globPlanner != null ?
+				materializePath(value, globPlanner) : materializePath(value, fileSystem);
+		boolean truncated = pathDetails instanceof PathDetailList &&
+				((PathDetailList) pathDetails).isTruncated();
+		return new PathStatus(name, value, path, pathDetails, expectedCreationTime, truncated,
+				null, tags);
+	}
+
+	/**
+	 * Render tags
+	 *
+	 * Rendered tags are interned, so paths with the same tags share one immutable list
+	 * across runs.
+	 *
+	 * @param tags tags to render
+	 * @param renderer renderer
+	 * @param context context
+	 * @return immutable list of rendered tags
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 */
+	protected List<Tag> renderTags(List<Tag> tags, Renderer renderer, Context context)
+			throws RenderException, WrongTypeException, InvalidNameException {
+		ImmutableList.Builder<Tag> builder = ImmutableList.builder();
+		for (Tag tag : tags) {
+			String key = renderName(tag.getKey(), renderer, context);
+			String value = renderString(tag.getValue(), renderer, context);
+			builder.add(new Tag(key, value));
+		}
+		return TAG_INTERNER.intern(builder.build());
 	}
 
 	/**
@@ -372,15 +1035,150 @@ public class Camino {
 		}
 
 		// found match(es)
-		List<PathDetail> pathDetails = Lists.newArrayListWithExpectedSize(fss.length);
+		return toPathDetails(Arrays.asList(fss));
+	}
+
+	/**
+	 * Materialize path with glob planner
+	 *
+	 * Directory listings are shared with other paths materialized by the same planner. If
+	 * the environment tracks changes, paths materialized by an earlier run are reused until
+	 * a change affects them.
+	 *
+	 * @param value rendered value of path
+	 * @param globPlanner glob planner
+	 * @return path status
+	 * @throws IOException
+	 */
+	protected List<PathDetail> materializePath(String value, GlobPlanner globPlanner)
+			throws IOException {
+		PathDetailCache pathDetailCache = env.getPathDetailCache();
+		if (pathDetailCache != null) {
+			List<PathDetail> pathDetails = pathDetailCache.get(value);
+			if (pathDetails != null) {
+				return pathDetails;
+			}
+		}
+		List<PathDetail> pathDetails;
+		if (env.getMaxPathDetails() > 0) {
+			pathDetails = streamPath(value, globPlanner, env.getMaxPathDetails());
+		} else {
+			List<FileStatus> fss = globPlanner.globStatus(value);
+			pathDetails = fss.isEmpty() ? Collections.<PathDetail>emptyList() :
+					toPathDetails(fss);
+		}
+		if (pathDetailCache != null) {
+			pathDetailCache.put(value, pathDetails);
+		}
+		return pathDetails;
+	}
+
+	/**
+	 * Materialize path by iterating over listings, up to a maximum number of path details
+	 *
+	 * File statuses are converted to path details as they are listed, so only path details
+	 * are held in memory. If more paths match than the maximum, the rest are not listed
+	 * and the returned list is marked truncated.
+	 *
+	 * @param value rendered value of path
+	 * @param globPlanner glob planner
+	 * @param maxPathDetails maximum number of path details
+	 * @return path details
+	 * @throws IOException
+	 */
+	protected PathDetailList streamPath(String value, GlobPlanner globPlanner,
+			final int maxPathDetails) throws IOException {
+		final PathDetailList.Builder builder = new PathDetailList.Builder(
+				Math.min(maxPathDetails, 1024));
+		boolean complete = globPlanner.streamStatus(value, fs -> {
+			if (builder.size() >= maxPathDetails) {
+				return false;
+			}
+			builder.add(fs.getPath().toString(), fs.isDirectory(), fs.getLen(),
+					fs.getModificationTime());
+			return true;
+		});
+		if (!complete) {
+			LOGGER.warning(String.format("Path %s matches more than %d paths; metrics only " +
+					"cover the first %d", value, maxPathDetails, maxPathDetails));
+			builder.truncate();
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Materialize path in a random subset of directories
+	 *
+	 * A new sample is drawn every time, so errors of estimates don't persist across runs.
+	 * Samples are not kept in the path detail cache.
+	 *
+	 * @param value rendered value of path
+	 * @param globPlanner glob planner
+	 * @param fraction fraction of directories to sample
+	 * @return path sample
+	 * @throws IOException
+	 */
+	protected PathSample samplePath(String value, GlobPlanner globPlanner, double fraction)
+			throws IOException {
+		GlobPlanner.Sample sample = globPlanner.sampleStatus(value, fraction,
+				ThreadLocalRandom.current());
+		List<List<FileStatus>> statuses = sample.getStatuses();
+		PathDetailList.Builder builder = new PathDetailList.Builder(1024);
+		int[] directoryEnds = new int[statuses.size()];
+		for (int i = 0; i < directoryEnds.length; i++) {
+			for (FileStatus fs : statuses.get(i)) {
+				builder.add(fs.getPath().toString(), fs.isDirectory(), fs.getLen(),
+						fs.getModificationTime());
+			}
+			directoryEnds[i] = builder.size();
+		}
+		return new PathSample(sample.getDirectoryCount(), builder.build(), directoryEnds);
+	}
+
+	/**
+	 * Converts file statuses to path details
+	 *
+	 * @param fss file statuses
+	 * @return path details
+	 */
+	protected List<PathDetail> toPathDetails(List<FileStatus> fss) {
+		PathDetailList.Builder builder = new PathDetailList.Builder(fss.size());
 		for (FileStatus fs : fss) {
-			PathDetail pathDetail = new PathDetail(fs.getPath().toString(), fs.isDirectory(),
-					fs.getLen(), fs.getModificationTime());
-			pathDetails.add(pathDetail);
+			builder.add(fs.getPath().toString(), fs.isDirectory(), fs.getLen(),
+					fs.getModificationTime());
 		}
+		return builder.build();
+	}
 
-		// return path details
-		return pathDetails;
+	/**
+	 * Compute metric from summary of path details
+	 *
+	 * @param metric metric definition, for which {@link #isSummarized} is true
+	 * @param pathStatus path status
+	 * @param summary summary of path details of path status
+	 * @param renderer renderer
+	 * @param context context
+	 * @return MetricData containing name and value of metric
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 */
+	protected MetricDatum computeMetric(Metric metric, PathStatus pathStatus,
+			PathDetailSummary summary, Renderer renderer, Context context)
+			throws InvalidNameException, WrongTypeException, RenderException {
+
+		MetricId metricId = getMetricId(metric, pathStatus, renderer, context);
+		double value;
+		if (metric.getAggFunction() != null) {
+			value = summary.getCount();
+		} else if (summary.getCount() == 0) {
+			value = metric.getDefaultValue();
+		} else if (FunctionEnum.AGE.getName().equals(metric.getFunction())) {
+			value = summary.getAge(metric.getAggregate());
+		} else {
+			value = summary.getSize(metric.getAggregate());
+		}
+		return new MetricDatum(metricId, metric, pathStatus, value);
 	}
 
 	/**
@@ -399,6 +1197,7 @@ public class Camino {
 			Context context) throws InvalidNameException, WrongTypeException, RenderException {
 
 		// get metric ID
+		pathStatus = renderTags(pathStatus, renderer, context);
 		MetricId metricId = getMetricId(metric, pathStatus, renderer, context);
 
 		// invoke metric function
@@ -407,6 +1206,13 @@ public class Camino {
 			aggFunction = validation.requireNotNull(context.getProperty(metric.getAggFunction(), Function.class),
 					Message.prefix(String.format("aggFunction %s not found", metric.getAggFunction())));
 		}
+		if (metric.getTop() > 0 && aggFunction instanceof MetricAggregateFunction) {
+			// keep path details with largest values in same pass as aggregate
+			AggregateResult result = ((MetricAggregateFunction) aggFunction).aggregate(metric,
+					pathStatus, context);
+			return new MetricDatum(metricId, metric, pathStatus, result.getValue(),
+					result.getTopPathDetails());
+		}
 		List<?> params = Lists.newArrayList(metric, pathStatus);
 		double value = validation.requireType(aggFunction.invoke(params, context),
 				Double.class, Message.prefix("expected double"));
@@ -415,6 +1221,50 @@ public class Camino {
 		return new MetricDatum(metricId, metric, pathStatus, value);
 	}
 
+	/**
+	 * Compute metric of sampled path
+	 *
+	 * Count and aggregates of the default metric aggregation function are estimated for all
+	 * paths from the sample. Custom aggregation functions, other than count, are computed
+	 * over sampled paths as is, with unknown error.
+	 *
+	 * @param metric metric definition
+	 * @param pathStatus path status with sampled path details
+	 * @param renderer renderer
+	 * @param context context
+	 * @return MetricData containing name, estimated value and error bound of metric
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 */
+	protected MetricDatum computeSampledMetric(Metric metric, PathStatus pathStatus,
+			Renderer renderer, Context context) throws InvalidNameException, WrongTypeException,
+			RenderException {
+
+		pathStatus = renderTags(pathStatus, renderer, context);
+		MetricId metricId = getMetricId(metric, pathStatus, renderer, context);
+		PathSample sample = pathStatus.getSample();
+		if (metric.getAggFunction() == null) {
+			AggregateResult result = ((MetricAggregateFunction) FunctionEnum.METRIC_AGG
+					.getFunction()).estimate(metric, pathStatus, context);
+			return new MetricDatum(metricId, metric, pathStatus, result.getValue(),
+					result.getError(), result.getTopPathDetails());
+		}
+		Function aggFunction = validation.requireNotNull(context.getProperty(
+				metric.getAggFunction(), Function.class), Message.prefix(String.format(
+				"aggFunction %s not found", metric.getAggFunction())));
+		if (aggFunction == FunctionEnum.COUNT.getFunction()) {
+			PathSample.Estimate estimate = sample.estimateCount();
+			return new MetricDatum(metricId, metric, pathStatus, estimate.getValue(),
+					estimate.getError(), ImmutableList.<PathDetail>of());
+		}
+		List<?> params = Lists.newArrayList(metric, pathStatus);
+		double value = validation.requireType(aggFunction.invoke(params, context),
+				Double.class, Message.prefix("expected double"));
+		return new MetricDatum(metricId, metric, pathStatus, value,
+				sample.isComplete() ? 0 : Double.NaN, ImmutableList.<PathDetail>of());
+	}
+
 	/**
 	 * Get metric ID
 	 *
@@ -437,16 +1287,33 @@ public class Camino {
 			name = metric.getFunction();
 		}
 
-		// render tags
-		List<Tag> tags = pathStatus.getPath().getTags();
-		List<Tag> renderedTags = Lists.newArrayListWithCapacity(tags.size());
-		for (Tag tag : tags) {
-			String key = renderName(tag.getKey(), renderer, context);
-			String value = renderString(tag.getValue(), renderer, context);
-			renderedTags.add(new Tag(key, value));
-		}
+		return MetricId.of(name, renderTags(pathStatus, renderer, context));
+	}
 
-		return new MetricId(name, pathStatus.getName(), renderedTags);
+	/**
+	 * Render tags of path status
+	 *
+	 * Tags rendered with path are reused, and are rendered only if path status has none, as
+	 * for path statuses created without tags. Metric functions are passed the returned path
+	 * status, so they identify metrics of the path by the same tags as the metric itself.
+	 *
+	 * @param pathStatus path status
+	 * @param renderer renderer
+	 * @param context context
+	 * @return path status with rendered tags
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 */
+	protected PathStatus renderTags(PathStatus pathStatus, Renderer renderer, Context context)
+			throws RenderException, WrongTypeException, InvalidNameException {
+		if (pathStatus.getTags() != null) {
+			return pathStatus;
+		}
+		return new PathStatus(pathStatus.getName(), pathStatus.getValue(), pathStatus.getPath(),
+				pathStatus.getPathDetails(), pathStatus.getExpectedCreationTime(),
+				pathStatus.isTruncated(), pathStatus.getSample(),
+				renderTags(pathStatus.getPath().getTags(), renderer, context));
 	}
 
 	/**
@@ -480,4 +1347,352 @@ public class Camino {
 		return value.matches(".*(([^\\\\][\\*\\?])|([^\\\\]\\[.*[^\\\\]\\])|([^\\\\]\\{.*[^\\\\]\\})).*");
 	}
 
+	/**
+	 * Exception of consumer of a run, passed on to caller of the run
+	 */
+	private static class ConsumerException extends RuntimeException {
+
+		ConsumerException(RuntimeException cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * Future of overflow series, done once all paths that may be aggregated into it are done
+	 */
+	private static class OverflowFuture implements Future<PathMetrics> {
+
+		private final RepeatOverflow overflow;
+		private final List<Future<PathMetrics>> pathFutures;
+
+		OverflowFuture(RepeatOverflow overflow, List<Future<PathMetrics>> pathFutures) {
+			this.overflow = overflow;
+			this.pathFutures = pathFutures;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return false;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+
+		@Override
+		public boolean isDone() {
+			for (Future<PathMetrics> future : pathFutures) {
+				if (!future.isDone()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public PathMetrics get() throws InterruptedException, ExecutionException {
+			for (Future<PathMetrics> future : pathFutures) {
+				future.get();
+			}
+			return overflow.getPathMetrics();
+		}
+
+		@Override
+		public PathMetrics get(long timeout, TimeUnit unit) throws InterruptedException,
+				ExecutionException, TimeoutException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			for (Future<PathMetrics> future : pathFutures) {
+				future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+			return overflow.getPathMetrics();
+		}
+	}
+
+	/**
+	 * State shared by all paths of one run
+	 */
+	protected static class RunState {
+
+		private final static RunState DEFAULT = new RunState(PropertyFutures.completed(), null,
+				null, null, null);
+
+		/**
+		 * Future added to queue of completed futures to wake up thread taking from it
+		 */
+		private final static Future<PathMetrics> WAKE_UP = CompletableFuture.completedFuture(
+				null);
+
+		private final PropertyFutures propertyFutures;
+		private final GlobPlanner globPlanner;
+		private final BlockingQueue<Future<PathMetrics>> completed;
+		private final SeriesBudget budget;
+		private final Map<String, RepeatOverflow> overflows = Maps.newLinkedHashMap();
+		private final Set<Future<PathMetrics>> pending = Sets.newIdentityHashSet();
+		private final Consumer<PathMetrics> consumer;
+
+		/**
+		 * Constructor
+		 *
+		 * @param propertyFutures futures of rendered properties
+		 * @param globPlanner glob planner shared by paths, or null to glob each path on its own
+		 * @param completed queue to add futures of path metrics to as they complete, or null
+		 *                  if paths are collected in order
+		 * @param budget series budget of config shared by all repeats
+		 * @param consumer consumer of path metrics as paths complete, or null if paths are
+		 *                 collected in order
+		 */
+		RunState(PropertyFutures propertyFutures, GlobPlanner globPlanner,
+				BlockingQueue<Future<PathMetrics>> completed, SeriesBudget budget,
+				Consumer<PathMetrics> consumer) {
+			this.propertyFutures = propertyFutures;
+			this.globPlanner = globPlanner;
+			this.completed = completed;
+			this.budget = budget;
+			this.consumer = consumer;
+		}
+
+		/**
+		 * Gets overflow series of a name, creating it if needed
+		 *
+		 * Repeats are processed by the calling thread of a run, so overflow series of all
+		 * elements of nested repeats with the same name are one series.
+		 *
+		 * @param name path name of overflow series
+		 * @return overflow series
+		 */
+		RepeatOverflow getOverflow(String name) {
+			RepeatOverflow overflow = overflows.get(name);
+			if (overflow == null) {
+				overflow = new RepeatOverflow(name);
+				overflows.put(name, overflow);
+			}
+			return overflow;
+		}
+	}
+
+	/**
+	 * Budget of series created by a repeat or config in one run
+	 *
+	 * Series are taken from a budget only if all enclosing budgets can spare them as well.
+	 * Budgets are used by the calling thread of a run only, and are not thread-safe.
+	 */
+	protected static class SeriesBudget {
+
+		private final Integer limit;
+		private final SeriesBudget parent;
+		private int used = 0;
+
+		/**
+		 * Constructor
+		 *
+		 * @param limit maximum number of series, or null if unlimited
+		 * @param parent enclosing budget, or null
+		 */
+		SeriesBudget(Integer limit, SeriesBudget parent) {
+			this.limit = limit;
+			this.parent = parent;
+		}
+
+		/**
+		 * Takes series from this budget and all enclosing budgets
+		 *
+		 * @param count number of series
+		 * @return true if series were taken, false if any budget is short of them
+		 */
+		boolean take(int count) {
+			for (SeriesBudget budget = this; budget != null; budget = budget.parent) {
+				if (budget.limit != null && budget.used + count > budget.limit) {
+					return false;
+				}
+			}
+			for (SeriesBudget budget = this; budget != null; budget = budget.parent) {
+				budget.used += count;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Futures of properties being rendered
+	 *
+	 * Also dispatches tasks that wait for properties. Tasks are submitted in the order they
+	 * were added once the properties they need are rendered.
+	 */
+	protected static class PropertyFutures {
+
+		private final static PropertyFutures COMPLETED = new PropertyFutures(null,
+				ImmutableList.<CompletableFuture<Void>>of());
+
+		private final PropertyGraph graph;
+		private final List<CompletableFuture<Void>> futures;
+		private final Map<String, CompletableFuture<Void>> futuresByName = Maps.newHashMap();
+		private final CompletableFuture<Void> all;
+		private final List<PendingTask<?>> pendingTasks = Lists.newLinkedList();
+
+		/**
+		 * Constructor
+		 *
+		 * @param graph dependency graph of properties
+		 * @param futures futures of properties in the same order as in graph
+		 */
+		PropertyFutures(PropertyGraph graph, List<CompletableFuture<Void>> futures) {
+			this.graph = graph;
+			this.futures = ImmutableList.copyOf(futures);
+			for (int i = 0; i < futures.size(); i++) {
+				// later property of the same name depends on earlier ones
+				futuresByName.put(graph.getName(i), futures.get(i));
+			}
+			this.all = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[
+					futures.size()]));
+			for (CompletableFuture<Void> future : futures) {
+				future.whenComplete((result, error) -> dispatch());
+			}
+		}
+
+		/**
+		 * Returns futures of properties that are already rendered
+		 *
+		 * @return completed property futures
+		 */
+		static PropertyFutures completed() {
+			return COMPLETED;
+		}
+
+		/**
+		 * Returns true if all properties are rendered
+		 *
+		 * @return true if all properties are rendered, false otherwise
+		 */
+		boolean isDone() {
+			return all.isDone();
+		}
+
+		/**
+		 * Gets future that completes when properties needed by identifiers are rendered
+		 *
+		 * @param identifiers referenced identifiers, or null to wait for all properties
+		 * @return future
+		 */
+		CompletableFuture<Void> await(Set<String> identifiers) {
+			if (identifiers == null || graph == null) {
+				return all;
+			}
+			List<CompletableFuture<Void>> dependencies = Lists.newArrayList();
+			for (String name : graph.getReferencedProperties(identifiers)) {
+				dependencies.add(futuresByName.get(name));
+			}
+			return CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[
+					dependencies.size()]));
+		}
+
+		/**
+		 * Submits task once properties needed by identifiers are rendered
+		 *
+		 * If any of the properties fails to render, the task is not run and the returned
+		 * future fails instead.
+		 *
+		 * @param identifiers referenced identifiers, or null to wait for all properties
+		 * @param callable task to run
+		 * @param executorService executor service to run task on
+		 * @param <T> result type
+		 * @return future of task result
+		 */
+		<T> CompletableFuture<T> submit(Set<String> identifiers, Callable<T> callable,
+				ExecutorService executorService) {
+			PendingTask<T> pendingTask = new PendingTask<>(await(identifiers), callable,
+					executorService);
+			synchronized (pendingTasks) {
+				pendingTasks.add(pendingTask);
+			}
+			dispatch();
+			return pendingTask.result;
+		}
+
+		/**
+		 * Submits pending tasks whose properties are rendered, in order they were added
+		 */
+		private void dispatch() {
+			synchronized (pendingTasks) {
+				Iterator<PendingTask<?>> iterator = pendingTasks.iterator();
+				while (iterator.hasNext()) {
+					PendingTask<?> pendingTask = iterator.next();
+					if (pendingTask.dependencies.isDone()) {
+						iterator.remove();
+						pendingTask.submit();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Waits for all properties and throws error of first property that failed
+		 *
+		 * @throws InvalidNameException
+		 * @throws WrongTypeException
+		 * @throws RenderException
+		 */
+		void join() throws InvalidNameException, WrongTypeException, RenderException {
+			for (CompletableFuture<Void> future : futures) {
+				try {
+					future.join();
+				} catch (CompletionException | CancellationException e) {
+					Throwable cause = e.getCause() != null ? e.getCause() : e;
+					if (cause instanceof InvalidNameException) {
+						throw (InvalidNameException) cause;
+					} else if (cause instanceof WrongTypeException) {
+						throw (WrongTypeException) cause;
+					} else if (cause instanceof RenderException) {
+						throw (RenderException) cause;
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new RenderException(cause);
+				}
+			}
+		}
+
+		/**
+		 * Task waiting for properties
+		 */
+		private static class PendingTask<T> {
+
+			private final CompletableFuture<Void> dependencies;
+			private final Callable<T> callable;
+			private final ExecutorService executorService;
+			private final CompletableFuture<T> result = new CompletableFuture<>();
+
+			PendingTask(CompletableFuture<Void> dependencies, Callable<T> callable,
+					ExecutorService executorService) {
+				this.dependencies = dependencies;
+				this.callable = callable;
+				this.executorService = executorService;
+			}
+
+			void submit() {
+				if (dependencies.isCompletedExceptionally()) {
+					dependencies.whenComplete((ignored, error) ->
+							result.completeExceptionally(error));
+					return;
+				}
+				try {
+					executorService.execute(() -> {
+						if (result.isDone()) {
+							return;
+						}
+						try {
+							result.complete(callable.call());
+						} catch (Throwable error) {
+							result.completeExceptionally(error);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					result.completeExceptionally(e);
+				}
+			}
+		}
+	}
+
 }
@@ -14,19 +14,28 @@
  */
 package com.turn.camino;
 
-import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
 import com.turn.camino.config.Config;
 import com.turn.camino.config.ConfigBuilder;
-import com.turn.camino.config.Tag;
+import com.turn.camino.emit.AsyncEmitter;
+import com.turn.camino.emit.DeltaEmitter;
+import com.turn.camino.emit.EmitterFormat;
+import com.turn.camino.emit.MetricEmitter;
+import com.turn.camino.emit.PrometheusEmitter;
+import com.turn.camino.emit.PrometheusServer;
 import com.turn.camino.render.RenderException;
 
 import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.google.common.collect.Lists;
 
@@ -42,13 +51,49 @@ import org.apache.hadoop.fs.FileSystem;
  */
 public class CaminoApp {
 
+	private final static Logger LOGGER = Logger.getLogger(CaminoApp.class.getCanonicalName());
+
 	private List<String> caminoConfigPaths = Lists.newLinkedList();
 	private File outputPath = null;
+	private String outputAddress = null;
+	private EmitterFormat outputFormat = EmitterFormat.TEXT;
+	private int prometheusPort = 0;
+	private File historyPath = null;
+	private long refreshSeconds = -1;
+	private File deltaStatePath = null;
 	private String fsUri = "file:///";
+	private int workerCount = 1;
+	private boolean workStealing = false;
+	private int maxInFlight = 0;
+	private long intervalSeconds = 0;
+	private boolean trackChanges = false;
+	private int maxPathDetails = 0;
 
 	/**
 	 * Constructor
 	 *
+	 * Options are
+	 *
+	 *   -f uri     file system URI
+	 *   -o file    output file
+	 *   -s host:port
+	 *              send output to TCP socket instead of file
+	 *   -e format  output format: text (default), opentsdb, graphite, jsonl or influx
+	 *   -p port    in daemon mode, serve metrics of last cycle to Prometheus at
+	 *              http://host:port/metrics instead of writing them
+	 *   -t n       number of worker threads (default 1)
+	 *   -w         use work-stealing pool of workers
+	 *   -m n       maximum number of file system calls in flight (default unlimited)
+	 *   -d seconds run as daemon, computing metrics every given number of seconds
+	 *   -n         in daemon mode, only materialize paths again after HDFS notifies changes
+	 *   -c n       maximum number of files and directories materialized for one path
+	 *   -h dir     keep history of metric values in directory, for growthRate and stalledFor
+	 *   -r seconds only emit metrics that changed, and all of them again once they were last
+	 *              emitted the given number of seconds ago (zero for never)
+	 *   -k file    keep last emitted values in file, to only emit changes across processes
+	 *
+	 * Remaining arguments are paths of config files.
+	 *
 	 * @param args
 	 */
 	public CaminoApp(String[] args) {
@@ -57,10 +102,52 @@ public class CaminoApp {
 				this.fsUri = args[++i];
 			} else if ("-o".equals(args[i])) {
 				this.outputPath = new File(args[++i]);
+			} else if ("-s".equals(args[i])) {
+				this.outputAddress = args[++i];
+				Preconditions.checkArgument(outputAddress.lastIndexOf(':') > 0,
+						"Output address must be host:port");
+			} else if ("-e".equals(args[i])) {
+				this.outputFormat = EmitterFormat.fromName(args[++i]);
+			} else if ("-t".equals(args[i])) {
+				this.workerCount = Integer.parseInt(args[++i]);
+				Preconditions.checkArgument(workerCount > 0,
+						"Number of worker threads must be positive");
+			} else if ("-w".equals(args[i])) {
+				this.workStealing = true;
+			} else if ("-m".equals(args[i])) {
+				this.maxInFlight = Integer.parseInt(args[++i]);
+				Preconditions.checkArgument(maxInFlight > 0,
+						"Maximum file system calls in flight must be positive");
+			} else if ("-p".equals(args[i])) {
+				this.prometheusPort = Integer.parseInt(args[++i]);
+				Preconditions.checkArgument(prometheusPort > 0,
+						"Prometheus port must be positive");
+			} else if ("-d".equals(args[i])) {
+				this.intervalSeconds = Long.parseLong(args[++i]);
+				Preconditions.checkArgument(intervalSeconds > 0,
+						"Daemon interval must be positive");
+			} else if ("-n".equals(args[i])) {
+				this.trackChanges = true;
+			} else if ("-h".equals(args[i])) {
+				this.historyPath = new File(args[++i]);
+			} else if ("-r".equals(args[i])) {
+				this.refreshSeconds = Long.parseLong(args[++i]);
+				Preconditions.checkArgument(refreshSeconds >= 0,
+						"Refresh interval cannot be negative");
+			} else if ("-k".equals(args[i])) {
+				this.deltaStatePath = new File(args[++i]);
+			} else if ("-c".equals(args[i])) {
+				this.maxPathDetails = Integer.parseInt(args[++i]);
+				Preconditions.checkArgument(maxPathDetails > 0,
+						"Maximum number of path details must be positive");
 			} else {
 				this.caminoConfigPaths.add(args[i]);
 			}
 		}
+		Preconditions.checkArgument(prometheusPort == 0 || intervalSeconds > 0,
+				"Prometheus endpoint requires daemon mode");
+		Preconditions.checkArgument(prometheusPort == 0 || (refreshSeconds < 0 &&
+				deltaStatePath == null), "Prometheus endpoint serves all metrics, not changes");
 	}
 
 	/**
@@ -71,54 +158,232 @@ public class CaminoApp {
 	public void run() throws IOException, InvalidNameException, WrongTypeException,
 			RenderException {
 
-		FileOutputStream fos = null;
+		MetricEmitter emitter = null;
+		PrometheusServer prometheusServer = null;
 		ExecutorService executorService = null;
+		ChangeSource changeSource = null;
+		MetricHistory metricHistory = null;
 		try {
-			// open output writer
-			OutputStream os;
-			if (outputPath != null) {
-				os = fos = new FileOutputStream(outputPath);
+			// serve metrics to Prometheus, or open output and emit to it on its own thread,
+			// only emitting changes if asked to
+			if (prometheusPort > 0) {
+				PrometheusEmitter prometheusEmitter = new PrometheusEmitter();
+				prometheusServer = new PrometheusServer(new InetSocketAddress(prometheusPort),
+						prometheusEmitter);
+				emitter = prometheusEmitter;
 			} else {
-				os = System.out;
+				// a one-shot run, or one emitting changes, waits for a slow output rather than
+				// drop metrics
+				boolean delta = refreshSeconds >= 0 || deltaStatePath != null;
+				emitter = new AsyncEmitter(outputFormat.newEmitter(openOutput()),
+						intervalSeconds <= 0 || delta);
+				if (delta) {
+					emitter = new DeltaEmitter(emitter, TimeUnit.SECONDS.toMillis(
+							Math.max(refreshSeconds, 0)), deltaStatePath);
+				}
 			}
-			PrintWriter output = new PrintWriter(new OutputStreamWriter(os, "UTF-8"));
 
 			// create environment
 			FileSystem fileSystem = getFileSystem();
-			executorService = Executors.newSingleThreadExecutor();
+			if (maxInFlight > 0) {
+				fileSystem = new ThrottledFileSystem(fileSystem, maxInFlight);
+			}
+			executorService = newExecutorService();
+			if (trackChanges && intervalSeconds > 0) {
+				changeSource = new HdfsInotifyChangeSource(fileSystem.getUri(), getConfiguration());
+			}
+			if (historyPath != null) {
+				metricHistory = new MetricHistory(historyPath, MetricHistory.DEFAULT_CAPACITY);
+			}
 			Env env = new EnvBuilder().withFileSystem(fileSystem)
-					.withExecutorService(executorService).build();
+					.withExecutorService(executorService)
+					.withChangeSource(changeSource)
+					.withMaxPathDetails(maxPathDetails)
+					.withMetricHistory(metricHistory).build();
 
+			// load configs once
+			List<Camino> caminos = Lists.newArrayListWithCapacity(caminoConfigPaths.size());
 			for (String caminoConfigPath : caminoConfigPaths) {
-				// get metrics
-				Config config = readConfig(caminoConfigPath);
-				Camino camino = new Camino(env, config);
-				List<PathMetrics> pathMetricsList = new ArrayList<>(camino.getPathMetrics());
-				for (PathMetrics pathMetrics : pathMetricsList) {
-					output.println(String.format("%s (%s)", pathMetrics.getPathStatus().getName(),
-							pathMetrics.getPathStatus().getValue()));
-					for (MetricDatum metricDatum : pathMetrics.getMetricData()) {
-						List<String> tags = Lists.newArrayList();
-						for (Tag tag : metricDatum.getMetricId().getTags()) {
-							tags.add(String.format("%s=%s", tag.getKey(), tag.getValue()));
-						}
-						output.println(String.format("\t%s (%s): %.0f",
-								metricDatum.getMetricId().getName(),
-								Joiner.on(' ').join(tags), metricDatum.getValue()));
-					}
-				}
+				caminos.add(new Camino(env, readConfig(caminoConfigPath)));
 			}
 
-			// flush output
-			output.flush();
+			// compute metrics once, or repeatedly as daemon
+			if (intervalSeconds > 0) {
+				runDaemon(caminos, env, emitter);
+			} else {
+				runOnce(caminos, emitter);
+			}
 		} finally {
 			if (executorService != null) {
 				executorService.shutdown();
 			}
-			if (fos != null) {
-				fos.close();
+			if (changeSource != null) {
+				changeSource.close();
+			}
+			if (metricHistory != null) {
+				metricHistory.close();
+			}
+			if (prometheusServer != null) {
+				prometheusServer.close();
+			}
+			if (emitter != null) {
+				emitter.close();
+			}
+		}
+	}
+
+	/**
+	 * Opens output to write metrics to
+	 *
+	 * Closing a writer to standard output flushes it, but leaves standard output open.
+	 *
+	 * @return writer to socket, output file or standard output
+	 * @throws IOException
+	 */
+	protected Writer openOutput() throws IOException {
+		OutputStream os;
+		if (outputAddress != null) {
+			int colon = outputAddress.lastIndexOf(':');
+			Socket socket = new Socket(outputAddress.substring(0, colon),
+					Integer.parseInt(outputAddress.substring(colon + 1)));
+			os = socket.getOutputStream();
+		} else if (outputPath != null) {
+			os = new FileOutputStream(outputPath);
+		} else {
+			// closing the emitter must not close standard output of the process
+			os = new FilterOutputStream(System.out) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+				}
+
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			};
+		}
+		return new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+	}
+
+	/**
+	 * Computes and emits metrics of all configs once
+	 *
+	 * A config that fails does not keep later configs from being computed and emitted.
+	 * Once all configs are done, the error of the first config that failed is thrown, with
+	 * errors of other failed configs suppressed in it. If emitting fails, no further config
+	 * is computed.
+	 *
+	 * @param caminos Camino of each config
+	 * @param emitter metric emitter
+	 * @throws IOException
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 */
+	protected void runOnce(List<Camino> caminos, MetricEmitter emitter) throws IOException,
+			InvalidNameException, WrongTypeException, RenderException {
+		Exception failure = null;
+		for (Camino camino : caminos) {
+			try {
+				// emit metrics of each path as soon as it is done
+				camino.getPathMetrics(pathMetrics -> {
+					try {
+						emitter.emit(pathMetrics);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			} catch (IOException | InvalidNameException | WrongTypeException | RenderException |
+					RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		emitter.flush();
+
+		// rethrow error of first failed config
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		} else if (failure instanceof InvalidNameException) {
+			throw (InvalidNameException) failure;
+		} else if (failure instanceof WrongTypeException) {
+			throw (WrongTypeException) failure;
+		} else if (failure instanceof RenderException) {
+			throw (RenderException) failure;
+		} else if (failure != null) {
+			throw (RuntimeException) failure;
+		}
+	}
+
+	/**
+	 * Computes and emits metrics of all configs at a fixed interval until interrupted
+	 *
+	 * Configs, compiled expressions, file system and executor are kept between cycles. A cycle
+	 * that fails is logged and does not stop the daemon. If a cycle takes longer than the
+	 * interval, the next cycle starts right away instead of trying to catch up. Patterns that
+	 * no config looked up in a cycle are evicted from the path detail cache, and history of
+	 * series not appended to for as many intervals as history keeps values is deleted.
+	 *
+	 * @param caminos Camino of each config
+	 * @param env environment shared by configs
+	 * @param emitter metric emitter
+	 */
+	protected void runDaemon(List<Camino> caminos, Env env, MetricEmitter emitter) {
+		PathDetailCache pathDetailCache = env.getPathDetailCache();
+		MetricHistory metricHistory = env.getMetricHistory();
+		long intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+		long nextCycle = System.currentTimeMillis();
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				runOnce(caminos, emitter);
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Error computing metrics", e);
+			}
+			if (pathDetailCache != null) {
+				pathDetailCache.evictUnused();
 			}
+			if (metricHistory != null) {
+				try {
+					metricHistory.sweep(System.currentTimeMillis() -
+							MetricHistory.DEFAULT_CAPACITY * intervalMillis);
+				} catch (IOException e) {
+					LOGGER.log(Level.WARNING, "Error deleting stale metric history", e);
+				}
+			}
+
+			// wait for next cycle
+			nextCycle += intervalMillis;
+			long delay = nextCycle - System.currentTimeMillis();
+			if (delay < 0) {
+				nextCycle -= delay;
+				delay = 0;
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Creates executor service to run paths on
+	 *
+	 * @return executor service
+	 */
+	protected ExecutorService newExecutorService() {
+		if (workStealing) {
+			return Executors.newWorkStealingPool(workerCount);
+		} else if (workerCount == 1) {
+			return Executors.newSingleThreadExecutor();
 		}
+		return Executors.newFixedThreadPool(workerCount);
 	}
 
 	/**
@@ -146,11 +411,20 @@ public class CaminoApp {
 	 * @throws IOException
 	 */
 	protected FileSystem getFileSystem() throws IOException {
+		return FileSystem.get(getConfiguration());
+	}
+
+	/**
+	 * Gets Hadoop config with file system URI from options
+	 *
+	 * @return Hadoop config
+	 */
+	protected Configuration getConfiguration() {
 		Configuration configuration = new Configuration();
 		if (fsUri != null) {
 			configuration.set("fs.default.name", fsUri);
 		}
-		return FileSystem.get(configuration);
+		return configuration;
 	}
 
 	/**
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Source of file system change events
+ *
+ * @author llo
+ */
+public interface ChangeSource extends Closeable {
+
+	/**
+	 * Path reported when changes were lost and every path must be considered changed
+	 */
+	String ALL_PATHS = "/";
+
+	/**
+	 * Polls paths changed since last poll, without blocking
+	 *
+	 * Paths are absolute. A change to a directory means its entries may have changed too.
+	 * If changes were lost, {@link #ALL_PATHS} is reported.
+	 *
+	 * @return changed paths; empty if nothing changed
+	 * @throws IOException
+	 */
+	List<String> poll() throws IOException;
+
+}
@@ -98,4 +98,18 @@ public interface Context {
 	 */
 	long getGlobalInstanceTime();
 
+	/**
+	 * Gets file status cache
+	 *
+	 * The global context owns a cache that lives as long as the context, which is one run
+	 * of Camino. All child contexts share the cache of their global context.
+	 *
+	 * Defaults to null for contexts that do not cache file statuses.
+	 *
+	 * @return file status cache, or null if file statuses are not cached
+	 */
+	default FileStatusCache getFileStatusCache() {
+		return null;
+	}
+
 }
@@ -24,6 +24,9 @@ import java.util.Map;
 /**
  * Context implementation
  *
+ * Properties may be set and read from multiple threads, since independent properties
+ * of the global context are rendered concurrently.
+ *
  * @author llo
  */
 class ContextImpl implements Context {
@@ -31,8 +34,14 @@ class ContextImpl implements Context {
 	private Env env;
 	private Context parent;
 	private Context global;
-	private Map<String, Object> properties = Maps.newHashMap();
+	/**
+	 * Marker of a property set to null, which shadows the property in parent contexts
+	 */
+	private final static Object NULL = new Object();
+
+	private Map<String, Object> properties = Maps.newConcurrentMap();
 	private long instanceTime;
+	private FileStatusCache fileStatusCache;
 
 	private Validation<WrongTypeException> validation = new Validation<>(
 			new MessageExceptionFactory<WrongTypeException>() {
@@ -54,15 +63,19 @@ class ContextImpl implements Context {
 		if (parent != null) {
 			this.instanceTime = parent.getGlobalInstanceTime();
 			this.global = this.parent.getGlobal();
+			this.fileStatusCache = parent.getFileStatusCache();
 		} else {
 			this.instanceTime = env.getCurrentTime();
 			this.global = this;
+			this.fileStatusCache = new FileStatusCache(env.getFileSystem());
 		}
 	}
 
 	ContextImpl(Env env, Context parent, Map<String, Object> properties) {
 		this(env, parent);
-		this.properties.putAll(properties);
+		for (Map.Entry<String, Object> entry : properties.entrySet()) {
+			setProperty(entry.getKey(), entry.getValue());
+		}
 	}
 
 	@Override
@@ -87,7 +100,8 @@ class ContextImpl implements Context {
 
 	@Override
 	public void setProperty(String name, Object value) {
-		properties.put(name, value);
+		// concurrent map does not allow null values; store marker instead
+		properties.put(name, value != null ? value : NULL);
 	}
 
 	@Override
@@ -96,7 +110,7 @@ class ContextImpl implements Context {
 		if (value == null && parent != null) {
 			return parent.getProperty(name);
 		} else {
-			return value;
+			return value != NULL ? value : null;
 		}
 	}
 
@@ -112,4 +126,9 @@ class ContextImpl implements Context {
 		return instanceTime;
 	}
 
+	@Override
+	public FileStatusCache getFileStatusCache() {
+		return fileStatusCache;
+	}
+
 }
@@ -14,6 +14,7 @@
  */
 package com.turn.camino;
 
+import com.turn.camino.render.ExpressionCache;
 import com.turn.camino.render.Renderer;
 import org.apache.hadoop.fs.FileSystem;
 
@@ -75,5 +76,49 @@ public interface Env {
 	 * @return error handler
 	 */
 	ErrorHandler getErrorHandler();
-	
+
+	/**
+	 * Get expression cache shared by renderers of this environment
+	 *
+	 * Returns null by default, so existing environments need not implement it.
+	 *
+	 * @return expression cache, or null if caching is disabled
+	 */
+	default ExpressionCache getExpressionCache() {
+		return null;
+	}
+
+	/**
+	 * Get cache of materialized paths kept across runs
+	 *
+	 * Returns null by default, so existing environments need not implement it.
+	 *
+	 * @return path detail cache, or null if change tracking is disabled
+	 */
+	default PathDetailCache getPathDetailCache() {
+		return null;
+	}
+
+	/**
+	 * Get maximum number of path details materialized for one path
+	 *
+	 * Returns zero by default, so existing environments need not implement it.
+	 *
+	 * @return maximum number of path details, or zero if unlimited
+	 */
+	default int getMaxPathDetails() {
+		return 0;
+	}
+
+	/**
+	 * Get history of metric values kept across runs
+	 *
+	 * Returns null by default, so existing environments need not implement it.
+	 *
+	 * @return metric history, or null if history is not kept
+	 */
+	default MetricHistory getMetricHistory() {
+		return null;
+	}
+
 }
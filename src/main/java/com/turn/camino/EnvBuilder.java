@@ -14,6 +14,8 @@
  */
 package com.turn.camino;
 
+import com.google.common.base.Preconditions;
+import com.turn.camino.render.ExpressionCache;
 import com.turn.camino.util.Message;
 import com.turn.camino.util.MessageExceptionFactory;
 import com.turn.camino.util.Validation;
@@ -30,11 +32,17 @@ import java.util.logging.Logger;
  */
 public class EnvBuilder {
 
+	public final static long DEFAULT_EXPRESSION_CACHE_SIZE = 10000;
+
 	private FileSystem fileSystem;
 	private TimeZone timeZone = TimeZone.getDefault();
 	private ExecutorService executorService;
 	private ErrorHandler errorHandler = new LoggingErrorHandler(Logger.getLogger(
 			Camino.class.getCanonicalName()));
+	private long expressionCacheSize = DEFAULT_EXPRESSION_CACHE_SIZE;
+	private ChangeSource changeSource;
+	private int maxPathDetails = 0;
+	private MetricHistory metricHistory;
 	private Validation<NullPointerException> npeValidation =
 			new Validation<>(
 					new MessageExceptionFactory<NullPointerException>() {
@@ -88,6 +96,63 @@ public class EnvBuilder {
 		return this;
 	}
 
+	/**
+	 * Sets maximum number of compiled expressions to cache
+	 *
+	 * Setting size to zero disables caching
+	 *
+	 * @param expressionCacheSize maximum number of cached expressions
+	 * @return this
+	 */
+	public EnvBuilder withExpressionCacheSize(long expressionCacheSize) {
+		this.expressionCacheSize = expressionCacheSize;
+		return this;
+	}
+
+	/**
+	 * Sets source of file system changes
+	 *
+	 * Setting a change source keeps materialized paths across runs, and only materializes
+	 * paths again once the change source reports a change that may affect them
+	 *
+	 * @param changeSource change source, or null to materialize paths on every run
+	 * @return this
+	 */
+	public EnvBuilder withChangeSource(ChangeSource changeSource) {
+		this.changeSource = changeSource;
+		return this;
+	}
+
+	/**
+	 * Sets maximum number of path details materialized for one path
+	 *
+	 * Setting a maximum materializes paths by iterating over directory listings instead of
+	 * globbing them as a whole, and stops once the maximum is reached, so that a pattern
+	 * matching a huge number of files cannot exhaust memory. Metrics of such a path are
+	 * computed over the path details found, and its path status is marked truncated.
+	 *
+	 * @param maxPathDetails maximum number of path details, or zero for no maximum
+	 * @return this
+	 */
+	public EnvBuilder withMaxPathDetails(int maxPathDetails) {
+		this.maxPathDetails = maxPathDetails;
+		return this;
+	}
+
+	/**
+	 * Sets history of metric values
+	 *
+	 * Setting a history records every metric value computed, so that metrics such as
+	 * growthRate and stalledFor can be computed from how other metrics changed across runs.
+	 *
+	 * @param metricHistory metric history, or null to keep no history
+	 * @return this
+	 */
+	public EnvBuilder withMetricHistory(MetricHistory metricHistory) {
+		this.metricHistory = metricHistory;
+		return this;
+	}
+
 	/**
 	 * Builds environment
 	 *
@@ -97,7 +162,16 @@ public class EnvBuilder {
 	public Env build() {
 		npeValidation.requireNotNull(timeZone, Message.prefix("Time zone"));
 		npeValidation.requireNotNull(fileSystem, Message.prefix("File system"));
-		return new EnvImpl(timeZone, fileSystem, executorService, errorHandler);
+		Preconditions.checkArgument(expressionCacheSize >= 0,
+				"Expression cache size cannot be negative");
+		Preconditions.checkArgument(maxPathDetails >= 0,
+				"Maximum number of path details cannot be negative");
+		ExpressionCache expressionCache = expressionCacheSize > 0 ?
+				new ExpressionCache(expressionCacheSize) : null;
+		PathDetailCache pathDetailCache = changeSource != null ?
+				new PathDetailCache(changeSource) : null;
+		return new EnvImpl(timeZone, fileSystem, executorService, errorHandler, expressionCache,
+				pathDetailCache, maxPathDetails, metricHistory);
 	}
 
 }
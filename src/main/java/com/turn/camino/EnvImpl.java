@@ -15,6 +15,7 @@
 package com.turn.camino;
 
 import com.google.common.collect.ImmutableMap;
+import com.turn.camino.render.ExpressionCache;
 import com.turn.camino.render.Renderer;
 import com.turn.camino.render.RendererImpl;
 import com.turn.camino.render.functions.*;
@@ -39,19 +40,65 @@ class EnvImpl implements Env {
 	private FileSystem fileSystem;
 	private ExecutorService executorService;
 	private ErrorHandler errorHandler;
+	private ExpressionCache expressionCache;
+	private PathDetailCache pathDetailCache;
+	private int maxPathDetails;
+	private MetricHistory metricHistory;
 
 	/**
 	 * Constructor
 	 *
 	 * @param timeZone time zone
 	 * @param fileSystem file system
+	 * @param executorService executor service
+	 * @param errorHandler error handler
 	 */
 	EnvImpl(TimeZone timeZone, FileSystem fileSystem, ExecutorService executorService,
 			ErrorHandler errorHandler) {
+		this(timeZone, fileSystem, executorService, errorHandler, null, null, 0, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param timeZone time zone
+	 * @param fileSystem file system
+	 * @param executorService executor service
+	 * @param errorHandler error handler
+	 * @param expressionCache cache of compiled expressions, or null to disable caching
+	 * @param pathDetailCache cache of materialized paths, or null to disable change tracking
+	 * @param maxPathDetails maximum number of path details of one path, or zero if unlimited
+	 */
+	EnvImpl(TimeZone timeZone, FileSystem fileSystem, ExecutorService executorService,
+			ErrorHandler errorHandler, ExpressionCache expressionCache,
+			PathDetailCache pathDetailCache, int maxPathDetails) {
+		this(timeZone, fileSystem, executorService, errorHandler, expressionCache,
+				pathDetailCache, maxPathDetails, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param timeZone time zone
+	 * @param fileSystem file system
+	 * @param executorService executor service
+	 * @param errorHandler error handler
+	 * @param expressionCache cache of compiled expressions, or null to disable caching
+	 * @param pathDetailCache cache of materialized paths, or null to disable change tracking
+	 * @param maxPathDetails maximum number of path details of one path, or zero if unlimited
+	 * @param metricHistory history of metric values, or null to keep no history
+	 */
+	EnvImpl(TimeZone timeZone, FileSystem fileSystem, ExecutorService executorService,
+			ErrorHandler errorHandler, ExpressionCache expressionCache,
+			PathDetailCache pathDetailCache, int maxPathDetails, MetricHistory metricHistory) {
 		this.timeZone = timeZone;
 		this.fileSystem = fileSystem;
 		this.executorService = executorService;
 		this.errorHandler = errorHandler;
+		this.expressionCache = expressionCache;
+		this.pathDetailCache = pathDetailCache;
+		this.maxPathDetails = maxPathDetails;
+		this.metricHistory = metricHistory;
 	}
 
 	@Override
@@ -76,7 +123,7 @@ class EnvImpl implements Env {
 
 	@Override
 	public Renderer getRenderer() {
-		return new RendererImpl();
+		return new RendererImpl(expressionCache);
 	}
 
 	@Override
@@ -89,4 +136,24 @@ class EnvImpl implements Env {
 		return errorHandler;
 	}
 
+	@Override
+	public ExpressionCache getExpressionCache() {
+		return expressionCache;
+	}
+
+	@Override
+	public PathDetailCache getPathDetailCache() {
+		return pathDetailCache;
+	}
+
+	@Override
+	public int getMaxPathDetails() {
+		return maxPathDetails;
+	}
+
+	@Override
+	public MetricHistory getMetricHistory() {
+		return metricHistory;
+	}
+
 }
@@ -39,6 +39,19 @@ public interface ErrorHandler {
 	 */
 	void onRepeatError(Repeat repeat, Throwable error);
 
+	/**
+	 * Called when elements of a repeat are aggregated into its overflow series because
+	 * the series budget of the repeat or config is used up
+	 *
+	 * Does nothing by default, so existing error handlers need not implement it.
+	 *
+	 * @param repeat repeat config
+	 * @param overflowName path name of overflow series
+	 * @param elementCount number of elements aggregated into overflow series
+	 */
+	default void onRepeatOverflow(Repeat repeat, String overflowName, int elementCount) {
+	}
+
 	/**
 	 * Called on error while computing a path
 	 *
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.Maps;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Cache of file statuses and directory listings
+ *
+ * Remembers the status of each path and the listing of each directory the first time they
+ * are looked up, including paths that don't exist. Listing a directory also records the
+ * status of each of its children, so looking up a child of a listed directory costs nothing.
+ * Whether a path exists and whether it is a directory are both answered by one status call.
+ * Content summaries and tree summaries of directories are remembered as well, so several
+ * recursive metrics of the same directory cost one call or one walk.
+ *
+ * The cache never expires entries, so it should only be used for the duration of one run.
+ * It is thread-safe, and concurrent lookups of the same path make only one call to the
+ * file system.
+ *
+ * @author llo
+ */
+public class FileStatusCache {
+
+	private final static FileStatus[] NO_FILES = new FileStatus[0];
+
+	private final FileSystem fileSystem;
+	private final ConcurrentMap<Path, Entry> entries = Maps.newConcurrentMap();
+	private final ConcurrentMap<Path, FutureTask<ContentSummary>> contentSummaries =
+			Maps.newConcurrentMap();
+	private final ConcurrentMap<Path, FutureTask<TreeSummary>> treeSummaries =
+			Maps.newConcurrentMap();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * @param fileSystem file system
+	 */
+	public FileStatusCache(FileSystem fileSystem) {
+		this.fileSystem = fileSystem;
+	}
+
+	/**
+	 * Gets file system
+	 *
+	 * @return file system
+	 */
+	public FileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * Gets status of path
+	 *
+	 * @param path path
+	 * @return status of path, or null if path doesn't exist
+	 * @throws IOException
+	 */
+	public FileStatus getFileStatus(Path path) throws IOException {
+		Entry entry = getEntry(path);
+		synchronized (entry) {
+			if (entry.statusKnown) {
+				hitCount.incrementAndGet();
+				return entry.status;
+			}
+
+			// a listed parent would have recorded status of an existing child already
+			Path parentPath = path.getParent();
+			Entry parent = parentPath != null ? entries.get(parentPath) : null;
+			if (parent != null && parent.listing != null) {
+				hitCount.incrementAndGet();
+			} else {
+				missCount.incrementAndGet();
+				try {
+					entry.status = fileSystem.getFileStatus(path);
+				} catch (FileNotFoundException e) {
+					entry.status = null;
+				}
+			}
+			entry.statusKnown = true;
+			return entry.status;
+		}
+	}
+
+	/**
+	 * Lists directory
+	 *
+	 * @param path path of directory
+	 * @return statuses of children; empty if path doesn't exist or is not a directory
+	 * @throws IOException
+	 */
+	public FileStatus[] listStatus(Path path) throws IOException {
+		Entry entry = getEntry(path);
+		synchronized (entry) {
+			if (entry.listing != null) {
+				hitCount.incrementAndGet();
+				return entry.listing;
+			}
+
+			// only list paths not known to be missing or files
+			FileStatus[] fss = null;
+			if (entry.statusKnown && (entry.status == null || !entry.status.isDirectory())) {
+				hitCount.incrementAndGet();
+			} else {
+				missCount.incrementAndGet();
+				try {
+					fss = fileSystem.listStatus(path);
+				} catch (FileNotFoundException e) {
+					entry.status = null;
+					entry.statusKnown = true;
+				}
+			}
+			fss = fss == null ? NO_FILES : fss;
+			if (fss.length == 1 && !fss[0].isDirectory() && fss[0].getPath().toUri().getPath()
+					.equals(path.toUri().getPath())) {
+				// listing a file returns the file itself
+				entry.status = fss[0];
+				entry.statusKnown = true;
+				fss = NO_FILES;
+			}
+
+			// record status of children before publishing listing
+			for (FileStatus fs : fss) {
+				Entry child = getEntry(new Path(path, fs.getPath().getName()));
+				synchronized (child) {
+					child.status = fs;
+					child.statusKnown = true;
+				}
+			}
+			entry.listing = fss;
+			return fss;
+		}
+	}
+
+	/**
+	 * Returns true if path exists
+	 *
+	 * @param path path
+	 * @return true if path exists, false otherwise
+	 * @throws IOException
+	 */
+	public boolean exists(Path path) throws IOException {
+		return getFileStatus(path) != null;
+	}
+
+	/**
+	 * Returns true if path exists and is a directory
+	 *
+	 * @param path path
+	 * @return true if path is a directory, false otherwise
+	 * @throws IOException
+	 */
+	public boolean isDirectory(Path path) throws IOException {
+		FileStatus status = getFileStatus(path);
+		return status != null && status.isDirectory();
+	}
+
+	/**
+	 * Gets content summary of path as computed by file system
+	 *
+	 * @param path path
+	 * @return content summary
+	 * @throws IOException
+	 */
+	public ContentSummary getContentSummary(Path path) throws IOException {
+		return getSummary(contentSummaries, path, () -> fileSystem.getContentSummary(path));
+	}
+
+	/**
+	 * Gets summary of descendants of directory by walking it
+	 *
+	 * @param path path of directory
+	 * @param executorService executor service to walk subdirectories on, or null
+	 * @return tree summary; empty if path doesn't exist or is not a directory
+	 * @throws IOException
+	 */
+	public TreeSummary getTreeSummary(Path path, ExecutorService executorService)
+			throws IOException {
+		return getSummary(treeSummaries, path,
+				() -> new TreeWalker(fileSystem, executorService).walk(path));
+	}
+
+	/**
+	 * Gets summary of path, computing it only on first lookup
+	 */
+	private <T> T getSummary(ConcurrentMap<Path, FutureTask<T>> summaries, Path path,
+			Callable<T> callable) throws IOException {
+		FutureTask<T> task = summaries.get(path);
+		if (task == null) {
+			FutureTask<T> newTask = new FutureTask<>(callable);
+			task = summaries.putIfAbsent(path, newTask);
+			if (task == null) {
+				task = newTask;
+				missCount.incrementAndGet();
+				task.run();
+			} else {
+				hitCount.incrementAndGet();
+			}
+		} else {
+			hitCount.incrementAndGet();
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while summarizing " + path);
+		} catch (ExecutionException e) {
+			// don't remember failures so that later lookups can retry
+			summaries.remove(path, task);
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Gets number of lookups answered from cache
+	 *
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets number of lookups that called file system
+	 *
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Gets ratio of lookups answered from cache
+	 *
+	 * @return hit ratio between 0 and 1, or 1 if there has been no lookup
+	 */
+	public double getHitRatio() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 1.0 : (double) hits / total;
+	}
+
+	private Entry getEntry(Path path) {
+		Entry entry = entries.get(path);
+		if (entry == null) {
+			Entry newEntry = new Entry();
+			entry = entries.putIfAbsent(path, newEntry);
+			if (entry == null) {
+				entry = newEntry;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Cached state of one path
+	 */
+	private static class Entry {
+		private FileStatus status;
+		private boolean statusKnown;
+		private volatile FileStatus[] listing;
+	}
+
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.GlobPattern;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+/**
+ * Glob planner
+ *
+ * Materializes path patterns of a run against a shared prefix trie of directories. Statuses
+ * and listings of trie nodes are kept in a {@link FileStatusCache}, so a directory shared by
+ * many patterns is listed only once, and a path already seen in a listing does not need its
+ * own status call.
+ *
+ * A planner caches file system state as it is first seen, so it should only be used for
+ * the duration of one run. Patterns the planner cannot decompose, such as relative paths,
+ * escaped characters or braces spanning directories, are passed to
+ * {@link FileSystem#globStatus(Path)} as is.
+ *
+ * @author llo
+ */
+public class GlobPlanner {
+
+	private final static Pattern GLOB_CHARS = Pattern.compile("[*?\\[{]");
+	private final static Pattern UNSUPPORTED = Pattern.compile("\\\\|\\{[^}]*/");
+
+	private final FileStatusCache fileStatusCache;
+	private final FileSystem fileSystem;
+	private final ConcurrentMap<String, Node> roots = Maps.newConcurrentMap();
+
+	/**
+	 * Constructor
+	 *
+	 * @param fileSystem file system
+	 */
+	public GlobPlanner(FileSystem fileSystem) {
+		this(new FileStatusCache(fileSystem));
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param fileStatusCache file status cache shared with other lookups of the run
+	 */
+	public GlobPlanner(FileStatusCache fileStatusCache) {
+		this.fileStatusCache = fileStatusCache;
+		this.fileSystem = fileStatusCache.getFileSystem();
+	}
+
+	/**
+	 * Gets file system
+	 *
+	 * @return file system
+	 */
+	public FileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * Gets file status cache
+	 *
+	 * @return file status cache
+	 */
+	public FileStatusCache getFileStatusCache() {
+		return fileStatusCache;
+	}
+
+	/**
+	 * Finds statuses of all paths matching a pattern
+	 *
+	 * @param pattern path pattern
+	 * @return list of matching file statuses; empty if nothing matches
+	 * @throws IOException
+	 */
+	public List<FileStatus> globStatus(String pattern) throws IOException {
+
+		// let file system handle patterns that cannot be split into directories
+		URI uri = new Path(pattern).toUri();
+		String[] components = splitPattern(uri);
+		if (components == null) {
+			FileStatus[] fss = fileSystem.globStatus(new Path(pattern));
+			return fss == null ? Collections.<FileStatus>emptyList() : Lists.newArrayList(fss);
+		}
+
+		// walk down trie one component at a time
+		List<Node> candidates = walk(getRoot(uri), components, components.length);
+
+		// resolve statuses of remaining candidates
+		List<FileStatus> statuses = Lists.newArrayListWithExpectedSize(candidates.size());
+		for (Node candidate : candidates) {
+			FileStatus status = fileStatusCache.getFileStatus(candidate.path);
+			if (status != null) {
+				statuses.add(status);
+			}
+		}
+		return statuses;
+	}
+
+	/**
+	 * Passes statuses of paths matching a pattern to a consumer as they are listed
+	 *
+	 * Directories above the last component are shared with other patterns as usual, but a
+	 * last component with wild cards is expanded by iterating over the listing of each
+	 * directory, without keeping the listing. Consumer can stop the iteration, so a pattern
+	 * matching a huge number of files never has all their statuses in memory.
+	 *
+	 * @param pattern path pattern
+	 * @param consumer consumer of file statuses, returning false to stop
+	 * @return false if consumer stopped iteration, true otherwise
+	 * @throws IOException
+	 */
+	public boolean streamStatus(String pattern, Predicate<FileStatus> consumer)
+			throws IOException {
+
+		// patterns that cannot be split into directories are globbed as a whole
+		URI uri = new Path(pattern).toUri();
+		String[] components = splitPattern(uri);
+		if (components == null || components.length == 0 ||
+				!isGlob(components[components.length - 1])) {
+			for (FileStatus fs : globStatus(pattern)) {
+				if (!consumer.test(fs)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// iterate over listings of parents of last component
+		GlobPattern globPattern = new GlobPattern(components[components.length - 1]);
+		for (Node candidate : walk(getRoot(uri), components, components.length - 1)) {
+			if (!fileStatusCache.isDirectory(candidate.path)) {
+				continue;
+			}
+			RemoteIterator<LocatedFileStatus> iterator;
+			try {
+				iterator = fileSystem.listLocatedStatus(candidate.path);
+			} catch (FileNotFoundException e) {
+				continue;
+			}
+			while (iterator.hasNext()) {
+				FileStatus fs = iterator.next();
+				if (globPattern.matches(fs.getPath().getName()) && !consumer.test(fs)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds statuses of paths matching a pattern in a random subset of directories
+	 *
+	 * The leading components of pattern are matched as usual, which gives the directories
+	 * the last component is matched in. Only a fraction of those directories, and at least
+	 * two of them, are then listed. Patterns that cannot be split into directories are
+	 * globbed as a whole, as if from a single directory.
+	 *
+	 * @param pattern path pattern
+	 * @param fraction fraction of directories to sample
+	 * @param random source of randomness
+	 * @return statuses of sampled directories
+	 * @throws IOException
+	 */
+	public Sample sampleStatus(String pattern, double fraction, Random random)
+			throws IOException {
+
+		// patterns that cannot be split into directories are globbed as a whole
+		URI uri = new Path(pattern).toUri();
+		String[] components = splitPattern(uri);
+		if (components == null || components.length == 0) {
+			return new Sample(1, Collections.singletonList(globStatus(pattern)));
+		}
+
+		// choose random directories, keeping them in order
+		List<Node> parents = walk(getRoot(uri), components, components.length - 1);
+		int sampleSize = Math.min(parents.size(), Math.max(2,
+				(int) Math.ceil(fraction * parents.size())));
+		int[] indices = new int[parents.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = i;
+		}
+		for (int i = 0; i < sampleSize; i++) {
+			int j = i + random.nextInt(indices.length - i);
+			int index = indices[j];
+			indices[j] = indices[i];
+			indices[i] = index;
+		}
+		Arrays.sort(indices, 0, sampleSize);
+
+		// match last component in sampled directories only
+		String last = components[components.length - 1];
+		GlobPattern globPattern = isGlob(last) ? new GlobPattern(last) : null;
+		List<List<FileStatus>> statuses = Lists.newArrayListWithCapacity(sampleSize);
+		for (int i = 0; i < sampleSize; i++) {
+			Node parent = parents.get(indices[i]);
+			List<FileStatus> parentStatuses = Lists.newArrayList();
+			if (globPattern != null) {
+				for (FileStatus fs : fileStatusCache.listStatus(parent.path)) {
+					if (globPattern.matches(fs.getPath().getName())) {
+						parentStatuses.add(fs);
+					}
+				}
+			} else {
+				FileStatus status = fileStatusCache.getFileStatus(parent.getChild(last).path);
+				if (status != null) {
+					parentStatuses.add(status);
+				}
+			}
+			statuses.add(parentStatuses);
+		}
+		return new Sample(parents.size(), statuses);
+	}
+
+	/**
+	 * Walks down trie matching leading components of a pattern
+	 *
+	 * @param root root node
+	 * @param components components of pattern
+	 * @param count number of leading components to match
+	 * @return nodes matching leading components, whose existence is not yet known if last
+	 *         component matched is a literal
+	 * @throws IOException
+	 */
+	private List<Node> walk(Node root, String[] components, int count) throws IOException {
+		List<Node> candidates = Collections.singletonList(root);
+		for (int i = 0; i < count; i++) {
+			String component = components[i];
+			boolean last = i == components.length - 1;
+			List<Node> nextCandidates = Lists.newArrayList();
+			if (!isGlob(component)) {
+				// literal component doesn't need listing until it's resolved
+				for (Node candidate : candidates) {
+					nextCandidates.add(candidate.getChild(component));
+				}
+			} else {
+				GlobPattern globPattern = new GlobPattern(component);
+				for (Node candidate : candidates) {
+					for (FileStatus fs : fileStatusCache.listStatus(candidate.path)) {
+						if ((last || fs.isDirectory()) && globPattern.matches(fs.getPath()
+								.getName())) {
+							nextCandidates.add(candidate.getChild(fs.getPath().getName()));
+						}
+					}
+				}
+			}
+			if (nextCandidates.isEmpty()) {
+				return Collections.emptyList();
+			}
+			candidates = nextCandidates;
+		}
+		return candidates;
+	}
+
+	/**
+	 * Splits absolute path pattern into components
+	 *
+	 * @param uri URI of path pattern
+	 * @return components of path, or null if pattern cannot be split into directories
+	 */
+	static String[] splitPattern(URI uri) {
+		String pathPart = uri.getPath();
+		if (pathPart == null || !pathPart.startsWith(Path.SEPARATOR) ||
+				UNSUPPORTED.matcher(pathPart).find()) {
+			return null;
+		}
+		List<String> components = Lists.newArrayList();
+		for (String component : pathPart.split(Path.SEPARATOR)) {
+			if (!component.isEmpty()) {
+				components.add(component);
+			}
+		}
+		return components.toArray(new String[components.size()]);
+	}
+
+	/**
+	 * Returns true if path component contains wild cards
+	 *
+	 * @param component path component
+	 * @return true if component is a glob, false otherwise
+	 */
+	static boolean isGlob(String component) {
+		return GLOB_CHARS.matcher(component).find();
+	}
+
+	/**
+	 * Gets root node of file system in URI
+	 *
+	 * @param uri URI of pattern
+	 * @return root node
+	 */
+	private Node getRoot(URI uri) {
+		String key = String.format("%s://%s", uri.getScheme(), uri.getAuthority());
+		Node root = roots.get(key);
+		if (root == null) {
+			Node newRoot = new Node(new Path(uri.getScheme(), uri.getAuthority(),
+					Path.SEPARATOR));
+			root = roots.putIfAbsent(key, newRoot);
+			if (root == null) {
+				root = newRoot;
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Statuses of paths matched in sampled directories
+	 */
+	public static class Sample {
+
+		private final int directoryCount;
+		private final List<List<FileStatus>> statuses;
+
+		/**
+		 * Constructor
+		 *
+		 * @param directoryCount number of directories sampled from
+		 * @param statuses statuses of paths matched in each sampled directory
+		 */
+		public Sample(int directoryCount, List<List<FileStatus>> statuses) {
+			this.directoryCount = directoryCount;
+			this.statuses = statuses;
+		}
+
+		/**
+		 * Gets number of directories sampled from
+		 *
+		 * @return number of directories
+		 */
+		public int getDirectoryCount() {
+			return directoryCount;
+		}
+
+		/**
+		 * Gets statuses of paths matched in sampled directories
+		 *
+		 * @return one list of statuses per sampled directory
+		 */
+		public List<List<FileStatus>> getStatuses() {
+			return statuses;
+		}
+	}
+
+	/**
+	 * Node of directory trie
+	 */
+	private static class Node {
+
+		private final Path path;
+		private final Map<String, Node> children = Maps.newHashMap();
+
+		Node(Path path) {
+			this.path = path;
+		}
+
+		/**
+		 * Gets child node, creating it if necessary
+		 *
+		 * @param name name of child
+		 * @return child node
+		 */
+		Node getChild(String name) {
+			synchronized (children) {
+				Node child = children.get(name);
+				if (child == null) {
+					child = new Node(new Path(path, name));
+					children.put(name, child);
+				}
+				return child;
+			}
+		}
+	}
+
+}
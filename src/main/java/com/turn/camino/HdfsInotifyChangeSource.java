@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSInotifyEventInputStream;
+import org.apache.hadoop.hdfs.client.HdfsAdmin;
+import org.apache.hadoop.hdfs.inotify.Event;
+import org.apache.hadoop.hdfs.inotify.EventBatch;
+import org.apache.hadoop.hdfs.inotify.MissingEventsException;
+
+/**
+ * Change source reading HDFS inotify events
+ *
+ * Reads namespace edits from the name node, so only changes made after the source is
+ * created are reported. Reading inotify events requires HDFS superuser privileges.
+ *
+ * @author llo
+ */
+public class HdfsInotifyChangeSource implements ChangeSource {
+
+	private final DFSInotifyEventInputStream eventStream;
+
+	/**
+	 * Constructor
+	 *
+	 * @param uri URI of HDFS
+	 * @param configuration Hadoop configuration
+	 * @throws IOException
+	 */
+	public HdfsInotifyChangeSource(URI uri, Configuration configuration) throws IOException {
+		this(new HdfsAdmin(uri, configuration).getInotifyEventStream());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param eventStream inotify event stream
+	 */
+	HdfsInotifyChangeSource(DFSInotifyEventInputStream eventStream) {
+		this.eventStream = eventStream;
+	}
+
+	@Override
+	public synchronized List<String> poll() throws IOException {
+		List<String> paths = Lists.newArrayList();
+		try {
+			EventBatch eventBatch;
+			while ((eventBatch = eventStream.poll()) != null) {
+				for (Event event : eventBatch.getEvents()) {
+					addPaths(event, paths);
+				}
+			}
+		} catch (MissingEventsException e) {
+			// events were dropped by name node
+			paths.add(ALL_PATHS);
+		}
+		return paths;
+	}
+
+	/**
+	 * Adds paths changed by event
+	 *
+	 * @param event inotify event
+	 * @param paths list to add changed paths to
+	 */
+	protected void addPaths(Event event, List<String> paths) {
+		if (event instanceof Event.CreateEvent) {
+			paths.add(((Event.CreateEvent) event).getPath());
+		} else if (event instanceof Event.CloseEvent) {
+			paths.add(((Event.CloseEvent) event).getPath());
+		} else if (event instanceof Event.AppendEvent) {
+			paths.add(((Event.AppendEvent) event).getPath());
+		} else if (event instanceof Event.RenameEvent) {
+			paths.add(((Event.RenameEvent) event).getSrcPath());
+			paths.add(((Event.RenameEvent) event).getDstPath());
+		} else if (event instanceof Event.MetadataUpdateEvent) {
+			paths.add(((Event.MetadataUpdateEvent) event).getPath());
+		} else if (event instanceof Event.UnlinkEvent) {
+			paths.add(((Event.UnlinkEvent) event).getPath());
+		}
+	}
+
+	@Override
+	public void close() {
+		// event stream holds no resources of its own
+	}
+
+}
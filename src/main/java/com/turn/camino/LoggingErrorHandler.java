@@ -44,6 +44,13 @@ public class LoggingErrorHandler implements ErrorHandler {
 				repeat.getVar(), repeat.getList()), error);
 	}
 
+	@Override
+	public void onRepeatOverflow(Repeat repeat, String overflowName, int elementCount) {
+		logger.warning(String.format("Series budget exceeded by repeat %s in %s, %d elements " +
+				"aggregated into %s", repeat.getVar(), repeat.getList(), elementCount,
+				overflowName));
+	}
+
 	@Override
 	public void onPathError(Path path, Throwable error) {
 		logger.log(Level.WARNING, String.format("Error computing path %s",
@@ -14,8 +14,11 @@
  */
 package com.turn.camino;
 
+import com.google.common.collect.ImmutableList;
 import com.turn.camino.config.Metric;
 
+import java.util.List;
+
 /**
  * Metric datum
  *
@@ -27,6 +30,8 @@ public class MetricDatum {
 	private final Metric metric;
 	private final PathStatus pathStatus;
 	private final double value;
+	private final double error;
+	private final List<PathDetail> topPathDetails;
 
 	/**
 	 * Constructor
@@ -37,10 +42,41 @@ public class MetricDatum {
 	 * @param value metric value
 	 */
 	public MetricDatum(MetricId metricId, Metric metric, PathStatus pathStatus, double value) {
+		this(metricId, metric, pathStatus, value, ImmutableList.<PathDetail>of());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param metricId metric identifier
+	 * @param metric metric definition
+	 * @param pathStatus path status
+	 * @param value metric value
+	 * @param topPathDetails path details with largest function values
+	 */
+	public MetricDatum(MetricId metricId, Metric metric, PathStatus pathStatus, double value,
+			List<PathDetail> topPathDetails) {
+		this(metricId, metric, pathStatus, value, 0, topPathDetails);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param metricId metric identifier
+	 * @param metric metric definition
+	 * @param pathStatus path status
+	 * @param value metric value
+	 * @param error half-width of 95% confidence interval of an estimated value
+	 * @param topPathDetails path details with largest function values
+	 */
+	public MetricDatum(MetricId metricId, Metric metric, PathStatus pathStatus, double value,
+			double error, List<PathDetail> topPathDetails) {
 		this.metricId = metricId;
 		this.metric = metric;
 		this.pathStatus = pathStatus;
 		this.value = value;
+		this.error = error;
+		this.topPathDetails = ImmutableList.copyOf(topPathDetails);
 	}
 
 	/**
@@ -79,4 +115,27 @@ public class MetricDatum {
 		return value;
 	}
 
+	/**
+	 * Gets error bound of value
+	 *
+	 * Only metrics of sampled paths have a non-zero error bound.
+	 *
+	 * @return half-width of 95% confidence interval, zero if value is exact, or NaN if it
+	 *         cannot be estimated
+	 */
+	public double getError() {
+		return error;
+	}
+
+	/**
+	 * Gets path details with largest values of metric function
+	 *
+	 * Only reported if metric asks for top path details.
+	 *
+	 * @return path details in descending order of function value, or empty list
+	 */
+	public List<PathDetail> getTopPathDetails() {
+		return topPathDetails;
+	}
+
 }
@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metric history
+ *
+ * Keeps recent values of each metric series in a local directory, so that metrics can be
+ * computed from how other metrics changed across runs. Each series is a ring buffer of its
+ * last values and their times, in a file of its own that is memory-mapped, so appending a
+ * value is a write to memory that the operating system persists, and history survives
+ * restarts. Files are named after a hash of the series key, and hold the series key to
+ * detect collisions.
+ *
+ * At most a maximum number of series are mapped at a time; when more are used, the least
+ * recently used series are written and unmapped, and mapped again when used. Files of
+ * series no longer appended to are only deleted by a sweep.
+ *
+ * A series keeps the capacity it was created with. History is thread-safe.
+ *
+ * @author llo
+ */
+public class MetricHistory implements Closeable {
+
+	public final static int DEFAULT_CAPACITY = 64;
+	public final static int DEFAULT_MAX_OPEN_SERIES = 4096;
+
+	private final static int MAGIC = 0x43484953;
+	private final static int CAPACITY_OFFSET = 4;
+	private final static int SIZE_OFFSET = 8;
+	private final static int NEXT_OFFSET = 12;
+	private final static int KEY_LENGTH_OFFSET = 16;
+	private final static int KEY_OFFSET = 20;
+	private final static int POINT_SIZE = 16;
+	private final static String SUFFIX = ".hist";
+
+	private final File directory;
+	private final int capacity;
+	private final Map<MetricId, Series> series;
+
+	/**
+	 * Constructor
+	 *
+	 * @param directory directory to keep history files in
+	 * @param capacity number of values kept per series
+	 * @throws IOException
+	 */
+	public MetricHistory(File directory, int capacity) throws IOException {
+		this(directory, capacity, DEFAULT_MAX_OPEN_SERIES);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param directory directory to keep history files in
+	 * @param capacity number of values kept per series
+	 * @param maxOpenSeries maximum number of series mapped at a time
+	 * @throws IOException
+	 */
+	public MetricHistory(File directory, int capacity, final int maxOpenSeries)
+			throws IOException {
+		Preconditions.checkArgument(capacity > 1, "History must keep at least two values");
+		Preconditions.checkArgument(maxOpenSeries > 0, "Maximum open series must be positive");
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException(String.format("Cannot create history directory %s",
+					directory));
+		}
+		this.directory = directory;
+		this.capacity = capacity;
+
+		// least recently used series are closed once there are too many
+		this.series = new LinkedHashMap<MetricId, Series>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<MetricId, Series> eldest) {
+				if (size() > maxOpenSeries) {
+					eldest.getValue().close();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Appends value of a series
+	 *
+	 * A value at the same time as the last value of the series replaces it, and a value
+	 * older than that is ignored.
+	 *
+	 * @param metricId metric ID of series
+	 * @param time time of value in epoch milliseconds
+	 * @param value value
+	 * @throws IOException
+	 */
+	public void append(MetricId metricId, long time, double value) throws IOException {
+		// series closed meanwhile is opened again
+		boolean appended;
+		do {
+			appended = getSeries(metricId, true).append(time, value);
+		} while (!appended);
+	}
+
+	/**
+	 * Gets values of a series
+	 *
+	 * @param metricId metric ID of series
+	 * @return immutable list of points, oldest first; empty if series has no history
+	 * @throws IOException
+	 */
+	public List<Point> getPoints(MetricId metricId) throws IOException {
+		// series closed meanwhile is opened again
+		while (true) {
+			Series s = getSeries(metricId, false);
+			if (s == null) {
+				return ImmutableList.of();
+			}
+			List<Point> points = s.getPoints();
+			if (points != null) {
+				return points;
+			}
+		}
+	}
+
+	/**
+	 * Deletes files of series whose last value is older than a time
+	 *
+	 * Only a file that was modified before that time is read to find its last value, so
+	 * a sweep mostly costs a listing of history directory. Files with corrupt headers are
+	 * deleted too.
+	 *
+	 * @param minTime time in epoch milliseconds that last value must not be older than
+	 * @return number of deleted files
+	 * @throws IOException
+	 */
+	public int sweep(long minTime) throws IOException {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+		if (files == null) {
+			throw new IOException(String.format("Cannot list history directory %s",
+					directory));
+		}
+		int count = 0;
+		synchronized (series) {
+			Map<File, MetricId> openFiles = Maps.newHashMapWithExpectedSize(series.size());
+			for (Map.Entry<MetricId, Series> entry : series.entrySet()) {
+				openFiles.put(entry.getValue().file, entry.getKey());
+			}
+			for (File file : files) {
+				MetricId metricId = openFiles.get(file);
+				long lastTime;
+				if (metricId != null) {
+					lastTime = series.get(metricId).getLastTime();
+				} else if (file.lastModified() >= minTime) {
+					continue;
+				} else {
+					lastTime = readLastTime(file);
+				}
+				if (lastTime < minTime) {
+					if (metricId != null) {
+						series.remove(metricId).close();
+					}
+					if (file.delete()) {
+						count++;
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes values appended so far to files, and unmaps them
+	 */
+	@Override
+	public void close() {
+		synchronized (series) {
+			for (Series s : series.values()) {
+				s.close();
+			}
+			series.clear();
+		}
+	}
+
+	private Series getSeries(MetricId metricId, boolean create) throws IOException {
+		synchronized (series) {
+			Series s = series.get(metricId);
+			if (s == null) {
+				File file = getFile(metricId);
+				if (!create && !file.exists()) {
+					return null;
+				}
+				s = new Series(file, metricId.getSeriesKey(), capacity);
+				series.put(metricId, s);
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * Reads time of last value of a series from its file without mapping it
+	 *
+	 * @param file history file
+	 * @return time of last value in epoch milliseconds, or Long.MIN_VALUE if series has no
+	 *         values or header of file is corrupt
+	 * @throws IOException
+	 */
+	private static long readLastTime(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			if (raf.length() < KEY_OFFSET || raf.readInt() != MAGIC) {
+				return Long.MIN_VALUE;
+			}
+			int capacity = raf.readInt();
+			int size = raf.readInt();
+			int next = raf.readInt();
+			int keyLength = raf.readInt();
+			long pointsOffset = (KEY_OFFSET + (long) keyLength + 7) & ~7;
+			if (!isValidHeader(capacity, size, next) || keyLength < 0 || size == 0 ||
+					raf.length() < pointsOffset + (long) capacity * POINT_SIZE) {
+				return Long.MIN_VALUE;
+			}
+			raf.seek(pointsOffset + (long) ((next + capacity - 1) % capacity) * POINT_SIZE);
+			return raf.readLong();
+		}
+	}
+
+	/**
+	 * Checks capacity, number of points, and index of next point of a header
+	 */
+	private static boolean isValidHeader(int capacity, int size, int next) {
+		return capacity >= 2 && size >= 0 && size <= capacity && next >= 0 && next < capacity;
+	}
+
+	/**
+	 * Unmaps buffer right away rather than once it is garbage collected, where the JVM
+	 * allows it
+	 *
+	 * Buffer must not be accessed afterwards.
+	 *
+	 * @param buffer mapped buffer
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			try {
+				// Java 9 and later
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				invokeCleaner.invoke(theUnsafe.get(null), buffer);
+			} catch (NoSuchMethodException e) {
+				// Java 8
+				Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true);
+				Object cleaner = cleanerMethod.invoke(buffer);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// left to garbage collection
+		}
+	}
+
+	private File getFile(MetricId metricId) {
+		return new File(directory, Hashing.murmur3_128().hashString(metricId.getSeriesKey(),
+				StandardCharsets.UTF_8).toString() + SUFFIX);
+	}
+
+	/**
+	 * Value of a series at a time
+	 */
+	public static class Point {
+
+		private final long time;
+		private final double value;
+
+		/**
+		 * Constructor
+		 *
+		 * @param time time of value in epoch milliseconds
+		 * @param value value
+		 */
+		public Point(long time, double value) {
+			this.time = time;
+			this.value = value;
+		}
+
+		/**
+		 * Gets time of value
+		 *
+		 * @return time in epoch milliseconds
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Gets value
+		 *
+		 * @return value
+		 */
+		public double getValue() {
+			return value;
+		}
+	}
+
+	/**
+	 * Ring buffer of one series, mapped from its file
+	 *
+	 * File starts with a header of magic number, capacity, number of points, index of next
+	 * point to write, and series key, followed by points of time and value.
+	 */
+	private static class Series {
+
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private final int capacity;
+		private final int pointsOffset;
+		private boolean closed = false;
+
+		Series(File file, String seriesKey, int defaultCapacity) throws IOException {
+			byte[] key = seriesKey.getBytes(StandardCharsets.UTF_8);
+			int pointsOffset = (KEY_OFFSET + key.length + 7) & ~7;
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+					FileChannel channel = raf.getChannel()) {
+				if (channel.size() == 0) {
+					// new series
+					this.capacity = defaultCapacity;
+					this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+							pointsOffset + (long) capacity * POINT_SIZE);
+					buffer.putInt(0, MAGIC);
+					buffer.putInt(CAPACITY_OFFSET, capacity);
+					buffer.putInt(SIZE_OFFSET, 0);
+					buffer.putInt(NEXT_OFFSET, 0);
+					buffer.putInt(KEY_LENGTH_OFFSET, key.length);
+					for (int i = 0; i < key.length; i++) {
+						buffer.put(KEY_OFFSET + i, key[i]);
+					}
+				} else {
+					// existing series, which must be of same key
+					if (channel.size() < pointsOffset) {
+						throw new IOException(String.format("History file %s is corrupt", file));
+					}
+					MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+							pointsOffset);
+					byte[] fileKey = new byte[Math.max(0, header.getInt(KEY_LENGTH_OFFSET))];
+					if (header.getInt(0) != MAGIC || fileKey.length != key.length) {
+						throw new IOException(String.format("History file %s is not of " +
+								"series %s", file, seriesKey));
+					}
+					for (int i = 0; i < fileKey.length; i++) {
+						fileKey[i] = header.get(KEY_OFFSET + i);
+					}
+					if (!Arrays.equals(fileKey, key)) {
+						throw new IOException(String.format("History file %s is not of " +
+								"series %s", file, seriesKey));
+					}
+					this.capacity = header.getInt(CAPACITY_OFFSET);
+					if (!isValidHeader(capacity, header.getInt(SIZE_OFFSET),
+							header.getInt(NEXT_OFFSET)) || channel.size() < pointsOffset +
+							(long) capacity * POINT_SIZE) {
+						throw new IOException(String.format("History file %s is corrupt", file));
+					}
+					this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+							pointsOffset + (long) capacity * POINT_SIZE);
+				}
+			}
+			this.file = file;
+			this.pointsOffset = pointsOffset;
+		}
+
+		/**
+		 * Appends value
+		 *
+		 * @return false if series is closed, true otherwise
+		 */
+		synchronized boolean append(long time, double value) {
+			if (closed) {
+				return false;
+			}
+			int size = buffer.getInt(SIZE_OFFSET);
+			int next = buffer.getInt(NEXT_OFFSET);
+			if (size > 0) {
+				int last = (next + capacity - 1) % capacity;
+				long lastTime = buffer.getLong(getOffset(last));
+				if (time < lastTime) {
+					return true;
+				} else if (time == lastTime) {
+					buffer.putDouble(getOffset(last) + 8, value);
+					return true;
+				}
+			}
+			buffer.putLong(getOffset(next), time);
+			buffer.putDouble(getOffset(next) + 8, value);
+			buffer.putInt(NEXT_OFFSET, (next + 1) % capacity);
+			buffer.putInt(SIZE_OFFSET, Math.min(size + 1, capacity));
+			return true;
+		}
+
+		/**
+		 * Gets points
+		 *
+		 * @return points, oldest first, or null if series is closed
+		 */
+		synchronized List<Point> getPoints() {
+			if (closed) {
+				return null;
+			}
+			int size = buffer.getInt(SIZE_OFFSET);
+			int next = buffer.getInt(NEXT_OFFSET);
+			ImmutableList.Builder<Point> builder = ImmutableList.builder();
+			for (int i = 0; i < size; i++) {
+				int offset = getOffset((next - size + i + capacity) % capacity);
+				builder.add(new Point(buffer.getLong(offset), buffer.getDouble(offset + 8)));
+			}
+			return builder.build();
+		}
+
+		/**
+		 * Gets time of last value
+		 *
+		 * @return time in epoch milliseconds, or Long.MIN_VALUE if series has no values
+		 */
+		synchronized long getLastTime() {
+			int size = buffer.getInt(SIZE_OFFSET);
+			if (size == 0) {
+				return Long.MIN_VALUE;
+			}
+			int last = (buffer.getInt(NEXT_OFFSET) + capacity - 1) % capacity;
+			return buffer.getLong(getOffset(last));
+		}
+
+		/**
+		 * Writes values to file and unmaps it
+		 */
+		synchronized void close() {
+			if (!closed) {
+				closed = true;
+				buffer.force();
+				unmap(buffer);
+			}
+		}
+
+		private int getOffset(int index) {
+			return pointsOffset + index * POINT_SIZE;
+		}
+	}
+
+}
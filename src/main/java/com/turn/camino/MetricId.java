@@ -17,19 +17,38 @@ package com.turn.camino;
 import com.turn.camino.config.Tag;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Ordering;
 
 import java.util.List;
 
 /**
  * Metric identifier
  *
+ * Metric IDs are equal if they have the same series key, which identifies a time series
+ * by path name, metric name and tags regardless of their order. The series key and its
+ * hash are computed once, so metric IDs are cheap map keys.
+ *
  * @author llo
  */
 public class MetricId {
 
+	private final static Interner<MetricId> INTERNER = Interners.newWeakInterner();
+
+	private final static Ordering<Tag> TAG_ORDERING = new Ordering<Tag>() {
+		@Override
+		public int compare(Tag tag1, Tag tag2) {
+			int c = tag1.getKey().compareTo(tag2.getKey());
+			return c != 0 ? c : tag1.getValue().compareTo(tag2.getValue());
+		}
+	};
+
 	private final String name;
 	private final String pathName;
 	private final List<Tag> tags;
+	private final String seriesKey;
+	private final int hash;
 
 	/**
 	 * Constructor
@@ -42,6 +61,35 @@ public class MetricId {
 		this.name = name;
 		this.pathName = pathName;
 		this.tags = tags == null ? ImmutableList.of() : ImmutableList.copyOf(tags);
+		this.seriesKey = buildSeriesKey(pathName, name, this.tags);
+		this.hash = seriesKey.hashCode();
+	}
+
+	/**
+	 * Interns metric ID
+	 *
+	 * Metric IDs of the same series computed in successive runs share one instance, along
+	 * with its tags and series key.
+	 *
+	 * @param metricId metric ID
+	 * @return canonical metric ID equal to given one
+	 */
+	public static MetricId intern(MetricId metricId) {
+		return INTERNER.intern(metricId);
+	}
+
+	/**
+	 * Gets interned ID of a metric of a path
+	 *
+	 * Metrics and their history are both looked up by this ID, so path status must have
+	 * rendered tags, or the metric is identified without tags.
+	 *
+	 * @param name name of metric
+	 * @param pathStatus path status with rendered tags
+	 * @return canonical metric ID
+	 */
+	public static MetricId of(String name, PathStatus pathStatus) {
+		return intern(new MetricId(name, pathStatus.getName(), pathStatus.getTags()));
 	}
 
 	/**
@@ -80,4 +128,70 @@ public class MetricId {
 		return String.format("%s.%s", pathName, name);
 	}
 
+	/**
+	 * Returns series key of metric ID
+	 *
+	 * Series key is pathName.name{key=value,...} with tags sorted by key, and with
+	 * backslashes, commas, equal signs and braces in names escaped by backslashes.
+	 *
+	 * @return series key of metric ID
+	 */
+	public String getSeriesKey() {
+		return seriesKey;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (object instanceof MetricId) {
+			MetricId other = (MetricId) object;
+			return hash == other.hash && seriesKey.equals(other.seriesKey);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return seriesKey;
+	}
+
+	private static String buildSeriesKey(String pathName, String name, List<Tag> tags) {
+		StringBuilder builder = new StringBuilder();
+		appendEscaped(builder, pathName);
+		builder.append('.');
+		appendEscaped(builder, name);
+		builder.append('{');
+		List<Tag> sortedTags = TAG_ORDERING.isOrdered(tags) ? tags :
+				TAG_ORDERING.sortedCopy(tags);
+		for (int i = 0; i < sortedTags.size(); i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			appendEscaped(builder, sortedTags.get(i).getKey());
+			builder.append('=');
+			appendEscaped(builder, sortedTags.get(i).getValue());
+		}
+		return builder.append('}').toString();
+	}
+
+	private static void appendEscaped(StringBuilder builder, String string) {
+		if (string == null) {
+			return;
+		}
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (c == '\\' || c == ',' || c == '=' || c == '{' || c == '}') {
+				builder.append('\\');
+			}
+			builder.append(c);
+		}
+	}
+
 }
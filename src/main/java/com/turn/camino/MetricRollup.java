@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.turn.camino.config.Metric;
+import com.turn.camino.config.Rollup;
+import com.turn.camino.config.Tag;
+import com.turn.camino.render.functions.MetricFunctions;
+import com.turn.camino.render.functions.MetricFunctions.Aggregate;
+import com.turn.camino.render.functions.MetricFunctions.AggregateFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Metric rollup
+ *
+ * Groups metric data of paths by the values of some of their tags, and aggregates each
+ * group into one metric datum, with the same aggregates as metrics of path details. Paths
+ * that don't have all tags of a rollup are not rolled up by it.
+ *
+ * Metric data are rolled up as they are added, so only one aggregate per group is kept.
+ * A rollup is meant to be fed by the single thread consuming metrics of one run, and is
+ * not thread-safe.
+ *
+ * @author llo
+ */
+public class MetricRollup {
+
+	private final List<Group> groups;
+
+	/**
+	 * Constructor
+	 *
+	 * @param rollups rollup definitions
+	 */
+	public MetricRollup(List<Rollup> rollups) {
+		ImmutableList.Builder<Group> builder = ImmutableList.builder();
+		for (Rollup rollup : rollups) {
+			builder.add(new Group(rollup));
+		}
+		this.groups = builder.build();
+	}
+
+	/**
+	 * Adds metric data of a path
+	 *
+	 * @param pathMetrics path metrics
+	 * @return path metrics without metric data that rollups drop
+	 */
+	public PathMetrics add(PathMetrics pathMetrics) {
+		if (pathMetrics.getMetricData() == null) {
+			return pathMetrics;
+		}
+		List<MetricDatum> kept = Lists.newArrayListWithCapacity(
+				pathMetrics.getMetricData().size());
+		for (MetricDatum metricDatum : pathMetrics.getMetricData()) {
+			boolean dropped = false;
+			for (Group group : groups) {
+				if (group.add(metricDatum) && group.rollup.isDropInputs()) {
+					dropped = true;
+				}
+			}
+			if (!dropped) {
+				kept.add(metricDatum);
+			}
+		}
+		if (kept.size() == pathMetrics.getMetricData().size()) {
+			return pathMetrics;
+		}
+		return new PathMetrics(pathMetrics.getPath(), pathMetrics.getPathStatus(), kept);
+	}
+
+	/**
+	 * Gets rolled up metrics
+	 *
+	 * @return one path metrics per rollup, named after rollup, with one metric datum per
+	 *         metric and distinct tag values
+	 */
+	public List<PathMetrics> getPathMetrics() {
+		ImmutableList.Builder<PathMetrics> builder = ImmutableList.builder();
+		for (Group group : groups) {
+			builder.add(group.getPathMetrics());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Aggregates of metric data rolled up by one rollup
+	 */
+	private static class Group {
+
+		private final Rollup rollup;
+		private final Pattern pathPattern;
+		private final AggregateFactory aggregateFactory;
+		private final PathStatus pathStatus;
+		private final Map<MetricId, Entry> entries = Maps.newLinkedHashMap();
+
+		Group(Rollup rollup) {
+			this.rollup = rollup;
+			this.pathPattern = rollup.getPathPattern() != null ?
+					Pattern.compile(rollup.getPathPattern()) : null;
+			this.aggregateFactory = MetricFunctions.getAggregateFactory(rollup.getAggregate());
+			Preconditions.checkArgument(aggregateFactory != null, "Unknown aggregate %s of " +
+					"rollup %s", rollup.getAggregate(), rollup.getName());
+			this.pathStatus = new PathStatus(rollup.getName(), rollup.getPathPattern() != null ?
+					rollup.getPathPattern() : "", null, ImmutableList.<PathDetail>of(), null);
+		}
+
+		/**
+		 * Adds metric datum to its group
+		 *
+		 * @param metricDatum metric datum
+		 * @return true if metric datum is rolled up, false otherwise
+		 */
+		boolean add(MetricDatum metricDatum) {
+			MetricId metricId = metricDatum.getMetricId();
+			if (pathPattern != null && !pathPattern.matcher(metricId.getPathName()).matches()) {
+				return false;
+			}
+			if (rollup.getMetrics() != null && !rollup.getMetrics().contains(
+					metricId.getName())) {
+				return false;
+			}
+
+			// key group by metric ID of rollup, with metric name and rollup tags
+			List<Tag> tags = Lists.newArrayListWithCapacity(rollup.getTags().size());
+			for (String tagKey : rollup.getTags()) {
+				Tag tag = findTag(metricId.getTags(), tagKey);
+				if (tag == null) {
+					return false;
+				}
+				tags.add(tag);
+			}
+			MetricId key = new MetricId(metricId.getName(), rollup.getName(), tags);
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				entry = new Entry(key, aggregateFactory.newInstance());
+				entries.put(key, entry);
+			}
+			entry.aggregate.put(metricDatum.getValue());
+			entry.squaredError += metricDatum.getError() * metricDatum.getError();
+			return true;
+		}
+
+		PathMetrics getPathMetrics() {
+			List<MetricDatum> metricData = Lists.newArrayListWithCapacity(entries.size());
+			for (Entry entry : entries.values()) {
+				metricData.add(new MetricDatum(entry.metricId, new Metric(
+						entry.metricId.getName(), null, rollup.getAggregate(), null, 0),
+						pathStatus, entry.aggregate.get(), entry.getError(),
+						ImmutableList.<PathDetail>of()));
+			}
+			return new PathMetrics(null, pathStatus, metricData);
+		}
+
+		private static Tag findTag(List<Tag> tags, String key) {
+			for (Tag tag : tags) {
+				if (tag.getKey().equals(key)) {
+					return tag;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Aggregate of one group, and errors of estimated values in it
+		 */
+		private class Entry {
+
+			private final MetricId metricId;
+			private final Aggregate aggregate;
+			private double squaredError = 0;
+
+			Entry(MetricId metricId, Aggregate aggregate) {
+				this.metricId = metricId;
+				this.aggregate = aggregate;
+			}
+
+			/**
+			 * Gets error of aggregate
+			 *
+			 * Errors of a sum of independent estimates add in quadrature. Errors of other
+			 * aggregates of estimates are unknown.
+			 */
+			double getError() {
+				if (squaredError == 0) {
+					return 0;
+				}
+				return "sum".equals(rollup.getAggregate()) ? Math.sqrt(squaredError) :
+						Double.NaN;
+			}
+		}
+	}
+
+}
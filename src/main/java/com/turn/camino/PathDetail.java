@@ -16,6 +16,8 @@ package com.turn.camino;
 
 import com.turn.camino.annotation.Member;
 
+import java.util.Objects;
+
 /**
  * Path detail
  *
@@ -86,4 +88,19 @@ public class PathDetail {
 		return length;
 	}
 
+	@Override
+	public boolean equals(Object object) {
+		if (object instanceof PathDetail) {
+			PathDetail other = (PathDetail) object;
+			return pathValue.equals(other.pathValue) && directory == other.directory &&
+					length == other.length && lastModifiedTime == other.lastModifiedTime;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(pathValue, directory, length, lastModifiedTime);
+	}
+
 }
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.fs.GlobPattern;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Cache of materialized paths across runs
+ *
+ * Keeps path details of each rendered path pattern until a change source reports a change
+ * that may affect the pattern, so that unchanged paths are not materialized again on every
+ * run. A change affects a pattern if the changed path matches the pattern, is an ancestor
+ * of paths that could match it, or is inside a path that matches it.
+ *
+ * Metrics such as age and creation delay are still computed on every run, from the cached
+ * modification times.
+ *
+ * Patterns are indexed by their leading literal directories, so a change only checks the
+ * patterns under its ancestors and descendants. Patterns that are no longer rendered, such
+ * as those of past dates, are evicted once a cycle passes without looking them up.
+ *
+ * @author llo
+ */
+public class PathDetailCache {
+
+	/**
+	 * Separates literal directory of a pattern from the pattern in keys of index. Sorts
+	 * before the path separator, so patterns of one directory precede its subdirectories.
+	 */
+	private final static char KEY_SEPARATOR = '\0';
+
+	private final ChangeSource changeSource;
+	private final ConcurrentMap<String, Entry> entries = Maps.newConcurrentMap();
+	private final ConcurrentNavigableMap<String, Entry> index = new ConcurrentSkipListMap<>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private volatile long cycle = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param changeSource source of change events
+	 */
+	public PathDetailCache(ChangeSource changeSource) {
+		this.changeSource = changeSource;
+	}
+
+	/**
+	 * Gets change source
+	 *
+	 * @return change source
+	 */
+	public ChangeSource getChangeSource() {
+		return changeSource;
+	}
+
+	/**
+	 * Gets cached path details of a path pattern
+	 *
+	 * @param value rendered value of path
+	 * @return path details, or null if pattern is not cached or has changed
+	 */
+	public List<PathDetail> get(String value) {
+		Entry entry = entries.get(value);
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		entry.lastCycle = cycle;
+		return entry.pathDetails;
+	}
+
+	/**
+	 * Caches path details of a path pattern
+	 *
+	 * Patterns that are not absolute, or that cannot be split into directories, are not
+	 * cached since changes to them cannot be tracked.
+	 *
+	 * @param value rendered value of path
+	 * @param pathDetails materialized path details
+	 */
+	public void put(String value, List<PathDetail> pathDetails) {
+		String[] components = GlobPlanner.splitPattern(new Path(value).toUri());
+		if (components != null) {
+			Entry entry = new Entry(value, components, pathDetails instanceof PathDetailList ?
+					pathDetails : ImmutableList.copyOf(pathDetails));
+			entry.lastCycle = cycle;
+			entries.put(value, entry);
+			index.put(entry.indexKey, entry);
+		}
+	}
+
+	/**
+	 * Reads changes from change source and evicts affected patterns
+	 *
+	 * Should be called at the start of every run, so that changes made while the previous
+	 * run was materializing paths are accounted for.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void refresh() throws IOException {
+		for (String path : changeSource.poll()) {
+			markDirty(path);
+		}
+	}
+
+	/**
+	 * Evicts patterns affected by change to a path
+	 *
+	 * @param path absolute path that changed
+	 */
+	public void markDirty(String path) {
+		String[] changed = GlobPlanner.splitPattern(new Path(path).toUri());
+		if (changed == null || changed.length == 0) {
+			entries.clear();
+			index.clear();
+			return;
+		}
+
+		// patterns in changed path or its ancestors
+		for (int i = 0; i <= changed.length; i++) {
+			String directory = toDirectory(changed, i);
+			evictAffected(index.subMap(directory + KEY_SEPARATOR,
+					directory + (char) (KEY_SEPARATOR + 1)), changed);
+		}
+
+		// patterns in descendants of changed path
+		String directory = toDirectory(changed, changed.length);
+		evictAffected(index.subMap(directory + Path.SEPARATOR_CHAR,
+				directory + (char) (Path.SEPARATOR_CHAR + 1)), changed);
+	}
+
+	/**
+	 * Evicts patterns not looked up since the last call
+	 *
+	 * Should be called once per cycle, after all configs sharing the cache have run, so
+	 * that patterns that are no longer rendered don't accumulate.
+	 */
+	public synchronized void evictUnused() {
+		for (Entry entry : entries.values()) {
+			if (entry.lastCycle < cycle) {
+				evict(entry);
+			}
+		}
+		cycle++;
+	}
+
+	private void evictAffected(ConcurrentNavigableMap<String, Entry> candidates,
+			String[] changed) {
+		for (Entry entry : candidates.values()) {
+			if (entry.isAffectedBy(changed)) {
+				evict(entry);
+			}
+		}
+	}
+
+	private void evict(Entry entry) {
+		entries.remove(entry.value, entry);
+		index.remove(entry.indexKey, entry);
+	}
+
+	/**
+	 * Joins leading components of a path into a directory
+	 *
+	 * @param components components of path
+	 * @param length number of leading components
+	 * @return absolute directory
+	 */
+	private static String toDirectory(String[] components, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(Path.SEPARATOR_CHAR).append(components[i]);
+		}
+		return sb.length() > 0 ? sb.toString() : Path.SEPARATOR;
+	}
+
+	/**
+	 * Gets number of patterns cached
+	 *
+	 * @return number of patterns
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets number of lookups that found path details
+	 *
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets number of lookups that did not find path details
+	 *
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Cached path details of one pattern
+	 */
+	private static class Entry {
+
+		private final String value;
+		private final String indexKey;
+		private final String[] components;
+		private final GlobPattern[] globPatterns;
+		private final List<PathDetail> pathDetails;
+		private volatile long lastCycle;
+
+		Entry(String value, String[] components, List<PathDetail> pathDetails) {
+			this.value = value;
+			this.components = components;
+			this.globPatterns = new GlobPattern[components.length];
+			int literalLength = components.length;
+			for (int i = components.length - 1; i >= 0; i--) {
+				if (GlobPlanner.isGlob(components[i])) {
+					globPatterns[i] = new GlobPattern(components[i]);
+					literalLength = i;
+				}
+			}
+			this.indexKey = toDirectory(components, literalLength) + KEY_SEPARATOR + value;
+			this.pathDetails = pathDetails;
+		}
+
+		/**
+		 * Returns true if changed path and pattern agree on their common leading components
+		 *
+		 * @param changed components of changed path
+		 * @return true if pattern may be affected by change
+		 */
+		boolean isAffectedBy(String[] changed) {
+			int length = Math.min(components.length, changed.length);
+			for (int i = 0; i < length; i++) {
+				boolean matches = globPatterns[i] != null ? globPatterns[i].matches(changed[i]) :
+						components[i].equals(changed[i]);
+				if (!matches) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.base.Preconditions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of path details stored in columns
+ *
+ * Lengths and modification times are kept in primitive arrays and directory flags in a bit
+ * set, so that aggregating over a large number of paths touches no objects. Path values are
+ * front coded: each value only stores the characters that follow the prefix it shares with
+ * the previous value, and every {@value #BLOCK_SIZE}th value is stored in full so that any
+ * value can be decoded from at most that many entries.
+ *
+ * {@link PathDetail} objects are only created when elements are accessed as a list.
+ *
+ * @author llo
+ */
+public class PathDetailList extends AbstractList<PathDetail> implements RandomAccess {
+
+	private final static int BLOCK_SIZE = 16;
+
+	private final int size;
+	private final long[] lengths;
+	private final long[] lastModifiedTimes;
+	private final BitSet directories;
+	private final int[] prefixLengths;
+	private final int[] suffixOffsets;
+	private final char[] suffixes;
+	private final boolean truncated;
+
+	/**
+	 * Constructor
+	 *
+	 * @param builder builder holding columns
+	 */
+	private PathDetailList(Builder builder) {
+		this.size = builder.size;
+		this.lengths = Arrays.copyOf(builder.lengths, size);
+		this.lastModifiedTimes = Arrays.copyOf(builder.lastModifiedTimes, size);
+		this.directories = (BitSet) builder.directories.clone();
+		this.prefixLengths = Arrays.copyOf(builder.prefixLengths, size);
+		this.suffixOffsets = Arrays.copyOf(builder.suffixOffsets, size + 1);
+		this.suffixes = Arrays.copyOf(builder.suffixes, builder.suffixOffsets[size]);
+		this.truncated = builder.truncated;
+	}
+
+	@Override
+	public PathDetail get(int index) {
+		return new PathDetail(getPathValue(index), isDirectory(index), getLength(index),
+				getLastModifiedTime(index));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if more paths matched than were added to list
+	 *
+	 * @return true if list is truncated, false otherwise
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Gets path value of path detail at index
+	 *
+	 * @param index index of path detail
+	 * @return path value
+	 */
+	public String getPathValue(int index) {
+		Preconditions.checkElementIndex(index, size);
+		char[] value = new char[maxLength(index)];
+		int length = 0;
+		for (int i = index - index % BLOCK_SIZE; i <= index; i++) {
+			int suffixLength = suffixOffsets[i + 1] - suffixOffsets[i];
+			System.arraycopy(suffixes, suffixOffsets[i], value, prefixLengths[i], suffixLength);
+			length = prefixLengths[i] + suffixLength;
+		}
+		return new String(value, 0, length);
+	}
+
+	/**
+	 * Determines if path at index is a directory
+	 *
+	 * @param index index of path detail
+	 * @return true if path is a directory, false otherwise
+	 */
+	public boolean isDirectory(int index) {
+		Preconditions.checkElementIndex(index, size);
+		return directories.get(index);
+	}
+
+	/**
+	 * Gets length of path at index
+	 *
+	 * @param index index of path detail
+	 * @return length of path
+	 */
+	public long getLength(int index) {
+		return lengths[Preconditions.checkElementIndex(index, size)];
+	}
+
+	/**
+	 * Gets last modified time of path at index
+	 *
+	 * @param index index of path detail
+	 * @return last modified time in epoch milliseconds
+	 */
+	public long getLastModifiedTime(int index) {
+		return lastModifiedTimes[Preconditions.checkElementIndex(index, size)];
+	}
+
+	/**
+	 * Gets an upper bound of length of decoded path value at index
+	 */
+	private int maxLength(int index) {
+		int maxLength = 0;
+		for (int i = index - index % BLOCK_SIZE; i <= index; i++) {
+			maxLength = Math.max(maxLength,
+					prefixLengths[i] + suffixOffsets[i + 1] - suffixOffsets[i]);
+		}
+		return maxLength;
+	}
+
+	/**
+	 * Builder of path detail list
+	 */
+	public static class Builder {
+
+		private int size = 0;
+		private long[] lengths;
+		private long[] lastModifiedTimes;
+		private BitSet directories = new BitSet();
+		private int[] prefixLengths;
+		private int[] suffixOffsets;
+		private char[] suffixes;
+		private String previousPathValue = "";
+		private boolean truncated = false;
+
+		/**
+		 * Constructor
+		 *
+		 * @param expectedSize expected number of path details
+		 */
+		public Builder(int expectedSize) {
+			int capacity = Math.max(expectedSize, 1);
+			this.lengths = new long[capacity];
+			this.lastModifiedTimes = new long[capacity];
+			this.prefixLengths = new int[capacity];
+			this.suffixOffsets = new int[capacity + 1];
+			this.suffixes = new char[capacity * 16];
+		}
+
+		/**
+		 * Adds a path detail
+		 *
+		 * @param pathValue string value of path
+		 * @param directory whether path is a directory
+		 * @param length length of path
+		 * @param lastModifiedTime last modified time of path
+		 * @return this
+		 */
+		public Builder add(String pathValue, boolean directory, long length,
+				long lastModifiedTime) {
+			if (size == lengths.length) {
+				int capacity = size * 2;
+				lengths = Arrays.copyOf(lengths, capacity);
+				lastModifiedTimes = Arrays.copyOf(lastModifiedTimes, capacity);
+				prefixLengths = Arrays.copyOf(prefixLengths, capacity);
+				suffixOffsets = Arrays.copyOf(suffixOffsets, capacity + 1);
+			}
+
+			// store only characters after prefix shared with previous value
+			int prefixLength = 0;
+			if (size % BLOCK_SIZE != 0) {
+				int maxPrefixLength = Math.min(pathValue.length(), previousPathValue.length());
+				while (prefixLength < maxPrefixLength && pathValue.charAt(prefixLength) ==
+						previousPathValue.charAt(prefixLength)) {
+					prefixLength++;
+				}
+			}
+			int offset = suffixOffsets[size];
+			int end = offset + pathValue.length() - prefixLength;
+			if (end > suffixes.length) {
+				suffixes = Arrays.copyOf(suffixes, Math.max(end, suffixes.length * 2));
+			}
+			pathValue.getChars(prefixLength, pathValue.length(), suffixes, offset);
+
+			lengths[size] = length;
+			lastModifiedTimes[size] = lastModifiedTime;
+			directories.set(size, directory);
+			prefixLengths[size] = prefixLength;
+			suffixOffsets[size + 1] = end;
+			previousPathValue = pathValue;
+			size++;
+			return this;
+		}
+
+		/**
+		 * Gets number of path details added
+		 *
+		 * @return number of path details
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Marks list as missing some path details
+		 *
+		 * @return this
+		 */
+		public Builder truncate() {
+			this.truncated = true;
+			return this;
+		}
+
+		/**
+		 * Builds path detail list
+		 *
+		 * @return path detail list
+		 */
+		public PathDetailList build() {
+			return new PathDetailList(this);
+		}
+
+	}
+
+}
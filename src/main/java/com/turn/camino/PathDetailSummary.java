@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.util.List;
+
+/**
+ * Summary of path details
+ *
+ * Computes count, sum, minimum, maximum and average of age and size of path details in a
+ * single pass, so that built-in metrics of a path don't each iterate over its details.
+ * Values are computed with the same arithmetic as the generic metric aggregate, so both
+ * give identical results.
+ *
+ * @author llo
+ */
+public class PathDetailSummary {
+
+	private final int count;
+	private final double sumAge;
+	private final double minAge;
+	private final double maxAge;
+	private final double sumSize;
+	private final double minSize;
+	private final double maxSize;
+
+	/**
+	 * Constructor
+	 *
+	 * @param pathDetails path details
+	 * @param instanceTime time ages are computed against, in epoch milliseconds
+	 */
+	public PathDetailSummary(List<PathDetail> pathDetails, long instanceTime) {
+		double sumAge = 0;
+		double minAge = Double.MAX_VALUE;
+		double maxAge = -Double.MAX_VALUE;
+		double sumSize = 0;
+		double minSize = Double.MAX_VALUE;
+		double maxSize = -Double.MAX_VALUE;
+		if (pathDetails instanceof PathDetailList) {
+			// read columns without creating path details
+			PathDetailList pathDetailList = (PathDetailList) pathDetails;
+			for (int i = 0; i < pathDetailList.size(); i++) {
+				double age = instanceTime - pathDetailList.getLastModifiedTime(i);
+				double size = pathDetailList.getLength(i);
+				sumAge += age;
+				minAge = Math.min(minAge, age);
+				maxAge = Math.max(maxAge, age);
+				sumSize += size;
+				minSize = Math.min(minSize, size);
+				maxSize = Math.max(maxSize, size);
+			}
+		} else {
+			for (PathDetail pathDetail : pathDetails) {
+				double age = instanceTime - pathDetail.getLastModifiedTime();
+				double size = pathDetail.getLength();
+				sumAge += age;
+				minAge = Math.min(minAge, age);
+				maxAge = Math.max(maxAge, age);
+				sumSize += size;
+				minSize = Math.min(minSize, size);
+				maxSize = Math.max(maxSize, size);
+			}
+		}
+		this.count = pathDetails.size();
+		this.sumAge = sumAge;
+		this.minAge = minAge;
+		this.maxAge = maxAge;
+		this.sumSize = sumSize;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Gets number of path details
+	 *
+	 * @return count
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets aggregate of ages
+	 *
+	 * @param aggregate name of aggregate, one of sum, avg, max and min
+	 * @return aggregate value, or NaN if aggregate is unknown
+	 */
+	public double getAge(String aggregate) {
+		return get(aggregate, sumAge, minAge, maxAge);
+	}
+
+	/**
+	 * Gets aggregate of sizes
+	 *
+	 * @param aggregate name of aggregate, one of sum, avg, max and min
+	 * @return aggregate value, or NaN if aggregate is unknown
+	 */
+	public double getSize(String aggregate) {
+		return get(aggregate, sumSize, minSize, maxSize);
+	}
+
+	/**
+	 * Returns true if aggregate is computed by summary
+	 *
+	 * @param aggregate name of aggregate
+	 * @return true if aggregate is supported, false otherwise
+	 */
+	public static boolean isSupported(String aggregate) {
+		return "sum".equals(aggregate) || "avg".equals(aggregate) || "max".equals(aggregate) ||
+				"min".equals(aggregate);
+	}
+
+	private double get(String aggregate, double sum, double min, double max) {
+		if ("sum".equals(aggregate)) {
+			return sum;
+		} else if ("avg".equals(aggregate)) {
+			return count > 0 ? sum / count : 0;
+		} else if ("max".equals(aggregate)) {
+			return max;
+		} else if ("min".equals(aggregate)) {
+			return min;
+		}
+		return Double.NaN;
+	}
+
+}
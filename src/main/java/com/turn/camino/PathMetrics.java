@@ -46,7 +46,10 @@ public class PathMetrics {
 	/**
 	 * Get path
 	 *
-	 * @return path
+	 * Overflow series of repeats and metrics of rollups are not computed from one configured
+	 * path, so they have no path. Their path status still carries their path name.
+	 *
+	 * @return path, or null for overflow series and rollups
 	 */
 	public Path getPath() {
 		return path;
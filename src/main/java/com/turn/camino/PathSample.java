@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.base.Preconditions;
+import com.turn.camino.annotation.Member;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Path sample
+ *
+ * Path details of a random subset of the directories that the last component of a path
+ * pattern is matched in. Path details are grouped by directory, in the order directories
+ * were sampled.
+ *
+ * Totals over all directories are extrapolated from the sampled directories as a cluster
+ * sample, and averages are estimated as ratios of sampled totals. Estimates come with the
+ * half-width of their 95% confidence interval, which shrinks as more directories are
+ * sampled and is zero when all of them are.
+ *
+ * @author llo
+ */
+public class PathSample {
+
+	/**
+	 * Standard normal quantile of a 95% confidence interval
+	 */
+	private final static double Z = 1.96;
+
+	private final int directoryCount;
+	private final PathDetailList pathDetails;
+	private final int[] directoryEnds;
+
+	/**
+	 * Constructor
+	 *
+	 * @param directoryCount number of directories sampled from
+	 * @param pathDetails path details of sampled directories, grouped by directory
+	 * @param directoryEnds index after last path detail of each sampled directory
+	 */
+	public PathSample(int directoryCount, PathDetailList pathDetails, int[] directoryEnds) {
+		Preconditions.checkArgument(directoryEnds.length <= directoryCount,
+				"Cannot sample more directories than there are");
+		this.directoryCount = directoryCount;
+		this.pathDetails = pathDetails;
+		this.directoryEnds = Arrays.copyOf(directoryEnds, directoryEnds.length);
+	}
+
+	/**
+	 * Gets number of directories sampled from
+	 *
+	 * @return number of directories
+	 */
+	@Member("directoryCount")
+	public int getDirectoryCount() {
+		return directoryCount;
+	}
+
+	/**
+	 * Gets number of directories sampled
+	 *
+	 * @return number of sampled directories
+	 */
+	@Member("sampledDirectoryCount")
+	public int getSampledDirectoryCount() {
+		return directoryEnds.length;
+	}
+
+	/**
+	 * Returns true if all directories were sampled
+	 *
+	 * Estimates from a complete sample are exact.
+	 *
+	 * @return true if sample is complete, false otherwise
+	 */
+	@Member("complete")
+	public boolean isComplete() {
+		return directoryEnds.length == directoryCount;
+	}
+
+	/**
+	 * Gets path details of sampled directories
+	 *
+	 * @return path details
+	 */
+	public PathDetailList getPathDetails() {
+		return pathDetails;
+	}
+
+	/**
+	 * Gets path details of one sampled directory
+	 *
+	 * @param index index of sampled directory
+	 * @return path details of directory
+	 */
+	public List<PathDetail> getPathDetails(int index) {
+		Preconditions.checkElementIndex(index, directoryEnds.length);
+		return pathDetails.subList(index > 0 ? directoryEnds[index - 1] : 0,
+				directoryEnds[index]);
+	}
+
+	/**
+	 * Estimates number of paths in all directories
+	 *
+	 * @return estimated count
+	 */
+	public Estimate estimateCount() {
+		double[] counts = new double[directoryEnds.length];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = getPathDetails(i).size();
+		}
+		return estimateTotal(counts);
+	}
+
+	/**
+	 * Estimates total of a value over all directories
+	 *
+	 * @param totals total of value in each sampled directory
+	 * @return estimated total
+	 */
+	public Estimate estimateTotal(double[] totals) {
+		checkSampledDirectories(totals);
+		int n = totals.length;
+		if (n == 0) {
+			return new Estimate(0, 0);
+		}
+		double mean = 0;
+		for (double total : totals) {
+			mean += total;
+		}
+		mean /= n;
+		double variance = (double) directoryCount * directoryCount *
+				getSampleVariance(totals, null, mean) / n;
+		return new Estimate(directoryCount * mean, getError(variance));
+	}
+
+	/**
+	 * Estimates average of a value over paths of all directories
+	 *
+	 * @param totals total of value in each sampled directory
+	 * @return estimated average, or NaN if there is no sampled path
+	 */
+	public Estimate estimateAverage(double[] totals) {
+		checkSampledDirectories(totals);
+		int n = totals.length;
+		double[] counts = new double[n];
+		double sum = 0;
+		double count = 0;
+		for (int i = 0; i < n; i++) {
+			counts[i] = getPathDetails(i).size();
+			sum += totals[i];
+			count += counts[i];
+		}
+		if (count == 0) {
+			return new Estimate(Double.NaN, Double.NaN);
+		}
+		double ratio = sum / count;
+		double meanCount = count / n;
+		double variance = getSampleVariance(totals, counts, ratio) /
+				(n * meanCount * meanCount);
+		return new Estimate(ratio, getError(variance));
+	}
+
+	private void checkSampledDirectories(double[] totals) {
+		Preconditions.checkArgument(totals.length == directoryEnds.length,
+				"Need one total per sampled directory");
+	}
+
+	/**
+	 * Gets variance of totals around their mean, or of residuals of totals from a ratio of
+	 * counts, corrected for the fraction of directories sampled
+	 */
+	private double getSampleVariance(double[] totals, double[] counts, double center) {
+		int n = totals.length;
+		if (isComplete()) {
+			return 0;
+		}
+		if (n < 2) {
+			return Double.NaN;
+		}
+		double sumSquares = 0;
+		for (int i = 0; i < n; i++) {
+			double residual = totals[i] - (counts != null ? center * counts[i] : center);
+			sumSquares += residual * residual;
+		}
+		return (1 - (double) n / directoryCount) * sumSquares / (n - 1);
+	}
+
+	private static double getError(double variance) {
+		return Z * Math.sqrt(variance);
+	}
+
+	/**
+	 * Estimated value with its error bound
+	 */
+	public static class Estimate {
+
+		private final double value;
+		private final double error;
+
+		/**
+		 * Constructor
+		 *
+		 * @param value estimated value
+		 * @param error half-width of 95% confidence interval
+		 */
+		public Estimate(double value, double error) {
+			this.value = value;
+			this.error = error;
+		}
+
+		/**
+		 * Gets estimated value
+		 *
+		 * @return value
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * Gets half-width of 95% confidence interval of value
+		 *
+		 * @return error bound, or NaN if it cannot be estimated
+		 */
+		public double getError() {
+			return error;
+		}
+	}
+
+}
@@ -16,6 +16,7 @@ package com.turn.camino;
 
 import com.turn.camino.annotation.Member;
 import com.turn.camino.config.Path;
+import com.turn.camino.config.Tag;
 
 import com.google.common.collect.ImmutableList;
 import com.turn.camino.render.TimeValue;
@@ -36,6 +37,9 @@ public class PathStatus {
 	private final Path path;
 	private final List<PathDetail> pathDetails;
 	private final TimeValue expectedCreationTime;
+	private final boolean truncated;
+	private final PathSample sample;
+	private final List<Tag> tags;
 
 	/**
 	 * Constructor
@@ -47,11 +51,64 @@ public class PathStatus {
 	 */
 	public PathStatus(String name, String value, Path path, List<PathDetail> pathDetails,
 			TimeValue expectedCreationTime) {
+		this(name, value, path, pathDetails, expectedCreationTime, false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of path
+	 * @param value value of path
+	 * @param path path configuration
+	 * @param pathDetails path details
+	 * @param expectedCreationTime expected creation time, or null
+	 * @param truncated whether more paths matched than are in path details
+	 */
+	public PathStatus(String name, String value, Path path, List<PathDetail> pathDetails,
+			TimeValue expectedCreationTime, boolean truncated) {
+		this(name, value, path, pathDetails, expectedCreationTime, truncated, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of path
+	 * @param value value of path
+	 * @param path path configuration
+	 * @param pathDetails path details
+	 * @param expectedCreationTime expected creation time, or null
+	 * @param truncated whether more paths matched than are in path details
+	 * @param sample sample that path details were drawn from, or null if they are exact
+	 */
+	public PathStatus(String name, String value, Path path, List<PathDetail> pathDetails,
+			TimeValue expectedCreationTime, boolean truncated, PathSample sample) {
+		this(name, value, path, pathDetails, expectedCreationTime, truncated, sample, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of path
+	 * @param value value of path
+	 * @param path path configuration
+	 * @param pathDetails path details
+	 * @param expectedCreationTime expected creation time, or null
+	 * @param truncated whether more paths matched than are in path details
+	 * @param sample sample that path details were drawn from, or null if they are exact
+	 * @param tags rendered tags of path, or null if they are not rendered yet
+	 */
+	public PathStatus(String name, String value, Path path, List<PathDetail> pathDetails,
+			TimeValue expectedCreationTime, boolean truncated, PathSample sample,
+			List<Tag> tags) {
 		this.name = name;
 		this.value = value;
 		this.path = path;
-		this.pathDetails = ImmutableList.copyOf(pathDetails);
+		this.pathDetails = pathDetails instanceof PathDetailList ? pathDetails :
+				ImmutableList.copyOf(pathDetails);
 		this.expectedCreationTime = expectedCreationTime;
+		this.truncated = truncated;
+		this.sample = sample;
+		this.tags = tags != null ? ImmutableList.copyOf(tags) : null;
 	}
 
 	/**
@@ -104,4 +161,42 @@ public class PathStatus {
 		return expectedCreationTime;
 	}
 
+	/**
+	 * Returns true if path details were capped
+	 *
+	 * Metrics of a truncated path status are computed over the first path details found
+	 * only.
+	 *
+	 * @return true if more paths matched than are in path details, false otherwise
+	 */
+	@Member("truncated")
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Gets sample that path details were drawn from
+	 *
+	 * Metrics of a sampled path status are estimated from the path details of sampled
+	 * directories.
+	 *
+	 * @return path sample, or null if path details are all paths that matched
+	 */
+	@Member("sample")
+	public PathSample getSample() {
+		return sample;
+	}
+
+	/**
+	 * Gets rendered tags of path
+	 *
+	 * Tags are rendered once per path, and shared by metric IDs of all its metrics.
+	 *
+	 * @return immutable list of rendered tags, or null if they are not rendered yet
+	 */
+	@Member("tags")
+	public List<Tag> getTags() {
+		return tags;
+	}
+
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.turn.camino.config.Property;
+import com.turn.camino.lang.ast.*;
+import com.turn.camino.render.RenderException;
+import com.turn.camino.render.RendererImpl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Dependency graph of properties
+ *
+ * Finds the identifiers referenced by each property so that properties can be rendered
+ * in any order that respects their dependencies. A property depends on an earlier
+ * property if it references the earlier property's name, if the earlier property
+ * references its name, or if both have the same name. Rendering properties in an order
+ * consistent with these dependencies gives the same result as rendering them one by one.
+ *
+ * Properties can only be analyzed if every name is a literal and every value can be
+ * parsed. Otherwise, the graph is not analyzable and properties must be rendered in order.
+ *
+ * @author llo
+ */
+public class PropertyGraph {
+
+	private final List<Property> properties;
+	private final List<String> names;
+	private final List<Set<String>> references;
+	private final Map<String, Set<String>> referencesByName;
+	private final boolean analyzable;
+
+	/**
+	 * Constructor
+	 *
+	 * @param properties properties in order of definition
+	 */
+	public PropertyGraph(List<Property> properties) {
+		this.properties = ImmutableList.copyOf(properties);
+		List<String> names = Lists.newArrayListWithCapacity(properties.size());
+		List<Set<String>> references = Lists.newArrayListWithCapacity(properties.size());
+		Map<String, Set<String>> referencesByName = Maps.newHashMap();
+		boolean analyzable = true;
+		for (Property property : properties) {
+			String name = findLiteralName(property.getName());
+			Set<String> refs;
+			try {
+				refs = findReferences(property.getValue());
+			} catch (RenderException e) {
+				refs = null;
+			}
+			if (name == null || refs == null) {
+				analyzable = false;
+				break;
+			}
+			names.add(name);
+			references.add(refs);
+			Set<String> byName = referencesByName.get(name);
+			if (byName == null) {
+				referencesByName.put(name, byName = Sets.newHashSet());
+			}
+			byName.addAll(refs);
+		}
+		this.analyzable = analyzable;
+		this.names = analyzable ? ImmutableList.copyOf(names) : ImmutableList.of();
+		this.references = analyzable ? ImmutableList.copyOf(references) : ImmutableList.of();
+		this.referencesByName = analyzable ? referencesByName : Collections.emptyMap();
+	}
+
+	/**
+	 * Returns true if dependencies of all properties are known
+	 *
+	 * @return true if graph is analyzable, false otherwise
+	 */
+	public boolean isAnalyzable() {
+		return analyzable;
+	}
+
+	/**
+	 * Gets properties
+	 *
+	 * @return immutable list of properties
+	 */
+	public List<Property> getProperties() {
+		return properties;
+	}
+
+	/**
+	 * Gets literal name of property
+	 *
+	 * @param index index of property
+	 * @return name of property
+	 */
+	public String getName(int index) {
+		return names.get(index);
+	}
+
+	/**
+	 * Gets earlier properties that must be rendered before a property
+	 *
+	 * @param index index of property
+	 * @return indices of earlier properties
+	 */
+	public Set<Integer> getDependencies(int index) {
+		String name = names.get(index);
+		Set<String> refs = references.get(index);
+		ImmutableSet.Builder<Integer> dependencies = ImmutableSet.builder();
+		for (int i = 0; i < index; i++) {
+			if (refs.contains(names.get(i)) || references.get(i).contains(name) ||
+					names.get(i).equals(name)) {
+				dependencies.add(i);
+			}
+		}
+		return dependencies.build();
+	}
+
+	/**
+	 * Gets names of all properties needed to evaluate identifiers
+	 *
+	 * Follows references between properties transitively, since a property value may
+	 * be a function that references other properties when it is invoked.
+	 *
+	 * @param identifiers referenced identifiers
+	 * @return names of properties
+	 */
+	public Set<String> getReferencedProperties(Collection<String> identifiers) {
+		Set<String> closure = Sets.newHashSet();
+		Deque<String> queue = Lists.newLinkedList(identifiers);
+		while (!queue.isEmpty()) {
+			String identifier = queue.pop();
+			Set<String> refs = referencesByName.get(identifier);
+			if (refs != null && closure.add(identifier)) {
+				queue.addAll(refs);
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Finds identifiers referenced by an expression
+	 *
+	 * @param expression expression
+	 * @return names of referenced identifiers
+	 * @throws RenderException if expression cannot be parsed
+	 */
+	public static Set<String> findReferences(String expression) throws RenderException {
+		Set<String> identifiers = Sets.newHashSet();
+		RendererImpl.parse(expression).accept(new IdentifierCollector(), identifiers);
+		return identifiers;
+	}
+
+	/**
+	 * Finds literal value of a name expression
+	 *
+	 * @param expression name expression
+	 * @return literal name, or null if name is not a literal
+	 */
+	static String findLiteralName(String expression) {
+		Block block;
+		try {
+			block = RendererImpl.parse(expression);
+		} catch (RenderException e) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Expression expr : block.getExpressions()) {
+			if (!(expr instanceof StringLiteral)) {
+				return null;
+			}
+			sb.append(((StringLiteral) expr).getValue());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Collects identifiers in a syntax tree
+	 */
+	private static class IdentifierCollector implements Visitor<Void, Set<String>, RuntimeException> {
+
+		@Override
+		public Void visit(Block block, Set<String> identifiers) {
+			for (Expression expression : block.getExpressions()) {
+				expression.accept(this, identifiers);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(DoubleLiteral doubleLiteral, Set<String> identifiers) {
+			return null;
+		}
+
+		@Override
+		public Void visit(FunctionCall functionCall, Set<String> identifiers) {
+			functionCall.getFunctionValue().accept(this, identifiers);
+			for (Expression argument : functionCall.getArguments()) {
+				argument.accept(this, identifiers);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(Identifier identifier, Set<String> identifiers) {
+			identifiers.add(identifier.getName());
+			return null;
+		}
+
+		@Override
+		public Void visit(LongLiteral longLiteral, Set<String> identifiers) {
+			return null;
+		}
+
+		@Override
+		public Void visit(StringLiteral stringLiteral, Set<String> identifiers) {
+			return null;
+		}
+
+		@Override
+		public Void visit(TernaryIf ternaryIf, Set<String> identifiers) {
+			ternaryIf.getCondition().accept(this, identifiers);
+			ternaryIf.getThenValue().accept(this, identifiers);
+			ternaryIf.getElseValue().accept(this, identifiers);
+			return null;
+		}
+
+		@Override
+		public Void visit(DictionaryLiteral dictionaryLiteral, Set<String> identifiers) {
+			for (DictionaryLiteral.Entry entry : dictionaryLiteral.getEntries()) {
+				entry.getKey().accept(this, identifiers);
+				entry.getValue().accept(this, identifiers);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(ListLiteral listLiteral, Set<String> identifiers) {
+			for (Expression element : listLiteral.getElements()) {
+				element.accept(this, identifiers);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visit(CollectionAccess collectionAccess, Set<String> identifiers) {
+			collectionAccess.getCollection().accept(this, identifiers);
+			collectionAccess.getKey().accept(this, identifiers);
+			return null;
+		}
+
+		@Override
+		public Void visit(MemberAccess memberAccess, Set<String> identifiers) {
+			// child is a member name, not a property
+			memberAccess.getParent().accept(this, identifiers);
+			return null;
+		}
+
+		@Override
+		public Void visit(FunctionLiteral functionLiteral, Set<String> identifiers) {
+			// parameters may shadow properties, so body references are kept as is
+			functionLiteral.getBody().accept(this, identifiers);
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.turn.camino.config.Metric;
+import com.turn.camino.config.Tag;
+import com.turn.camino.render.functions.FunctionEnum;
+import com.turn.camino.render.functions.MetricFunctions;
+import com.turn.camino.render.functions.MetricFunctions.Aggregate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Overflow series of a repeat
+ *
+ * Aggregates metrics of paths created by elements of a repeat past its series budget into
+ * one path, with one metric datum per metric name. Counts and sizes are summed, and all
+ * other metrics are reduced to their maximum, the worst case of ages and delays. Metric
+ * data of failed paths are not aggregated, but the paths are counted.
+ *
+ * Paths are added by the tasks computing them, so adding is thread-safe.
+ *
+ * @author llo
+ */
+public class RepeatOverflow {
+
+	/**
+	 * Name of metric counting paths aggregated into overflow series
+	 */
+	public final static String PATH_COUNT_METRIC = "overflowPathCount";
+
+	private final PathStatus pathStatus;
+	private final Map<String, Entry> entries = Maps.newLinkedHashMap();
+	private int pathCount = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param name path name of overflow series
+	 */
+	public RepeatOverflow(String name) {
+		this.pathStatus = new PathStatus(name, "", null, ImmutableList.<PathDetail>of(), null);
+	}
+
+	/**
+	 * Gets path name of overflow series
+	 *
+	 * @param repeatVar variable of repeat
+	 * @return path name of overflow series
+	 */
+	public static String getName(String repeatVar) {
+		return repeatVar + "_overflow";
+	}
+
+	/**
+	 * Adds metrics of a path
+	 *
+	 * @param pathMetrics path metrics
+	 */
+	public synchronized void add(PathMetrics pathMetrics) {
+		pathCount++;
+		if (pathMetrics.getMetricData() == null) {
+			return;
+		}
+		for (MetricDatum metricDatum : pathMetrics.getMetricData()) {
+			String name = metricDatum.getMetricId().getName();
+			Entry entry = entries.get(name);
+			if (entry == null) {
+				String aggregate = getAggregate(metricDatum.getMetric());
+				entry = new Entry(new MetricId(name, pathStatus.getName(), ImmutableList.<Tag>of()),
+						aggregate, MetricFunctions.getAggregateFactory(aggregate).newInstance());
+				entries.put(name, entry);
+			}
+			entry.aggregate.put(metricDatum.getValue());
+		}
+	}
+
+	/**
+	 * Gets number of paths aggregated
+	 *
+	 * @return number of paths
+	 */
+	public synchronized int getPathCount() {
+		return pathCount;
+	}
+
+	/**
+	 * Gets metrics of overflow series
+	 *
+	 * @return path metrics with one metric datum per metric name, and count of paths
+	 */
+	public synchronized PathMetrics getPathMetrics() {
+		List<MetricDatum> metricData = Lists.newArrayListWithCapacity(entries.size() + 1);
+		for (Entry entry : entries.values()) {
+			metricData.add(new MetricDatum(entry.metricId, new Metric(entry.metricId.getName(),
+					null, entry.aggregateName, null, 0), pathStatus, entry.aggregate.get(),
+					ImmutableList.<PathDetail>of()));
+		}
+		metricData.add(new MetricDatum(new MetricId(PATH_COUNT_METRIC, pathStatus.getName(),
+				ImmutableList.<Tag>of()), new Metric(PATH_COUNT_METRIC, null, "sum", null, 0),
+				pathStatus, pathCount, ImmutableList.<PathDetail>of()));
+		return new PathMetrics(null, pathStatus, metricData);
+	}
+
+	/**
+	 * Gets aggregate of values of a metric over paths
+	 *
+	 * @param metric metric
+	 * @return sum if metric totals or counts path details, max otherwise
+	 */
+	private static String getAggregate(Metric metric) {
+		if ("sum".equals(metric.getAggregate()) || "count".equals(metric.getAggregate()) ||
+				(metric.getAggregate() == null && FunctionEnum.COUNT.getName().equals(
+						metric.getAggFunction()))) {
+			return "sum";
+		}
+		return "min".equals(metric.getAggregate()) ? "min" : "max";
+	}
+
+	/**
+	 * Aggregate of one metric
+	 */
+	private static class Entry {
+
+		private final MetricId metricId;
+		private final String aggregateName;
+		private final Aggregate aggregate;
+
+		Entry(MetricId metricId, String aggregateName, Aggregate aggregate) {
+			this.metricId = metricId;
+			this.aggregateName = aggregateName;
+			this.aggregate = aggregate;
+		}
+	}
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+
+import org.apache.hadoop.fs.*;
+
+/**
+ * File system that limits number of calls in flight
+ *
+ * Metadata calls made by Camino acquire a permit before going to the underlying file system,
+ * so that no matter how many worker threads there are, at most a fixed number of calls reach
+ * the name node at the same time. A call made while the same thread already holds a permit,
+ * such as a listing made by a glob, reuses that permit. Iterators of listings fetch entries
+ * in batches as they are iterated, so each step of an iterator is throttled as a call.
+ *
+ * @author llo
+ */
+public class ThrottledFileSystem extends FilterFileSystem {
+
+	private final int maxInFlight;
+	private final Semaphore semaphore;
+	private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+	/**
+	 * Constructor
+	 *
+	 * @param fileSystem underlying file system
+	 * @param maxInFlight maximum number of calls in flight
+	 */
+	public ThrottledFileSystem(FileSystem fileSystem, int maxInFlight) {
+		super(fileSystem);
+		Preconditions.checkArgument(maxInFlight > 0, "Maximum calls in flight must be positive");
+		this.maxInFlight = maxInFlight;
+		this.semaphore = new Semaphore(maxInFlight, true);
+	}
+
+	/**
+	 * Gets maximum number of calls in flight
+	 *
+	 * @return maximum number of calls in flight
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Gets number of calls that can start without waiting
+	 *
+	 * @return available permits
+	 */
+	public int getAvailablePermits() {
+		return semaphore.availablePermits();
+	}
+
+	@Override
+	public FileStatus getFileStatus(Path path) throws IOException {
+		acquire();
+		try {
+			return super.getFileStatus(path);
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public FileStatus[] listStatus(Path path) throws IOException {
+		acquire();
+		try {
+			return super.listStatus(path);
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public FileStatus[] listStatus(Path path, PathFilter filter) throws IOException {
+		acquire();
+		try {
+			return super.listStatus(path, filter);
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public RemoteIterator<LocatedFileStatus> listLocatedStatus(Path path) throws IOException {
+		acquire();
+		try {
+			return new ThrottledIterator<>(super.listLocatedStatus(path));
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Lists statuses of a directory as they are iterated
+	 *
+	 * Not marked as an override, since older Hadoop versions lack this method. Statuses are
+	 * listed with locations, so the listing is throttled the same way on all versions.
+	 *
+	 * @param path path of directory
+	 * @return iterator of file statuses
+	 * @throws IOException
+	 */
+	public RemoteIterator<FileStatus> listStatusIterator(Path path) throws IOException {
+		acquire();
+		try {
+			return new ThrottledIterator<FileStatus>(super.listLocatedStatus(path));
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public FileStatus[] globStatus(Path pathPattern) throws IOException {
+		acquire();
+		try {
+			return super.globStatus(pathPattern);
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public FileStatus[] globStatus(Path pathPattern, PathFilter filter) throws IOException {
+		acquire();
+		try {
+			return super.globStatus(pathPattern, filter);
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public boolean exists(Path path) throws IOException {
+		acquire();
+		try {
+			return super.exists(path);
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public boolean isDirectory(Path path) throws IOException {
+		acquire();
+		try {
+			return super.isDirectory(path);
+		} finally {
+			release();
+		}
+	}
+
+	@Override
+	public ContentSummary getContentSummary(Path path) throws IOException {
+		acquire();
+		try {
+			return super.getContentSummary(path);
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * Iterator of a listing whose steps acquire a permit, since they may fetch the next
+	 * batch of entries from the file system
+	 */
+	private class ThrottledIterator<T> implements RemoteIterator<T> {
+
+		private final RemoteIterator<? extends T> iterator;
+
+		ThrottledIterator(RemoteIterator<? extends T> iterator) {
+			this.iterator = iterator;
+		}
+
+		@Override
+		public boolean hasNext() throws IOException {
+			acquire();
+			try {
+				return iterator.hasNext();
+			} finally {
+				release();
+			}
+		}
+
+		@Override
+		public T next() throws IOException {
+			acquire();
+			try {
+				return iterator.next();
+			} finally {
+				release();
+			}
+		}
+	}
+
+	/**
+	 * Acquires a permit unless current thread already holds one
+	 *
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private void acquire() throws InterruptedIOException {
+		int[] count = depth.get();
+		if (count[0] == 0) {
+			try {
+				semaphore.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for file system");
+			}
+		}
+		count[0]++;
+	}
+
+	/**
+	 * Releases permit once outermost call of current thread is done
+	 */
+	private void release() {
+		int[] count = depth.get();
+		if (--count[0] == 0) {
+			semaphore.release();
+		}
+	}
+
+}
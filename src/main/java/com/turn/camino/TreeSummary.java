@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+/**
+ * Tree summary
+ *
+ * Totals over all descendants of a directory
+ *
+ * @author llo
+ */
+public class TreeSummary {
+
+	public final static TreeSummary EMPTY = new TreeSummary(0, 0, 0, Long.MAX_VALUE,
+			Long.MIN_VALUE);
+
+	private final long length;
+	private final long fileCount;
+	private final long directoryCount;
+	private final long minModificationTime;
+	private final long maxModificationTime;
+
+	/**
+	 * Constructor
+	 *
+	 * @param length total length of descendant files
+	 * @param fileCount number of descendant files
+	 * @param directoryCount number of descendant directories
+	 * @param minModificationTime earliest modification time of descendants
+	 * @param maxModificationTime latest modification time of descendants
+	 */
+	public TreeSummary(long length, long fileCount, long directoryCount,
+			long minModificationTime, long maxModificationTime) {
+		this.length = length;
+		this.fileCount = fileCount;
+		this.directoryCount = directoryCount;
+		this.minModificationTime = minModificationTime;
+		this.maxModificationTime = maxModificationTime;
+	}
+
+	/**
+	 * Combines this summary with summary of other descendants
+	 *
+	 * @param other summary of other descendants
+	 * @return summary of descendants of both
+	 */
+	public TreeSummary merge(TreeSummary other) {
+		return new TreeSummary(length + other.length, fileCount + other.fileCount,
+				directoryCount + other.directoryCount,
+				Math.min(minModificationTime, other.minModificationTime),
+				Math.max(maxModificationTime, other.maxModificationTime));
+	}
+
+	/**
+	 * Gets total length of descendant files
+	 *
+	 * @return length in bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets number of descendant files
+	 *
+	 * @return file count
+	 */
+	public long getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * Gets number of descendant directories
+	 *
+	 * @return directory count
+	 */
+	public long getDirectoryCount() {
+		return directoryCount;
+	}
+
+	/**
+	 * Gets earliest modification time of descendants
+	 *
+	 * @return modification time in epoch milliseconds, or Long.MAX_VALUE if there is none
+	 */
+	public long getMinModificationTime() {
+		return minModificationTime;
+	}
+
+	/**
+	 * Gets latest modification time of descendants
+	 *
+	 * @return modification time in epoch milliseconds, or Long.MIN_VALUE if there is none
+	 */
+	public long getMaxModificationTime() {
+		return maxModificationTime;
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.Lists;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Tree walker
+ *
+ * Summarizes all descendants of a directory by listing it recursively. Subdirectories down
+ * to a given depth are walked in parallel on an executor, and deeper ones sequentially by
+ * the task that found them. A task waiting for its subdirectories runs those not yet
+ * started itself, so the walk cannot starve even on a single-thread executor that is busy
+ * running the task.
+ *
+ * @author llo
+ */
+public class TreeWalker {
+
+	public final static int DEFAULT_PARALLEL_DEPTH = 2;
+
+	private final FileSystem fileSystem;
+	private final ExecutorService executorService;
+	private final int parallelDepth;
+
+	/**
+	 * Constructor
+	 *
+	 * @param fileSystem file system
+	 * @param executorService executor service, or null to walk sequentially
+	 */
+	public TreeWalker(FileSystem fileSystem, ExecutorService executorService) {
+		this(fileSystem, executorService, DEFAULT_PARALLEL_DEPTH);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param fileSystem file system
+	 * @param executorService executor service, or null to walk sequentially
+	 * @param parallelDepth depth below which subdirectories are walked sequentially
+	 */
+	public TreeWalker(FileSystem fileSystem, ExecutorService executorService,
+			int parallelDepth) {
+		this.fileSystem = fileSystem;
+		this.executorService = executorService;
+		this.parallelDepth = parallelDepth;
+	}
+
+	/**
+	 * Summarizes descendants of a directory
+	 *
+	 * @param path path of directory
+	 * @return summary of descendants; empty if directory doesn't exist
+	 * @throws IOException
+	 */
+	public TreeSummary walk(Path path) throws IOException {
+		return walk(path, 0);
+	}
+
+	private TreeSummary walk(Path path, int depth) throws IOException {
+		FileStatus[] fss;
+		try {
+			fss = fileSystem.listStatus(path);
+		} catch (FileNotFoundException e) {
+			return TreeSummary.EMPTY;
+		}
+
+		// total files, and walk subdirectories
+		long length = 0;
+		long fileCount = 0;
+		long directoryCount = 0;
+		long minModificationTime = Long.MAX_VALUE;
+		long maxModificationTime = Long.MIN_VALUE;
+		TreeSummary summary = TreeSummary.EMPTY;
+		List<FutureTask<TreeSummary>> tasks = Lists.newArrayList();
+		for (FileStatus fs : fss) {
+			minModificationTime = Math.min(minModificationTime, fs.getModificationTime());
+			maxModificationTime = Math.max(maxModificationTime, fs.getModificationTime());
+			if (!fs.isDirectory()) {
+				length += fs.getLen();
+				fileCount++;
+				continue;
+			}
+			directoryCount++;
+			final Path childPath = fs.getPath();
+			if (executorService != null && depth < parallelDepth) {
+				FutureTask<TreeSummary> task = new FutureTask<>(() -> walk(childPath,
+						depth + 1));
+				executorService.execute(task);
+				tasks.add(task);
+			} else {
+				summary = summary.merge(walk(childPath, depth + 1));
+			}
+		}
+
+		// wait for subdirectories walked in parallel, running those not yet started
+		for (FutureTask<TreeSummary> task : tasks) {
+			task.run();
+			try {
+				summary = summary.merge(task.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while walking " + path);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			}
+		}
+		return summary.merge(new TreeSummary(length, fileCount, directoryCount,
+				minModificationTime, maxModificationTime));
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Change source watching directories of local file system
+ *
+ * Stands in for HDFS inotify when running against the local file system. Only entries
+ * directly in the watched directories are reported; subdirectories are not watched.
+ *
+ * @author llo
+ */
+public class WatchServiceChangeSource implements ChangeSource {
+
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> directories = Maps.newHashMap();
+
+	/**
+	 * Constructor
+	 *
+	 * @param directories directories to watch
+	 * @throws IOException
+	 */
+	public WatchServiceChangeSource(Collection<Path> directories) throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		for (Path directory : directories) {
+			Path absolute = directory.toAbsolutePath();
+			WatchKey watchKey = absolute.register(watchService,
+					StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			this.directories.put(watchKey, absolute);
+		}
+	}
+
+	@Override
+	public synchronized List<String> poll() throws IOException {
+		List<String> paths = Lists.newArrayList();
+		WatchKey watchKey;
+		while ((watchKey = watchService.poll()) != null) {
+			Path directory = directories.get(watchKey);
+			for (WatchEvent<?> event : watchKey.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+					paths.add(ALL_PATHS);
+				} else {
+					paths.add(directory.resolve((Path) event.context()).toString());
+				}
+			}
+			watchKey.reset();
+		}
+		return paths;
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+}
@@ -19,12 +19,16 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.turn.camino.RepeatOverflow;
 
 /**
  * Top-level Camino configuration
@@ -38,6 +42,24 @@ public class Config {
 	private final List<Property> properties;
 	private final List<Path> paths;
 	private final List<Repeat> repeats;
+	private final List<Rollup> rollups;
+	private final Integer maxSeries;
+
+	/**
+	 * Constructor
+	 */
+	public Config(URI location, List<String> includes, Map<String, String> properties,
+			List<Path> paths, List<Repeat> repeats) {
+		this(location, includes, properties, paths, repeats, null);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public Config(URI location, List<String> includes, Map<String, String> properties,
+			List<Path> paths, List<Repeat> repeats, List<Rollup> rollups) {
+		this(location, includes, properties, paths, repeats, rollups, null);
+	}
 
 	/**
 	 * Constructor
@@ -48,10 +70,12 @@ public class Config {
 			@JsonProperty("properties") @JsonDeserialize(as = LinkedHashMap.class, keyAs = String.class,
 					contentAs = String.class) Map<String, String> properties,
 			@JsonProperty("paths") @JsonDeserialize(contentAs = Path.class)	List<Path> paths,
-			@JsonProperty("repeats") @JsonDeserialize(contentAs = Repeat.class) List<Repeat> repeats) {
+			@JsonProperty("repeats") @JsonDeserialize(contentAs = Repeat.class) List<Repeat> repeats,
+			@JsonProperty("rollups") @JsonDeserialize(contentAs = Rollup.class) List<Rollup> rollups,
+			@JsonProperty("maxSeries") Integer maxSeries) {
 		this(location, includes, properties == null ? null : ConfigUtil.mapToList(properties,
 				Property::new),
-				paths, repeats);
+				paths, repeats, rollups, maxSeries);
 	}
 
 	/**
@@ -59,6 +83,24 @@ public class Config {
 	 */
 	public Config(URI location, List<String> includes, List<Property> properties,
 			List<Path> paths, List<Repeat> repeats) {
+		this(location, includes, properties, paths, repeats, null);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public Config(URI location, List<String> includes, List<Property> properties,
+			List<Path> paths, List<Repeat> repeats, List<Rollup> rollups) {
+		this(location, includes, properties, paths, repeats, rollups, null);
+	}
+
+	/**
+	 * Constructor
+	 */
+	public Config(URI location, List<String> includes, List<Property> properties,
+			List<Path> paths, List<Repeat> repeats, List<Rollup> rollups, Integer maxSeries) {
+		Preconditions.checkArgument(maxSeries == null || maxSeries >= 0,
+				"Maximum series cannot be negative");
 		this.location = location;
 		this.includes = ImmutableList.copyOf(includes != null ? includes :
 				Collections.<String>emptyList());
@@ -67,6 +109,36 @@ public class Config {
 		this.paths = ImmutableList.copyOf(paths != null ? paths : Collections.<Path>emptyList());
 		this.repeats = ImmutableList.copyOf(repeats != null ? repeats :
 				Collections.<Repeat>emptyList());
+		this.rollups = ImmutableList.copyOf(rollups != null ? rollups :
+				Collections.<Rollup>emptyList());
+		this.maxSeries = maxSeries;
+		checkRollupNames();
+	}
+
+	/**
+	 * Checks that path names of rollups are not used by other rollups, paths or overflow
+	 * series of repeats
+	 *
+	 * Names of paths are compared as written, before they are rendered.
+	 */
+	private void checkRollupNames() {
+		if (rollups.isEmpty()) {
+			return;
+		}
+		Set<String> names = Sets.newHashSet();
+		for (Path path : paths) {
+			names.add(path.getName());
+		}
+		for (Repeat repeat : repeats) {
+			for (Path path : repeat.getPaths()) {
+				names.add(path.getName());
+			}
+			names.add(RepeatOverflow.getName(repeat.getVar()));
+		}
+		for (Rollup rollup : rollups) {
+			Preconditions.checkArgument(names.add(rollup.getName()),
+					"Rollup name \"%s\" is already used", rollup.getName());
+		}
 	}
 
 	/**
@@ -122,4 +194,24 @@ public class Config {
 		return repeats;
 	}
 
+	/**
+	 * Returns rollups
+	 *
+	 * Note that returned list is immutable
+	 *
+	 * @return list of rollups
+	 */
+	public List<Rollup> getRollups() {
+		return rollups;
+	}
+
+	/**
+	 * Returns maximum number of paths created by all repeats in one run
+	 *
+	 * @return maximum number of paths, or null if unlimited
+	 */
+	public Integer getMaxSeries() {
+		return maxSeries;
+	}
+
 }
@@ -40,6 +40,8 @@ public class ConfigBuilder {
 	private Map<String,Property> propertyBuilder = Maps.newLinkedHashMap();
 	private List<Path> pathBuilder = Lists.newLinkedList();
 	private List<Repeat> repeatBuilder = Lists.newLinkedList();
+	private List<Rollup> rollupBuilder = Lists.newLinkedList();
+	private Integer maxSeries;
 
 	/**
 	 * Convenience method to create new ConfigBuilder
@@ -92,6 +94,10 @@ public class ConfigBuilder {
 		addProperties(config.getProperties());
 		addPaths(config.getPaths());
 		addRepeats(config.getRepeats());
+		addRollups(config.getRollups());
+		if (config.getMaxSeries() != null) {
+			setMaxSeries(config.getMaxSeries());
+		}
 		return this;
 	}
 
@@ -141,6 +147,28 @@ public class ConfigBuilder {
 		return this;
 	}
 
+	/**
+	 * Add rollups
+	 *
+	 * @param rollups rollups to add
+	 * @return this
+	 */
+	public ConfigBuilder addRollups(Collection<Rollup> rollups) {
+		rollupBuilder.addAll(rollups);
+		return this;
+	}
+
+	/**
+	 * Set maximum number of paths created by all repeats in one run
+	 *
+	 * @param maxSeries maximum number of paths, or null if unlimited
+	 * @return this
+	 */
+	public ConfigBuilder setMaxSeries(Integer maxSeries) {
+		this.maxSeries = maxSeries;
+		return this;
+	}
+
 	/**
 	 * Build a shallow config, not expanding included configs
 	 *
@@ -148,7 +176,7 @@ public class ConfigBuilder {
 	 */
 	public Config buildLocal() {
 		return new Config(location, includeBuilder, ImmutableList.copyOf(propertyBuilder.values()),
-				pathBuilder, repeatBuilder);
+				pathBuilder, repeatBuilder, rollupBuilder, maxSeries);
 	}
 
 	/**
@@ -166,10 +194,18 @@ public class ConfigBuilder {
 			expanded.addProperties(inclConfig.getProperties());
 			expanded.addPaths(inclConfig.getPaths());
 			expanded.addRepeats(inclConfig.getRepeats());
+			expanded.addRollups(inclConfig.getRollups());
+			if (inclConfig.getMaxSeries() != null) {
+				expanded.setMaxSeries(inclConfig.getMaxSeries());
+			}
 		}
 		expanded.addProperties(propertyBuilder.values());
 		expanded.addPaths(pathBuilder);
 		expanded.addRepeats(repeatBuilder);
+		expanded.addRollups(rollupBuilder);
+		if (maxSeries != null) {
+			expanded.setMaxSeries(maxSeries);
+		}
 
 		return expanded.buildLocal();
 	}
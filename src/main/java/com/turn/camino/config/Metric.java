@@ -30,6 +30,7 @@ public class Metric {
 	private final String aggregate;
 	private final String aggFunction;
 	private final double defaultValue;
+	private final int top;
 
 	/**
 	 * Constructor
@@ -38,16 +39,33 @@ public class Metric {
 	 * @param function function of metric
 	 * @param aggregate aggregate of metric
 	 */
+	public Metric(String name, String function, String aggregate, String aggFunction,
+			double defaultValue) {
+		this(name, function, aggregate, aggFunction, defaultValue, 0);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of metric
+	 * @param function function of metric
+	 * @param aggregate aggregate of metric
+	 * @param aggFunction custom aggregate function
+	 * @param defaultValue value of metric if path doesn't exist
+	 * @param top number of path details with largest function values to report, or zero
+	 */
 	@JsonCreator
 	public Metric(@JsonProperty("name") String name, @JsonProperty("function") String function,
 				  @JsonProperty("aggregate") String aggregate,
 				  @JsonProperty("aggFunction") String aggFunction,
-				  @JsonProperty("defaultValue") double defaultValue) {
+				  @JsonProperty("defaultValue") double defaultValue,
+				  @JsonProperty("top") int top) {
 		this.name = name;
 		this.function = function;
 		this.aggregate = aggregate;
 		this.aggFunction = aggFunction;
 		this.defaultValue = defaultValue;
+		this.top = top;
 	}
 
 	/**
@@ -100,4 +118,14 @@ public class Metric {
 		return defaultValue;
 	}
 
+	/**
+	 * Gets number of path details with largest function values to report
+	 *
+	 * @return number of path details, or zero if none are reported
+	 */
+	@Member("top")
+	public int getTop() {
+		return top;
+	}
+
 }
@@ -38,6 +38,7 @@ public class Path {
 	private final List<Metric> metrics;
 	private final List<Tag> tags;
 	private final String expectedCreationTime;
+	private final Double sample;
 
 	/**
 	 * Constructor
@@ -48,14 +49,30 @@ public class Path {
 	 * @param tags tags of this path as ordered map of tag key/value pairs
 	 * @param expectedCreationTime expression to calculate creation time of this path
 	 */
+	public Path(String name, String value, List<Metric> metrics, Map<String, String> tags,
+			String expectedCreationTime) {
+		this(name, value, metrics, tags, expectedCreationTime, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of path
+	 * @param value value of path
+	 * @param metrics metrics under this path
+	 * @param tags tags of this path as ordered map of tag key/value pairs
+	 * @param expectedCreationTime expression to calculate creation time of this path
+	 * @param sample fraction of directories to sample, or null to list all of them
+	 */
 	@JsonCreator
 	public Path(@JsonProperty("name") String name, @JsonProperty("value") String value,
 			@JsonProperty("metrics") @JsonDeserialize(contentAs = Metric.class) List<Metric> metrics,
 			@JsonProperty("tags") @JsonDeserialize(as = LinkedHashMap.class, keyAs = String.class,
 					contentAs = String.class) Map<String, String> tags,
-			@JsonProperty("expectedCreationTime") String expectedCreationTime) {
+			@JsonProperty("expectedCreationTime") String expectedCreationTime,
+			@JsonProperty("sample") Double sample) {
 		this(name, value, metrics, tags == null ? null : ConfigUtil.mapToList(tags,
-				Tag::new), expectedCreationTime);
+				Tag::new), expectedCreationTime, sample);
 	}
 
 	/**
@@ -69,14 +86,32 @@ public class Path {
 	 */
 	protected Path(String name, String value, List<Metric> metrics, List<Tag> tags,
 			String expectedCreationTime) {
+		this(name, value, metrics, tags, expectedCreationTime, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of path
+	 * @param value value of path
+	 * @param metrics metrics under this path
+	 * @param tags tags of this path as list of Tag objects
+	 * @param expectedCreationTime expression to calculate creation time of this path
+	 * @param sample fraction of directories to sample, or null to list all of them
+	 */
+	protected Path(String name, String value, List<Metric> metrics, List<Tag> tags,
+			String expectedCreationTime, Double sample) {
 		Preconditions.checkNotNull(name, "Path name cannot be null");
 		Preconditions.checkNotNull(value, "Path value cannot be null");
+		Preconditions.checkArgument(sample == null || (sample > 0 && sample <= 1),
+				"Path sample must be greater than 0 and at most 1");
 		this.name = name;
 		this.value = value;
 		this.metrics = ImmutableList.copyOf(metrics != null ? metrics :
 				Collections.emptyList());
 		this.tags = ImmutableList.copyOf(tags != null ? tags : Collections.emptyList());
 		this.expectedCreationTime = expectedCreationTime;
+		this.sample = sample;
 	}
 
 	/**
@@ -138,4 +173,17 @@ public class Path {
 	public String getExpectedCreationTime() {
 		return expectedCreationTime;
 	}
+
+	/**
+	 * Gets fraction of directories to sample
+	 *
+	 * If present, the last component of path value is only matched in a random subset of
+	 * the directories matched by the rest of it, and metrics are estimated from the sample.
+	 *
+	 * @return fraction between 0 and 1, or null if all directories are listed
+	 */
+	@Member("sample")
+	public Double getSample() {
+		return sample;
+	}
 }
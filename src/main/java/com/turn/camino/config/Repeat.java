@@ -20,6 +20,7 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
 /**
@@ -28,6 +29,9 @@ import com.google.common.collect.ImmutableList;
  * The semantics of repeat is to iterate over every element in the
  * list expression and create paths for each element.
  *
+ * A repeat may cap the number of paths it creates. Once its budget is used up, paths
+ * of further elements are aggregated into one overflow series instead.
+ *
  * @author llo
  */
 public class Repeat {
@@ -36,6 +40,7 @@ public class Repeat {
 	private final String list;
 	private final List<Path> paths;
 	private final List<Repeat> repeats;
+	private final Integer maxSeries;
 
 	/**
 	 * Constructor
@@ -44,15 +49,33 @@ public class Repeat {
 	 * @param list list to iterate over
 	 * @param paths list of paths
 	 */
+	public Repeat(String var, String list, List<Path> paths, List<Repeat> repeats) {
+		this(var, list, paths, repeats, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param var name of variable
+	 * @param list list to iterate over
+	 * @param paths list of paths
+	 * @param repeats nested repeats
+	 * @param maxSeries maximum number of paths created by repeat and its nested repeats in
+	 *                  one run, or null if unlimited
+	 */
 	@JsonCreator
 	public Repeat(@JsonProperty("var") String var, @JsonProperty("list") String list,
 			@JsonProperty("paths") @JsonDeserialize(contentAs = Path.class) List<Path> paths,
-			@JsonProperty("repeats") @JsonDeserialize(contentAs = Repeat.class)	List<Repeat> repeats) {
+			@JsonProperty("repeats") @JsonDeserialize(contentAs = Repeat.class)	List<Repeat> repeats,
+			@JsonProperty("maxSeries") Integer maxSeries) {
+		Preconditions.checkArgument(maxSeries == null || maxSeries >= 0,
+				"Maximum series of repeat %s cannot be negative", var);
 		this.var = var;
 		this.list = list;
 		this.paths = ImmutableList.copyOf(paths != null ? paths : Collections.emptyList());
 		this.repeats = ImmutableList.copyOf(repeats != null ? repeats :
 				Collections.emptyList());
+		this.maxSeries = maxSeries;
 	}
 
 	/**
@@ -93,4 +116,13 @@ public class Repeat {
 		return repeats;
 	}
 
+	/**
+	 * Gets maximum number of paths created by repeat and its nested repeats in one run
+	 *
+	 * @return maximum number of paths, or null if unlimited
+	 */
+	public Integer getMaxSeries() {
+		return maxSeries;
+	}
+
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.config;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.annotation.Member;
+
+/**
+ * Rollup element in configuration
+ *
+ * A rollup aggregates metrics of many paths into one metric per distinct combination of
+ * values of some tags.
+ *
+ * @author llo
+ */
+public class Rollup {
+
+	private final String name;
+	private final String pathPattern;
+	private final List<String> metrics;
+	private final List<String> tags;
+	private final String aggregate;
+	private final boolean dropInputs;
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of rollup, used as path name of rolled up metrics, must be an identifier
+	 * @param pathPattern regular expression of names of paths to roll up, or null for all
+	 * @param metrics names of metrics to roll up, or null for all
+	 * @param tags keys of tags to group metrics by
+	 * @param aggregate aggregate of metric values in a group, or null for sum
+	 * @param dropInputs whether rolled up metrics of paths are dropped
+	 */
+	@JsonCreator
+	public Rollup(@JsonProperty("name") String name,
+			@JsonProperty("pathPattern") String pathPattern,
+			@JsonProperty("metrics") @JsonDeserialize(contentAs = String.class) List<String> metrics,
+			@JsonProperty("tags") @JsonDeserialize(contentAs = String.class) List<String> tags,
+			@JsonProperty("aggregate") String aggregate,
+			@JsonProperty("dropInputs") boolean dropInputs) {
+		Preconditions.checkNotNull(name, "Rollup name cannot be null");
+		Preconditions.checkArgument(name.matches("^[a-zA-Z$_][a-zA-Z0-9$_]*$"),
+				"Rollup name \"%s\" is not an identifier", name);
+		this.name = name;
+		this.pathPattern = pathPattern;
+		this.metrics = metrics != null ? ImmutableList.copyOf(metrics) : null;
+		this.tags = ImmutableList.copyOf(tags != null ? tags : Collections.<String>emptyList());
+		this.aggregate = aggregate != null ? aggregate : "sum";
+		this.dropInputs = dropInputs;
+	}
+
+	/**
+	 * Gets name of rollup
+	 *
+	 * @return name of rollup
+	 */
+	@Member("name")
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets regular expression of names of paths to roll up
+	 *
+	 * @return regular expression, or null if all paths are rolled up
+	 */
+	@Member("pathPattern")
+	public String getPathPattern() {
+		return pathPattern;
+	}
+
+	/**
+	 * Gets names of metrics to roll up
+	 *
+	 * @return immutable list of metric names, or null if all metrics are rolled up
+	 */
+	@Member("metrics")
+	public List<String> getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Gets keys of tags to group metrics by
+	 *
+	 * @return immutable list of tag keys
+	 */
+	@Member("tags")
+	public List<String> getTags() {
+		return tags;
+	}
+
+	/**
+	 * Gets aggregate of metric values in a group
+	 *
+	 * @return aggregate name
+	 */
+	@Member("aggregate")
+	public String getAggregate() {
+		return aggregate;
+	}
+
+	/**
+	 * Returns true if rolled up metrics of paths are dropped
+	 *
+	 * @return true if only rollup is reported, false if path metrics are reported as well
+	 */
+	@Member("dropInputs")
+	public boolean isDropInputs() {
+		return dropInputs;
+	}
+
+}
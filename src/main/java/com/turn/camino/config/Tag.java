@@ -17,6 +17,8 @@ package com.turn.camino.config;
 import com.google.common.base.Preconditions;
 import com.turn.camino.annotation.Member;
 
+import java.util.Objects;
+
 /**
  * Tag element in Camino configuration
  *
@@ -60,4 +62,18 @@ public class Tag {
 		return value;
 	}
 
+	@Override
+	public boolean equals(Object object) {
+		if (object instanceof Tag) {
+			Tag other = (Tag) object;
+			return key.equals(other.key) && value.equals(other.value);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(key, value);
+	}
+
 }
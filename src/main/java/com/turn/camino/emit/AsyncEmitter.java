@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.turn.camino.PathMetrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous emitter
+ *
+ * Emits metrics through another emitter on a dedicated thread, so that a slow sink never
+ * stalls the thread computing metrics. Path metrics are queued in a bounded buffer, and the
+ * emitting thread drains them in batches, flushing the other emitter once per batch. When
+ * the buffer is full, path metrics are dropped and counted rather than waited for, unless
+ * emitter is blocking, which is meant for one-shot runs where every metric must get out.
+ * Number of dropped path metrics is logged on flush.
+ *
+ * Errors of the other emitter are logged, and the batch they happen in is lost. The first
+ * error since last flush is thrown by the next flush or close, so losing output never goes
+ * unnoticed. Emit is thread-safe.
+ *
+ * @author llo
+ */
+public class AsyncEmitter implements MetricEmitter {
+
+	private final static Logger LOGGER = Logger.getLogger(AsyncEmitter.class.getCanonicalName());
+
+	public final static int DEFAULT_CAPACITY = 4096;
+	public final static int DEFAULT_BATCH_SIZE = 256;
+
+	/**
+	 * Marker queued by close to stop emitting thread
+	 */
+	private final static PathMetrics END = new PathMetrics(null, null, null);
+
+	private final MetricEmitter emitter;
+	private final BlockingQueue<PathMetrics> queue;
+	private final int batchSize;
+	private final boolean blocking;
+	private final Thread thread;
+	private final Object queueLock = new Object();
+	private final Object lock = new Object();
+	private long queuedCount = 0;
+	private long emittedCount = 0;
+	private long droppedCount = 0;
+	private long reportedDroppedCount = 0;
+	private Exception error = null;
+	private boolean closed = false;
+
+	/**
+	 * Constructor
+	 *
+	 * @param emitter emitter to emit metrics through
+	 */
+	public AsyncEmitter(MetricEmitter emitter) {
+		this(emitter, false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param emitter emitter to emit metrics through
+	 * @param blocking whether to wait for room in buffer instead of dropping path metrics
+	 */
+	public AsyncEmitter(MetricEmitter emitter, boolean blocking) {
+		this(emitter, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, blocking);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param emitter emitter to emit metrics through
+	 * @param capacity maximum number of path metrics waiting to be emitted
+	 * @param batchSize maximum number of path metrics emitted between flushes
+	 */
+	public AsyncEmitter(MetricEmitter emitter, int capacity, int batchSize) {
+		this(emitter, capacity, batchSize, false);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param emitter emitter to emit metrics through
+	 * @param capacity maximum number of path metrics waiting to be emitted
+	 * @param batchSize maximum number of path metrics emitted between flushes
+	 * @param blocking whether to wait for room in buffer instead of dropping path metrics
+	 */
+	public AsyncEmitter(MetricEmitter emitter, int capacity, int batchSize, boolean blocking) {
+		Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+		Preconditions.checkArgument(batchSize > 0, "Batch size must be positive");
+		this.emitter = emitter;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.batchSize = batchSize;
+		this.blocking = blocking;
+		this.thread = new Thread(this::emitLoop, "camino-emitter");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Queues metrics of a path to be emitted
+	 *
+	 * Returns immediately, dropping path metrics if buffer is full, unless emitter is
+	 * blocking, in which case it waits for room in buffer.
+	 *
+	 * @param pathMetrics path metrics
+	 * @throws IOException
+	 */
+	@Override
+	public void emit(PathMetrics pathMetrics) throws IOException {
+		// emitting thread needs lock to go on, so only queue lock is held while waiting
+		synchronized (queueLock) {
+			Preconditions.checkState(!closed, "Emitter is closed");
+			boolean queued;
+			if (blocking) {
+				try {
+					queue.put(pathMetrics);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while emitting metrics");
+				}
+				queued = true;
+			} else {
+				queued = queue.offer(pathMetrics);
+			}
+			synchronized (lock) {
+				if (queued) {
+					queuedCount++;
+				} else {
+					droppedCount++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until metrics queued so far are emitted and flushed
+	 *
+	 * Logs number of path metrics dropped since last flush, and throws first error of
+	 * other emitter since last flush.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void flush() throws IOException {
+		synchronized (lock) {
+			long target = queuedCount;
+			while (emittedCount < target) {
+				try {
+					lock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while flushing metrics");
+				}
+			}
+			if (droppedCount > reportedDroppedCount) {
+				LOGGER.warning(String.format("Dropped %d path metrics because buffer was full",
+						droppedCount - reportedDroppedCount));
+				reportedDroppedCount = droppedCount;
+			}
+			throwError();
+		}
+	}
+
+	/**
+	 * Emits metrics queued so far, and closes other emitter
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (queueLock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		try {
+			queue.put(END);
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing emitter");
+		} finally {
+			emitter.close();
+		}
+		synchronized (lock) {
+			throwError();
+		}
+	}
+
+	/**
+	 * Gets number of path metrics dropped because buffer was full
+	 *
+	 * @return number of dropped path metrics
+	 */
+	public long getDroppedCount() {
+		synchronized (lock) {
+			return droppedCount;
+		}
+	}
+
+	/**
+	 * Throws and clears first error of other emitter since last call, if any
+	 *
+	 * @throws IOException
+	 */
+	private void throwError() throws IOException {
+		Exception e = error;
+		error = null;
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		} else if (e != null) {
+			throw (RuntimeException) e;
+		}
+	}
+
+	private void emitLoop() {
+		List<PathMetrics> batch = Lists.newArrayListWithCapacity(batchSize);
+		boolean end = false;
+		while (!end) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(batch, batchSize - 1);
+
+			// emit batch, and flush it at once
+			long count = 0;
+			for (PathMetrics pathMetrics : batch) {
+				if (pathMetrics == END) {
+					end = true;
+				} else {
+					count++;
+				}
+			}
+			try {
+				for (PathMetrics pathMetrics : batch) {
+					if (pathMetrics != END) {
+						emitter.emit(pathMetrics);
+					}
+				}
+				emitter.flush();
+			} catch (IOException | RuntimeException e) {
+				LOGGER.log(Level.WARNING, "Error emitting metrics", e);
+				synchronized (lock) {
+					if (error == null) {
+						error = e;
+					}
+				}
+			}
+			batch.clear();
+			synchronized (lock) {
+				emittedCount += count;
+				lock.notifyAll();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.PathMetrics;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Delta emitter
+ *
+ * Emits through another emitter only metric data whose value changed since it was last
+ * emitted, and every series again once its last emission is older than a refresh interval,
+ * so that sinks that drop stale series still see unchanged ones. Last emitted values are
+ * kept by series key of metric ID, in memory, and optionally in a state file that is read
+ * when the emitter is created and written when it is closed, so that runs of separate
+ * processes only emit what changed too. Series not seen for two refresh intervals, or for
+ * a retention period if unchanged series are never emitted again, are forgotten.
+ *
+ * Values only count as emitted once the other emitter is flushed successfully, so values
+ * lost by a failed flush are emitted again next time even if unchanged. Metric data
+ * dropped by the other emitter without error are lost for good, so it must block or fail
+ * rather than drop.
+ *
+ * Delta emitter is not thread-safe, and should be called by the thread computing metrics,
+ * ahead of any asynchronous emitter.
+ *
+ * @author llo
+ */
+public class DeltaEmitter implements MetricEmitter {
+
+	private final static int MAGIC = 0x43444c54;
+
+	/**
+	 * Time after which series not seen are forgotten when there is no refresh interval
+	 */
+	public final static long DEFAULT_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+	private final MetricEmitter emitter;
+	private final long refreshMillis;
+	private final File stateFile;
+	private final LongSupplier clock;
+	private final Map<String, State> states = Maps.newHashMap();
+	private final Map<String, State> pendingStates = Maps.newHashMap();
+	private long emittedCount = 0;
+	private long skippedCount = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param emitter emitter to emit changed metrics through
+	 * @param refreshMillis interval after which unchanged series are emitted again, or zero
+	 *                      to only emit changes
+	 * @param stateFile file to keep last emitted values in, or null to keep them in memory
+	 * @throws IOException
+	 */
+	public DeltaEmitter(MetricEmitter emitter, long refreshMillis, File stateFile)
+			throws IOException {
+		this(emitter, refreshMillis, stateFile, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param emitter emitter to emit changed metrics through
+	 * @param refreshMillis interval after which unchanged series are emitted again, or zero
+	 *                      to only emit changes
+	 * @param stateFile file to keep last emitted values in, or null to keep them in memory
+	 * @param clock supplier of current time in epoch milliseconds
+	 * @throws IOException
+	 */
+	public DeltaEmitter(MetricEmitter emitter, long refreshMillis, File stateFile,
+			LongSupplier clock) throws IOException {
+		Preconditions.checkArgument(refreshMillis >= 0, "Refresh interval cannot be negative");
+		this.emitter = emitter;
+		this.refreshMillis = refreshMillis;
+		this.stateFile = stateFile;
+		this.clock = clock;
+		if (stateFile != null && stateFile.exists()) {
+			readState();
+		}
+	}
+
+	@Override
+	public void emit(PathMetrics pathMetrics) throws IOException {
+		if (pathMetrics.getMetricData() == null) {
+			emitter.emit(pathMetrics);
+			return;
+		}
+		long now = clock.getAsLong();
+		List<MetricDatum> changed = null;
+		List<MetricDatum> metricData = pathMetrics.getMetricData();
+		List<MetricDatum> emitted = Lists.newArrayListWithCapacity(metricData.size());
+		for (int i = 0; i < metricData.size(); i++) {
+			MetricDatum metricDatum = metricData.get(i);
+			if (isToEmit(metricDatum, now)) {
+				emitted.add(metricDatum);
+				if (changed != null) {
+					changed.add(metricDatum);
+				}
+			} else {
+				skippedCount++;
+				if (changed == null) {
+					// first unchanged datum, so only emit a subset of metric data
+					changed = Lists.newArrayListWithCapacity(metricData.size() - 1);
+					changed.addAll(metricData.subList(0, i));
+				}
+			}
+		}
+		if (changed == null) {
+			emitter.emit(pathMetrics);
+		} else if (!changed.isEmpty()) {
+			emitter.emit(new PathMetrics(pathMetrics.getPath(), pathMetrics.getPathStatus(),
+					changed));
+		}
+
+		// values are emitted once other emitter is flushed
+		for (MetricDatum metricDatum : emitted) {
+			pendingStates.put(metricDatum.getMetricId().getSeriesKey(),
+					new State(metricDatum.getValue(), now, now));
+		}
+		emittedCount += emitted.size();
+	}
+
+	/**
+	 * Checks whether metric datum is to be emitted, and marks its series as seen
+	 *
+	 * Values emitted but not yet flushed count as emitted, so a series is emitted once
+	 * per flush unless its value changes.
+	 *
+	 * @return true if metric datum is to be emitted, false otherwise
+	 */
+	private boolean isToEmit(MetricDatum metricDatum, long now) {
+		String seriesKey = metricDatum.getMetricId().getSeriesKey();
+		State state = states.get(seriesKey);
+		if (state != null) {
+			state.seenTime = now;
+		}
+		State pendingState = pendingStates.get(seriesKey);
+		if (pendingState != null) {
+			state = pendingState;
+		}
+		if (state == null) {
+			return true;
+		}
+		return Double.doubleToLongBits(state.value) != Double.doubleToLongBits(
+				metricDatum.getValue()) || (refreshMillis > 0 &&
+				now - state.emitTime >= refreshMillis);
+	}
+
+	/**
+	 * Flushes other emitter, and forgets series not seen for two refresh intervals, or for
+	 * retention period if there is no refresh interval
+	 *
+	 * Values emitted since last flush only count as emitted if other emitter is flushed
+	 * successfully.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void flush() throws IOException {
+		try {
+			emitter.flush();
+			states.putAll(pendingStates);
+		} finally {
+			pendingStates.clear();
+		}
+
+		long now = clock.getAsLong();
+		long retentionMillis = refreshMillis > 0 ? 2 * refreshMillis : DEFAULT_RETENTION_MILLIS;
+		Iterator<State> iterator = states.values().iterator();
+		while (iterator.hasNext()) {
+			if (now - iterator.next().seenTime >= retentionMillis) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Flushes, writes state file, if any, and closes other emitter
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			try {
+				if (stateFile != null) {
+					writeState();
+				}
+			} finally {
+				emitter.close();
+			}
+		}
+	}
+
+	/**
+	 * Gets number of metric data passed on to other emitter
+	 *
+	 * @return number of emitted metric data
+	 */
+	public long getEmittedCount() {
+		return emittedCount;
+	}
+
+	/**
+	 * Gets number of metric data not emitted because they didn't change
+	 *
+	 * @return number of skipped metric data
+	 */
+	public long getSkippedCount() {
+		return skippedCount;
+	}
+
+	/**
+	 * Gets number of series whose last emitted values are kept
+	 *
+	 * @return number of series
+	 */
+	public int getSeriesCount() {
+		return states.size();
+	}
+
+	private void readState() throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(stateFile)))) {
+			if (input.readInt() != MAGIC) {
+				throw new IOException(String.format("%s is not a delta state file", stateFile));
+			}
+			int count = input.readInt();
+			for (int i = 0; i < count; i++) {
+				String seriesKey = input.readUTF();
+				double value = input.readDouble();
+				long emitTime = input.readLong();
+				long seenTime = input.readLong();
+				states.put(seriesKey, new State(value, emitTime, seenTime));
+			}
+		}
+	}
+
+	private void writeState() throws IOException {
+		// write next to state file and move it in place, so that a failed write leaves
+		// previous state intact
+		File tempFile = new File(stateFile.getPath() + ".tmp");
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(states.size());
+			for (Map.Entry<String, State> entry : states.entrySet()) {
+				output.writeUTF(entry.getKey());
+				output.writeDouble(entry.getValue().value);
+				output.writeLong(entry.getValue().emitTime);
+				output.writeLong(entry.getValue().seenTime);
+			}
+		}
+		Files.move(tempFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Last emitted value of a series
+	 */
+	private static class State {
+
+		private double value;
+		private long emitTime;
+		private long seenTime;
+
+		State(double value, long emitTime, long seenTime) {
+			this.value = value;
+			this.emitTime = emitTime;
+			this.seenTime = seenTime;
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import java.io.Writer;
+import java.util.function.Function;
+
+/**
+ * Built-in output formats of emitters
+ *
+ * @author llo
+ */
+public enum EmitterFormat {
+
+	TEXT("text", TextEmitter::new),
+	OPENTSDB("opentsdb", OpenTsdbEmitter::new),
+	GRAPHITE("graphite", GraphiteEmitter::new),
+	JSON_LINES("jsonl", JsonLinesEmitter::new),
+	INFLUX("influx", InfluxLineEmitter::new);
+
+	private final String name;
+	private final Function<Writer, MetricEmitter> factory;
+
+	/**
+	 * Constructor
+	 *
+	 * @param name name of format
+	 * @param factory factory of emitters of format writing to a writer
+	 */
+	EmitterFormat(String name, Function<Writer, MetricEmitter> factory) {
+		this.name = name;
+		this.factory = factory;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Creates emitter of format
+	 *
+	 * @param writer writer to write metrics to
+	 * @return new emitter
+	 */
+	public MetricEmitter newEmitter(Writer writer) {
+		return factory.apply(writer);
+	}
+
+	/**
+	 * Gets format by name
+	 *
+	 * @param name name of format
+	 * @return format
+	 * @throws IllegalArgumentException if there is no format of name
+	 */
+	public static EmitterFormat fromName(String name) {
+		for (EmitterFormat format : values()) {
+			if (format.getName().equals(name)) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Unknown output format %s", name));
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.config.Tag;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Graphite emitter
+ *
+ * Emits metrics in Graphite plaintext protocol
+ *
+ *   pathName.name;key=value;... value timestamp
+ *
+ * with timestamp in seconds, and tags in the tagged series format of Graphite 1.1.
+ * Characters Graphite doesn't allow in names are replaced by underscores, and values that
+ * are not numbers are not emitted.
+ *
+ * @author llo
+ */
+public class GraphiteEmitter extends LineEmitter {
+
+	private final static String ALLOWED_IN_PATH = "-_.:";
+	private final static String ALLOWED_IN_TAG = "-_.:/";
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write lines to
+	 */
+	public GraphiteEmitter(Writer writer) {
+		this(writer, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write lines to
+	 * @param clock supplier of time metrics are emitted at, in epoch milliseconds
+	 */
+	public GraphiteEmitter(Writer writer, LongSupplier clock) {
+		super(writer, clock);
+	}
+
+	@Override
+	protected boolean format(MetricDatum metricDatum, long timestamp, StringBuilder line) {
+		if (Double.isNaN(metricDatum.getValue()) || Double.isInfinite(metricDatum.getValue())) {
+			return false;
+		}
+		MetricId metricId = metricDatum.getMetricId();
+		appendSanitized(line, metricId.getPathName(), ALLOWED_IN_PATH);
+		line.append('.');
+		appendSanitized(line, metricId.getName(), ALLOWED_IN_PATH);
+		for (Tag tag : metricId.getTags()) {
+			line.append(';');
+			appendSanitized(line, tag.getKey(), ALLOWED_IN_TAG);
+			line.append('=');
+			appendSanitized(line, tag.getValue(), ALLOWED_IN_TAG);
+		}
+		line.append(' ');
+		appendValue(line, metricDatum.getValue());
+		line.append(' ').append(TimeUnit.MILLISECONDS.toSeconds(timestamp));
+		return true;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.config.Tag;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * InfluxDB line emitter
+ *
+ * Emits metrics in InfluxDB line protocol
+ *
+ *   name,path=pathName,key=value,... value=value,error=error timestamp
+ *
+ * with timestamp in nanoseconds. Error is only emitted for estimated values. Tags with empty
+ * values are left out, as InfluxDB doesn't allow them, and values that are not numbers are not
+ * emitted.
+ *
+ * @author llo
+ */
+public class InfluxLineEmitter extends LineEmitter {
+
+	private final static String SPECIAL_IN_MEASUREMENT = "\\, ";
+	private final static String SPECIAL_IN_TAG = "\\,= ";
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write lines to
+	 */
+	public InfluxLineEmitter(Writer writer) {
+		this(writer, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write lines to
+	 * @param clock supplier of time metrics are emitted at, in epoch milliseconds
+	 */
+	public InfluxLineEmitter(Writer writer, LongSupplier clock) {
+		super(writer, clock);
+	}
+
+	@Override
+	protected boolean format(MetricDatum metricDatum, long timestamp, StringBuilder line) {
+		if (Double.isNaN(metricDatum.getValue()) || Double.isInfinite(metricDatum.getValue())) {
+			return false;
+		}
+		MetricId metricId = metricDatum.getMetricId();
+		appendEscaped(line, metricId.getName(), SPECIAL_IN_MEASUREMENT);
+		line.append(",path=");
+		appendEscaped(line, metricId.getPathName(), SPECIAL_IN_TAG);
+		for (Tag tag : metricId.getTags()) {
+			if (tag.getValue().isEmpty()) {
+				continue;
+			}
+			line.append(',');
+			appendEscaped(line, tag.getKey(), SPECIAL_IN_TAG);
+			line.append('=');
+			appendEscaped(line, tag.getValue(), SPECIAL_IN_TAG);
+		}
+		line.append(" value=").append(metricDatum.getValue());
+		double error = metricDatum.getError();
+		if (error != 0 && !Double.isNaN(error) && !Double.isInfinite(error)) {
+			line.append(",error=").append(error);
+		}
+		line.append(' ').append(TimeUnit.MILLISECONDS.toNanos(timestamp));
+		return true;
+	}
+
+}
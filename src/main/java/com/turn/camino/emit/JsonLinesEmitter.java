@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.config.Tag;
+
+import java.io.Writer;
+import java.util.function.LongSupplier;
+
+/**
+ * JSON Lines emitter
+ *
+ * Emits one JSON object per line
+ *
+ *   {"name":...,"pathName":...,"tags":{"key":"value",...},"value":...,"error":...,
+ *    "timestamp":...}
+ *
+ * with timestamp in milliseconds. Values and errors that are not numbers are emitted as
+ * null.
+ *
+ * @author llo
+ */
+public class JsonLinesEmitter extends LineEmitter {
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write lines to
+	 */
+	public JsonLinesEmitter(Writer writer) {
+		this(writer, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write lines to
+	 * @param clock supplier of time metrics are emitted at, in epoch milliseconds
+	 */
+	public JsonLinesEmitter(Writer writer, LongSupplier clock) {
+		super(writer, clock);
+	}
+
+	@Override
+	protected boolean format(MetricDatum metricDatum, long timestamp, StringBuilder line) {
+		MetricId metricId = metricDatum.getMetricId();
+		line.append("{\"name\":");
+		appendString(line, metricId.getName());
+		line.append(",\"pathName\":");
+		appendString(line, metricId.getPathName());
+		line.append(",\"tags\":{");
+		for (int i = 0; i < metricId.getTags().size(); i++) {
+			Tag tag = metricId.getTags().get(i);
+			if (i > 0) {
+				line.append(',');
+			}
+			appendString(line, tag.getKey());
+			line.append(':');
+			appendString(line, tag.getValue());
+		}
+		line.append("},\"value\":");
+		appendNumber(line, metricDatum.getValue());
+		line.append(",\"error\":");
+		appendNumber(line, metricDatum.getError());
+		line.append(",\"timestamp\":").append(timestamp).append('}');
+		return true;
+	}
+
+	private static void appendString(StringBuilder line, String string) {
+		if (string == null) {
+			line.append("null");
+			return;
+		}
+		line.append('"').append(JsonStringEncoder.getInstance().quoteAsString(string))
+				.append('"');
+	}
+
+	private static void appendNumber(StringBuilder line, double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			line.append("null");
+		} else {
+			appendValue(line, value);
+		}
+	}
+
+}
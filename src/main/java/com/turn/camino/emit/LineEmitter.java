@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.turn.camino.MetricDatum;
+import com.turn.camino.PathMetrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.function.LongSupplier;
+
+/**
+ * Line emitter
+ *
+ * Emits one line per metric datum, formatted by a subclass. Lines are built in a reused
+ * buffer and written to a writer, which should be buffered, and which is only flushed when
+ * the emitter is.
+ *
+ * @author llo
+ */
+public abstract class LineEmitter implements MetricEmitter {
+
+	private final Writer writer;
+	private final LongSupplier clock;
+	private final StringBuilder line = new StringBuilder(256);
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write lines to
+	 * @param clock supplier of time metrics are emitted at, in epoch milliseconds
+	 */
+	protected LineEmitter(Writer writer, LongSupplier clock) {
+		this.writer = writer;
+		this.clock = clock;
+	}
+
+	@Override
+	public void emit(PathMetrics pathMetrics) throws IOException {
+		if (pathMetrics.getMetricData() == null) {
+			return;
+		}
+		long timestamp = clock.getAsLong();
+		for (MetricDatum metricDatum : pathMetrics.getMetricData()) {
+			line.setLength(0);
+			if (format(metricDatum, timestamp, line)) {
+				line.append('\n');
+				writer.append(line);
+			}
+		}
+	}
+
+	/**
+	 * Formats metric datum as a line
+	 *
+	 * @param metricDatum metric datum
+	 * @param timestamp time metric datum is emitted at, in epoch milliseconds
+	 * @param line buffer to append line to, without line separator
+	 * @return true if line is to be written, false if metric datum cannot be represented
+	 */
+	protected abstract boolean format(MetricDatum metricDatum, long timestamp,
+			StringBuilder line);
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Appends value, without fraction if it is integral
+	 *
+	 * @param line line to append to
+	 * @param value value to append
+	 */
+	protected static void appendValue(StringBuilder line, double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			line.append((long) value);
+		} else {
+			line.append(value);
+		}
+	}
+
+	/**
+	 * Appends string with characters not allowed by a format replaced by underscores
+	 *
+	 * @param line line to append to
+	 * @param string string to append
+	 * @param allowed characters allowed other than letters and digits
+	 */
+	protected static void appendSanitized(StringBuilder line, String string, String allowed) {
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			line.append(Character.isLetterOrDigit(c) || allowed.indexOf(c) >= 0 ? c : '_');
+		}
+	}
+
+	/**
+	 * Appends string with characters special to a format escaped by backslashes
+	 *
+	 * @param line line to append to
+	 * @param string string to append
+	 * @param special characters to escape
+	 */
+	protected static void appendEscaped(StringBuilder line, String string, String special) {
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
+			if (special.indexOf(c) >= 0) {
+				line.append('\\');
+			}
+			line.append(c);
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.turn.camino.PathMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Metric emitter
+ *
+ * Writes metrics of paths to a sink in some output format. Emitters may buffer output
+ * until flushed, and are not required to be thread-safe.
+ *
+ * @author llo
+ */
+public interface MetricEmitter extends Closeable {
+
+	/**
+	 * Emits metrics of a path
+	 *
+	 * Path metrics of a path that failed have no metric data, and emit nothing.
+	 *
+	 * @param pathMetrics path metrics
+	 * @throws IOException
+	 */
+	void emit(PathMetrics pathMetrics) throws IOException;
+
+	/**
+	 * Flushes metrics emitted so far to sink
+	 *
+	 * @throws IOException
+	 */
+	void flush() throws IOException;
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.config.Tag;
+
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * OpenTSDB emitter
+ *
+ * Emits metrics as OpenTSDB telnet put commands
+ *
+ *   put name timestamp value path=pathName key=value ...
+ *
+ * with timestamp in seconds. Path name is a tag, as OpenTSDB requires at least one. Characters
+ * OpenTSDB doesn't allow in names are replaced by underscores, and values that are not numbers
+ * are not emitted.
+ *
+ * @author llo
+ */
+public class OpenTsdbEmitter extends LineEmitter {
+
+	private final static String ALLOWED = "-_./";
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write put commands to
+	 */
+	public OpenTsdbEmitter(Writer writer) {
+		this(writer, System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write put commands to
+	 * @param clock supplier of time metrics are emitted at, in epoch milliseconds
+	 */
+	public OpenTsdbEmitter(Writer writer, LongSupplier clock) {
+		super(writer, clock);
+	}
+
+	@Override
+	protected boolean format(MetricDatum metricDatum, long timestamp, StringBuilder line) {
+		if (Double.isNaN(metricDatum.getValue()) || Double.isInfinite(metricDatum.getValue())) {
+			return false;
+		}
+		MetricId metricId = metricDatum.getMetricId();
+		line.append("put ");
+		appendSanitized(line, metricId.getName(), ALLOWED);
+		line.append(' ').append(TimeUnit.MILLISECONDS.toSeconds(timestamp)).append(' ');
+		appendValue(line, metricDatum.getValue());
+		line.append(" path=");
+		appendSanitized(line, metricId.getPathName(), ALLOWED);
+		for (Tag tag : metricId.getTags()) {
+			line.append(' ');
+			appendSanitized(line, tag.getKey(), ALLOWED);
+			line.append('=');
+			appendSanitized(line, tag.getValue(), ALLOWED);
+		}
+		return true;
+	}
+
+}
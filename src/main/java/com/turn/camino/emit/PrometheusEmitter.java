@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.Maps;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.config.Tag;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Prometheus emitter
+ *
+ * Collects metrics of an evaluation cycle, and renders them in Prometheus text exposition
+ * format when flushed. The rendered exposition replaces that of the previous cycle, and is
+ * served as-is to every scraper until the next flush, so scrapes never render metrics or
+ * touch the file system. A series emitted more than once before a flush keeps its last value.
+ *
+ * Metric names are prefixed with camino_, path name is label path, and tags are other
+ * labels, except a tag with key path. Characters Prometheus doesn't allow in names are
+ * replaced by underscores. Emit and flush are meant to be called by the thread computing
+ * metrics; the exposition can be read by any thread.
+ *
+ * @author llo
+ */
+public class PrometheusEmitter implements MetricEmitter {
+
+	public final static String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final static String PREFIX = "camino_";
+
+	private final Map<String, Map<MetricId, MetricDatum>> families = Maps.newLinkedHashMap();
+	private volatile byte[] exposition = new byte[0];
+
+	@Override
+	public void emit(PathMetrics pathMetrics) {
+		if (pathMetrics.getMetricData() == null) {
+			return;
+		}
+		for (MetricDatum metricDatum : pathMetrics.getMetricData()) {
+			String name = metricDatum.getMetricId().getName();
+			Map<MetricId, MetricDatum> family = families.get(name);
+			if (family == null) {
+				family = Maps.newLinkedHashMap();
+				families.put(name, family);
+			}
+			family.put(metricDatum.getMetricId(), metricDatum);
+		}
+	}
+
+	/**
+	 * Renders metrics emitted since last flush, and publishes them
+	 */
+	@Override
+	public void flush() {
+		StringBuilder text = new StringBuilder(4096);
+		for (Map.Entry<String, Map<MetricId, MetricDatum>> entry : families.entrySet()) {
+			text.append("# TYPE ");
+			appendName(text, entry.getKey());
+			text.append(" gauge\n");
+			for (MetricDatum metricDatum : entry.getValue().values()) {
+				appendSample(text, metricDatum);
+			}
+		}
+		families.clear();
+		exposition = text.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Gets exposition rendered by last flush
+	 *
+	 * @return metrics in Prometheus text format, encoded in UTF-8; not to be modified
+	 */
+	public byte[] getExposition() {
+		return exposition;
+	}
+
+	private static void appendSample(StringBuilder text, MetricDatum metricDatum) {
+		MetricId metricId = metricDatum.getMetricId();
+		appendName(text, metricId.getName());
+		text.append("{path=\"");
+		appendLabelValue(text, metricId.getPathName());
+		text.append('"');
+		for (Tag tag : metricId.getTags()) {
+			if ("path".equals(tag.getKey())) {
+				continue;
+			}
+			text.append(',');
+			appendLabelName(text, tag.getKey());
+			text.append("=\"");
+			appendLabelValue(text, tag.getValue());
+			text.append('"');
+		}
+		text.append("} ");
+		double value = metricDatum.getValue();
+		if (Double.isInfinite(value)) {
+			text.append(value > 0 ? "+Inf" : "-Inf");
+		} else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			text.append((long) value);
+		} else {
+			text.append(value);
+		}
+		text.append('\n');
+	}
+
+	private static void appendName(StringBuilder text, String name) {
+		text.append(PREFIX);
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			text.append(isAllowed(c) || c == ':' ? c : '_');
+		}
+	}
+
+	private static void appendLabelName(StringBuilder text, String name) {
+		if (name.isEmpty() || (name.charAt(0) >= '0' && name.charAt(0) <= '9')) {
+			text.append('_');
+		}
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			text.append(isAllowed(c) ? c : '_');
+		}
+	}
+
+	private static void appendLabelValue(StringBuilder text, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				text.append('\\').append(c);
+			} else if (c == '\n') {
+				text.append("\\n");
+			} else {
+				text.append(c);
+			}
+		}
+	}
+
+	private static boolean isAllowed(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+				c == '_';
+	}
+
+}
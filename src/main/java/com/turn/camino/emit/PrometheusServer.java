@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prometheus server
+ *
+ * Serves the exposition last published by a Prometheus emitter at /metrics. Every scrape
+ * writes the same pre-rendered bytes, so any number of scrapers cost no more than copying
+ * them.
+ *
+ * @author llo
+ */
+public class PrometheusServer implements Closeable {
+
+	public final static String PATH = "/metrics";
+	public final static int DEFAULT_THREAD_COUNT = 2;
+
+	private final PrometheusEmitter emitter;
+	private final HttpServer server;
+	private final ExecutorService executorService;
+
+	/**
+	 * Constructor
+	 *
+	 * Starts serving right away.
+	 *
+	 * @param address address to listen on
+	 * @param emitter emitter whose exposition to serve
+	 * @throws IOException
+	 */
+	public PrometheusServer(InetSocketAddress address, PrometheusEmitter emitter)
+			throws IOException {
+		this(address, emitter, DEFAULT_THREAD_COUNT);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Starts serving right away.
+	 *
+	 * @param address address to listen on
+	 * @param emitter emitter whose exposition to serve
+	 * @param threadCount number of threads serving scrapes
+	 * @throws IOException
+	 */
+	public PrometheusServer(InetSocketAddress address, PrometheusEmitter emitter,
+			int threadCount) throws IOException {
+		this.emitter = emitter;
+		this.server = HttpServer.create(address, 0);
+		this.executorService = Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable, "camino-prometheus");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.createContext(PATH, this::handle);
+		server.setExecutor(executorService);
+		server.start();
+	}
+
+	/**
+	 * Gets address server listens on
+	 *
+	 * @return address, with actual port if port zero was given
+	 */
+	public InetSocketAddress getAddress() {
+		return server.getAddress();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			if (!"GET".equals(method) && !"HEAD".equals(method)) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] exposition = emitter.getExposition();
+			exchange.getResponseHeaders().set("Content-Type", PrometheusEmitter.CONTENT_TYPE);
+			if ("HEAD".equals(method)) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, exposition.length > 0 ? exposition.length : -1);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(exposition);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executorService.shutdown();
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.PathDetail;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.config.Tag;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Text emitter
+ *
+ * Emits metrics in human-readable text, with a line per path followed by an indented line per
+ * metric and its top path details.
+ *
+ * @author llo
+ */
+public class TextEmitter implements MetricEmitter {
+
+	private final PrintWriter output;
+
+	/**
+	 * Constructor
+	 *
+	 * @param writer writer to write text to
+	 */
+	public TextEmitter(Writer writer) {
+		this.output = writer instanceof PrintWriter ? (PrintWriter) writer :
+				new PrintWriter(writer);
+	}
+
+	@Override
+	public void emit(PathMetrics pathMetrics) throws IOException {
+		if (pathMetrics.getMetricData() == null) {
+			return;
+		}
+		output.println(String.format("%s (%s)", pathMetrics.getPathStatus().getName(),
+				pathMetrics.getPathStatus().getValue()));
+		for (MetricDatum metricDatum : pathMetrics.getMetricData()) {
+			List<String> tags = Lists.newArrayList();
+			for (Tag tag : metricDatum.getMetricId().getTags()) {
+				tags.add(String.format("%s=%s", tag.getKey(), tag.getValue()));
+			}
+			String error = metricDatum.getError() != 0 ? String.format(" +/- %.0f",
+					metricDatum.getError()) : "";
+			output.println(String.format("\t%s (%s): %.0f%s",
+					metricDatum.getMetricId().getName(),
+					Joiner.on(' ').join(tags), metricDatum.getValue(), error));
+			for (PathDetail pathDetail : metricDatum.getTopPathDetails()) {
+				output.println(String.format("\t\t%s (length %d, modified %d)",
+						pathDetail.getPathValue(), pathDetail.getLength(),
+						pathDetail.getLastModifiedTime()));
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		output.flush();
+		if (output.checkError()) {
+			throw new IOException("Error writing metrics");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		output.close();
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import com.turn.camino.Context;
+
+/**
+ * Compiled expression
+ *
+ * An expression that has already been parsed and compiled, and can be evaluated
+ * repeatedly in different contexts without parsing again.
+ *
+ * @author llo
+ */
+public interface CompiledExpression {
+
+	/**
+	 * Evaluates expression
+	 *
+	 * @param context context
+	 * @return value of expression
+	 * @throws RenderException
+	 */
+	Object evaluate(Context context) throws RenderException;
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of compiled expressions
+ *
+ * Maps expression strings to their compiled form so that the same expression
+ * does not need to be parsed and compiled more than once. The cache is bounded and
+ * thread-safe; when full, the least recently used expressions are evicted first.
+ *
+ * @author llo
+ */
+public class ExpressionCache {
+
+	private final long maximumSize;
+	private final Cache<String, CompiledExpression> cache;
+
+	/**
+	 * Constructor
+	 *
+	 * @param maximumSize maximum number of expressions to keep
+	 */
+	public ExpressionCache(long maximumSize) {
+		Preconditions.checkArgument(maximumSize > 0, "Maximum size must be positive");
+		this.maximumSize = maximumSize;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Gets compiled expression
+	 *
+	 * @param expression expression string
+	 * @return compiled expression, or null if expression is not cached
+	 */
+	public CompiledExpression get(String expression) {
+		return cache.getIfPresent(expression);
+	}
+
+	/**
+	 * Puts compiled expression into cache
+	 *
+	 * @param expression expression string
+	 * @param compiled compiled expression
+	 */
+	public void put(String expression, CompiledExpression compiled) {
+		cache.put(expression, compiled);
+	}
+
+	/**
+	 * Gets maximum number of expressions kept in cache
+	 *
+	 * @return maximum size
+	 */
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Gets number of expressions currently in cache
+	 *
+	 * @return number of expressions
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	/**
+	 * Gets number of lookups that found a compiled expression
+	 *
+	 * @return hit count
+	 */
+	public long getHitCount() {
+		return cache.stats().hitCount();
+	}
+
+	/**
+	 * Gets number of lookups that did not find a compiled expression
+	 *
+	 * @return miss count
+	 */
+	public long getMissCount() {
+		return cache.stats().missCount();
+	}
+
+	/**
+	 * Removes all expressions from cache
+	 */
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.turn.camino.Context;
+import com.turn.camino.lang.ast.*;
+import com.turn.camino.render.functions.FunctionEnum;
+import com.turn.camino.util.Message;
+import com.turn.camino.util.MessageExceptionFactory;
+import com.turn.camino.util.Validation;
+
+import static com.turn.camino.util.Message.full;
+import static com.turn.camino.util.Message.prefix;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiles syntax trees into executable expressions
+ *
+ * Each node of the syntax tree is turned into a closure once, so that evaluating the
+ * compiled expression requires no parsing or visitor dispatch. Literals are folded into
+ * constants, calls to built-in functions are bound at compile time, and function calls
+ * with up to three arguments are specialized to avoid building argument lists in a loop.
+ *
+ * Compiled expressions produce the same values and errors as
+ * {@link com.turn.camino.render.RendererImpl.Evaluator}.
+ *
+ * @author llo
+ */
+public class ExpressionCompiler implements Visitor<CompiledExpression, Void, RenderException> {
+
+	private final static Validation<FunctionCallException> FUNCTION_VALIDATION =
+			new Validation<>(new FunctionCallExceptionFactory());
+
+	private final static Validation<RenderException> VALIDATION = new Validation<>(
+			new MessageExceptionFactory<RenderException>() {
+				@Override
+				public RenderException newException(String message) {
+					return new RenderException(message);
+				}
+			});
+
+	private final static Map<String, Function> BUILT_INS = FunctionEnum.toMap();
+
+	/**
+	 * Compiled expression that always returns the same value
+	 */
+	protected static class Constant implements CompiledExpression {
+
+		private final Object value;
+
+		Constant(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object evaluate(Context context) {
+			return value;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+	}
+
+	/**
+	 * Compiles a block
+	 *
+	 * @param block block to compile
+	 * @return compiled expression
+	 * @throws RenderException
+	 */
+	public CompiledExpression compile(Block block) throws RenderException {
+		return visit(block, null);
+	}
+
+	/**
+	 * Compiles a block
+	 *
+	 * A block with a single expression compiles to that expression. Otherwise, adjacent
+	 * constant parts are concatenated ahead of time, and the remaining parts are evaluated
+	 * and concatenated into a string.
+	 *
+	 * @param block block of code
+	 * @param unused unused
+	 * @return compiled block
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(Block block, Void unused) throws RenderException {
+		List<Expression> expressions = block.getExpressions();
+		if (expressions.size() == 1) {
+			return expressions.get(0).accept(this, unused);
+		}
+
+		// compile parts, folding adjacent constants
+		List<CompiledExpression> parts = Lists.newArrayListWithExpectedSize(expressions.size());
+		StringBuilder constant = null;
+		for (Expression expression : expressions) {
+			CompiledExpression part = expression.accept(this, unused);
+			if (part instanceof Constant) {
+				if (constant == null) {
+					constant = new StringBuilder();
+				}
+				constant.append(((Constant) part).getValue().toString());
+			} else {
+				if (constant != null) {
+					parts.add(new Constant(constant.toString()));
+					constant = null;
+				}
+				parts.add(part);
+			}
+		}
+		if (constant != null) {
+			parts.add(new Constant(constant.toString()));
+		}
+
+		// whole block is constant
+		if (parts.isEmpty()) {
+			return new Constant("");
+		} else if (parts.size() == 1 && parts.get(0) instanceof Constant) {
+			return parts.get(0);
+		}
+
+		final CompiledExpression[] compiledParts = parts.toArray(
+				new CompiledExpression[parts.size()]);
+		return context -> {
+			StringBuilder sb = new StringBuilder();
+			for (CompiledExpression part : compiledParts) {
+				sb.append(part.evaluate(context).toString());
+			}
+			return sb.toString();
+		};
+	}
+
+	/**
+	 * Compiles a double literal into a constant
+	 *
+	 * @param doubleLiteral double literal
+	 * @param unused unused
+	 * @return constant
+	 */
+	@Override
+	public CompiledExpression visit(DoubleLiteral doubleLiteral, Void unused) {
+		return new Constant(doubleLiteral.getNumber());
+	}
+
+	/**
+	 * Compiles a long literal into a constant
+	 *
+	 * @param longLiteral long literal
+	 * @param unused unused
+	 * @return constant
+	 */
+	@Override
+	public CompiledExpression visit(LongLiteral longLiteral, Void unused) {
+		return new Constant(longLiteral.getNumber());
+	}
+
+	/**
+	 * Compiles a string literal into a constant
+	 *
+	 * @param stringLiteral string literal
+	 * @param unused unused
+	 * @return constant
+	 */
+	@Override
+	public CompiledExpression visit(StringLiteral stringLiteral, Void unused) {
+		return new Constant(stringLiteral.getValue());
+	}
+
+	/**
+	 * Compiles an identifier into a property lookup
+	 *
+	 * @param identifier identifier
+	 * @param unused unused
+	 * @return compiled identifier
+	 */
+	@Override
+	public CompiledExpression visit(Identifier identifier, Void unused) {
+		final String name = identifier.getName();
+		final Message message = full(String.format("Unknown property %s", name));
+		return context -> VALIDATION.requireNotNull(context.getProperty(name), message);
+	}
+
+	/**
+	 * Compiles a function call
+	 *
+	 * If the function is named by an identifier of a built-in function, the function is
+	 * bound at compile time. Properties of any context, including repeat variables, may
+	 * shadow built-in names, so the name is still looked up in the context on every call;
+	 * binding only saves the null and type checks when the lookup returns the built-in.
+	 *
+	 * @param functionCall function call
+	 * @param unused unused
+	 * @return compiled function call
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(FunctionCall functionCall, Void unused)
+			throws RenderException {
+
+		// compile arguments
+		List<Expression> arguments = functionCall.getArguments();
+		final CompiledExpression[] args = new CompiledExpression[arguments.size()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = arguments.get(i).accept(this, unused);
+		}
+
+		// resolve function
+		final Expression funcExpr = functionCall.getFunctionValue();
+		final CompiledExpression function = funcExpr.accept(this, unused);
+		final Function builtIn = funcExpr instanceof Identifier ?
+				BUILT_INS.get(((Identifier) funcExpr).getName()) : null;
+		final Message nullMessage = full(String.format("Expression %s not a function", funcExpr));
+		final Message typeMessage = full(String.format("Function %s undefined", funcExpr));
+		FunctionResolver resolver = context -> {
+			Object object = function.evaluate(context);
+			if (builtIn != null && object == builtIn) {
+				return builtIn;
+			}
+			return VALIDATION.requireType(VALIDATION.requireNotNull(object, nullMessage),
+					Function.class, typeMessage);
+		};
+
+		// specialize on number of arguments
+		switch (args.length) {
+			case 0:
+				return context -> resolver.resolve(context).invoke(Collections.emptyList(),
+						context);
+			case 1:
+				final CompiledExpression arg0 = args[0];
+				return context -> {
+					Function f = resolver.resolve(context);
+					return f.invoke(Collections.singletonList(arg0.evaluate(context)), context);
+				};
+			case 2:
+				final CompiledExpression first = args[0], second = args[1];
+				return context -> {
+					Function f = resolver.resolve(context);
+					return f.invoke(Arrays.asList(first.evaluate(context),
+							second.evaluate(context)), context);
+				};
+			case 3:
+				final CompiledExpression a0 = args[0], a1 = args[1], a2 = args[2];
+				return context -> {
+					Function f = resolver.resolve(context);
+					return f.invoke(Arrays.asList(a0.evaluate(context), a1.evaluate(context),
+							a2.evaluate(context)), context);
+				};
+			default:
+				return context -> {
+					Function f = resolver.resolve(context);
+					Object[] params = new Object[args.length];
+					for (int i = 0; i < params.length; i++) {
+						params[i] = args[i].evaluate(context);
+					}
+					return f.invoke(Arrays.asList(params), context);
+				};
+		}
+	}
+
+	/**
+	 * Resolves function to invoke
+	 */
+	private interface FunctionResolver {
+		Function resolve(Context context) throws RenderException;
+	}
+
+	/**
+	 * Compiles a ternary if expression
+	 *
+	 * @param ternaryIf ternary if expression
+	 * @param unused unused
+	 * @return compiled ternary if
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(TernaryIf ternaryIf, Void unused) throws RenderException {
+		final CompiledExpression condition = ternaryIf.getCondition().accept(this, unused);
+		final CompiledExpression thenValue = ternaryIf.getThenValue().accept(this, unused);
+		final CompiledExpression elseValue = ternaryIf.getElseValue().accept(this, unused);
+		final Message message = full("Condition must be boolean expression");
+		return context -> {
+			if (VALIDATION.requireType(condition.evaluate(context), Boolean.class, message)) {
+				return thenValue.evaluate(context);
+			} else {
+				return elseValue.evaluate(context);
+			}
+		};
+	}
+
+	/**
+	 * Compiles a dictionary literal
+	 *
+	 * A new map is created on every evaluation because maps are mutable.
+	 *
+	 * @param dictionaryLiteral dictionary literal
+	 * @param unused unused
+	 * @return compiled dictionary literal
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(DictionaryLiteral dictionaryLiteral, Void unused)
+			throws RenderException {
+		List<DictionaryLiteral.Entry> entries = dictionaryLiteral.getEntries();
+		final CompiledExpression[] keys = new CompiledExpression[entries.size()];
+		final CompiledExpression[] values = new CompiledExpression[entries.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = entries.get(i).getKey().accept(this, unused);
+			values[i] = entries.get(i).getValue().accept(this, unused);
+		}
+		return context -> {
+			Map<Object, Object> dict = Maps.newHashMap();
+			for (int i = 0; i < keys.length; i++) {
+				dict.put(keys[i].evaluate(context), values[i].evaluate(context));
+			}
+			return dict;
+		};
+	}
+
+	/**
+	 * Compiles a list literal
+	 *
+	 * A new list is created on every evaluation because lists are mutable.
+	 *
+	 * @param listLiteral list literal
+	 * @param unused unused
+	 * @return compiled list literal
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(ListLiteral listLiteral, Void unused)
+			throws RenderException {
+		List<Expression> elements = listLiteral.getElements();
+		final CompiledExpression[] compiledElements = new CompiledExpression[elements.size()];
+		for (int i = 0; i < compiledElements.length; i++) {
+			compiledElements[i] = elements.get(i).accept(this, unused);
+		}
+		return context -> {
+			List<Object> list = Lists.newArrayListWithExpectedSize(compiledElements.length);
+			for (CompiledExpression element : compiledElements) {
+				list.add(element.evaluate(context));
+			}
+			return list;
+		};
+	}
+
+	/**
+	 * Compiles a collection access operator
+	 *
+	 * @param collectionAccess collection access
+	 * @param unused unused
+	 * @return compiled collection access
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(CollectionAccess collectionAccess, Void unused)
+			throws RenderException {
+		final CompiledExpression collection = collectionAccess.getCollection()
+				.accept(this, unused);
+		final CompiledExpression key = collectionAccess.getKey().accept(this, unused);
+		final Message indexMessage = full("Array index must be integer");
+		return context -> {
+			Object value = collection.evaluate(context);
+
+			// dictionary
+			Optional<Map> mapOptional = VALIDATION.requestType(value, Map.class);
+			if (mapOptional.isPresent()) {
+				return mapOptional.get().get(key.evaluate(context));
+			}
+
+			// list
+			Optional<List> listOptional = VALIDATION.requestType(value, List.class);
+			if (listOptional.isPresent()) {
+				Long index = VALIDATION.requireType(key.evaluate(context), Long.class,
+						indexMessage);
+				if (index < 0 || index > listOptional.get().size()) {
+					throw new RenderException("Array index out of bound");
+				}
+				return listOptional.get().get(index.intValue());
+			}
+
+			// error!
+			throw new RenderException("[] operator must be used with dictionary or list");
+		};
+	}
+
+	/**
+	 * Compiles accessing of a member
+	 *
+	 * @param memberAccess member access
+	 * @param unused unused
+	 * @return compiled member access
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(MemberAccess memberAccess, Void unused)
+			throws RenderException {
+		VALIDATION.requireNotNull(memberAccess.getParent(), full("Cannot access member of null"));
+		final CompiledExpression parent = memberAccess.getParent().accept(this, unused);
+		final String name = memberAccess.getChild().getName();
+		final Message message = full("Cannot access member of null");
+		return context -> RendererImpl.accessMember(VALIDATION.requireNotNull(
+				parent.evaluate(context), message), name);
+	}
+
+	/**
+	 * Compiles a function literal
+	 *
+	 * The function body is compiled once; each evaluation returns a function that runs
+	 * the compiled body in a child context holding the parameters.
+	 *
+	 * @param functionLiteral function literal
+	 * @param unused unused
+	 * @return compiled function literal
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression visit(FunctionLiteral functionLiteral, Void unused)
+			throws RenderException {
+		final CompiledExpression body = visit(functionLiteral.getBody(), unused);
+		final List<String> names = Lists.newArrayListWithExpectedSize(
+				functionLiteral.getParameters().size());
+		for (Identifier parameter : functionLiteral.getParameters()) {
+			names.add(parameter.getName());
+		}
+		final List<String> paramNames = ImmutableList.copyOf(names);
+		final Function function = (params, context) -> {
+			// check parameters
+			FUNCTION_VALIDATION.requireListSize(params, paramNames.size(), paramNames.size(),
+					prefix("parameters"));
+
+			// push params into child context
+			Context childContext = context.createChild();
+			for (int i = 0; i < paramNames.size(); i++) {
+				childContext.setProperty(paramNames.get(i), params.get(i));
+			}
+
+			// execute function body
+			try {
+				return body.evaluate(childContext);
+			} catch (RenderException e) {
+				throw new FunctionCallException(e);
+			}
+		};
+		return context -> function;
+	}
+
+}
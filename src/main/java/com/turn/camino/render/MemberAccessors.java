@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.turn.camino.annotation.Member;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Registry of member accessors
+ *
+ * Members are public no-argument methods annotated with {@link Member}. The methods of
+ * each class are scanned once, the first time a member of that class is accessed, and
+ * turned into method handles keyed by member name.
+ *
+ * @author llo
+ */
+class MemberAccessors {
+
+	private final static MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+	private final static MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class,
+			Object.class);
+
+	private final static ClassValue<Map<String, MethodHandle>> ACCESSORS =
+			new ClassValue<Map<String, MethodHandle>>() {
+				@Override
+				protected Map<String, MethodHandle> computeValue(Class<?> type) {
+					return findAccessors(type);
+				}
+			};
+
+	private MemberAccessors() {
+	}
+
+	/**
+	 * Gets value of a member of an object
+	 *
+	 * @param parent object whose member to access
+	 * @param name name of member
+	 * @return value of member
+	 * @throws RenderException if member is not found or accessing it fails
+	 */
+	static Object get(Object parent, String name) throws RenderException {
+		MethodHandle accessor = ACCESSORS.get(parent.getClass()).get(name);
+		if (accessor == null) {
+			throw new RenderException(String.format("Member %s not found", name));
+		}
+		try {
+			return accessor.invokeExact(parent);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RenderException(e);
+		}
+	}
+
+	/**
+	 * Finds accessors of all members of a class
+	 *
+	 * @param type class to scan
+	 * @return map of member names to accessors
+	 */
+	static Map<String, MethodHandle> findAccessors(Class<?> type) {
+		Map<String, MethodHandle> accessors = Maps.newHashMap();
+		for (Method method : type.getMethods()) {
+			Member member = method.getAnnotation(Member.class);
+			if (member == null || method.getParameterTypes().length > 0 ||
+					accessors.containsKey(member.value())) {
+				continue;
+			}
+			try {
+				accessors.put(member.value(), LOOKUP.unreflect(method).asType(ACCESSOR_TYPE));
+			} catch (IllegalAccessException e) {
+				// public method of a non-public class; make it accessible instead
+				method.setAccessible(true);
+				try {
+					accessors.put(member.value(), MethodHandles.lookup().unreflect(method)
+							.asType(ACCESSOR_TYPE));
+				} catch (IllegalAccessException ignored) {
+					// member cannot be accessed, leave it out
+				}
+			}
+		}
+		return ImmutableMap.copyOf(accessors);
+	}
+
+}
@@ -35,4 +35,18 @@ public interface Renderer {
 	 */
 	Object render(String expression, Context context) throws RenderException;
 
+	/**
+	 * Compiles an expression so that it can be evaluated repeatedly
+	 *
+	 * By default the returned expression renders the source again on every evaluation,
+	 * so existing renderers need not implement it.
+	 *
+	 * @param expression expression to compile
+	 * @return compiled expression
+	 * @throws RenderException
+	 */
+	default CompiledExpression compile(String expression) throws RenderException {
+		return context -> render(expression, context);
+	}
+
 }
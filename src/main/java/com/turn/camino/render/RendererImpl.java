@@ -17,7 +17,6 @@ package com.turn.camino.render;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.turn.camino.Context;
-import com.turn.camino.annotation.Member;
 import com.turn.camino.lang.ast.*;
 import com.turn.camino.lang.parser.ParseException;
 import com.turn.camino.lang.parser.Parser;
@@ -30,8 +29,6 @@ import static com.turn.camino.util.Message.full;
 import static com.turn.camino.util.Message.prefix;
 
 import java.io.StringReader;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -46,6 +43,26 @@ public class RendererImpl implements Renderer {
 	private final static Validation<FunctionCallException> VALIDATION =
 			new Validation<>(new FunctionCallExceptionFactory());
 
+	private final ExpressionCache expressionCache;
+
+	/**
+	 * Constructor
+	 *
+	 * Creates renderer that parses and compiles expressions every time they are rendered
+	 */
+	public RendererImpl() {
+		this(null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param expressionCache cache of compiled expressions, or null to disable caching
+	 */
+	public RendererImpl(ExpressionCache expressionCache) {
+		this.expressionCache = expressionCache;
+	}
+
 	/**
 	 * Renders expression string into a Java value
 	 *
@@ -56,25 +73,75 @@ public class RendererImpl implements Renderer {
 	 */
 	@Override
 	public Object render(String expression, Context context) throws RenderException {
+		return compile(expression).evaluate(context);
+	}
+
+	/**
+	 * Compiles expression string, reusing cached compiled expression if available
+	 *
+	 * @param expression expression to compile
+	 * @return compiled expression
+	 * @throws RenderException
+	 */
+	@Override
+	public CompiledExpression compile(String expression) throws RenderException {
+		CompiledExpression compiled = expressionCache != null ?
+				expressionCache.get(expression) : null;
+		if (compiled == null) {
+			compiled = new ExpressionCompiler().compile(parse(expression));
+			if (expressionCache != null) {
+				expressionCache.put(expression, compiled);
+			}
+		}
+		return compiled;
+	}
 
-		// parse expression into ast
-		Block block;
+	/**
+	 * Gets expression cache
+	 *
+	 * @return expression cache, or null if caching is disabled
+	 */
+	public ExpressionCache getExpressionCache() {
+		return expressionCache;
+	}
+
+	/**
+	 * Parses expression into a block
+	 *
+	 * @param expression expression to parse
+	 * @return parsed block
+	 * @throws RenderException
+	 */
+	public static Block parse(String expression) throws RenderException {
 		Parser parser = new Parser(new StringReader(expression));
 		try {
-			block = parser.block();
+			return parser.block();
 		} catch (ParseException e) {
 			throw new RenderException("Parse error", e);
 		} catch (TokenMgrError e) {
 			throw new RenderException("Lexical error", e);
 		}
+	}
 
-		// evaluate block
-		Evaluator evaluator = new Evaluator();
-		return evaluator.visit(block, context);
+	/**
+	 * Gets value of a member of an object
+	 *
+	 * Members are public methods annotated with {@link com.turn.camino.annotation.Member}.
+	 *
+	 * @param parent object whose member to access
+	 * @param name name of member
+	 * @return value of member
+	 * @throws RenderException
+	 */
+	static Object accessMember(Object parent, String name) throws RenderException {
+		return MemberAccessors.get(parent, name);
 	}
 
 	/**
-	 * Evaluates expression
+	 * Evaluates expression by walking its syntax tree
+	 *
+	 * Expressions are normally rendered through {@link ExpressionCompiler}, which
+	 * produces the same results without walking the tree on every evaluation.
 	 */
 	protected static class Evaluator implements Visitor<Object, Context, RenderException> {
 
@@ -315,26 +382,8 @@ public class RendererImpl implements Renderer {
 			Object parent = memberAccess.getParent().accept(this, context);
 			validation.requireNotNull(parent, full("Cannot access member of null"));
 
-			// check that parent has child
-			// TODO fix slow implementation
-			for (Method method : parent.getClass().getMethods()) {
-				Member member = method.getAnnotation(Member.class);
-				if (member != null) {
-					if (memberAccess.getChild().getName().equals(member.value())) {
-						try {
-							return method.invoke(parent);
-						} catch (IllegalAccessException e) {
-							throw new RenderException(e);
-						} catch (InvocationTargetException e) {
-							throw new RenderException(e);
-						}
-					}
-				}
-			}
-
-			// member not found
-			throw new RenderException(String.format("Member %s not found",
-					memberAccess.getChild().getName()));
+			// access member
+			return accessMember(parent, memberAccess.getChild().getName());
 		}
 
 		/**
@@ -15,6 +15,7 @@
 package com.turn.camino.render.functions;
 
 import com.turn.camino.Context;
+import com.turn.camino.FileStatusCache;
 import com.turn.camino.render.Function;
 import com.turn.camino.render.FunctionCallException;
 import com.turn.camino.render.FunctionCallExceptionFactory;
@@ -72,6 +73,42 @@ public class FileSystemFunctions {
 			}
 			return FileUtil.stat2Paths(fss);
 		}
+
+		protected org.apache.hadoop.fs.Path[] dirList(FileStatusCache fileStatusCache,
+				org.apache.hadoop.fs.Path dirPath, Optional<PathFilter> pathFilter)
+				throws FunctionCallException, IOException {
+
+			// check that path exists and is directory with one status lookup
+			FileStatus status = fileStatusCache.getFileStatus(dirPath);
+			if (status == null) {
+				throw new FunctionCallException(String.format("Path %s does not exist",
+						dirPath));
+			}
+			if (!status.isDirectory()) {
+				throw new FunctionCallException(String.format("Path %s is not directory",
+						dirPath));
+			}
+
+			// filter cached directory listing
+			FileStatus fss[] = fileStatusCache.listStatus(dirPath);
+			List<org.apache.hadoop.fs.Path> paths = Lists.newArrayListWithExpectedSize(fss.length);
+			for (FileStatus fs : fss) {
+				if (!pathFilter.isPresent() || pathFilter.get().accept(fs.getPath())) {
+					paths.add(fs.getPath());
+				}
+			}
+			return paths.toArray(new org.apache.hadoop.fs.Path[paths.size()]);
+		}
+
+		protected org.apache.hadoop.fs.Path[] dirList(Context context,
+				org.apache.hadoop.fs.Path dirPath, Optional<PathFilter> pathFilter)
+				throws FunctionCallException, IOException {
+			FileStatusCache fileStatusCache = context.getFileStatusCache();
+			if (fileStatusCache != null) {
+				return dirList(fileStatusCache, dirPath, pathFilter);
+			}
+			return dirList(context.getEnv().getFileSystem(), dirPath, pathFilter);
+		}
 	}
 
 	/**
@@ -98,9 +135,8 @@ public class FileSystemFunctions {
 				});
 			}
 			org.apache.hadoop.fs.Path dirPath = new org.apache.hadoop.fs.Path(dir);
-			FileSystem dfs = context.getEnv().getFileSystem();
 			try {
-				org.apache.hadoop.fs.Path[] paths = dirList(dfs, dirPath, pathFilter);
+				org.apache.hadoop.fs.Path[] paths = dirList(context, dirPath, pathFilter);
 				ArrayList<String> list = Lists.newArrayListWithExpectedSize(paths.length);
 				for (org.apache.hadoop.fs.Path path : paths) {
 					list.add(path.toUri().getPath());
@@ -137,9 +173,8 @@ public class FileSystemFunctions {
 				});
 			}
 			org.apache.hadoop.fs.Path dirPath = new org.apache.hadoop.fs.Path(dir);
-			FileSystem dfs = context.getEnv().getFileSystem();
 			try {
-				org.apache.hadoop.fs.Path[] paths = dirList(dfs, dirPath, pathFilter);
+				org.apache.hadoop.fs.Path[] paths = dirList(context, dirPath, pathFilter);
 				ArrayList<String> list = Lists.newArrayListWithExpectedSize(paths.length);
 				for (org.apache.hadoop.fs.Path path : paths) {
 					list.add(path.getName());
@@ -161,9 +196,12 @@ public class FileSystemFunctions {
 			VALIDATION.requireListSize(params, 1, 1, prefix("parameters"));
 			String path = VALIDATION.requireType(params.get(0), String.class, prefix("path"));
 			org.apache.hadoop.fs.Path fsPath = new org.apache.hadoop.fs.Path(path);
-			FileSystem fs = context.getEnv().getFileSystem();
+			FileStatusCache fileStatusCache = context.getFileStatusCache();
 			try {
-				return fs.exists(fsPath);
+				if (fileStatusCache != null) {
+					return fileStatusCache.exists(fsPath);
+				}
+				return context.getEnv().getFileSystem().exists(fsPath);
 			} catch (IOException e) {
 				throw new FunctionCallException("Unexpected exception testing if path exists");
 			}
@@ -180,8 +218,12 @@ public class FileSystemFunctions {
 			VALIDATION.requireListSize(params, 1, 1, prefix("parameters"));
 			String path = VALIDATION.requireType(params.get(0), String.class, prefix("path"));
 			org.apache.hadoop.fs.Path fsPath = new org.apache.hadoop.fs.Path(path);
-			FileSystem fs = context.getEnv().getFileSystem();
+			FileStatusCache fileStatusCache = context.getFileStatusCache();
 			try {
+				if (fileStatusCache != null) {
+					return fileStatusCache.isDirectory(fsPath);
+				}
+				FileSystem fs = context.getEnv().getFileSystem();
 				return fs.exists(fsPath) && fs.isDirectory(fsPath);
 			} catch (IOException e) {
 				throw new FunctionCallException("Unexpected exception testing if path is directory");
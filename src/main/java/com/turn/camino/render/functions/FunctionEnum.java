@@ -83,6 +83,14 @@ public enum FunctionEnum {
 	AGE("age", new MetricFunctions.Age()),
 	COUNT("count", new MetricFunctions.Count()),
 	SIZE("size", new MetricFunctions.Size()),
+	RECURSIVE_SIZE("recursiveSize", new MetricFunctions.RecursiveSize()),
+	RECURSIVE_FILE_COUNT("recursiveFileCount", new MetricFunctions.RecursiveFileCount()),
+	MAX_DESCENDANT_AGE("maxDescendantAge", new MetricFunctions.MaxDescendantAge()),
+	CONTENT_SUMMARY_SIZE("contentSummarySize", new MetricFunctions.ContentSummarySize()),
+	CONTENT_SUMMARY_FILE_COUNT("contentSummaryFileCount",
+			new MetricFunctions.ContentSummaryFileCount()),
+	GROWTH_RATE("growthRate", new MetricFunctions.GrowthRate()),
+	STALLED_FOR("stalledFor", new MetricFunctions.StalledFor()),
 	CREATION_DELAY("creationDelay", new MetricFunctions.CreationDelay());
 
 	private final String name;
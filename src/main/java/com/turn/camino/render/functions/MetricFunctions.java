@@ -14,25 +14,46 @@
  */
 package com.turn.camino.render.functions;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.turn.camino.Context;
+import com.turn.camino.FileStatusCache;
+import com.turn.camino.MetricHistory;
+import com.turn.camino.MetricId;
 import com.turn.camino.PathDetail;
+import com.turn.camino.PathSample;
 import com.turn.camino.PathStatus;
+import com.turn.camino.TreeSummary;
+import com.turn.camino.TreeWalker;
 import com.turn.camino.WrongTypeException;
 import com.turn.camino.config.Metric;
 import com.turn.camino.render.Function;
 import com.turn.camino.render.FunctionCallException;
 import com.turn.camino.render.FunctionCallExceptionFactory;
+import com.turn.camino.util.QuantileSketch;
+import com.turn.camino.util.TopK;
 import com.turn.camino.util.Validation;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.Path;
 
 import static com.turn.camino.util.Message.prefix;
 
 /**
  * Metric functions
  *
+ * Aggregates over a very large number of path details are computed in parallel chunks on
+ * a fork-join pool, so function invocations on path details must be thread-safe.
+ *
  * @author llo
  */
 public class MetricFunctions {
@@ -40,70 +61,398 @@ public class MetricFunctions {
 	private final static Validation<FunctionCallException> VALIDATION =
 			new Validation<>(new FunctionCallExceptionFactory());
 
+	/**
+	 * Number of path details at or above which aggregation is split into parallel chunks
+	 */
+	final static int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * Maximum number of path details aggregated sequentially by one parallel task
+	 */
+	final static int CHUNK_SIZE = 1 << 14;
+
 	private final static ImmutableMap<String, AggregateFactory> AGGREGATES = ImmutableMap.<String, AggregateFactory>builder()
-			.put("sum", () -> new Aggregate() {
-				double sum = 0;
-				@Override
-				public void put(double value) {
-					sum += value;
-				}
-				@Override
-				public double get() {
-					return sum;
-				}
-			})
-			.put("avg", () -> new Aggregate() {
-				double sum = 0;
-				double count = 0;
-				@Override
-				public void put(double value) {
-					sum += value;
-					count++;
-				}
-				@Override
-				public double get() {
-					return count > 0 ? sum / count : 0;
-				}
-			})
-			.put("max", () -> new Aggregate() {
-				double maxValue = -Double.MAX_VALUE;
-				@Override
-				public void put(double value) {
-					maxValue = Math.max(maxValue, value);
-				}
-				@Override
-				public double get() {
-					return maxValue;
-				}
-			})
-			.put("min", () -> new Aggregate() {
-				double minValue = Double.MAX_VALUE;
-				@Override
-				public void put(double value) {
-					minValue = Math.min(minValue, value);
-				}
-				@Override
-				public double get() {
-					return minValue;
-				}
-			})
+			.put("sum", SumAggregate::new)
+			.put("avg", AvgAggregate::new)
+			.put("max", MaxAggregate::new)
+			.put("min", MinAggregate::new)
+			.put("count", CountAggregate::new)
 			.build();
 
+	private final static Pattern PERCENTILE = Pattern.compile("p\\d+(\\.\\d+)?");
+
 	/**
 	 * Simple aggregate interface
+	 *
+	 * Aggregates of the same type computed over disjoint parts of the values can be merged
+	 * into the aggregate of all the values.
 	 */
-	interface Aggregate {
+	public interface Aggregate {
 		void put(double value);
+		void merge(Aggregate other);
 		double get();
 	}
 
 	/**
 	 * Aggregate factory
 	 */
-	interface AggregateFactory {
+	public interface AggregateFactory {
 		Aggregate newInstance();
 	}
 
+	/**
+	 * Sum of values
+	 */
+	static class SumAggregate implements Aggregate {
+		private double sum = 0;
+		@Override
+		public void put(double value) {
+			sum += value;
+		}
+		@Override
+		public void merge(Aggregate other) {
+			sum += ((SumAggregate) other).sum;
+		}
+		@Override
+		public double get() {
+			return sum;
+		}
+	}
+
+	/**
+	 * Average of values
+	 */
+	static class AvgAggregate implements Aggregate {
+		private double sum = 0;
+		private double count = 0;
+		@Override
+		public void put(double value) {
+			sum += value;
+			count++;
+		}
+		@Override
+		public void merge(Aggregate other) {
+			sum += ((AvgAggregate) other).sum;
+			count += ((AvgAggregate) other).count;
+		}
+		@Override
+		public double get() {
+			return count > 0 ? sum / count : 0;
+		}
+	}
+
+	/**
+	 * Maximum of values
+	 */
+	static class MaxAggregate implements Aggregate {
+		private double maxValue = -Double.MAX_VALUE;
+		@Override
+		public void put(double value) {
+			maxValue = Math.max(maxValue, value);
+		}
+		@Override
+		public void merge(Aggregate other) {
+			maxValue = Math.max(maxValue, ((MaxAggregate) other).maxValue);
+		}
+		@Override
+		public double get() {
+			return maxValue;
+		}
+	}
+
+	/**
+	 * Minimum of values
+	 */
+	static class MinAggregate implements Aggregate {
+		private double minValue = Double.MAX_VALUE;
+		@Override
+		public void put(double value) {
+			minValue = Math.min(minValue, value);
+		}
+		@Override
+		public void merge(Aggregate other) {
+			minValue = Math.min(minValue, ((MinAggregate) other).minValue);
+		}
+		@Override
+		public double get() {
+			return minValue;
+		}
+	}
+
+	/**
+	 * Number of values
+	 */
+	static class CountAggregate implements Aggregate {
+		private long count = 0;
+		@Override
+		public void put(double value) {
+			count++;
+		}
+		@Override
+		public void merge(Aggregate other) {
+			count += ((CountAggregate) other).count;
+		}
+		@Override
+		public double get() {
+			return count;
+		}
+	}
+
+	/**
+	 * Quantile of values
+	 *
+	 * Estimated from a sketch of fixed size, within one percent of an actual value
+	 */
+	static class QuantileAggregate implements Aggregate {
+		private final double quantile;
+		private final QuantileSketch sketch = new QuantileSketch();
+		QuantileAggregate(double quantile) {
+			this.quantile = quantile;
+		}
+		@Override
+		public void put(double value) {
+			sketch.add(value);
+		}
+		@Override
+		public void merge(Aggregate other) {
+			sketch.merge(((QuantileAggregate) other).sketch);
+		}
+		@Override
+		public double get() {
+			return sketch.getQuantile(quantile);
+		}
+	}
+
+	/**
+	 * Gets factory of named aggregate
+	 *
+	 * Names are sum, avg, max, min, count, or a percentile such as p50, p95 or p99.9
+	 *
+	 * @param name name of aggregate
+	 * @return aggregate factory, or null if name is unknown
+	 */
+	public static AggregateFactory getAggregateFactory(String name) {
+		AggregateFactory aggregateFactory = name != null ? AGGREGATES.get(name) : null;
+		if (aggregateFactory == null && name != null && PERCENTILE.matcher(name).matches()) {
+			final double percentile = Double.parseDouble(name.substring(1));
+			if (percentile <= 100) {
+				aggregateFactory = () -> new QuantileAggregate(percentile / 100);
+			}
+		}
+		return aggregateFactory;
+	}
+
+	/**
+	 * Aggregate of path details, along with path details of largest values if asked for
+	 */
+	static class Accumulator {
+
+		private final Aggregate aggregate;
+		private final TopK<PathDetail> top;
+
+		/**
+		 * Constructor
+		 *
+		 * @param aggregate aggregate
+		 * @param top number of path details with largest values to keep, or zero
+		 */
+		Accumulator(Aggregate aggregate, int top) {
+			this.aggregate = aggregate;
+			this.top = top > 0 ? new TopK<>(top) : null;
+		}
+
+		void put(double value, PathDetail pathDetail) {
+			aggregate.put(value);
+			if (top != null) {
+				top.offer(value, pathDetail);
+			}
+		}
+
+		void merge(Accumulator other) {
+			aggregate.merge(other.aggregate);
+			if (top != null) {
+				top.merge(other.top);
+			}
+		}
+
+		AggregateResult getResult() {
+			return new AggregateResult(aggregate.get(), top != null ? top.getItems() :
+					ImmutableList.<PathDetail>of());
+		}
+	}
+
+	/**
+	 * Result of aggregating path details
+	 */
+	public static class AggregateResult {
+
+		private final double value;
+		private final double error;
+		private final List<PathDetail> topPathDetails;
+
+		/**
+		 * Constructor
+		 *
+		 * @param value aggregate value
+		 * @param topPathDetails path details with largest values
+		 */
+		public AggregateResult(double value, List<PathDetail> topPathDetails) {
+			this(value, 0, topPathDetails);
+		}
+
+		/**
+		 * Constructor
+		 *
+		 * @param value aggregate value
+		 * @param error half-width of 95% confidence interval of an estimated value
+		 * @param topPathDetails path details with largest values
+		 */
+		public AggregateResult(double value, double error, List<PathDetail> topPathDetails) {
+			this.value = value;
+			this.error = error;
+			this.topPathDetails = topPathDetails;
+		}
+
+		/**
+		 * Gets aggregate value
+		 *
+		 * @return aggregate value
+		 */
+		public double getValue() {
+			return value;
+		}
+
+		/**
+		 * Gets error bound of aggregate value
+		 *
+		 * @return half-width of 95% confidence interval, zero if value is exact, or NaN if
+		 *         it cannot be estimated
+		 */
+		public double getError() {
+			return error;
+		}
+
+		/**
+		 * Gets path details with largest values of metric function
+		 *
+		 * @return path details in descending order of value
+		 */
+		public List<PathDetail> getTopPathDetails() {
+			return topPathDetails;
+		}
+	}
+
+	/**
+	 * Aggregates a range of path details, splitting large ranges into parallel subtasks
+	 */
+	static class AggregateTask extends RecursiveTask<Accumulator> {
+
+		private final Function function;
+		private final AggregateFactory aggregateFactory;
+		private final Metric metric;
+		private final List<PathDetail> pathDetails;
+		private final Context context;
+		private final int from;
+		private final int to;
+
+		/**
+		 * Constructor
+		 *
+		 * @param function function computing value of a path detail
+		 * @param aggregateFactory factory of aggregate
+		 * @param metric metric
+		 * @param pathDetails path details, which must support random access
+		 * @param context context
+		 * @param from index of first path detail, inclusive
+		 * @param to index of last path detail, exclusive
+		 */
+		AggregateTask(Function function, AggregateFactory aggregateFactory, Metric metric,
+				List<PathDetail> pathDetails, Context context, int from, int to) {
+			this.function = function;
+			this.aggregateFactory = aggregateFactory;
+			this.metric = metric;
+			this.pathDetails = pathDetails;
+			this.context = context;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Accumulator compute() {
+			if (to - from <= CHUNK_SIZE) {
+				try {
+					return aggregate(function, new Accumulator(aggregateFactory.newInstance(),
+							metric.getTop()), metric, pathDetails.subList(from, to), context);
+				} catch (FunctionCallException e) {
+					throw new ChunkException(e);
+				}
+			}
+			int middle = (from + to) >>> 1;
+			AggregateTask left = new AggregateTask(function, aggregateFactory, metric,
+					pathDetails, context, from, middle);
+			AggregateTask right = new AggregateTask(function, aggregateFactory, metric,
+					pathDetails, context, middle, to);
+			left.fork();
+			Accumulator accumulator = right.compute();
+			accumulator.merge(left.join());
+			return accumulator;
+		}
+
+		/**
+		 * Runs task in current fork-join pool, or in common pool if not in one
+		 *
+		 * An exception of a chunk run by another thread is rethrown by fork-join as a copy
+		 * wrapping the original, so the cause chain is searched for the function call
+		 * exception.
+		 *
+		 * @return aggregate of all path details
+		 * @throws FunctionCallException
+		 */
+		Accumulator run() throws FunctionCallException {
+			try {
+				return ForkJoinTask.inForkJoinPool() ? invoke() : ForkJoinPool.commonPool()
+						.invoke(this);
+			} catch (ChunkException e) {
+				for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+					if (cause instanceof FunctionCallException) {
+						throw (FunctionCallException) cause;
+					}
+				}
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Carries function call exception of a chunk out of fork-join tasks
+	 */
+	private static class ChunkException extends RuntimeException {
+
+		ChunkException(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * Puts value of each path detail into accumulator
+	 *
+	 * @param function function computing value of a path detail
+	 * @param accumulator accumulator
+	 * @param metric metric
+	 * @param pathDetails path details
+	 * @param context context
+	 * @return accumulator
+	 * @throws FunctionCallException
+	 */
+	static Accumulator aggregate(Function function, Accumulator accumulator, Metric metric,
+			List<PathDetail> pathDetails, Context context) throws FunctionCallException {
+		for (PathDetail pathDetail : pathDetails) {
+			accumulator.put(((Number) function.invoke(Lists.newArrayList(metric, pathDetail),
+					context)).doubleValue(), pathDetail);
+		}
+		return accumulator;
+	}
+
 	/**
 	 * Metric function
 	 */
@@ -147,26 +496,114 @@ public class MetricFunctions {
 		@Override
 		public double invoke(Metric metric, PathStatus pathStatus, Context context)
 				throws FunctionCallException {
-			Function function;
+			return aggregate(metric, pathStatus, context).getValue();
+		}
+
+		/**
+		 * Aggregates path details
+		 *
+		 * Path details with largest function values are kept in the same pass if metric
+		 * asks for them.
+		 *
+		 * @param metric metric
+		 * @param pathStatus path status
+		 * @param context context
+		 * @return aggregate value and path details with largest function values
+		 * @throws FunctionCallException
+		 */
+		public AggregateResult aggregate(Metric metric, PathStatus pathStatus, Context context)
+				throws FunctionCallException {
+			Function function = getFunction(metric, context);
+			AggregateFactory aggregateFactory = getAggregateFactory(metric);
+			List<PathDetail> pathDetails = pathStatus.getPathDetails();
+			if (pathDetails.isEmpty()) {
+				return new AggregateResult(metric.getDefaultValue(),
+						ImmutableList.<PathDetail>of());
+			}
+
+			// split very large lists into chunks aggregated in parallel
+			if (pathDetails.size() >= PARALLEL_THRESHOLD && pathDetails instanceof RandomAccess) {
+				return new AggregateTask(function, aggregateFactory, metric, pathDetails,
+						context, 0, pathDetails.size()).run().getResult();
+			}
+			return MetricFunctions.aggregate(function, new Accumulator(
+					aggregateFactory.newInstance(), metric.getTop()), metric, pathDetails,
+					context).getResult();
+		}
+
+		/**
+		 * Estimates aggregate of all paths from sampled path details
+		 *
+		 * Sums are extrapolated to all directories sampled from, and averages are estimated
+		 * over sampled paths, both with error bounds. Other aggregates are computed over
+		 * sampled paths, and their error bounds are unknown.
+		 *
+		 * @param metric metric
+		 * @param pathStatus path status whose path details are sampled
+		 * @param context context
+		 * @return estimated value with error bound, and sampled path details with largest
+		 *         function values
+		 * @throws FunctionCallException
+		 */
+		public AggregateResult estimate(Metric metric, PathStatus pathStatus, Context context)
+				throws FunctionCallException {
+			PathSample sample = VALIDATION.requireNotNull(pathStatus.getSample(),
+					prefix("Path status is not sampled"));
+			Function function = getFunction(metric, context);
+			AggregateFactory aggregateFactory = getAggregateFactory(metric);
+			if (pathStatus.getPathDetails().isEmpty()) {
+				return new AggregateResult(metric.getDefaultValue(),
+						sample.isComplete() ? 0 : Double.NaN, ImmutableList.<PathDetail>of());
+			}
+
+			// aggregate each sampled directory, keeping totals of sums and averages
+			Accumulator accumulator = new Accumulator(aggregateFactory.newInstance(),
+					metric.getTop());
+			double[] totals = new double[sample.getSampledDirectoryCount()];
+			for (int i = 0; i < totals.length; i++) {
+				List<PathDetail> pathDetails = sample.getPathDetails(i);
+				Accumulator directoryAccumulator = MetricFunctions.aggregate(function,
+						new Accumulator(aggregateFactory.newInstance(), metric.getTop()), metric,
+						pathDetails, context);
+				totals[i] = directoryAccumulator.aggregate.get();
+				if (directoryAccumulator.aggregate instanceof AvgAggregate) {
+					totals[i] *= pathDetails.size();
+				}
+				accumulator.merge(directoryAccumulator);
+			}
+
+			AggregateResult result = accumulator.getResult();
+			PathSample.Estimate estimate;
+			if (accumulator.aggregate instanceof SumAggregate) {
+				estimate = sample.estimateTotal(totals);
+			} else if (accumulator.aggregate instanceof AvgAggregate) {
+				estimate = sample.estimateAverage(totals);
+			} else {
+				estimate = new PathSample.Estimate(result.getValue(),
+						sample.isComplete() ? 0 : Double.NaN);
+			}
+			return new AggregateResult(estimate.getValue(), estimate.getError(),
+					result.getTopPathDetails());
+		}
+
+		private Function getFunction(Metric metric, Context context)
+				throws FunctionCallException {
 			try {
-				function = VALIDATION.requireNotNull(context.getProperty(metric.getFunction(),
+				return VALIDATION.requireNotNull(context.getProperty(metric.getFunction(),
 						Function.class), prefix(metric.getFunction() + " is not a function"));
 			} catch (WrongTypeException e) {
 				throw new FunctionCallException(e);
 			}
-			AggregateFactory aggregateFactory = AGGREGATES.get(metric.getAggregate());
+		}
+
+		private AggregateFactory getAggregateFactory(Metric metric)
+				throws FunctionCallException {
+			AggregateFactory aggregateFactory = MetricFunctions.getAggregateFactory(
+					metric.getAggregate());
 			if (aggregateFactory == null) {
 				throw new FunctionCallException("Unknown aggregate " + metric.getAggregate());
 			}
-			Aggregate aggregate = aggregateFactory.newInstance();
-			if (pathStatus.getPathDetails().isEmpty()) {
-				return metric.getDefaultValue();
-			}
-			for (PathDetail pathDetail : pathStatus.getPathDetails()) {
-				aggregate.put(((Number) function.invoke(Lists.newArrayList(metric, pathDetail),
-						context)).doubleValue());
-			}
-			return aggregate.get();
+			return aggregateFactory;
 		}
 	}
 
@@ -221,6 +658,83 @@ public class MetricFunctions {
 		}
 	}
 
+	/**
+	 * Metric function on history of another metric of the same path
+	 *
+	 * The other metric is named by function of metric, such as size or count. Its values
+	 * are recorded as metrics are computed, so history includes its value of the current run
+	 * if it is computed first, as built-in metrics are.
+	 */
+	static abstract class HistoryFunction extends MetricFunction {
+		@Override
+		public double invoke(Metric metric, PathStatus pathStatus, Context context)
+				throws FunctionCallException {
+			MetricHistory metricHistory = context.getEnv().getMetricHistory();
+			if (metricHistory == null) {
+				throw new FunctionCallException("Metric history not enabled");
+			}
+			if (metric.getFunction() == null) {
+				throw new FunctionCallException("Function must name metric to get history of");
+			}
+			MetricId metricId = MetricId.of(metric.getFunction(), pathStatus);
+			try {
+				return invokeOnHistory(metricHistory.getPoints(metricId), context);
+			} catch (IOException e) {
+				throw new FunctionCallException("Cannot read history of " + metricId + ": " +
+						e.getMessage());
+			}
+		}
+
+		/**
+		 * Invokes on history of metric
+		 *
+		 * @param points values of metric, oldest first
+		 * @param context context
+		 * @return metric value
+		 */
+		protected abstract double invokeOnHistory(List<MetricHistory.Point> points,
+				Context context);
+	}
+
+	/**
+	 * Computes rate of change of another metric per minute over its history
+	 *
+	 * Rate is NaN until history has two values.
+	 */
+	public static class GrowthRate extends HistoryFunction {
+		@Override
+		protected double invokeOnHistory(List<MetricHistory.Point> points, Context context) {
+			if (points.size() < 2) {
+				return Double.NaN;
+			}
+			MetricHistory.Point first = points.get(0);
+			MetricHistory.Point last = points.get(points.size() - 1);
+			return (last.getValue() - first.getValue()) * 60000 /
+					(last.getTime() - first.getTime());
+		}
+	}
+
+	/**
+	 * Computes time in milliseconds since another metric last changed
+	 *
+	 * If metric never changed in its history, time is since its oldest value. Time is NaN if
+	 * there is no history.
+	 */
+	public static class StalledFor extends HistoryFunction {
+		@Override
+		protected double invokeOnHistory(List<MetricHistory.Point> points, Context context) {
+			if (points.isEmpty()) {
+				return Double.NaN;
+			}
+			int i = points.size() - 1;
+			double value = points.get(i).getValue();
+			while (i > 0 && points.get(i - 1).getValue() == value) {
+				i--;
+			}
+			return context.getGlobalInstanceTime() - points.get(i).getTime();
+		}
+	}
+
 	/**
 	 * Path detail function
 	 */
@@ -271,4 +785,158 @@ public class MetricFunctions {
 			return pathDetail.getLength();
 		}
 	}
+
+	/**
+	 * Path detail function that summarizes all descendants of a directory path
+	 *
+	 * Values of files are computed from the path detail alone.
+	 */
+	static abstract class RecursivePathDetailFunction extends PathDetailFunction {
+		@Override
+		public double invoke(Metric metric, PathDetail pathDetail, Context context)
+				throws FunctionCallException {
+			if (!pathDetail.isDirectory()) {
+				return invokeOnFile(pathDetail, context);
+			}
+			try {
+				return invokeOnDirectory(pathDetail, new Path(pathDetail.getPathValue()),
+						context);
+			} catch (IOException e) {
+				throw new FunctionCallException("Cannot summarize " + pathDetail.getPathValue()
+						+ ": " + e.getMessage());
+			}
+		}
+
+		protected abstract double invokeOnFile(PathDetail pathDetail, Context context)
+				throws FunctionCallException;
+
+		protected abstract double invokeOnDirectory(PathDetail pathDetail, Path path,
+				Context context) throws IOException, FunctionCallException;
+	}
+
+	/**
+	 * Path detail function that summarizes a directory by walking it
+	 *
+	 * Subdirectories near the top of the tree are listed in parallel on the executor of the
+	 * environment. Walking only needs listings, so it works on any file system and spreads
+	 * load over many small calls, unlike a content summary.
+	 */
+	static abstract class TreeWalkFunction extends RecursivePathDetailFunction {
+		@Override
+		protected double invokeOnDirectory(PathDetail pathDetail, Path path, Context context)
+				throws IOException, FunctionCallException {
+			FileStatusCache fileStatusCache = context.getFileStatusCache();
+			TreeSummary treeSummary = fileStatusCache != null ?
+					fileStatusCache.getTreeSummary(path, context.getEnv().getExecutorService()) :
+					new TreeWalker(context.getEnv().getFileSystem(),
+							context.getEnv().getExecutorService()).walk(path);
+			return invoke(pathDetail, treeSummary, context);
+		}
+
+		protected abstract double invoke(PathDetail pathDetail, TreeSummary treeSummary,
+				Context context) throws FunctionCallException;
+	}
+
+	/**
+	 * Path detail function that summarizes a directory by content summary of file system
+	 *
+	 * A content summary is one call answered by the name node, which is cheaper than walking
+	 * a large tree but doesn't give modification times of descendants.
+	 */
+	static abstract class ContentSummaryFunction extends RecursivePathDetailFunction {
+		@Override
+		protected double invokeOnDirectory(PathDetail pathDetail, Path path, Context context)
+				throws IOException, FunctionCallException {
+			FileStatusCache fileStatusCache = context.getFileStatusCache();
+			ContentSummary contentSummary = fileStatusCache != null ?
+					fileStatusCache.getContentSummary(path) :
+					context.getEnv().getFileSystem().getContentSummary(path);
+			return invoke(contentSummary);
+		}
+
+		protected abstract double invoke(ContentSummary contentSummary);
+	}
+
+	/**
+	 * Computes total size of files under a path by walking it
+	 */
+	public static class RecursiveSize extends TreeWalkFunction {
+		@Override
+		protected double invokeOnFile(PathDetail pathDetail, Context context) {
+			return pathDetail.getLength();
+		}
+
+		@Override
+		protected double invoke(PathDetail pathDetail, TreeSummary treeSummary,
+				Context context) {
+			return treeSummary.getLength();
+		}
+	}
+
+	/**
+	 * Computes number of files under a path by walking it
+	 */
+	public static class RecursiveFileCount extends TreeWalkFunction {
+		@Override
+		protected double invokeOnFile(PathDetail pathDetail, Context context) {
+			return 1;
+		}
+
+		@Override
+		protected double invoke(PathDetail pathDetail, TreeSummary treeSummary,
+				Context context) {
+			return treeSummary.getFileCount();
+		}
+	}
+
+	/**
+	 * Computes age of least recently modified path under a path by walking it
+	 *
+	 * An empty directory has its own age.
+	 */
+	public static class MaxDescendantAge extends TreeWalkFunction {
+		@Override
+		protected double invokeOnFile(PathDetail pathDetail, Context context) {
+			return context.getGlobalInstanceTime() - pathDetail.getLastModifiedTime();
+		}
+
+		@Override
+		protected double invoke(PathDetail pathDetail, TreeSummary treeSummary,
+				Context context) {
+			long lastModifiedTime = treeSummary.getFileCount() +
+					treeSummary.getDirectoryCount() > 0 ?
+					treeSummary.getMinModificationTime() : pathDetail.getLastModifiedTime();
+			return context.getGlobalInstanceTime() - lastModifiedTime;
+		}
+	}
+
+	/**
+	 * Computes total size of files under a path by content summary
+	 */
+	public static class ContentSummarySize extends ContentSummaryFunction {
+		@Override
+		protected double invokeOnFile(PathDetail pathDetail, Context context) {
+			return pathDetail.getLength();
+		}
+
+		@Override
+		protected double invoke(ContentSummary contentSummary) {
+			return contentSummary.getLength();
+		}
+	}
+
+	/**
+	 * Computes number of files under a path by content summary
+	 */
+	public static class ContentSummaryFileCount extends ContentSummaryFunction {
+		@Override
+		protected double invokeOnFile(PathDetail pathDetail, Context context) {
+			return 1;
+		}
+
+		@Override
+		protected double invoke(ContentSummary contentSummary) {
+			return contentSummary.getFileCount();
+		}
+	}
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.util;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Quantile sketch
+ *
+ * Estimates quantiles of a stream of values without keeping the values. Values are counted
+ * in buckets whose bounds grow geometrically, so that any quantile is estimated within a
+ * fixed relative error of a value of the stream. Sketches with the same accuracy can be
+ * merged, giving the sketch of all values put into either of them.
+ *
+ * Memory is bounded by the maximum number of buckets. If values span more buckets than
+ * that, the buckets of values closest to zero are collapsed into one, which only affects
+ * accuracy of the lowest quantiles.
+ *
+ * @author llo
+ */
+public class QuantileSketch {
+
+	public final static double DEFAULT_RELATIVE_ACCURACY = 0.01;
+	public final static int DEFAULT_MAX_BUCKETS = 2048;
+
+	private final double relativeAccuracy;
+	private final double gamma;
+	private final double logGamma;
+	private final Store positive;
+	private final Store negative;
+	private long zeroCount = 0;
+	private long count = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Constructor
+	 *
+	 * Creates sketch with default accuracy and maximum number of buckets
+	 */
+	public QuantileSketch() {
+		this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BUCKETS);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param relativeAccuracy maximum relative error of estimated quantiles
+	 * @param maxBuckets maximum number of buckets for each of positive and negative values
+	 */
+	public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+		Preconditions.checkArgument(relativeAccuracy > 0 && relativeAccuracy < 1,
+				"Relative accuracy must be between 0 and 1");
+		Preconditions.checkArgument(maxBuckets > 0, "Maximum number of buckets must be positive");
+		this.relativeAccuracy = relativeAccuracy;
+		this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		this.logGamma = Math.log(gamma);
+		this.positive = new Store(maxBuckets);
+		this.negative = new Store(maxBuckets);
+	}
+
+	/**
+	 * Adds value to sketch
+	 *
+	 * @param value finite value
+	 */
+	public void add(double value) {
+		Preconditions.checkArgument(Double.isFinite(value), "Value must be finite");
+		if (value > 0) {
+			positive.add(index(value), 1);
+		} else if (value < 0) {
+			negative.add(index(-value), 1);
+		} else {
+			zeroCount++;
+		}
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Merges another sketch into this sketch
+	 *
+	 * @param other sketch with same accuracy
+	 */
+	public void merge(QuantileSketch other) {
+		Preconditions.checkArgument(relativeAccuracy == other.relativeAccuracy,
+				"Sketches of different accuracy cannot be merged");
+		positive.merge(other.positive);
+		negative.merge(other.negative);
+		zeroCount += other.zeroCount;
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Estimates quantile
+	 *
+	 * @param quantile quantile between 0 and 1
+	 * @return estimated value at quantile, or NaN if sketch is empty
+	 */
+	public double getQuantile(double quantile) {
+		Preconditions.checkArgument(quantile >= 0 && quantile <= 1,
+				"Quantile must be between 0 and 1");
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		// find bucket holding value of given rank, from most negative to most positive value
+		long rank = (long) (quantile * (count - 1));
+		double value;
+		if (rank < negative.total) {
+			value = -value(negative.indexOfRank(negative.total - 1 - rank));
+		} else if (rank < negative.total + zeroCount) {
+			value = 0;
+		} else {
+			value = value(positive.indexOfRank(rank - negative.total - zeroCount));
+		}
+		return Math.max(min, Math.min(max, value));
+	}
+
+	/**
+	 * Gets number of values added
+	 *
+	 * @return count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets relative accuracy of estimates
+	 *
+	 * @return relative accuracy
+	 */
+	public double getRelativeAccuracy() {
+		return relativeAccuracy;
+	}
+
+	private int index(double magnitude) {
+		return (int) Math.ceil(Math.log(magnitude) / logGamma);
+	}
+
+	private double value(int index) {
+		return 2 * Math.pow(gamma, index) / (gamma + 1);
+	}
+
+	/**
+	 * Counts of a contiguous range of bucket indexes
+	 */
+	private static class Store {
+
+		private final static int INITIAL_BUCKETS = 64;
+
+		private final int maxBuckets;
+		private long[] counts = new long[0];
+		private int offset = 0;
+		private int minIndex = Integer.MAX_VALUE;
+		private int maxIndex = Integer.MIN_VALUE;
+		private long total = 0;
+
+		Store(int maxBuckets) {
+			this.maxBuckets = maxBuckets;
+		}
+
+		void add(int index, long count) {
+			if (index < offset && counts.length == maxBuckets &&
+					offset == maxIndex - maxBuckets + 1) {
+				// lowest bucket already holds collapsed values
+				index = offset;
+			} else if (index < offset || index >= offset + counts.length) {
+				index = extend(index);
+			}
+			counts[index - offset] += count;
+			minIndex = Math.min(minIndex, index);
+			maxIndex = Math.max(maxIndex, index);
+			total += count;
+		}
+
+		void merge(Store other) {
+			for (int index = other.minIndex; index <= other.maxIndex; index++) {
+				long count = other.counts[index - other.offset];
+				if (count > 0) {
+					add(index, count);
+				}
+			}
+		}
+
+		int indexOfRank(long rank) {
+			long seen = 0;
+			for (int index = minIndex; index < maxIndex; index++) {
+				seen += counts[index - offset];
+				if (seen > rank) {
+					return index;
+				}
+			}
+			return maxIndex;
+		}
+
+		/**
+		 * Makes room for index, collapsing lowest buckets if range would exceed maximum
+		 *
+		 * @param index index to make room for
+		 * @return index to count value in
+		 */
+		private int extend(int index) {
+			int low = total == 0 ? index : Math.min(minIndex, index);
+			int high = total == 0 ? index : Math.max(maxIndex, index);
+			if ((long) high - low + 1 > maxBuckets) {
+				low = high - maxBuckets + 1;
+			}
+			int length = (int) Math.min(maxBuckets, Math.max((long) high - low + 1,
+					Math.max(INITIAL_BUCKETS, 2L * counts.length)));
+			int newOffset = (int) Math.max((long) low - (length - (high - low + 1)) / 2,
+					(long) high - length + 1);
+			long[] newCounts = new long[length];
+			if (total > 0) {
+				long collapsed = 0;
+				for (int i = minIndex; i <= maxIndex; i++) {
+					long count = counts[i - offset];
+					if (i < newOffset) {
+						collapsed += count;
+					} else {
+						newCounts[i - newOffset] = count;
+					}
+				}
+				if (collapsed > 0) {
+					newCounts[0] += collapsed;
+					minIndex = newOffset;
+				}
+			}
+			counts = newCounts;
+			offset = newOffset;
+			return Math.max(index, newOffset);
+		}
+	}
+
+}
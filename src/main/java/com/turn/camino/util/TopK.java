@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Top K items
+ *
+ * Keeps the K items with the largest keys seen so far in a bounded min-heap, so that the
+ * cost of offering an item that doesn't make the top K is one comparison. Top K of
+ * disjoint parts of items can be merged into top K of all the items.
+ *
+ * @param <T> type of item
+ * @author llo
+ */
+public class TopK<T> {
+
+	private final int k;
+	private final PriorityQueue<Entry<T>> heap;
+
+	/**
+	 * Constructor
+	 *
+	 * @param k maximum number of items to keep
+	 */
+	public TopK(int k) {
+		Preconditions.checkArgument(k > 0, "K must be positive");
+		this.k = k;
+		this.heap = new PriorityQueue<>(k);
+	}
+
+	/**
+	 * Offers an item
+	 *
+	 * @param key key to rank item by
+	 * @param item item
+	 */
+	public void offer(double key, T item) {
+		if (heap.size() < k) {
+			heap.add(new Entry<>(key, item));
+		} else if (key > heap.peek().key) {
+			heap.poll();
+			heap.add(new Entry<>(key, item));
+		}
+	}
+
+	/**
+	 * Merges items of another top K into this top K
+	 *
+	 * @param other other top K
+	 */
+	public void merge(TopK<T> other) {
+		for (Entry<T> entry : other.heap) {
+			offer(entry.key, entry.item);
+		}
+	}
+
+	/**
+	 * Gets items
+	 *
+	 * @return immutable list of items in descending order of key
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> getItems() {
+		Entry<T>[] entries = heap.toArray(new Entry[heap.size()]);
+		Arrays.sort(entries);
+		ImmutableList.Builder<T> builder = ImmutableList.builder();
+		for (int i = entries.length - 1; i >= 0; i--) {
+			builder.add(entries[i].item);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Gets maximum number of items
+	 *
+	 * @return K
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Item with its key
+	 */
+	private static class Entry<T> implements Comparable<Entry<T>> {
+
+		private final double key;
+		private final T item;
+
+		Entry(double key, T item) {
+			this.key = key;
+			this.item = item;
+		}
+
+		@Override
+		public int compareTo(Entry<T> other) {
+			return Double.compare(key, other.key);
+		}
+	}
+
+}
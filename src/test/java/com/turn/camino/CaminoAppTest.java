@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.emit.MetricEmitter;
+import com.turn.camino.render.RenderException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for CaminoApp
+ *
+ * @author llo
+ */
+@Test
+public class CaminoAppTest {
+
+	/**
+	 * Test that a failed config does not keep later configs from being emitted
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testRunOnceFailedConfig() throws Exception {
+		final PathMetrics pathMetrics = new PathMetrics(null, null, null);
+		RenderException first = new RenderException("first");
+		IllegalStateException second = new IllegalStateException("second");
+		Camino failed1 = mock(Camino.class);
+		doThrow(first).when(failed1).getPathMetrics(any(Consumer.class));
+		Camino failed2 = mock(Camino.class);
+		doThrow(second).when(failed2).getPathMetrics(any(Consumer.class));
+		Camino succeeded = mock(Camino.class);
+		doAnswer(invocation -> {
+			((Consumer<PathMetrics>) invocation.getArguments()[0]).accept(pathMetrics);
+			return null;
+		}).when(succeeded).getPathMetrics(any(Consumer.class));
+		MetricEmitter emitter = mock(MetricEmitter.class);
+
+		try {
+			new CaminoApp(new String[0]).runOnce(ImmutableList.of(failed1, succeeded, failed2),
+					emitter);
+			fail("Expected error of first failed config");
+		} catch (RenderException e) {
+			assertSame(e, first);
+			assertEquals(e.getSuppressed().length, 1);
+			assertSame(e.getSuppressed()[0], second);
+		}
+		verify(emitter).emit(pathMetrics);
+		verify(emitter).flush();
+	}
+
+	/**
+	 * Test that failure to emit stops the run
+	 *
+	 * @throws Exception
+	 */
+	@Test(expectedExceptions = IOException.class)
+	@SuppressWarnings("unchecked")
+	public void testRunOnceEmitError() throws Exception {
+		Camino camino = mock(Camino.class);
+		doAnswer(invocation -> {
+			((Consumer<PathMetrics>) invocation.getArguments()[0]).accept(
+					new PathMetrics(null, null, null));
+			return null;
+		}).when(camino).getPathMetrics(any(Consumer.class));
+		MetricEmitter emitter = mock(MetricEmitter.class);
+		doThrow(new IOException()).when(emitter).emit(any(PathMetrics.class));
+		new CaminoApp(new String[0]).runOnce(ImmutableList.of(camino, camino), emitter);
+	}
+
+	/**
+	 * Test that closing output written to standard output does not close it
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testOpenOutputStandardOutput() throws IOException {
+		final boolean[] closed = { false };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream() {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(bytes, false, "UTF-8"));
+		try {
+			Writer writer = new CaminoApp(new String[0]).openOutput();
+			writer.write("foo 1.0 0\n");
+			writer.close();
+			System.out.print("bar");
+			System.out.flush();
+		} finally {
+			System.setOut(out);
+		}
+		assertEquals(bytes.toString("UTF-8"), "foo 1.0 0\nbar");
+		assertFalse(closed[0]);
+	}
+
+}
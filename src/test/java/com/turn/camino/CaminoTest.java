@@ -21,9 +21,11 @@ import com.turn.camino.render.*;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Predicate;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.testng.annotations.AfterClass;
@@ -275,6 +277,67 @@ public class CaminoTest {
 				NULL_TAGS, "<%=t%>"), renderer, context, fileSystem);
 	}
 
+	/**
+	 * Test that streamed path details stop at maximum and are marked truncated
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testStreamPath() throws IOException {
+		final List<FileStatus> fss = Lists.newArrayList();
+		for (int i = 0; i < 3; i++) {
+			fss.add(new FileStatus(1000, false, 3, 1000, System.currentTimeMillis(),
+					new org.apache.hadoop.fs.Path("/t/" + i)));
+		}
+		GlobPlanner globPlanner = mock(GlobPlanner.class);
+		when(globPlanner.streamStatus(eq("/t/*"), any())).thenAnswer(invocation -> {
+			Predicate<FileStatus> consumer = invocation.getArgument(1);
+			for (FileStatus fs : fss) {
+				if (!consumer.test(fs)) {
+					return false;
+				}
+			}
+			return true;
+		});
+
+		PathDetailList pathDetails = camino.streamPath("/t/*", globPlanner, 2);
+		assertEquals(pathDetails.size(), 2);
+		assertTrue(pathDetails.isTruncated());
+
+		pathDetails = camino.streamPath("/t/*", globPlanner, 3);
+		assertEquals(pathDetails.size(), 3);
+		assertFalse(pathDetails.isTruncated());
+	}
+
+	/**
+	 * Test that listing matched by last component is shared by paths of same planner
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMaterializePathWithPlanner() throws IOException {
+		FileSystem fileSystem = mock(FileSystem.class);
+		org.apache.hadoop.fs.Path dir = new org.apache.hadoop.fs.Path("/t");
+		org.apache.hadoop.fs.Path file = new org.apache.hadoop.fs.Path("/t/0");
+		FileStatus fileStatus = new FileStatus(1000, false, 3, 1000, 1409302856296L, file);
+		when(fileSystem.getFileStatus(dir)).thenReturn(new FileStatus(0, true, 3, 1000,
+				1409302856296L, dir));
+		when(fileSystem.getFileStatus(file)).thenReturn(fileStatus);
+		when(fileSystem.listStatus(dir)).thenReturn(new FileStatus[] { fileStatus });
+		GlobPlanner globPlanner = new GlobPlanner(fileSystem);
+
+		List<PathDetail> pathDetails = camino.materializePath("/t/*", globPlanner);
+		assertEquals(pathDetails.size(), 1);
+		assertEquals(pathDetails.get(0).getPathValue(), "/t/0");
+		pathDetails = camino.materializePath("/t/0*", globPlanner);
+		assertEquals(pathDetails.size(), 1);
+		assertEquals(pathDetails.get(0).getPathValue(), "/t/0");
+
+		// directory was listed once, and status of listed file was kept
+		verify(fileSystem).listStatus(dir);
+		verify(fileSystem, never()).getFileStatus(file);
+	}
+
 	/**
 	 * Test compute a metric
 	 *
@@ -313,6 +376,80 @@ public class CaminoTest {
 		assertEquals(metricDatum.getValue(), metricValue, EPSILON);
 	}
 
+	/**
+	 * Test that metrics computed from summary match metrics computed by aggregate functions
+	 *
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 */
+	@Test
+	public void testComputeSummarizedMetric() throws InvalidNameException, WrongTypeException,
+			RenderException {
+
+		// set up wildcard path status and real context
+		long now = System.currentTimeMillis();
+		PathStatus pathStatus = new PathStatus("myPath", "/a/*", new Path("myPath", "/a/*"),
+				ImmutableList.of(new PathDetail("/a/1", false, 1000, now - 5000),
+						new PathDetail("/a/2", false, 300, now - 1000),
+						new PathDetail("/a/3", true, 0, now - 9000)),
+				new TimeValue(TimeZone.getDefault(), now));
+		Renderer renderer = mock(Renderer.class);
+		Context context = new EnvBuilder().withFileSystem(mock(FileSystem.class)).build()
+				.newContext();
+		PathDetailSummary summary = new PathDetailSummary(pathStatus.getPathDetails(),
+				context.getGlobalInstanceTime());
+
+		List<Metric> metrics = camino.getDefaultMetrics(pathStatus);
+		assertEquals(metrics.size(), 11);
+		for (Metric metric : metrics) {
+			if (metric.getName().equals("creationDelay")) {
+				assertFalse(camino.isSummarized(metric, context));
+				continue;
+			}
+			assertTrue(camino.isSummarized(metric, context));
+			assertEquals(camino.computeMetric(metric, pathStatus, summary, renderer, context)
+					.getValue(), camino.computeMetric(metric, pathStatus, renderer, context)
+					.getValue(), EPSILON, metric.getName());
+		}
+
+		// replaced functions are not summarized
+		Context childContext = context.createChild();
+		childContext.setProperty("age", mock(Function.class));
+		assertFalse(camino.isSummarized(metrics.get(0), childContext));
+	}
+
+	/**
+	 * Test that history of a path status without rendered tags is found by tags of its path
+	 *
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	@Test
+	public void testComputeHistoryMetricWithoutRenderedTags() throws InvalidNameException,
+			WrongTypeException, RenderException, IOException {
+		MetricHistory metricHistory = new MetricHistory(Files.createTempDir(), 10);
+		Env env = new EnvBuilder().withFileSystem(mock(FileSystem.class))
+				.withMetricHistory(metricHistory).build();
+		Context context = env.newContext();
+		long now = context.getGlobalInstanceTime();
+		PathStatus pathStatus = new PathStatus("p", "/data/*", new Path("p", "/data/*", null,
+				ImmutableMap.of("pk", "x"), null), ImmutableList.<PathDetail>of(), null);
+		Metric size = new Metric("size", "size", "sum", null, 0);
+		Metric growthRate = new Metric("growth", "size", null, "growthRate", 0);
+
+		// size grew by 600 over 5 minutes
+		MetricId sizeId = camino.computeMetric(size, pathStatus, env.getRenderer(), context)
+				.getMetricId();
+		assertEquals(sizeId.getTags(), ImmutableList.of(new Tag("pk", "x")));
+		metricHistory.append(sizeId, now - 300000, 1000);
+		metricHistory.append(sizeId, now, 1600);
+		assertEquals(camino.computeMetric(growthRate, pathStatus, env.getRenderer(), context)
+				.getValue(), 120, EPSILON);
+	}
+
 	/**
 	 * Test getMetricId()
 	 */
@@ -345,6 +482,39 @@ public class CaminoTest {
 		assertEquals(metricId.getFullName(), "myPath.age");
 	}
 
+	/**
+	 * Test that metric IDs of a path share tags rendered with path
+	 */
+	@Test
+	public void testGetMetricIdRenderedTags() throws WrongTypeException, RenderException,
+			InvalidNameException, IOException {
+
+		Renderer renderer = mock(Renderer.class);
+		Context context = mock(Context.class);
+		when(renderer.render(eq("a"), any(Context.class))).thenReturn("a");
+		when(renderer.render(eq("b"), any(Context.class))).thenReturn("b");
+		when(renderer.render(eq("pk"), any(Context.class))).thenReturn("pk");
+		when(renderer.render(eq("<%=pkv%>"), any(Context.class))).thenReturn("1234");
+		FileSystem fileSystem = mock(FileSystem.class);
+		PathStatus pathStatus = camino.renderAndMaterializePath(new Path("a", "b", null,
+				ImmutableMap.of("pk", "<%=pkv%>"), null), renderer, context, fileSystem);
+		assertEquals(pathStatus.getTags(), ImmutableList.of(new Tag("pk", "1234")));
+		verify(renderer, times(1)).render(eq("<%=pkv%>"), any(Context.class));
+
+		// metric IDs reuse rendered tags without rendering them again
+		MetricId ageId = camino.getMetricId(new Metric(null, "age", "max", null, 0),
+				pathStatus, renderer, context);
+		MetricId sizeId = camino.getMetricId(new Metric(null, "size", "sum", null, 0),
+				pathStatus, renderer, context);
+		verify(renderer, times(1)).render(eq("<%=pkv%>"), any(Context.class));
+		assertSame(ageId.getTags(), pathStatus.getTags());
+		assertSame(sizeId.getTags(), pathStatus.getTags());
+
+		// metric IDs of the same series are interned
+		assertSame(camino.getMetricId(new Metric(null, "age", "max", null, 0), pathStatus,
+				renderer, context), ageId);
+	}
+
 	/**
 	 * Test processPathMetrics
 	 *
@@ -801,6 +971,265 @@ public class CaminoTest {
 		assertEquals(pathMetrics.get(0).getMetricData().get(2).getValue(), countValue);
 	}
 
+	/**
+	 * Test streaming path metrics to a consumer
+	 *
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	@Test
+	public void testGetPathMetricsStreaming() throws InvalidNameException, WrongTypeException,
+			RenderException, IOException {
+
+		// test data
+		long now = System.currentTimeMillis();
+		double ageValue = 12340000;
+		double sizeValue = 10000;
+		double countValue = 5;
+		Config config = ConfigBuilder.create().addPaths(of(new Path("path", "value"))).buildLocal();
+
+		// mock environment
+		Env env = mock(Env.class);
+		FileSystem fileSystem = mockFileSystem(env);
+		org.apache.hadoop.fs.Path path1 = new org.apache.hadoop.fs.Path("/app/data");
+		FileStatus[] fss = new FileStatus[] {
+				new FileStatus(15000, false, 3, 64*1024*1024, now - 10000, path1)};
+		when(fileSystem.globStatus(any(org.apache.hadoop.fs.Path.class)))
+				.thenReturn(fss);
+		Context context = mockGlobalContext(env);
+		List<Context> childContexts = mockChildContexts(1, context, context, env);
+		mockChildContexts(3, childContexts.get(0), context, env);
+
+		// mock renderer
+		Renderer renderer = mock(Renderer.class);
+		when(renderer.render(eq("path"), any(Context.class))).thenReturn("path");
+		when(renderer.render(eq("value"), any(Context.class))).thenReturn("value");
+		mockMetricFunction(context, "age", ageValue);
+		mockMetricFunction(context, "size", sizeValue);
+		mockMetricFunction(context, "count", countValue);
+		when(env.getRenderer()).thenReturn(renderer);
+		when(env.getExecutorService()).thenReturn(executorService);
+
+		// consume metrics as paths finish
+		List<PathMetrics> pathMetrics = Lists.newArrayList();
+		Camino camino = new Camino(env, config);
+		camino.getPathMetrics(pathMetrics::add);
+		assertEquals(pathMetrics.size(), 1);
+		assertEquals(pathMetrics.get(0).getPathStatus().getName(), "path");
+		assertEquals(pathMetrics.get(0).getMetricData().size(), 3);
+		assertEquals(pathMetrics.get(0).getMetricData().get(0).getValue(), ageValue);
+		assertEquals(pathMetrics.get(0).getMetricData().get(1).getValue(), sizeValue);
+		assertEquals(pathMetrics.get(0).getMetricData().get(2).getValue(), countValue);
+	}
+
+	/**
+	 * Test that metrics of finished paths are streamed while a repeat waits for a property
+	 *
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	@Test
+	public void testGetPathMetricsStreamingBeforeRepeat() throws InvalidNameException,
+			WrongTypeException, RenderException, IOException {
+
+		// property of repeat list renders only after first path is consumed
+		Config config = ConfigBuilder.create()
+				.addProperties(of(new Property("dirs", "dirsValue")))
+				.addPaths(of(new Path("big_data", "/app/big_data")))
+				.addRepeats(of(newRepeat("nom", "<%=dirs%>", new Path("do_nom", "/t/nom"))))
+				.buildLocal();
+		final CountDownLatch consumed = new CountDownLatch(1);
+		final boolean[] streamed = new boolean[1];
+
+		// mock environment
+		Env env = mock(Env.class);
+		FileSystem fileSystem = mockFileSystem(env);
+		FileStatus[] fss = new FileStatus[] {new FileStatus(15000, false, 3, 64*1024*1024,
+				System.currentTimeMillis(), new org.apache.hadoop.fs.Path("/app/data"))};
+		when(fileSystem.globStatus(any(org.apache.hadoop.fs.Path.class))).thenReturn(fss);
+		Context context = mockGlobalContext(env);
+		mockMetricFunction(context, "age", 1);
+		mockMetricFunction(context, "size", 2);
+		mockMetricFunction(context, "count", 3);
+		Context childContext = mockChildContext(context, context, env);
+		mockMetricFunction(childContext, "age", 1);
+		mockMetricFunction(childContext, "size", 2);
+		mockMetricFunction(childContext, "count", 3);
+		when(env.getErrorHandler()).thenReturn(mock(ErrorHandler.class));
+
+		// mock renderer
+		Renderer renderer = mock(Renderer.class);
+		when(renderer.render(eq("dirs"), any(Context.class))).thenReturn("dirs");
+		when(renderer.render(eq("dirsValue"), any(Context.class))).thenAnswer(invocation -> {
+			streamed[0] = consumed.await(10, TimeUnit.SECONDS);
+			return of("a");
+		});
+		when(renderer.render(eq("big_data"), any(Context.class))).thenReturn("big_data");
+		when(renderer.render(eq("/app/big_data"), any(Context.class))).thenReturn("/app/big_data");
+		when(renderer.render(eq("<%=dirs%>"), any(Context.class))).thenReturn(of("a"));
+		when(renderer.render(eq("do_nom"), any(Context.class))).thenReturn("do_nom");
+		when(renderer.render(eq("/t/nom"), any(Context.class))).thenReturn("/t/nom");
+		when(env.getRenderer()).thenReturn(renderer);
+
+		// render property and compute path at the same time
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		when(env.getExecutorService()).thenReturn(executorService);
+		List<String> names = Lists.newArrayList();
+		try {
+			new Camino(env, config).getPathMetrics(pathMetrics -> {
+				names.add(pathMetrics.getPathStatus().getName());
+				consumed.countDown();
+			});
+		} finally {
+			executorService.shutdown();
+		}
+		assertTrue(streamed[0]);
+		assertEquals(names, of("big_data", "do_nom"));
+	}
+
+	/**
+	 * Test that repeat elements past series budget of config are aggregated into overflow
+	 * series
+	 *
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 */
+	@Test
+	public void testGetPathMetricsRepeatOverflow() throws InvalidNameException,
+			WrongTypeException, RenderException, IOException {
+
+		long now = System.currentTimeMillis();
+		double ageValue = 12340000;
+		double sizeValue = 10000;
+		double countValue = 5;
+
+		// build config with budget of one series for all repeats
+		Repeat repeat = newRepeat("nom", "<%=list('foo','bar','baz')%>",
+				new Path("do_<%=nom%>", "/t/<%=nom%>"));
+		Config config = ConfigBuilder.create().addPaths(of(new Path("big_data", "/app/big_data")))
+				.addRepeats(of(repeat)).setMaxSeries(1).buildLocal();
+
+		// mock environment
+		Env env = mock(Env.class);
+		FileSystem fileSystem = mockFileSystem(env);
+		FileStatus[] fss = new FileStatus[] {new FileStatus(15000, false, 3, 64*1024*1024,
+				now - 10000, new org.apache.hadoop.fs.Path("/app/data"))};
+		when(fileSystem.globStatus(any(org.apache.hadoop.fs.Path.class))).thenReturn(fss);
+		ErrorHandler errorHandler = mock(ErrorHandler.class);
+		when(env.getErrorHandler()).thenReturn(errorHandler);
+		Context context = mockGlobalContext(env);
+		mockMetricFunction(context, "age", ageValue);
+		mockMetricFunction(context, "size", sizeValue);
+		mockMetricFunction(context, "count", countValue);
+		for (Context childContext : mockChildContexts(3, context, context, env)) {
+			mockMetricFunction(childContext, "age", ageValue);
+			mockMetricFunction(childContext, "size", sizeValue);
+			mockMetricFunction(childContext, "count", countValue);
+		}
+
+		// mock renderer
+		Renderer renderer = mock(Renderer.class);
+		when(renderer.render(eq("big_data"), any(Context.class))).thenReturn("big_data");
+		when(renderer.render(eq("/app/big_data"), any(Context.class))).thenReturn("/app/big_data");
+		when(renderer.render(eq("<%=list('foo','bar','baz')%>"), any(Context.class)))
+				.thenReturn(of("foo", "bar", "baz"));
+		when(renderer.render(eq("do_<%=nom%>"), any(Context.class)))
+				.thenReturn("do_foo", "do_bar", "do_baz");
+		when(renderer.render(eq("/t/<%=nom%>"), any(Context.class)))
+				.thenReturn("/t/foo", "/t/bar", "/t/baz");
+		when(env.getRenderer()).thenReturn(renderer);
+		when(env.getExecutorService()).thenReturn(executorService);
+
+		// call camino
+		List<PathMetrics> pathMetrics = new Camino(env, config).getPathMetrics();
+
+		// first element is reported, others are aggregated into overflow series
+		assertEquals(pathMetrics.size(), 3);
+		assertEquals(pathMetrics.get(0).getPathStatus().getName(), "big_data");
+		assertEquals(pathMetrics.get(1).getPathStatus().getName(), "do_foo");
+		PathMetrics overflow = pathMetrics.get(2);
+		assertEquals(overflow.getPathStatus().getName(), "nom_overflow");
+		assertEquals(overflow.getMetricData().size(), 4);
+		assertEquals(overflow.getMetricData().get(0).getMetricId().getFullName(),
+				"nom_overflow.age");
+		assertEquals(overflow.getMetricData().get(0).getValue(), ageValue);
+		assertEquals(overflow.getMetricData().get(1).getMetricId().getFullName(),
+				"nom_overflow.size");
+		assertEquals(overflow.getMetricData().get(1).getValue(), 2 * sizeValue);
+		assertEquals(overflow.getMetricData().get(2).getMetricId().getFullName(),
+				"nom_overflow.count");
+		assertEquals(overflow.getMetricData().get(2).getValue(), 2 * countValue);
+		assertEquals(overflow.getMetricData().get(3).getMetricId().getName(),
+				RepeatOverflow.PATH_COUNT_METRIC);
+		assertEquals(overflow.getMetricData().get(3).getValue(), 2.0);
+
+		// verify overflow is reported
+		verify(errorHandler).onRepeatOverflow(repeat, "nom_overflow", 2);
+	}
+
+	/**
+	 * Test that nested repeats share series budget of enclosing repeat
+	 *
+	 * @throws InvalidNameException
+	 * @throws WrongTypeException
+	 * @throws RenderException
+	 * @throws IOException
+	 * @throws ExecutionException
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void testProcessRepeatBudget() throws InvalidNameException, WrongTypeException,
+			RenderException, IOException, ExecutionException, InterruptedException {
+
+		// outer repeat allows three of the four inner paths
+		Repeat innerRepeat = newRepeat("innerVar", "innerList", new Path("thePath",
+				"/das/auto"));
+		Repeat repeat = new Repeat("outerVar", "outerList", null, of(innerRepeat), 3);
+
+		// mock renderer
+		Renderer renderer = mock(Renderer.class);
+		when(renderer.render(eq("outerList"), any(Context.class))).thenReturn(Lists.
+				newArrayList("a", "b"));
+		when(renderer.render(eq("innerList"), any(Context.class))).thenReturn(Lists.
+				newArrayList("x", "y"));
+		when(renderer.render(eq("thePath"), any(Context.class))).thenReturn("thePath");
+		when(renderer.render(eq("/das/auto"), any(Context.class))).thenReturn("/das/auto");
+
+		// mock environment
+		Env env = mock(Env.class);
+		mockFileSystem(env);
+		ErrorHandler errorHandler = mock(ErrorHandler.class);
+		when(env.getErrorHandler()).thenReturn(errorHandler);
+		Context context = mockGlobalContext(env);
+		List<Context> repeatContexts = mockChildContexts(2, context, context, env);
+		mockChildContexts(2, repeatContexts.get(0), context, env);
+		mockChildContexts(2, repeatContexts.get(1), context, env);
+
+		// exercise processRepeat
+		List<Future<PathMetrics>> futures = Lists.newLinkedList();
+		camino.processRepeat(repeat, renderer, context, executorService, futures);
+
+		// last inner path is aggregated into overflow series of inner repeat, which follows
+		// futures of paths
+		assertEquals(futures.size(), 5);
+		assertNotNull(futures.get(2).get());
+		assertNull(futures.get(3).get());
+		PathMetrics overflow = futures.get(4).get();
+		assertEquals(overflow.getPathStatus().getName(), "innerVar_overflow");
+		MetricDatum pathCount = overflow.getMetricData().get(
+				overflow.getMetricData().size() - 1);
+		assertEquals(pathCount.getMetricId().getName(), RepeatOverflow.PATH_COUNT_METRIC);
+		assertEquals(pathCount.getValue(), 1.0);
+		verify(errorHandler).onRepeatOverflow(innerRepeat, "innerVar_overflow", 1);
+		verify(errorHandler, never()).onRepeatOverflow(eq(repeat), anyString(), anyInt());
+	}
+
 	/**
 	 * Test check identifier
 	 *
@@ -86,6 +86,38 @@ public class ContextImplTest {
 		assertNull(context.getProperty("bar", Long.class));
 	}
 
+	/**
+	 * Test that property set to null in child context shadows parent context
+	 *
+	 * @throws WrongTypeException
+	 */
+	@Test
+	public void testNullProperty() throws WrongTypeException {
+		Context context = new ContextImpl(env, null);
+		context.setProperty("foo", 456L);
+		Context child = context.createChild();
+		child.setProperty("foo", 789L);
+		child.setProperty("foo", null);
+		assertNull(child.getProperty("foo"));
+		assertNull(child.getProperty("foo", Long.class));
+		assertEquals(context.getProperty("foo"), 456L);
+		context.setProperty("foo", null);
+		assertNull(context.getProperty("foo"));
+	}
+
+	/**
+	 * Test that child contexts share file status cache of global context
+	 */
+	@Test
+	public void testFileStatusCache() {
+		Context context = new ContextImpl(env, null);
+		assertNotNull(context.getFileStatusCache());
+		assertSame(context.createChild().createChild().getFileStatusCache(),
+				context.getFileStatusCache());
+		assertNotSame(new ContextImpl(env, null).getFileStatusCache(),
+				context.getFileStatusCache());
+	}
+
 	/**
 	 * Test getting property in parent
 	 *
@@ -23,6 +23,7 @@ import org.testng.annotations.Test;
 import static org.mockito.Mockito.mock;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 /**
  * Unit test for EnvBuilder
@@ -76,6 +77,36 @@ public class EnvBuilderTest {
 		assertEquals(env.getErrorHandler(), errorHandler);
 	}
 
+	/**
+	 * Test expression cache size
+	 */
+	@Test
+	public void testWithExpressionCacheSize() {
+		Env env = new EnvBuilder().withFileSystem(mock(FileSystem.class))
+				.build();
+		assertNotNull(env.getExpressionCache());
+		assertEquals(env.getExpressionCache().getMaximumSize(),
+				EnvBuilder.DEFAULT_EXPRESSION_CACHE_SIZE);
+		env = new EnvBuilder().withFileSystem(mock(FileSystem.class))
+				.withExpressionCacheSize(50)
+				.build();
+		assertEquals(env.getExpressionCache().getMaximumSize(), 50);
+		env = new EnvBuilder().withFileSystem(mock(FileSystem.class))
+				.withExpressionCacheSize(0)
+				.build();
+		assertNull(env.getExpressionCache());
+	}
+
+	/**
+	 * Test negative expression cache size, throws exception
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testNegativeExpressionCacheSize() {
+		new EnvBuilder().withFileSystem(mock(FileSystem.class))
+				.withExpressionCacheSize(-1)
+				.build();
+	}
+
 	/**
 	 * Test not specifying any options, throws exception
 	 */
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for FileStatusCache
+ *
+ * @author llo
+ */
+@Test
+public class FileStatusCacheTest {
+
+	private final static Path DIR = new Path("/a/b");
+	private final static Path FILE = new Path("/a/b/1.dat");
+	private final static Path MISSING = new Path("/x/y");
+
+	private FileSystem fileSystem;
+	private FileStatusCache fileStatusCache;
+
+	/**
+	 * Set up file system with directory /a/b containing one file
+	 *
+	 * @throws IOException
+	 */
+	@BeforeMethod
+	public void setUp() throws IOException {
+		fileSystem = mock(FileSystem.class);
+		FileStatus dirStatus = new FileStatus(0L, true, 3, 100L, 1409302844187L, DIR);
+		FileStatus fileStatus = new FileStatus(1200000L, false, 3, 1000L, 1409302856296L, FILE);
+		when(fileSystem.getFileStatus(DIR)).thenReturn(dirStatus);
+		when(fileSystem.getFileStatus(FILE)).thenReturn(fileStatus);
+		when(fileSystem.getFileStatus(MISSING)).thenThrow(new FileNotFoundException());
+		when(fileSystem.listStatus(DIR)).thenReturn(new FileStatus[] { fileStatus });
+		fileStatusCache = new FileStatusCache(fileSystem);
+	}
+
+	/**
+	 * Test that status of a path is looked up once
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testGetFileStatus() throws IOException {
+		assertTrue(fileStatusCache.exists(DIR));
+		assertTrue(fileStatusCache.isDirectory(DIR));
+		assertTrue(fileStatusCache.getFileStatus(DIR).isDirectory());
+		verify(fileSystem, times(1)).getFileStatus(DIR);
+		verify(fileSystem, never()).exists(any(Path.class));
+		verify(fileSystem, never()).isDirectory(any(Path.class));
+		assertEquals(fileStatusCache.getMissCount(), 1);
+		assertEquals(fileStatusCache.getHitCount(), 2);
+		assertEquals(fileStatusCache.getHitRatio(), 2.0 / 3, 1e-6);
+	}
+
+	/**
+	 * Test that missing paths are remembered
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMissingPath() throws IOException {
+		assertFalse(fileStatusCache.exists(MISSING));
+		assertFalse(fileStatusCache.isDirectory(MISSING));
+		assertEquals(fileStatusCache.listStatus(MISSING).length, 0);
+		verify(fileSystem, times(1)).getFileStatus(MISSING);
+		verify(fileSystem, never()).listStatus(MISSING);
+	}
+
+	/**
+	 * Test that listing records status of children
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testListStatus() throws IOException {
+		assertEquals(fileStatusCache.listStatus(DIR).length, 1);
+		assertEquals(fileStatusCache.listStatus(DIR).length, 1);
+		verify(fileSystem, times(1)).listStatus(DIR);
+
+		// children are known from listing
+		assertFalse(fileStatusCache.isDirectory(FILE));
+		assertFalse(fileStatusCache.exists(new Path("/a/b/2.dat")));
+		verify(fileSystem, never()).getFileStatus(any(Path.class));
+
+		// file is not listed
+		assertEquals(fileStatusCache.listStatus(FILE).length, 0);
+		verify(fileSystem, never()).listStatus(FILE);
+	}
+
+	/**
+	 * Test that content summary and tree summary are computed once
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSummaries() throws IOException {
+		ContentSummary contentSummary = mock(ContentSummary.class);
+		when(fileSystem.getContentSummary(DIR)).thenReturn(contentSummary);
+		assertSame(fileStatusCache.getContentSummary(DIR), contentSummary);
+		assertSame(fileStatusCache.getContentSummary(DIR), contentSummary);
+		verify(fileSystem, times(1)).getContentSummary(DIR);
+
+		TreeSummary treeSummary = fileStatusCache.getTreeSummary(DIR, null);
+		assertSame(fileStatusCache.getTreeSummary(DIR, null), treeSummary);
+		assertEquals(treeSummary.getLength(), 1200000L);
+		assertEquals(treeSummary.getFileCount(), 1);
+		verify(fileSystem, times(1)).listStatus(DIR);
+		assertEquals(fileStatusCache.getMissCount(), 2);
+		assertEquals(fileStatusCache.getHitCount(), 2);
+	}
+
+	/**
+	 * Test hit ratio without lookups
+	 */
+	@Test
+	public void testEmptyHitRatio() {
+		assertEquals(fileStatusCache.getHitRatio(), 1.0, 1e-6);
+	}
+
+}
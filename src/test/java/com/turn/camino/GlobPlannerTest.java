@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for GlobPlanner
+ *
+ * @author llo
+ */
+@Test
+public class GlobPlannerTest {
+
+	private final static long BLOCK_SIZE = 256L * 1024 * 1024;
+
+	private FileSystem fileSystem;
+	private GlobPlanner globPlanner;
+
+	/**
+	 * Set up file system with directories /data/a and /data/b, and file /data/c
+	 *
+	 * @throws IOException
+	 */
+	@BeforeMethod
+	public void setUp() throws IOException {
+		fileSystem = mock(FileSystem.class);
+		when(fileSystem.listStatus(new Path("/data"))).thenReturn(new FileStatus[] {
+				newStatus("/data/a", true), newStatus("/data/b", true),
+				newStatus("/data/c", false) });
+		when(fileSystem.listStatus(new Path("/data/a/2026"))).thenReturn(new FileStatus[] {
+				newStatus("/data/a/2026/x1", false), newStatus("/data/a/2026/y1", false) });
+		when(fileSystem.listStatus(new Path("/data/b/2026")))
+				.thenThrow(new FileNotFoundException());
+		globPlanner = new GlobPlanner(fileSystem);
+	}
+
+	/**
+	 * Test that shared directories are listed once
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSharedListing() throws IOException {
+		List<FileStatus> fss = globPlanner.globStatus("/data/*/2026/x*");
+		assertEquals(fss.size(), 1);
+		assertEquals(fss.get(0).getPath(), new Path("/data/a/2026/x1"));
+
+		fss = globPlanner.globStatus("/data/a/2026/*");
+		assertEquals(fss.size(), 2);
+		assertEquals(fss.get(1).getPath(), new Path("/data/a/2026/y1"));
+
+		assertTrue(globPlanner.globStatus("/data/b/2026/*").isEmpty());
+
+		verify(fileSystem, times(1)).listStatus(new Path("/data"));
+		verify(fileSystem, times(1)).listStatus(new Path("/data/a/2026"));
+		verify(fileSystem, times(1)).listStatus(new Path("/data/b/2026"));
+	}
+
+	/**
+	 * Test that wild card in middle of path only matches directories
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testIntermediateWildcard() throws IOException {
+		assertTrue(globPlanner.globStatus("/data/c*/2026").isEmpty());
+		List<FileStatus> fss = globPlanner.globStatus("/data/c*");
+		assertEquals(fss.size(), 1);
+		assertFalse(fss.get(0).isDirectory());
+	}
+
+	/**
+	 * Test that literal paths are resolved from listings when possible
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testLiteralPath() throws IOException {
+		globPlanner.globStatus("/data/*");
+		List<FileStatus> fss = globPlanner.globStatus("/data/b");
+		assertEquals(fss.size(), 1);
+		assertTrue(fss.get(0).isDirectory());
+		assertTrue(globPlanner.globStatus("/data/d").isEmpty());
+		verify(fileSystem, never()).getFileStatus(any(Path.class));
+
+		// path not seen in any listing
+		Path other = new Path("/other/file");
+		when(fileSystem.getFileStatus(other)).thenReturn(newStatus("/other/file", false));
+		assertEquals(globPlanner.globStatus("/other/file").size(), 1);
+		assertEquals(globPlanner.globStatus("/other/file").size(), 1);
+		verify(fileSystem, times(1)).getFileStatus(other);
+
+		// path that doesn't exist
+		Path missing = new Path("/other/missing");
+		when(fileSystem.getFileStatus(missing)).thenThrow(new FileNotFoundException());
+		assertTrue(globPlanner.globStatus("/other/missing").isEmpty());
+	}
+
+	/**
+	 * Test that patterns planner cannot decompose are passed to file system
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testFallback() throws IOException {
+		Path relative = new Path("relative/*");
+		when(fileSystem.globStatus(relative)).thenReturn(null);
+		assertTrue(globPlanner.globStatus("relative/*").isEmpty());
+		verify(fileSystem).globStatus(relative);
+
+		Path braces = new Path("/data/{a/2026,b}");
+		when(fileSystem.globStatus(braces)).thenReturn(new FileStatus[] {
+				newStatus("/data/a/2026", true), newStatus("/data/b", true) });
+		assertEquals(globPlanner.globStatus("/data/{a/2026,b}").size(), 2);
+	}
+
+	/**
+	 * Test that last component is expanded by iterating over listings
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testStreamStatus() throws IOException {
+		when(fileSystem.getFileStatus(new Path("/data/a/2026"))).thenReturn(
+				newStatus("/data/a/2026", true));
+		when(fileSystem.listLocatedStatus(new Path("/data/a/2026"))).thenAnswer(invocation ->
+				newIterator(newStatus("/data/a/2026/x1", false),
+						newStatus("/data/a/2026/y1", false)));
+		List<FileStatus> fss = Lists.newArrayList();
+		assertTrue(globPlanner.streamStatus("/data/*/2026/x*", fss::add));
+		assertEquals(fss.size(), 1);
+		assertEquals(fss.get(0).getPath(), new Path("/data/a/2026/x1"));
+
+		// last listing is not cached, and iteration stops when consumer asks
+		fss.clear();
+		assertFalse(globPlanner.streamStatus("/data/*/2026/*", fs -> fss.add(fs) && false));
+		assertEquals(fss.size(), 1);
+		verify(fileSystem, times(2)).listLocatedStatus(new Path("/data/a/2026"));
+		verify(fileSystem, never()).listStatus(new Path("/data/a/2026"));
+		verify(fileSystem, never()).listLocatedStatus(new Path("/data/b/2026"));
+
+		// literal last component is resolved as usual
+		fss.clear();
+		assertTrue(globPlanner.streamStatus("/data/c", fss::add));
+		assertEquals(fss.size(), 1);
+	}
+
+	/**
+	 * Test that last component is only matched in sampled directories
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSampleStatus() throws IOException {
+		FileStatus[] dirs = new FileStatus[10];
+		for (int i = 0; i < dirs.length; i++) {
+			dirs[i] = newStatus("/logs/d" + i, true);
+			FileStatus[] files = new FileStatus[i + 1];
+			for (int j = 0; j < files.length; j++) {
+				files[j] = newStatus("/logs/d" + i + "/" + j, false);
+			}
+			when(fileSystem.listStatus(new Path("/logs/d" + i))).thenReturn(files);
+		}
+		when(fileSystem.listStatus(new Path("/logs"))).thenReturn(dirs);
+
+		GlobPlanner.Sample sample = globPlanner.sampleStatus("/logs/*/*", 0.3, new Random(7));
+		assertEquals(sample.getDirectoryCount(), 10);
+		assertEquals(sample.getStatuses().size(), 3);
+		int previous = -1;
+		for (List<FileStatus> fss : sample.getStatuses()) {
+			int index = Integer.parseInt(fss.get(0).getPath().getParent().getName().substring(1));
+			assertTrue(index > previous);
+			assertEquals(fss.size(), index + 1);
+			previous = index;
+		}
+		verify(fileSystem, times(4)).listStatus(any(Path.class));
+
+		// at least two directories are sampled, and a single directory is always sampled
+		assertEquals(globPlanner.sampleStatus("/logs/*/*", 0.01, new Random(7))
+				.getStatuses().size(), 2);
+		sample = globPlanner.sampleStatus("/logs/*", 0.01, new Random(7));
+		assertEquals(sample.getDirectoryCount(), 1);
+		assertEquals(sample.getStatuses().get(0).size(), 10);
+	}
+
+	private RemoteIterator<LocatedFileStatus> newIterator(FileStatus... fss) throws IOException {
+		final Iterator<LocatedFileStatus> iterator = Lists.newArrayList(
+				Lists.transform(Arrays.asList(fss), fs -> {
+					try {
+						return new LocatedFileStatus(fs, null);
+					} catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				})).iterator();
+		return new RemoteIterator<LocatedFileStatus>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+			@Override
+			public LocatedFileStatus next() {
+				return iterator.next();
+			}
+		};
+	}
+
+	private FileStatus newStatus(String path, boolean directory) {
+		return new FileStatus(directory ? 0 : 1000, directory, 3, BLOCK_SIZE,
+				System.currentTimeMillis(), new Path(path));
+	}
+
+}
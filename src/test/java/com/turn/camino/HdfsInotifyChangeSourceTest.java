@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.hdfs.DFSInotifyEventInputStream;
+import org.apache.hadoop.hdfs.inotify.Event;
+import org.apache.hadoop.hdfs.inotify.EventBatch;
+import org.apache.hadoop.hdfs.inotify.MissingEventsException;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for HdfsInotifyChangeSource
+ *
+ * @author llo
+ */
+@Test
+public class HdfsInotifyChangeSourceTest {
+
+	/**
+	 * Test that paths of all pending events are returned
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testPoll() throws Exception {
+		Event.CloseEvent closeEvent = mock(Event.CloseEvent.class);
+		when(closeEvent.getPath()).thenReturn("/a/b/1.dat");
+		Event.RenameEvent renameEvent = mock(Event.RenameEvent.class);
+		when(renameEvent.getSrcPath()).thenReturn("/a/tmp");
+		when(renameEvent.getDstPath()).thenReturn("/a/c");
+		DFSInotifyEventInputStream eventStream = mock(DFSInotifyEventInputStream.class);
+		when(eventStream.poll()).thenReturn(new EventBatch(1L, new Event[] { closeEvent }),
+				new EventBatch(2L, new Event[] { renameEvent }), null);
+
+		HdfsInotifyChangeSource changeSource = new HdfsInotifyChangeSource(eventStream);
+		List<String> paths = changeSource.poll();
+		assertEquals(paths, ImmutableList.of("/a/b/1.dat", "/a/tmp", "/a/c"));
+	}
+
+	/**
+	 * Test that missed events report change to all paths
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMissingEvents() throws Exception {
+		DFSInotifyEventInputStream eventStream = mock(DFSInotifyEventInputStream.class);
+		when(eventStream.poll()).thenThrow(new MissingEventsException());
+
+		HdfsInotifyChangeSource changeSource = new HdfsInotifyChangeSource(eventStream);
+		assertEquals(changeSource.poll(), ImmutableList.of(ChangeSource.ALL_PATHS));
+	}
+
+}
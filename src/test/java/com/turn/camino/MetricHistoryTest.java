@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit test for MetricHistory
+ *
+ * @author llo
+ */
+@Test
+public class MetricHistoryTest {
+
+	private final MetricId sizeId = new MetricId("size", "p", ImmutableList.of(
+			new Tag("pk", "x")));
+	private final MetricId countId = new MetricId("count", "p", ImmutableList.of(
+			new Tag("pk", "x")));
+
+	/**
+	 * Test appending values past capacity of ring buffer
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAppend() throws IOException {
+		MetricHistory metricHistory = new MetricHistory(Files.createTempDir(), 3);
+		assertTrue(metricHistory.getPoints(sizeId).isEmpty());
+
+		metricHistory.append(sizeId, 1000, 10);
+		metricHistory.append(sizeId, 2000, 20);
+		metricHistory.append(countId, 2000, 1);
+		assertPoints(metricHistory.getPoints(sizeId), 1000, 10, 2000, 20);
+		assertPoints(metricHistory.getPoints(countId), 2000, 1);
+
+		// same time replaces last value, and older time is ignored
+		metricHistory.append(sizeId, 2000, 25);
+		metricHistory.append(sizeId, 1500, 15);
+		assertPoints(metricHistory.getPoints(sizeId), 1000, 10, 2000, 25);
+
+		// oldest values are overwritten
+		metricHistory.append(sizeId, 3000, 30);
+		metricHistory.append(sizeId, 4000, 40);
+		metricHistory.append(sizeId, 5000, 50);
+		assertPoints(metricHistory.getPoints(sizeId), 3000, 30, 4000, 40, 5000, 50);
+		metricHistory.close();
+	}
+
+	/**
+	 * Test that history is kept across instances
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testReopen() throws IOException {
+		File directory = Files.createTempDir();
+		MetricHistory metricHistory = new MetricHistory(directory, 3);
+		metricHistory.append(sizeId, 1000, 10);
+		metricHistory.append(sizeId, 2000, 20);
+		metricHistory.close();
+
+		// series keeps capacity it was created with
+		metricHistory = new MetricHistory(directory, 10);
+		assertPoints(metricHistory.getPoints(sizeId), 1000, 10, 2000, 20);
+		metricHistory.append(sizeId, 3000, 30);
+		metricHistory.append(sizeId, 4000, 40);
+		assertPoints(metricHistory.getPoints(sizeId), 2000, 20, 3000, 30, 4000, 40);
+		assertTrue(metricHistory.getPoints(countId).isEmpty());
+		metricHistory.close();
+	}
+
+	/**
+	 * Test that a file of another series is not read
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testOtherSeries() throws IOException {
+		File directory = Files.createTempDir();
+		MetricHistory metricHistory = new MetricHistory(directory, 3);
+		metricHistory.append(sizeId, 1000, 10);
+		metricHistory.close();
+
+		// overwrite series key in file
+		File[] files = directory.listFiles();
+		assertEquals(files.length, 1);
+		try (RandomAccessFile raf = new RandomAccessFile(files[0], "rw")) {
+			raf.seek(20);
+			raf.write('X');
+		}
+		new MetricHistory(directory, 3).getPoints(sizeId);
+	}
+
+	/**
+	 * Test that a file with number of points or next point past capacity is not read
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testCorruptHeader() throws IOException {
+		File directory = Files.createTempDir();
+		MetricHistory metricHistory = new MetricHistory(directory, 3);
+		metricHistory.append(sizeId, 1000, 10);
+		metricHistory.close();
+
+		// overwrite number of points in file
+		File[] files = directory.listFiles();
+		assertEquals(files.length, 1);
+		try (RandomAccessFile raf = new RandomAccessFile(files[0], "rw")) {
+			raf.seek(8);
+			raf.writeInt(4);
+		}
+		new MetricHistory(directory, 3).getPoints(sizeId);
+	}
+
+	/**
+	 * Test that least recently used series are closed, and opened again when used
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMaxOpenSeries() throws IOException {
+		MetricHistory metricHistory = new MetricHistory(Files.createTempDir(), 3, 1);
+		metricHistory.append(sizeId, 1000, 10);
+		metricHistory.append(countId, 1000, 1);
+		metricHistory.append(sizeId, 2000, 20);
+		metricHistory.append(countId, 2000, 2);
+		assertPoints(metricHistory.getPoints(sizeId), 1000, 10, 2000, 20);
+		assertPoints(metricHistory.getPoints(countId), 1000, 1, 2000, 2);
+		metricHistory.close();
+	}
+
+	/**
+	 * Test that files of series not appended to since a time are deleted
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSweep() throws IOException {
+		File directory = Files.createTempDir();
+		MetricHistory metricHistory = new MetricHistory(directory, 3);
+		metricHistory.append(sizeId, 1000, 10);
+		metricHistory.append(countId, 1000, 1);
+		metricHistory.append(countId, 3000, 3);
+
+		// open series
+		assertEquals(metricHistory.sweep(2000), 1);
+		assertTrue(metricHistory.getPoints(sizeId).isEmpty());
+		assertPoints(metricHistory.getPoints(countId), 1000, 1, 3000, 3);
+		metricHistory.append(sizeId, 1000, 10);
+		metricHistory.close();
+
+		// files of closed series are only read if modified before time
+		metricHistory = new MetricHistory(directory, 3);
+		assertEquals(metricHistory.sweep(2000), 0);
+		for (File file : directory.listFiles()) {
+			assertTrue(file.setLastModified(1000));
+		}
+		assertEquals(metricHistory.sweep(2000), 1);
+		assertEquals(directory.listFiles().length, 1);
+		assertPoints(metricHistory.getPoints(countId), 1000, 1, 3000, 3);
+		metricHistory.close();
+	}
+
+	private static void assertPoints(List<MetricHistory.Point> points, double... expected) {
+		assertEquals(points.size() * 2, expected.length);
+		for (int i = 0; i < points.size(); i++) {
+			assertEquals(points.get(i).getTime(), (long) expected[i * 2]);
+			assertEquals(points.get(i).getValue(), expected[i * 2 + 1], 1e-9);
+		}
+	}
+
+}
@@ -19,6 +19,8 @@ import com.turn.camino.config.Tag;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
 
 /**
  * Unit test for MetricId
@@ -37,6 +39,39 @@ public class MetricIdTest {
 		assertEquals(metricId.getTags().get(0).getKey(), "pk");
 		assertEquals(metricId.getTags().get(0).getValue(), "x");
 		assertEquals(metricId.getFullName(), "myPath.age");
+		assertEquals(metricId.getSeriesKey(), "myPath.age{pk=x}");
+	}
+
+	@Test
+	public void testEquals() {
+		MetricId metricId = new MetricId("age", "myPath", ImmutableList.of(new Tag("pk", "x"),
+				new Tag("cl", "y")));
+		MetricId other = new MetricId("age", "myPath", ImmutableList.of(new Tag("cl", "y"),
+				new Tag("pk", "x")));
+		assertEquals(metricId.getSeriesKey(), "myPath.age{cl=y,pk=x}");
+		assertEquals(other, metricId);
+		assertEquals(other.hashCode(), metricId.hashCode());
+		assertNotEquals(new MetricId("size", "myPath", metricId.getTags()), metricId);
+		assertNotEquals(new MetricId("age", "myPath", ImmutableList.of(new Tag("pk", "x"))),
+				metricId);
+		assertNotEquals(new MetricId("age", "myPath", ImmutableList.of(new Tag("pk", "x"),
+				new Tag("cl", "z"))), metricId);
+	}
+
+	@Test
+	public void testSeriesKeyEscaped() {
+		MetricId metricId = new MetricId("a=b", "p{1}", ImmutableList.of(new Tag("k,", "v\\")));
+		assertEquals(metricId.getSeriesKey(), "p\\{1\\}.a\\=b{k\\,=v\\\\}");
+		assertNotEquals(new MetricId("a", "p", ImmutableList.of(new Tag("k", "v,l=w"))),
+				new MetricId("a", "p", ImmutableList.of(new Tag("k", "v"), new Tag("l", "w"))));
+	}
+
+	@Test
+	public void testIntern() {
+		MetricId metricId = MetricId.intern(new MetricId("age", "myPath",
+				ImmutableList.of(new Tag("pk", "x"))));
+		assertSame(MetricId.intern(new MetricId("age", "myPath",
+				ImmutableList.of(new Tag("pk", "x")))), metricId);
 	}
 
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.config.Metric;
+import com.turn.camino.config.Path;
+import com.turn.camino.config.Rollup;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for MetricRollup
+ *
+ * @author llo
+ */
+@Test
+public class MetricRollupTest {
+
+	private final static double EPSILON = 1e-6;
+
+	/**
+	 * Test rolling up metrics by tag
+	 */
+	@Test
+	public void testRollup() {
+		MetricRollup metricRollup = new MetricRollup(ImmutableList.of(
+				new Rollup("teamSize", "user_.*", ImmutableList.of("size"),
+						ImmutableList.of("team"), null, true),
+				new Rollup("maxAge", null, ImmutableList.of("age"), null, "max", false)));
+
+		PathMetrics adam = metricRollup.add(newPathMetrics("user_adam", "red", 100, 5));
+		metricRollup.add(newPathMetrics("user_beth", "red", 200, 7));
+		metricRollup.add(newPathMetrics("user_carl", "blue", 50, 3));
+		metricRollup.add(newPathMetrics("other", "red", 1000, 9));
+
+		// dropped size but kept age of path
+		assertEquals(adam.getMetricData().size(), 1);
+		assertEquals(adam.getMetricData().get(0).getMetricId().getName(), "age");
+
+		List<PathMetrics> rollups = metricRollup.getPathMetrics();
+		assertEquals(rollups.size(), 2);
+		List<MetricDatum> teamSize = rollups.get(0).getMetricData();
+		assertEquals(rollups.get(0).getPathStatus().getName(), "teamSize");
+		assertEquals(teamSize.size(), 2);
+		assertEquals(teamSize.get(0).getMetricId().getPathName(), "teamSize");
+		assertEquals(teamSize.get(0).getMetricId().getName(), "size");
+		assertEquals(teamSize.get(0).getMetricId().getTags().get(0).getValue(), "red");
+		assertEquals(teamSize.get(0).getValue(), 300, EPSILON);
+		assertEquals(teamSize.get(1).getMetricId().getTags().get(0).getValue(), "blue");
+		assertEquals(teamSize.get(1).getValue(), 50, EPSILON);
+
+		List<MetricDatum> maxAge = rollups.get(1).getMetricData();
+		assertEquals(maxAge.size(), 1);
+		assertTrue(maxAge.get(0).getMetricId().getTags().isEmpty());
+		assertEquals(maxAge.get(0).getValue(), 9, EPSILON);
+	}
+
+	/**
+	 * Test that errors of estimated values add up in a sum
+	 */
+	@Test
+	public void testRollupError() {
+		MetricRollup metricRollup = new MetricRollup(ImmutableList.of(
+				new Rollup("total", null, null, null, "sum", false)));
+		MetricId metricId = new MetricId("count", "p", ImmutableList.<Tag>of());
+		Metric metric = new Metric("count", null, null, "count", 0);
+		metricRollup.add(new PathMetrics(mock(Path.class), null, ImmutableList.of(
+				new MetricDatum(metricId, metric, null, 100, 3, ImmutableList.<PathDetail>of()),
+				new MetricDatum(metricId, metric, null, 200, 4, ImmutableList.<PathDetail>of()))));
+		MetricDatum total = metricRollup.getPathMetrics().get(0).getMetricData().get(0);
+		assertEquals(total.getValue(), 300, EPSILON);
+		assertEquals(total.getError(), 5, EPSILON);
+	}
+
+	/**
+	 * Test rollup with unknown aggregate
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testUnknownAggregate() {
+		new MetricRollup(ImmutableList.of(new Rollup("r", null, null, null, "median", false)));
+	}
+
+	private PathMetrics newPathMetrics(String pathName, String team, double size, double age) {
+		List<Tag> tags = ImmutableList.of(new Tag("team", team));
+		return new PathMetrics(mock(Path.class), null, ImmutableList.of(
+				new MetricDatum(new MetricId("size", pathName, tags),
+						new Metric("size", "size", "sum", null, 0), null, size),
+				new MetricDatum(new MetricId("age", pathName, tags),
+						new Metric("age", "age", "max", null, 0), null, age)));
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for PathDetailCache
+ *
+ * @author llo
+ */
+@Test
+public class PathDetailCacheTest {
+
+	private final static String PATTERN = "/a/b/*/c";
+	private final static List<PathDetail> PATH_DETAILS = ImmutableList.of(
+			new PathDetail("/a/b/1/c", false, 1000L, 1409302856296L));
+
+	private ChangeSource changeSource;
+	private PathDetailCache pathDetailCache;
+
+	/**
+	 * Set up cache with one pattern
+	 */
+	@BeforeMethod
+	public void setUp() {
+		changeSource = mock(ChangeSource.class);
+		pathDetailCache = new PathDetailCache(changeSource);
+		pathDetailCache.put(PATTERN, PATH_DETAILS);
+	}
+
+	/**
+	 * Test lookup of cached and uncached patterns
+	 */
+	@Test
+	public void testGet() {
+		assertEquals(pathDetailCache.get(PATTERN), PATH_DETAILS);
+		assertNull(pathDetailCache.get("/x/y"));
+		assertEquals(pathDetailCache.getHitCount(), 1);
+		assertEquals(pathDetailCache.getMissCount(), 1);
+	}
+
+	/**
+	 * Test that relative patterns are not cached
+	 */
+	@Test
+	public void testRelativePattern() {
+		pathDetailCache.put("a/b", Collections.<PathDetail>emptyList());
+		assertNull(pathDetailCache.get("a/b"));
+		assertEquals(pathDetailCache.size(), 1);
+	}
+
+	/**
+	 * Test that unrelated changes keep pattern
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testUnrelatedChange() throws IOException {
+		when(changeSource.poll()).thenReturn(ImmutableList.of("/a/x", "/a/b/1/d", "/x/b/1/c"));
+		pathDetailCache.refresh();
+		assertEquals(pathDetailCache.get(PATTERN), PATH_DETAILS);
+	}
+
+	/**
+	 * Test that change to a matching path evicts pattern
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMatchingChange() throws IOException {
+		when(changeSource.poll()).thenReturn(ImmutableList.of("/a/b/2/c"));
+		pathDetailCache.refresh();
+		assertNull(pathDetailCache.get(PATTERN));
+	}
+
+	/**
+	 * Test that changes above and below matching paths evict pattern
+	 */
+	@Test
+	public void testAncestorAndDescendantChange() {
+		pathDetailCache.markDirty("/a/b/2");
+		assertNull(pathDetailCache.get(PATTERN));
+
+		pathDetailCache.put(PATTERN, PATH_DETAILS);
+		pathDetailCache.markDirty("/a/b/1/c/part-00000");
+		assertNull(pathDetailCache.get(PATTERN));
+	}
+
+	/**
+	 * Test that change to a directory evicts literal patterns below it only
+	 */
+	@Test
+	public void testDirectoryChange() {
+		pathDetailCache.put("/a/b/1/c", PATH_DETAILS);
+		pathDetailCache.put("/a/bb/1/c", PATH_DETAILS);
+		pathDetailCache.markDirty("/a/b");
+		assertNull(pathDetailCache.get("/a/b/1/c"));
+		assertNull(pathDetailCache.get(PATTERN));
+		assertEquals(pathDetailCache.get("/a/bb/1/c"), PATH_DETAILS);
+	}
+
+	/**
+	 * Test that patterns not looked up in last cycle are evicted
+	 */
+	@Test
+	public void testEvictUnused() {
+		pathDetailCache.put("/a/b/*/c/2014-08-29", PATH_DETAILS);
+		pathDetailCache.evictUnused();
+		assertEquals(pathDetailCache.size(), 2);
+
+		// next cycle renders pattern of next date only
+		assertEquals(pathDetailCache.get(PATTERN), PATH_DETAILS);
+		pathDetailCache.put("/a/b/*/c/2014-08-30", PATH_DETAILS);
+		pathDetailCache.evictUnused();
+		assertEquals(pathDetailCache.size(), 2);
+		assertNull(pathDetailCache.get("/a/b/*/c/2014-08-29"));
+		assertEquals(pathDetailCache.get("/a/b/*/c/2014-08-30"), PATH_DETAILS);
+	}
+
+	/**
+	 * Test that change to root evicts all patterns
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testAllPaths() throws IOException {
+		pathDetailCache.put("/x/y", PATH_DETAILS);
+		when(changeSource.poll()).thenReturn(ImmutableList.of(ChangeSource.ALL_PATHS));
+		pathDetailCache.refresh();
+		assertEquals(pathDetailCache.size(), 0);
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for PathDetailList
+ *
+ * @author llo
+ */
+@Test
+public class PathDetailListTest {
+
+	/**
+	 * Test that path details are read back as added
+	 */
+	@Test
+	public void testRoundTrip() {
+		List<PathDetail> expected = Lists.newArrayList();
+		PathDetailList.Builder builder = new PathDetailList.Builder(1);
+		for (int i = 0; i < 100; i++) {
+			// mix of shared prefixes, shorter values and values without common prefix
+			String pathValue = i % 7 == 0 ? "hdfs://nn/x" + i :
+					String.format("hdfs://nn/data/2018/%02d/part-%05d", i / 10, i);
+			PathDetail pathDetail = new PathDetail(pathValue, i % 3 == 0, i * 1000L,
+					1409302856296L + i);
+			expected.add(pathDetail);
+			builder.add(pathValue, pathDetail.isDirectory(), pathDetail.getLength(),
+					pathDetail.getLastModifiedTime());
+		}
+		PathDetailList pathDetailList = builder.build();
+		assertEquals(pathDetailList.size(), 100);
+		assertEquals(pathDetailList, expected);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(pathDetailList.getPathValue(i), expected.get(i).getPathValue());
+			assertEquals(pathDetailList.isDirectory(i), expected.get(i).isDirectory());
+			assertEquals(pathDetailList.getLength(i), expected.get(i).getLength());
+			assertEquals(pathDetailList.getLastModifiedTime(i),
+					expected.get(i).getLastModifiedTime());
+		}
+	}
+
+	/**
+	 * Test empty list
+	 */
+	@Test
+	public void testEmpty() {
+		PathDetailList pathDetailList = new PathDetailList.Builder(0).build();
+		assertTrue(pathDetailList.isEmpty());
+		assertEquals(pathDetailList, ImmutableList.of());
+	}
+
+	/**
+	 * Test that list cannot be modified
+	 */
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testImmutable() {
+		new PathDetailList.Builder(0).build().add(new PathDetail("/a", false, 0, 0));
+	}
+
+	/**
+	 * Test access out of bounds
+	 */
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		new PathDetailList.Builder(0).add("/a", false, 0, 0).build().getLength(1);
+	}
+
+}
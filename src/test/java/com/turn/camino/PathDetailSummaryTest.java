@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for PathDetailSummary
+ *
+ * @author llo
+ */
+@Test
+public class PathDetailSummaryTest {
+
+	private final static double EPSILON = 1e-6;
+
+	/**
+	 * Test aggregates of age and size
+	 */
+	@Test
+	public void testSummary() {
+		PathDetailSummary summary = new PathDetailSummary(ImmutableList.of(
+				new PathDetail("/a/1", false, 1000, 5000),
+				new PathDetail("/a/2", false, 300, 9000),
+				new PathDetail("/a/3", true, 0, 1000)), 10000);
+		assertEquals(summary.getCount(), 3);
+		assertEquals(summary.getAge("max"), 9000, EPSILON);
+		assertEquals(summary.getAge("min"), 1000, EPSILON);
+		assertEquals(summary.getAge("sum"), 15000, EPSILON);
+		assertEquals(summary.getAge("avg"), 5000, EPSILON);
+		assertEquals(summary.getSize("max"), 1000, EPSILON);
+		assertEquals(summary.getSize("min"), 0, EPSILON);
+		assertEquals(summary.getSize("sum"), 1300, EPSILON);
+		assertEquals(summary.getSize("avg"), 1300.0 / 3, EPSILON);
+		assertTrue(Double.isNaN(summary.getSize("median")));
+	}
+
+	/**
+	 * Test summary of no path details
+	 */
+	@Test
+	public void testEmpty() {
+		PathDetailSummary summary = new PathDetailSummary(ImmutableList.<PathDetail>of(), 10000);
+		assertEquals(summary.getCount(), 0);
+		assertEquals(summary.getAge("avg"), 0, EPSILON);
+		assertEquals(summary.getSize("sum"), 0, EPSILON);
+	}
+
+	/**
+	 * Test supported aggregates
+	 */
+	@Test
+	public void testIsSupported() {
+		assertTrue(PathDetailSummary.isSupported("avg"));
+		assertFalse(PathDetailSummary.isSupported("median"));
+		assertFalse(PathDetailSummary.isSupported(null));
+	}
+
+}
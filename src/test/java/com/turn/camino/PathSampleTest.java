@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for PathSample
+ *
+ * @author llo
+ */
+@Test
+public class PathSampleTest {
+
+	private final static double EPSILON = 1e-6;
+
+	/**
+	 * Test estimates from a partial sample
+	 */
+	@Test
+	public void testEstimate() {
+		// sampled directories have 1, 2 and 3 paths of length 10, out of 30 directories
+		PathSample sample = newSample(30, 1, 2, 3);
+		assertEquals(sample.getDirectoryCount(), 30);
+		assertEquals(sample.getSampledDirectoryCount(), 3);
+		assertFalse(sample.isComplete());
+		assertEquals(sample.getPathDetails(1).size(), 2);
+		assertEquals(sample.getPathDetails(2).get(0).getPathValue(), "/data/2/0");
+
+		// count is 30 * 2, with variance 30^2 * (1 - 3/30) * 1 / 3
+		PathSample.Estimate count = sample.estimateCount();
+		assertEquals(count.getValue(), 60, EPSILON);
+		assertEquals(count.getError(), 1.96 * Math.sqrt(900 * 0.9 / 3), EPSILON);
+
+		// total length scales the same way
+		PathSample.Estimate length = sample.estimateTotal(new double[] { 10, 20, 30 });
+		assertEquals(length.getValue(), 600, EPSILON);
+		assertEquals(length.getError(), count.getError() * 10, EPSILON);
+
+		// average of equal lengths has no residual
+		PathSample.Estimate average = sample.estimateAverage(new double[] { 10, 20, 30 });
+		assertEquals(average.getValue(), 10, EPSILON);
+		assertEquals(average.getError(), 0, EPSILON);
+	}
+
+	/**
+	 * Test that estimates from a complete sample are exact
+	 */
+	@Test
+	public void testCompleteSample() {
+		PathSample sample = newSample(3, 1, 0, 4);
+		assertTrue(sample.isComplete());
+		PathSample.Estimate count = sample.estimateCount();
+		assertEquals(count.getValue(), 5, EPSILON);
+		assertEquals(count.getError(), 0, EPSILON);
+		PathSample.Estimate average = sample.estimateAverage(new double[] { 5, 0, 15 });
+		assertEquals(average.getValue(), 4, EPSILON);
+		assertEquals(average.getError(), 0, EPSILON);
+	}
+
+	/**
+	 * Test that error of one sampled directory out of many is unknown
+	 */
+	@Test
+	public void testSingleDirectory() {
+		PathSample.Estimate count = newSample(10, 4).estimateCount();
+		assertEquals(count.getValue(), 40, EPSILON);
+		assertTrue(Double.isNaN(count.getError()));
+	}
+
+	/**
+	 * Test sampling more directories than there are
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testTooManyDirectories() {
+		newSample(1, 1, 1);
+	}
+
+	private PathSample newSample(int directoryCount, int... sizes) {
+		PathDetailList.Builder builder = new PathDetailList.Builder(16);
+		int[] directoryEnds = new int[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			for (int j = 0; j < sizes[i]; j++) {
+				builder.add("/data/" + i + "/" + j, false, 10, 1000L);
+			}
+			directoryEnds[i] = builder.size();
+		}
+		return new PathSample(directoryCount, builder.build(), directoryEnds);
+	}
+
+}
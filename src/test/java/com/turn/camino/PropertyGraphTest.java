@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.turn.camino.config.Property;
+import com.turn.camino.render.RenderException;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for PropertyGraph
+ *
+ * @author llo
+ */
+@Test
+public class PropertyGraphTest {
+
+	/**
+	 * Test dependencies between properties
+	 */
+	@Test
+	public void testDependencies() {
+		PropertyGraph graph = new PropertyGraph(ImmutableList.of(
+				new Property("root", "/data"),
+				new Property("day", "<%=timeFormat(today('GMT'),'yyyy/MM/dd')%>"),
+				new Property("dir", "<%=root%>/<%=day%>"),
+				new Property("other", "<%=x%>"),
+				new Property("x", "1"),
+				new Property("root", "/tmp")));
+		assertTrue(graph.isAnalyzable());
+		assertEquals(graph.getName(2), "dir");
+		assertTrue(graph.getDependencies(0).isEmpty());
+		assertTrue(graph.getDependencies(1).isEmpty());
+		assertEquals(graph.getDependencies(2), ImmutableSet.of(0, 1));
+		assertTrue(graph.getDependencies(3).isEmpty());
+		// x must not be set before other reads it
+		assertEquals(graph.getDependencies(4), ImmutableSet.of(3));
+		// root must not be overwritten before dir reads it
+		assertEquals(graph.getDependencies(5), ImmutableSet.of(0, 2));
+	}
+
+	/**
+	 * Test finding properties referenced transitively
+	 */
+	@Test
+	public void testReferencedProperties() {
+		PropertyGraph graph = new PropertyGraph(ImmutableList.of(
+				new Property("root", "/data"),
+				new Property("f", "<%=fn(x) -> add(x, root)%>"),
+				new Property("dir", "<%=f('/a')%>"),
+				new Property("unused", "1")));
+		assertEquals(graph.getReferencedProperties(ImmutableList.of("dir", "age")),
+				ImmutableSet.of("dir", "f", "root"));
+		assertTrue(graph.getReferencedProperties(ImmutableList.of("age")).isEmpty());
+	}
+
+	/**
+	 * Test that dynamic property names cannot be analyzed
+	 */
+	@Test
+	public void testNotAnalyzable() {
+		PropertyGraph graph = new PropertyGraph(ImmutableList.of(
+				new Property("root", "/data"),
+				new Property("<%=root%>", "1")));
+		assertFalse(graph.isAnalyzable());
+		assertEquals(graph.getProperties().size(), 2);
+	}
+
+	/**
+	 * Test finding identifiers in expression
+	 *
+	 * @throws RenderException
+	 */
+	@Test
+	public void testFindReferences() throws RenderException {
+		assertEquals(PropertyGraph.findReferences(
+				"/a/<%=if(c, d[e], f.g)%>/<%={'k': h}%>/<%=[i]%>/<%=fn(x) -> add(x, j)%>"),
+				ImmutableSet.of("c", "d", "e", "f", "h", "i", "add", "x", "j"));
+		assertTrue(PropertyGraph.findReferences("/a/b").isEmpty());
+		assertEquals(PropertyGraph.findLiteralName("abc"), "abc");
+		assertNull(PropertyGraph.findLiteralName("a<%=b%>"));
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.config.Metric;
+import com.turn.camino.config.Path;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for RepeatOverflow
+ *
+ * @author llo
+ */
+@Test
+public class RepeatOverflowTest {
+
+	private final static double EPSILON = 1e-6;
+
+	/**
+	 * Test aggregating metrics of paths
+	 */
+	@Test
+	public void testAdd() {
+		RepeatOverflow overflow = new RepeatOverflow(RepeatOverflow.getName("dir"));
+		overflow.add(newPathMetrics("dir_a", 100, 5, 2, 10));
+		overflow.add(newPathMetrics("dir_b", 200, 7, 3, 4));
+		overflow.add(new PathMetrics(mock(Path.class), null, null));
+		assertEquals(overflow.getPathCount(), 3);
+
+		PathMetrics pathMetrics = overflow.getPathMetrics();
+		assertEquals(pathMetrics.getPathStatus().getName(), "dir_overflow");
+		List<MetricDatum> metricData = pathMetrics.getMetricData();
+		assertEquals(metricData.size(), 5);
+		assertEquals(metricData.get(0).getMetricId().getFullName(), "dir_overflow.size");
+		assertTrue(metricData.get(0).getMetricId().getTags().isEmpty());
+		assertEquals(metricData.get(0).getValue(), 300, EPSILON);
+		assertEquals(metricData.get(1).getMetricId().getName(), "age");
+		assertEquals(metricData.get(1).getValue(), 7, EPSILON);
+		assertEquals(metricData.get(2).getMetricId().getName(), "count");
+		assertEquals(metricData.get(2).getValue(), 5, EPSILON);
+		assertEquals(metricData.get(3).getMetricId().getName(), "minAge");
+		assertEquals(metricData.get(3).getMetric().getAggregate(), "min");
+		assertEquals(metricData.get(3).getValue(), 4, EPSILON);
+		assertEquals(metricData.get(4).getMetricId().getName(),
+				RepeatOverflow.PATH_COUNT_METRIC);
+		assertEquals(metricData.get(4).getValue(), 3, EPSILON);
+	}
+
+	/**
+	 * Test overflow series without paths
+	 */
+	@Test
+	public void testEmpty() {
+		PathMetrics pathMetrics = new RepeatOverflow("empty").getPathMetrics();
+		assertEquals(pathMetrics.getMetricData().size(), 1);
+		assertEquals(pathMetrics.getMetricData().get(0).getValue(), 0, EPSILON);
+	}
+
+	private PathMetrics newPathMetrics(String pathName, double size, double age, double count,
+			double minAge) {
+		List<Tag> tags = ImmutableList.of(new Tag("dir", pathName));
+		return new PathMetrics(mock(Path.class), null, ImmutableList.of(
+				new MetricDatum(new MetricId("size", pathName, tags),
+						new Metric("size", "size", "sum", null, 0), null, size),
+				new MetricDatum(new MetricId("age", pathName, tags),
+						new Metric("age", "age", "max", null, 0), null, age),
+				new MetricDatum(new MetricId("count", pathName, tags),
+						new Metric("count", null, null, "count", 0), null, count),
+				new MetricDatum(new MetricId("minAge", pathName, tags),
+						new Metric("minAge", "age", "min", null, 0), null, minAge)));
+	}
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for ThrottledFileSystem
+ *
+ * @author llo
+ */
+@Test
+public class ThrottledFileSystemTest {
+
+	private final static Path PATH = new Path("/a/b");
+
+	/**
+	 * Test that calls are passed to underlying file system
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testDelegation() throws IOException {
+		FileSystem fileSystem = mock(FileSystem.class);
+		FileStatus status = new FileStatus(0L, true, 3, 100L, 1409302844187L, PATH);
+		when(fileSystem.getFileStatus(PATH)).thenReturn(status);
+		when(fileSystem.listStatus(PATH)).thenReturn(new FileStatus[] { status });
+		ThrottledFileSystem throttledFileSystem = new ThrottledFileSystem(fileSystem, 2);
+		assertEquals(throttledFileSystem.getMaxInFlight(), 2);
+		assertSame(throttledFileSystem.getFileStatus(PATH), status);
+		assertEquals(throttledFileSystem.listStatus(PATH).length, 1);
+		assertEquals(throttledFileSystem.getAvailablePermits(), 2);
+	}
+
+	/**
+	 * Test that number of calls in flight is limited
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMaxInFlight() throws Exception {
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		FileSystem fileSystem = mock(FileSystem.class);
+		when(fileSystem.getFileStatus(PATH)).thenAnswer(invocation -> {
+			int count = inFlight.incrementAndGet();
+			maxInFlight.accumulateAndGet(count, Math::max);
+			Thread.sleep(10);
+			inFlight.decrementAndGet();
+			return null;
+		});
+		final ThrottledFileSystem throttledFileSystem = new ThrottledFileSystem(fileSystem, 2);
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<FileStatus>> futures = Lists.newArrayList();
+			for (int i = 0; i < 32; i++) {
+				futures.add(executorService.submit(() -> throttledFileSystem.getFileStatus(PATH)));
+			}
+			for (Future<FileStatus> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdown();
+		}
+		assertTrue(maxInFlight.get() <= 2);
+		assertEquals(throttledFileSystem.getAvailablePermits(), 2);
+	}
+
+	/**
+	 * Test that steps of listing iterators are limited like calls
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testIteratorMaxInFlight() throws Exception {
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+		FileSystem fileSystem = mock(FileSystem.class);
+		when(fileSystem.listLocatedStatus(PATH)).thenAnswer(invocation ->
+				new RemoteIterator<LocatedFileStatus>() {
+
+					@Override
+					public boolean hasNext() throws IOException {
+						call();
+						return true;
+					}
+
+					@Override
+					public LocatedFileStatus next() throws IOException {
+						call();
+						return null;
+					}
+
+					private void call() throws IOException {
+						maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+						try {
+							Thread.sleep(2);
+						} catch (InterruptedException e) {
+							throw new InterruptedIOException();
+						} finally {
+							inFlight.decrementAndGet();
+						}
+					}
+				});
+		final ThrottledFileSystem throttledFileSystem = new ThrottledFileSystem(fileSystem, 2);
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> futures = Lists.newArrayList();
+			for (int i = 0; i < 16; i++) {
+				final boolean located = i % 2 == 0;
+				futures.add(executorService.submit(() -> {
+					RemoteIterator<? extends FileStatus> iterator = located ?
+							throttledFileSystem.listLocatedStatus(PATH) :
+							throttledFileSystem.listStatusIterator(PATH);
+					int count = 0;
+					for (; count < 8 && iterator.hasNext(); count++) {
+						iterator.next();
+					}
+					return count;
+				}));
+			}
+			for (Future<Integer> future : futures) {
+				assertEquals(future.get().intValue(), 8);
+			}
+		} finally {
+			executorService.shutdown();
+		}
+		assertTrue(maxInFlight.get() <= 2);
+		assertEquals(throttledFileSystem.getAvailablePermits(), 2);
+	}
+
+	/**
+	 * Test that nested calls reuse permit of outer call
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testNestedCall() throws IOException {
+		FileSystem fileSystem = mock(FileSystem.class);
+		final ThrottledFileSystem[] throttledFileSystem = new ThrottledFileSystem[1];
+		when(fileSystem.listStatus(PATH)).thenAnswer(invocation -> new FileStatus[] {
+				throttledFileSystem[0].getFileStatus(PATH) });
+		throttledFileSystem[0] = new ThrottledFileSystem(fileSystem, 1);
+		assertEquals(throttledFileSystem[0].listStatus(PATH).length, 1);
+		assertEquals(throttledFileSystem[0].getAvailablePermits(), 1);
+	}
+
+	/**
+	 * Test invalid limit
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidMaxInFlight() {
+		new ThrottledFileSystem(mock(FileSystem.class), 0);
+	}
+
+}
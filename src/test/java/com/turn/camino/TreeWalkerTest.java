@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for TreeWalker
+ *
+ * @author llo
+ */
+@Test
+public class TreeWalkerTest {
+
+	private final static Path ROOT = new Path("/data");
+
+	private FileSystem fileSystem;
+
+	/**
+	 * Set up file system with tree /data/{a/{1.dat,x/{2.dat,3.dat}},b,4.dat}
+	 *
+	 * @throws IOException
+	 */
+	@BeforeMethod
+	public void setUp() throws IOException {
+		fileSystem = mock(FileSystem.class);
+		when(fileSystem.listStatus(ROOT)).thenReturn(new FileStatus[] {
+				dir("/data/a", 5000L), dir("/data/b", 6000L), file("/data/4.dat", 40, 4000L) });
+		when(fileSystem.listStatus(new Path("/data/a"))).thenReturn(new FileStatus[] {
+				file("/data/a/1.dat", 10, 1000L), dir("/data/a/x", 7000L) });
+		when(fileSystem.listStatus(new Path("/data/a/x"))).thenReturn(new FileStatus[] {
+				file("/data/a/x/2.dat", 20, 2000L), file("/data/a/x/3.dat", 30, 3000L) });
+		when(fileSystem.listStatus(new Path("/data/b"))).thenReturn(new FileStatus[0]);
+	}
+
+	/**
+	 * Test walking tree sequentially
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testWalk() throws IOException {
+		assertTreeSummary(new TreeWalker(fileSystem, null).walk(ROOT));
+	}
+
+	/**
+	 * Test walking tree in parallel on a single thread, which must not starve
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testParallelWalk() throws IOException {
+		ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			assertTreeSummary(new TreeWalker(fileSystem, executorService, 3).walk(ROOT));
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Test walking a missing directory
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMissingDirectory() throws IOException {
+		Path missing = new Path("/missing");
+		when(fileSystem.listStatus(missing)).thenThrow(new FileNotFoundException());
+		TreeSummary treeSummary = new TreeWalker(fileSystem, null).walk(missing);
+		assertEquals(treeSummary.getFileCount(), 0);
+		assertEquals(treeSummary.getDirectoryCount(), 0);
+		assertEquals(treeSummary.getLength(), 0);
+	}
+
+	/**
+	 * Test that errors listing subdirectories walked in parallel are thrown
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IOException.class)
+	public void testParallelWalkError() throws IOException {
+		when(fileSystem.listStatus(new Path("/data/b"))).thenThrow(new IOException("denied"));
+		ExecutorService executorService = Executors.newFixedThreadPool(2);
+		try {
+			new TreeWalker(fileSystem, executorService).walk(ROOT);
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	private void assertTreeSummary(TreeSummary treeSummary) {
+		assertEquals(treeSummary.getLength(), 100);
+		assertEquals(treeSummary.getFileCount(), 4);
+		assertEquals(treeSummary.getDirectoryCount(), 3);
+		assertEquals(treeSummary.getMinModificationTime(), 1000L);
+		assertEquals(treeSummary.getMaxModificationTime(), 7000L);
+	}
+
+	private static FileStatus dir(String path, long modificationTime) {
+		return new FileStatus(0L, true, 3, 100L, modificationTime, new Path(path));
+	}
+
+	private static FileStatus file(String path, long length, long modificationTime) {
+		return new FileStatus(length, false, 3, 100L, modificationTime, new Path(path));
+	}
+
+}
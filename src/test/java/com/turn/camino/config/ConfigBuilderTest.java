@@ -90,6 +90,49 @@ public class ConfigBuilderTest {
 		assertEquals(config.getRepeats().size(), 1);
 	}
 
+	/**
+	 * Test reading rollups
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testRollups() throws IOException {
+		Config config = ConfigBuilder.create().from(new StringReader("{\"rollups\": [" +
+				"{\"name\": \"r1\", \"tags\": [\"team\"], \"metrics\": [\"size\"], " +
+				"\"dropInputs\": true}, {\"name\": \"r2\", \"pathPattern\": \"p.*\", " +
+				"\"aggregate\": \"max\"}]}")).build();
+		assertEquals(config.getRollups().size(), 2);
+		Rollup rollup = config.getRollups().get(0);
+		assertEquals(rollup.getName(), "r1");
+		assertEquals(rollup.getTags(), ImmutableList.of("team"));
+		assertEquals(rollup.getMetrics(), ImmutableList.of("size"));
+		assertEquals(rollup.getAggregate(), "sum");
+		assertNull(rollup.getPathPattern());
+		assertTrue(rollup.isDropInputs());
+		rollup = config.getRollups().get(1);
+		assertEquals(rollup.getPathPattern(), "p.*");
+		assertEquals(rollup.getAggregate(), "max");
+		assertNull(rollup.getMetrics());
+		assertTrue(rollup.getTags().isEmpty());
+		assertFalse(rollup.isDropInputs());
+	}
+
+	/**
+	 * Test reading series budgets
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMaxSeries() throws IOException {
+		Config config = ConfigBuilder.create().from(new StringReader("{\"maxSeries\": 1000, " +
+				"\"repeats\": [{\"var\": \"x\", \"list\": \"l\", \"maxSeries\": 10}, " +
+				"{\"var\": \"y\", \"list\": \"l\"}]}")).build();
+		assertEquals(config.getMaxSeries(), Integer.valueOf(1000));
+		assertEquals(config.getRepeats().get(0).getMaxSeries(), Integer.valueOf(10));
+		assertNull(config.getRepeats().get(1).getMaxSeries());
+		assertNull(ConfigBuilder.create().buildLocal().getMaxSeries());
+	}
+
 	/**
 	 * Test creating config from reader
 	 *
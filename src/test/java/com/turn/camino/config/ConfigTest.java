@@ -147,4 +147,41 @@ public class ConfigTest {
 		config.getRepeats().add(repeat);
 	}
 
+	/**
+	 * Test rollup whose name is not an identifier
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRollupInvalidName() {
+		new Rollup("team size", null, null, null, null, false);
+	}
+
+	/**
+	 * Test rollup named after a path
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRollupNameOfPath() {
+		new Config(location, null, Collections.<Property>emptyList(), Lists.newArrayList(path),
+				null, Lists.newArrayList(new Rollup("abc", null, null, null, null, false)));
+	}
+
+	/**
+	 * Test rollup named after overflow series of a repeat
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRollupNameOfOverflow() {
+		new Config(location, null, Collections.<Property>emptyList(), null,
+				Lists.newArrayList(repeat), Lists.newArrayList(new Rollup("my_var_overflow", null,
+				null, null, null, false)));
+	}
+
+	/**
+	 * Test two rollups with the same name
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRollupDuplicateName() {
+		Rollup rollup = new Rollup("total", null, null, null, null, false);
+		new Config(location, null, Collections.<Property>emptyList(), Lists.newArrayList(path),
+				Lists.newArrayList(repeat), Lists.newArrayList(rollup, rollup));
+	}
+
 }
@@ -107,6 +107,14 @@ public class PathTest {
 		new Path("testPath", null, null, (Map<String,String>) null, null);
 	}
 
+	/**
+	 * Test creating a path with sample fraction out of range
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testConstructorInvalidSample() {
+		new Path("testPath", "/test/*/path", null, (Map<String,String>) null, null, 1.5);
+	}
+
 	/**
 	 * Test immutability of metrics
 	 */
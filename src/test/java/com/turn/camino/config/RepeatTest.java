@@ -65,6 +65,24 @@ public class RepeatTest {
 		assertEquals(repeat.getRepeats().size(), 0);
 	}
 
+	/**
+	 * Test series budget
+	 */
+	@Test
+	public void testMaxSeries() {
+		assertNull(new Repeat("theVar", "theList", null, null).getMaxSeries());
+		assertEquals(new Repeat("theVar", "theList", null, null, 100).getMaxSeries(),
+				Integer.valueOf(100));
+	}
+
+	/**
+	 * Test negative series budget
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testNegativeMaxSeries() {
+		new Repeat("theVar", "theList", null, null, -1);
+	}
+
 	/**
 	 * Test immutability of paths
 	 */
@@ -17,6 +17,7 @@ package com.turn.camino.config;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 
 /**
  * Unit test for Tag
@@ -52,4 +53,16 @@ public class TagTest {
 		new Tag("pp", null);
 	}
 
+	/**
+	 * Test equality of tags with same key and value
+	 */
+	@Test
+	public void testEquals() {
+		Tag tag = new Tag("pp", "qq");
+		assertEquals(new Tag("pp", "qq"), tag);
+		assertEquals(new Tag("pp", "qq").hashCode(), tag.hashCode());
+		assertNotEquals(new Tag("pp", "rr"), tag);
+		assertNotEquals(new Tag("rr", "qq"), tag);
+	}
+
 }
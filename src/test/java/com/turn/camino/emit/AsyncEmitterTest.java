@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import org.testng.annotations.Test;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for AsyncEmitter
+ *
+ * @author llo
+ */
+@Test
+public class AsyncEmitterTest {
+
+	/**
+	 * Test emitting to a local socket standing in for a metric store
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testEmitToSocket() throws IOException {
+		try (ServerSocket serverSocket = new ServerSocket(0)) {
+			Socket socket = new Socket("localhost", serverSocket.getLocalPort());
+			AsyncEmitter emitter = new AsyncEmitter(new OpenTsdbEmitter(new BufferedWriter(
+					new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)),
+					() -> 1000000L));
+			try (Socket accepted = serverSocket.accept();
+					BufferedReader reader = new BufferedReader(new InputStreamReader(
+							accepted.getInputStream(), StandardCharsets.UTF_8))) {
+				for (int i = 0; i < 3; i++) {
+					emitter.emit(newPathMetrics("p" + i, i));
+				}
+				emitter.flush();
+				for (int i = 0; i < 3; i++) {
+					assertEquals(reader.readLine(), String.format("put age 1000 %d path=p%d",
+							i, i));
+				}
+				emitter.close();
+				assertEquals(reader.readLine(), null);
+			}
+			assertEquals(emitter.getDroppedCount(), 0);
+		}
+	}
+
+	/**
+	 * Test that a slow sink drops metrics instead of blocking emit
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testEmitFullBuffer() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		MetricEmitter slowEmitter = mock(MetricEmitter.class);
+		doAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return null;
+		}).when(slowEmitter).emit(any(PathMetrics.class));
+
+		AsyncEmitter emitter = new AsyncEmitter(slowEmitter, 2, 1);
+		emitter.emit(newPathMetrics("p0", 0));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		// emitting thread is stuck on p0, so buffer holds two more
+		for (int i = 1; i < 5; i++) {
+			emitter.emit(newPathMetrics("p" + i, i));
+		}
+		assertEquals(emitter.getDroppedCount(), 2);
+
+		release.countDown();
+		emitter.flush();
+		emitter.close();
+		verify(slowEmitter, times(3)).emit(any(PathMetrics.class));
+		verify(slowEmitter, times(3)).flush();
+		verify(slowEmitter).close();
+	}
+
+	/**
+	 * Test that a blocking emitter waits for a slow sink instead of dropping metrics
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testBlockingEmitFullBuffer() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		MetricEmitter slowEmitter = mock(MetricEmitter.class);
+		doAnswer(invocation -> {
+			started.countDown();
+			release.await();
+			return null;
+		}).when(slowEmitter).emit(any(PathMetrics.class));
+
+		AsyncEmitter emitter = new AsyncEmitter(slowEmitter, 2, 1, true);
+		emitter.emit(newPathMetrics("p0", 0));
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		// emitting thread is stuck on p0, so emit of p3 waits for it
+		CountDownLatch emitted = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			try {
+				for (int i = 1; i < 5; i++) {
+					emitter.emit(newPathMetrics("p" + i, i));
+				}
+				emitted.countDown();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		thread.start();
+		assertFalse(emitted.await(100, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		assertTrue(emitted.await(10, TimeUnit.SECONDS));
+		emitter.flush();
+		emitter.close();
+		assertEquals(emitter.getDroppedCount(), 0);
+		verify(slowEmitter, times(5)).emit(any(PathMetrics.class));
+	}
+
+	/**
+	 * Test that errors of a sink don't stop emitting, but are thrown by next flush
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testEmitError() throws Exception {
+		MetricEmitter failingEmitter = mock(MetricEmitter.class);
+		doThrow(new IOException("broken pipe")).doNothing().when(failingEmitter)
+				.emit(any(PathMetrics.class));
+		AsyncEmitter emitter = new AsyncEmitter(failingEmitter, 10, 1);
+		emitter.emit(newPathMetrics("p0", 0));
+		emitter.emit(newPathMetrics("p1", 1));
+		try {
+			emitter.flush();
+			fail("Error of sink not thrown");
+		} catch (IOException e) {
+			assertEquals(e.getMessage(), "broken pipe");
+		}
+
+		// error is only thrown once
+		emitter.emit(newPathMetrics("p2", 2));
+		emitter.flush();
+		emitter.close();
+		verify(failingEmitter, times(3)).emit(any(PathMetrics.class));
+		verify(failingEmitter, times(2)).flush();
+		verify(failingEmitter).close();
+	}
+
+	/**
+	 * Test that close throws error of sink not yet thrown by flush
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testCloseError() throws Exception {
+		MetricEmitter failingEmitter = mock(MetricEmitter.class);
+		doThrow(new IOException("broken pipe")).when(failingEmitter).flush();
+		AsyncEmitter emitter = new AsyncEmitter(failingEmitter, 10, 1);
+		emitter.emit(newPathMetrics("p0", 0));
+		try {
+			emitter.close();
+			fail("Error of sink not thrown");
+		} catch (IOException e) {
+			assertEquals(e.getMessage(), "broken pipe");
+		}
+		verify(failingEmitter).close();
+	}
+
+	/**
+	 * Test that emit after close is rejected
+	 *
+	 * @throws IOException
+	 */
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testEmitAfterClose() throws IOException {
+		AsyncEmitter emitter = new AsyncEmitter(mock(MetricEmitter.class), 10, 1);
+		emitter.close();
+		emitter.emit(newPathMetrics("p0", 0));
+	}
+
+	private static PathMetrics newPathMetrics(String pathName, double age) {
+		return new PathMetrics(null, null, ImmutableList.of(new MetricDatum(new MetricId("age",
+				pathName, null), null, null, age)));
+	}
+
+}
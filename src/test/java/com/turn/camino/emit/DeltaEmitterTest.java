@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for DeltaEmitter
+ *
+ * @author llo
+ */
+@Test
+public class DeltaEmitterTest {
+
+	/**
+	 * Test that only changed values are emitted, and all are refreshed periodically
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testEmit() throws IOException {
+		AtomicLong clock = new AtomicLong(1000000);
+		StringWriter writer = new StringWriter();
+		DeltaEmitter emitter = new DeltaEmitter(new OpenTsdbEmitter(writer, clock::get), 300000,
+				null, clock::get);
+
+		// first cycle emits everything
+		emitter.emit(newPathMetrics("p", 10, 100));
+		emitter.flush();
+		assertEquals(writer.toString(), "put age 1000 10 path=p\nput size 1000 100 path=p\n");
+
+		// unchanged values are skipped
+		writer.getBuffer().setLength(0);
+		clock.addAndGet(60000);
+		emitter.emit(newPathMetrics("p", 10, 200));
+		emitter.emit(newPathMetrics("q", 5, 50));
+		emitter.flush();
+		assertEquals(writer.toString(), "put size 1060 200 path=p\n" +
+				"put age 1060 5 path=q\nput size 1060 50 path=q\n");
+
+		// nothing changed
+		writer.getBuffer().setLength(0);
+		clock.addAndGet(60000);
+		emitter.emit(newPathMetrics("p", 10, 200));
+		emitter.flush();
+		assertEquals(writer.toString(), "");
+
+		// series last emitted a refresh interval ago are emitted again
+		writer.getBuffer().setLength(0);
+		clock.addAndGet(180000);
+		emitter.emit(newPathMetrics("p", 10, 200));
+		emitter.flush();
+		assertEquals(writer.toString(), "put age 1300 10 path=p\n");
+		assertEquals(emitter.getEmittedCount(), 6);
+		assertEquals(emitter.getSkippedCount(), 4);
+	}
+
+	/**
+	 * Test that last emitted values are kept in state file across emitters
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testStateFile() throws IOException {
+		File stateFile = new File(Files.createTempDir(), "delta.state");
+		AtomicLong clock = new AtomicLong(1000000);
+		StringWriter writer = new StringWriter();
+		DeltaEmitter emitter = new DeltaEmitter(new OpenTsdbEmitter(writer, clock::get), 0,
+				stateFile, clock::get);
+		emitter.emit(newPathMetrics("p", 10, 100));
+		emitter.close();
+		assertTrue(stateFile.exists());
+
+		// next process only emits changes
+		writer = new StringWriter();
+		clock.addAndGet(60000);
+		emitter = new DeltaEmitter(new OpenTsdbEmitter(writer, clock::get), 0, stateFile,
+				clock::get);
+		emitter.emit(newPathMetrics("p", 11, 100));
+		emitter.close();
+		assertEquals(writer.toString(), "put age 1060 11 path=p\n");
+	}
+
+	/**
+	 * Test that series not seen for two refresh intervals are forgotten
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testForget() throws IOException {
+		AtomicLong clock = new AtomicLong(1000000);
+		DeltaEmitter emitter = new DeltaEmitter(new OpenTsdbEmitter(new StringWriter(),
+				clock::get), 60000, null, clock::get);
+		emitter.emit(newPathMetrics("p", 10, 100));
+		emitter.emit(newPathMetrics("q", 10, 100));
+		emitter.flush();
+		assertEquals(emitter.getSeriesCount(), 4);
+
+		// q is still seen, though it doesn't change
+		clock.addAndGet(100000);
+		emitter.emit(newPathMetrics("q", 10, 100));
+		emitter.flush();
+		assertEquals(emitter.getSeriesCount(), 4);
+
+		// p was last seen two intervals ago
+		clock.addAndGet(20000);
+		emitter.flush();
+		assertEquals(emitter.getSeriesCount(), 2);
+	}
+
+	/**
+	 * Test that values are emitted again if flush of other emitter fails
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testFlushError() throws IOException {
+		AtomicLong clock = new AtomicLong(1000000);
+		MetricEmitter failingEmitter = mock(MetricEmitter.class);
+		doThrow(new IOException("broken pipe")).doNothing().when(failingEmitter).flush();
+		DeltaEmitter emitter = new DeltaEmitter(failingEmitter, 0, null, clock::get);
+		PathMetrics pathMetrics = newPathMetrics("p", 10, 100);
+		emitter.emit(pathMetrics);
+		try {
+			emitter.flush();
+			fail("Error of other emitter not thrown");
+		} catch (IOException e) {
+			assertEquals(e.getMessage(), "broken pipe");
+		}
+		assertEquals(emitter.getSeriesCount(), 0);
+
+		// unchanged values are emitted again, and only skipped once flushed
+		emitter.emit(pathMetrics);
+		emitter.flush();
+		emitter.emit(pathMetrics);
+		emitter.flush();
+		verify(failingEmitter, times(2)).emit(pathMetrics);
+		assertEquals(emitter.getSeriesCount(), 2);
+	}
+
+	/**
+	 * Test that series not seen for retention period are forgotten without refresh interval
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testForgetWithoutRefresh() throws IOException {
+		AtomicLong clock = new AtomicLong(1000000);
+		DeltaEmitter emitter = new DeltaEmitter(new OpenTsdbEmitter(new StringWriter(),
+				clock::get), 0, null, clock::get);
+		emitter.emit(newPathMetrics("p", 10, 100));
+		emitter.flush();
+		assertEquals(emitter.getSeriesCount(), 2);
+
+		clock.addAndGet(DeltaEmitter.DEFAULT_RETENTION_MILLIS - 1);
+		emitter.flush();
+		assertEquals(emitter.getSeriesCount(), 2);
+
+		clock.incrementAndGet();
+		emitter.flush();
+		assertEquals(emitter.getSeriesCount(), 0);
+	}
+
+	private static PathMetrics newPathMetrics(String pathName, double age, double size) {
+		return new PathMetrics(null, null, ImmutableList.of(
+				new MetricDatum(new MetricId("age", pathName, null), null, null, age),
+				new MetricDatum(new MetricId("size", pathName, null), null, null, size)));
+	}
+
+}
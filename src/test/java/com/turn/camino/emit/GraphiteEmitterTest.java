@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for GraphiteEmitter
+ *
+ * @author llo
+ */
+@Test
+public class GraphiteEmitterTest {
+
+	@Test
+	public void testEmit() throws IOException {
+		StringWriter writer = new StringWriter();
+		GraphiteEmitter emitter = new GraphiteEmitter(writer, () -> 1500000000123L);
+		emitter.emit(new PathMetrics(null, null, ImmutableList.of(
+				new MetricDatum(new MetricId("size", "big data", ImmutableList.of(
+						new Tag("pk", "a;b"), new Tag("cl", "x"))), null, null, 2048),
+				new MetricDatum(new MetricId("age", "p", null), null, null,
+						Double.POSITIVE_INFINITY))));
+		emitter.flush();
+		assertEquals(writer.toString(), "big_data.size;pk=a_b;cl=x 2048 1500000000\n");
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for InfluxLineEmitter
+ *
+ * @author llo
+ */
+@Test
+public class InfluxLineEmitterTest {
+
+	@Test
+	public void testEmit() throws IOException {
+		StringWriter writer = new StringWriter();
+		InfluxLineEmitter emitter = new InfluxLineEmitter(writer, () -> 1500000000123L);
+		emitter.emit(new PathMetrics(null, null, ImmutableList.of(
+				new MetricDatum(new MetricId("file count", "a,b", ImmutableList.of(
+						new Tag("k=1", "v 2"), new Tag("empty", ""))), null, null, 10),
+				new MetricDatum(new MetricId("size", "p", null), null, null, 2048, 100,
+						ImmutableList.of()),
+				new MetricDatum(new MetricId("age", "p", null), null, null, Double.NaN))));
+		emitter.flush();
+		assertEquals(writer.toString(),
+				"file\\ count,path=a\\,b,k\\=1=v\\ 2 value=10.0 1500000000123000000\n" +
+				"size,path=p value=2048.0,error=100.0 1500000000123000000\n");
+	}
+
+}
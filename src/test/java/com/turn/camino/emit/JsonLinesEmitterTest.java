@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for JsonLinesEmitter
+ *
+ * @author llo
+ */
+@Test
+public class JsonLinesEmitterTest {
+
+	@Test
+	public void testEmit() throws IOException {
+		StringWriter writer = new StringWriter();
+		JsonLinesEmitter emitter = new JsonLinesEmitter(writer, () -> 1500000000123L);
+		emitter.emit(new PathMetrics(null, null, ImmutableList.of(
+				new MetricDatum(new MetricId("age", "say \"hi\"", ImmutableList.of(
+						new Tag("pk", "x"), new Tag("cl", "y"))), null, null, 1234),
+				new MetricDatum(new MetricId("count", "p", null), null, null, 2.5, Double.NaN,
+						ImmutableList.of()))));
+		emitter.flush();
+		assertEquals(writer.toString(),
+				"{\"name\":\"age\",\"pathName\":\"say \\\"hi\\\"\",\"tags\":{\"pk\":\"x\"," +
+				"\"cl\":\"y\"},\"value\":1234,\"error\":0,\"timestamp\":1500000000123}\n" +
+				"{\"name\":\"count\",\"pathName\":\"p\",\"tags\":{},\"value\":2.5," +
+				"\"error\":null,\"timestamp\":1500000000123}\n");
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for OpenTsdbEmitter
+ *
+ * @author llo
+ */
+@Test
+public class OpenTsdbEmitterTest {
+
+	@Test
+	public void testEmit() throws IOException {
+		StringWriter writer = new StringWriter();
+		OpenTsdbEmitter emitter = new OpenTsdbEmitter(writer, () -> 1500000000123L);
+		emitter.emit(new PathMetrics(null, null, ImmutableList.of(
+				new MetricDatum(new MetricId("age", "my path", ImmutableList.of(
+						new Tag("pk", "x:1"))), null, null, 1234),
+				new MetricDatum(new MetricId("avgSize", "p", null), null, null, 1.5),
+				new MetricDatum(new MetricId("skipped", "p", null), null, null, Double.NaN))));
+		emitter.flush();
+		assertEquals(writer.toString(), "put age 1500000000 1234 path=my_path pk=x_1\n" +
+				"put avgSize 1500000000 1.5 path=p\n");
+	}
+
+	@Test
+	public void testEmitFailedPath() throws IOException {
+		StringWriter writer = new StringWriter();
+		new OpenTsdbEmitter(writer).emit(new PathMetrics(null, null, null));
+		assertEquals(writer.toString(), "");
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Unit test for PrometheusEmitter
+ *
+ * @author llo
+ */
+@Test
+public class PrometheusEmitterTest {
+
+	@Test
+	public void testFlush() {
+		PrometheusEmitter emitter = new PrometheusEmitter();
+		assertEquals(emitter.getExposition().length, 0);
+
+		emitter.emit(newPathMetrics("p1", ImmutableList.of(new Tag("pk", "a\"b"),
+				new Tag("1st-key", "x")), 10, 2048.5));
+		emitter.emit(newPathMetrics("p2", null, Double.NaN, Double.POSITIVE_INFINITY));
+		emitter.emit(new PathMetrics(null, null, null));
+
+		// exposition is only published when flushed
+		assertEquals(emitter.getExposition().length, 0);
+		emitter.flush();
+		byte[] exposition = emitter.getExposition();
+		assertEquals(new String(exposition, StandardCharsets.UTF_8),
+				"# TYPE camino_age gauge\n" +
+				"camino_age{path=\"p1\",pk=\"a\\\"b\",_1st_key=\"x\"} 10\n" +
+				"camino_age{path=\"p2\"} NaN\n" +
+				"# TYPE camino_avg_size gauge\n" +
+				"camino_avg_size{path=\"p1\",pk=\"a\\\"b\",_1st_key=\"x\"} 2048.5\n" +
+				"camino_avg_size{path=\"p2\"} +Inf\n");
+		assertSame(emitter.getExposition(), exposition);
+
+		// next cycle replaces exposition, and last value of a series wins
+		emitter.emit(newPathMetrics("p2", null, 1, 2));
+		emitter.emit(newPathMetrics("p2", null, 3, 4));
+		emitter.flush();
+		assertEquals(new String(emitter.getExposition(), StandardCharsets.UTF_8),
+				"# TYPE camino_age gauge\n" +
+				"camino_age{path=\"p2\"} 3\n" +
+				"# TYPE camino_avg_size gauge\n" +
+				"camino_avg_size{path=\"p2\"} 4\n");
+	}
+
+	private static PathMetrics newPathMetrics(String pathName, ImmutableList<Tag> tags,
+			double age, double averageSize) {
+		return new PathMetrics(null, null, ImmutableList.of(
+				new MetricDatum(new MetricId("age", pathName, tags), null, null, age),
+				new MetricDatum(new MetricId("avg-size", pathName, tags), null, null,
+						averageSize)));
+	}
+
+}
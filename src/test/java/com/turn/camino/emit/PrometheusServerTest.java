@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathMetrics;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for PrometheusServer
+ *
+ * @author llo
+ */
+@Test
+public class PrometheusServerTest {
+
+	/**
+	 * Test that scrapes are served the exposition of last flush as-is
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testScrape() throws IOException {
+		PrometheusEmitter emitter = spy(new PrometheusEmitter());
+		emitter.emit(new PathMetrics(null, null, ImmutableList.of(new MetricDatum(
+				new MetricId("age", "p", null), null, null, 10))));
+		emitter.flush();
+		try (PrometheusServer server = new PrometheusServer(new InetSocketAddress(
+				"localhost", 0), emitter)) {
+			URL url = new URL("http", "localhost", server.getAddress().getPort(),
+					PrometheusServer.PATH);
+			for (int i = 0; i < 3; i++) {
+				HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+				assertEquals(connection.getResponseCode(), 200);
+				assertEquals(connection.getContentType(), PrometheusEmitter.CONTENT_TYPE);
+				try (InputStream is = connection.getInputStream()) {
+					assertEquals(new String(ByteStreams.toByteArray(is), "UTF-8"),
+							"# TYPE camino_age gauge\ncamino_age{path=\"p\"} 10\n");
+				}
+			}
+
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setRequestMethod("POST");
+			assertEquals(connection.getResponseCode(), 405);
+		}
+
+		// scrapes only read exposition, and never render it again
+		verify(emitter, times(1)).flush();
+		verify(emitter, times(3)).getExposition();
+	}
+
+}
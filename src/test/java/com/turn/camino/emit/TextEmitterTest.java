@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.emit;
+
+import com.google.common.collect.ImmutableList;
+import com.turn.camino.MetricDatum;
+import com.turn.camino.MetricId;
+import com.turn.camino.PathDetail;
+import com.turn.camino.PathMetrics;
+import com.turn.camino.PathStatus;
+import com.turn.camino.config.Tag;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Unit test for TextEmitter
+ *
+ * @author llo
+ */
+@Test
+public class TextEmitterTest {
+
+	@Test
+	public void testEmit() throws IOException {
+		StringWriter writer = new StringWriter();
+		TextEmitter emitter = new TextEmitter(writer);
+		PathStatus pathStatus = new PathStatus("p", "/a/*", null,
+				ImmutableList.<PathDetail>of(), null);
+		emitter.emit(new PathMetrics(null, pathStatus, ImmutableList.of(
+				new MetricDatum(new MetricId("size", "p", ImmutableList.of(new Tag("pk", "x"),
+						new Tag("cl", "y"))), null, pathStatus, 2048, 100, ImmutableList.of(
+						new PathDetail("/a/b", false, 2000, 1000))))));
+		emitter.emit(new PathMetrics(null, null, null));
+		emitter.flush();
+		assertEquals(writer.toString().replace(System.lineSeparator(), "\n"),
+				"p (/a/*)\n\tsize (pk=x cl=y): 2048 +/- 100\n" +
+				"\t\t/a/b (length 2000, modified 1000)\n");
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for ExpressionCache
+ *
+ * @author llo
+ */
+@Test
+public class ExpressionCacheTest {
+
+	/**
+	 * Test get and put
+	 */
+	@Test
+	public void testGetAndPut() {
+		ExpressionCache expressionCache = new ExpressionCache(10);
+		CompiledExpression compiled = context -> "a";
+		assertNull(expressionCache.get("a"));
+		expressionCache.put("a", compiled);
+		assertSame(expressionCache.get("a"), compiled);
+		assertEquals(expressionCache.size(), 1);
+		assertEquals(expressionCache.getHitCount(), 1);
+		assertEquals(expressionCache.getMissCount(), 1);
+		expressionCache.clear();
+		assertEquals(expressionCache.size(), 0);
+	}
+
+	/**
+	 * Test that cache does not grow beyond maximum size
+	 */
+	@Test
+	public void testEviction() {
+		ExpressionCache expressionCache = new ExpressionCache(2);
+		for (int i = 0; i < 10; i++) {
+			expressionCache.put("expr" + i, context -> "expr");
+		}
+		assertTrue(expressionCache.size() <= 2);
+		assertNotNull(expressionCache.get("expr9"));
+		assertNull(expressionCache.get("expr0"));
+	}
+
+	/**
+	 * Test invalid maximum size
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidMaximumSize() {
+		new ExpressionCache(0);
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import com.turn.camino.Context;
+import com.turn.camino.Env;
+import com.turn.camino.EnvBuilder;
+
+import java.util.TimeZone;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for ExpressionCompiler
+ *
+ * @author llo
+ */
+@Test
+public class ExpressionCompilerTest {
+
+	private final static TimeZone TIME_ZONE = TimeZone.getTimeZone("GMT");
+
+	private final RendererImpl renderer = new RendererImpl();
+	private Env env;
+
+	/**
+	 * Set up environment
+	 */
+	@BeforeClass
+	public void setUp() {
+		env = new EnvBuilder().withTimeZone(TIME_ZONE).withFileSystem(mock(FileSystem.class))
+				.build();
+	}
+
+	/**
+	 * Test that literal blocks are folded into constants
+	 *
+	 * @throws RenderException
+	 */
+	@Test
+	public void testConstantFolding() throws RenderException {
+		CompiledExpression compiled = renderer.compile("foo <%=666%> bar <%='x'%>");
+		assertTrue(compiled instanceof ExpressionCompiler.Constant);
+		assertEquals(compiled.evaluate(env.newContext()), "foo 666 bar x");
+
+		compiled = renderer.compile("<%=12.5%>");
+		assertTrue(compiled instanceof ExpressionCompiler.Constant);
+		assertEquals(compiled.evaluate(env.newContext()), 12.5);
+
+		compiled = renderer.compile("");
+		assertEquals(compiled.evaluate(env.newContext()), "");
+	}
+
+	/**
+	 * Test that compiled expression gives the same result as evaluator
+	 *
+	 * @throws RenderException
+	 */
+	@Test
+	public void testSameAsEvaluator() throws RenderException {
+		String[] expressions = {
+				"/data/<%=timeFormat(timeAdd(today('GMT'),-1,'D'),'yyyy/MM/dd')%>/*",
+				"<%=if(gt(add(1,2),2),'a','b')%>",
+				"<%=concat('a','b','c','d')%>",
+				"<%=['x',1,2.5][1]%>",
+				"<%={'p':'q'}['p']%>-<%=now().timeMillis%>",
+				"<%=(fn(a,b) -> add(a,b))(3,4)%>"
+		};
+		Context context = env.newContext();
+		for (String expression : expressions) {
+			Object expected = new RendererImpl.Evaluator().visit(RendererImpl.parse(expression),
+					context);
+			assertEquals(renderer.compile(expression).evaluate(context), expected, expression);
+		}
+	}
+
+	/**
+	 * Test that a property shadowing a built-in function is honored
+	 *
+	 * @throws RenderException
+	 */
+	@Test
+	public void testShadowedBuiltIn() throws RenderException {
+		CompiledExpression compiled = renderer.compile("<%=add(1,2)%>");
+		Context context = env.newContext();
+		assertEquals(compiled.evaluate(context), 3L);
+		context.setProperty("add", (Function) (params, ctx) -> "shadowed");
+		assertEquals(compiled.evaluate(context), "shadowed");
+	}
+
+	/**
+	 * Test calling something that is not a function
+	 *
+	 * @throws RenderException
+	 */
+	@Test(expectedExceptions = RenderException.class,
+			expectedExceptionsMessageRegExp = "Function .* undefined")
+	public void testNotAFunction() throws RenderException {
+		Context context = env.newContext();
+		context.setProperty("x", "abc");
+		renderer.compile("<%=x(1)%>").evaluate(context);
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import com.turn.camino.PathDetail;
+import com.turn.camino.annotation.Member;
+
+import java.util.TimeZone;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for MemberAccessors
+ *
+ * @author llo
+ */
+@Test
+public class MemberAccessorsTest {
+
+	/**
+	 * Test accessing members of different types
+	 *
+	 * @throws RenderException
+	 */
+	@Test
+	public void testGet() throws RenderException {
+		PathDetail pathDetail = new PathDetail("/a/b", true, 1234L, 5678L);
+		assertEquals(MemberAccessors.get(pathDetail, "pathValue"), "/a/b");
+		assertEquals(MemberAccessors.get(pathDetail, "directory"), true);
+		assertEquals(MemberAccessors.get(pathDetail, "length"), 1234L);
+		assertEquals(MemberAccessors.get(pathDetail, "lastModifiedTime"), 5678L);
+
+		TimeValue timeValue = new TimeValue(TimeZone.getTimeZone("GMT"), 1408858139724L);
+		assertEquals(MemberAccessors.get(timeValue, "timeMillis"), 1408858139724L);
+	}
+
+	/**
+	 * Test that only annotated methods are members
+	 */
+	@Test
+	public void testFindAccessors() {
+		assertEquals(MemberAccessors.findAccessors(PathDetail.class).keySet().size(), 4);
+		assertTrue(MemberAccessors.findAccessors(Object.class).isEmpty());
+	}
+
+	/**
+	 * Test accessing unknown member
+	 *
+	 * @throws RenderException
+	 */
+	@Test(expectedExceptions = RenderException.class,
+			expectedExceptionsMessageRegExp = "Member foo not found")
+	public void testUnknownMember() throws RenderException {
+		MemberAccessors.get(new PathDetail("/a/b", true, 0, 0), "foo");
+	}
+
+	/**
+	 * Test that exceptions of members are wrapped
+	 *
+	 * @throws RenderException
+	 */
+	@Test(expectedExceptions = RenderException.class)
+	public void testMemberException() throws RenderException {
+		MemberAccessors.get(new Failing(), "exception");
+	}
+
+	/**
+	 * Test that errors of members are not wrapped
+	 *
+	 * @throws RenderException
+	 */
+	@Test(expectedExceptions = StackOverflowError.class)
+	public void testMemberError() throws RenderException {
+		MemberAccessors.get(new Failing(), "error");
+	}
+
+	public static class Failing {
+
+		@Member("exception")
+		public Object getException() {
+			throw new IllegalStateException();
+		}
+
+		@Member("error")
+		public Object getError() {
+			throw new StackOverflowError();
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.render;
+
+import com.turn.camino.Context;
+import com.turn.camino.Env;
+import com.turn.camino.EnvBuilder;
+import com.turn.camino.lang.ast.Block;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmark comparing syntax tree evaluator with compiled expressions
+ *
+ * Run with main method from test classpath.
+ *
+ * @author llo
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RendererBenchmark {
+
+	@Param({"/data/<%=timeFormat(timeAdd(today('GMT'),-1,'D'),'yyyy/MM/dd')%>/*"})
+	public String expression;
+
+	private Context context;
+	private RendererImpl renderer;
+	private Block block;
+	private CompiledExpression compiled;
+
+	/**
+	 * Parses and compiles expression once
+	 *
+	 * @throws RenderException
+	 */
+	@Setup
+	public void setUp() throws RenderException {
+		Env env = new EnvBuilder().withTimeZone(TimeZone.getTimeZone("GMT"))
+				.withFileSystem(mock(FileSystem.class)).build();
+		context = env.newContext();
+		renderer = new RendererImpl();
+		block = RendererImpl.parse(expression);
+		compiled = renderer.compile(expression);
+	}
+
+	/**
+	 * Parses and evaluates expression on every call
+	 */
+	@Benchmark
+	public Object parseAndEvaluate() throws RenderException {
+		return new RendererImpl.Evaluator().visit(RendererImpl.parse(expression), context);
+	}
+
+	/**
+	 * Walks pre-parsed syntax tree with evaluator
+	 */
+	@Benchmark
+	public Object evaluator() throws RenderException {
+		return new RendererImpl.Evaluator().visit(block, context);
+	}
+
+	/**
+	 * Evaluates pre-compiled expression
+	 */
+	@Benchmark
+	public Object compiled() throws RenderException {
+		return compiled.evaluate(context);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(RendererBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+
+}
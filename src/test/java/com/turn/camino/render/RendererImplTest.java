@@ -426,4 +426,21 @@ public class RendererImplTest {
 		renderer.render("<%=list['a']%>", testContext);
 	}
 
+	/**
+	 * Test rendering with expression cache
+	 *
+	 * @throws RenderException
+	 */
+	@Test
+	public void testExpressionCache() throws RenderException {
+		ExpressionCache expressionCache = new ExpressionCache(10);
+		Renderer cachingRenderer = new RendererImpl(expressionCache);
+		assertEquals(cachingRenderer.render("foo <%=666%> bar", context), "foo 666 bar");
+		assertEquals(cachingRenderer.render("foo <%=666%> bar", context), "foo 666 bar");
+		assertEquals(cachingRenderer.render("<%='foo'%>", context), "foo");
+		assertEquals(expressionCache.size(), 2);
+		assertEquals(expressionCache.getHitCount(), 1);
+		assertEquals(expressionCache.getMissCount(), 2);
+	}
+
 }
@@ -16,6 +16,7 @@ package com.turn.camino.render.functions;
 
 import com.turn.camino.Context;
 import com.turn.camino.Env;
+import com.turn.camino.FileStatusCache;
 import com.turn.camino.render.Function;
 import com.turn.camino.render.FunctionCallException;
 
@@ -209,4 +210,42 @@ public class FileSystemFunctionsTest {
 		assertTrue((Boolean) isDir.invoke(ImmutableList.of("/a/b"), context));
 		assertFalse((Boolean) isDir.invoke(ImmutableList.of("/a/b/1.dat"), context));
 	}
+
+	/**
+	 * Test functions with file status cache of a run
+	 *
+	 * @throws FunctionCallException
+	 * @throws IOException
+	 */
+	@Test
+	public void testFileStatusCache() throws FunctionCallException, IOException {
+		FileSystem fileSystem = mock(FileSystem.class);
+		org.apache.hadoop.fs.Path dir = new org.apache.hadoop.fs.Path("/a/b");
+		when(fileSystem.getFileStatus(dir)).thenReturn(new FileStatus(0L, true, 3,
+				100L, 1409302844187L, dir));
+		when(fileSystem.listStatus(dir)).thenReturn(new FileStatus[] {
+				new FileStatus(1200000L, false, 3, 1000L, 1409302856296L,
+						new org.apache.hadoop.fs.Path("/a/b/1.dat")),
+				new FileStatus(1400000L, false, 3, 1000L, 1409302867303L,
+						new org.apache.hadoop.fs.Path("/a/b/2.dat")) });
+		Context cachedContext = mock(Context.class);
+		when(cachedContext.getFileStatusCache()).thenReturn(new FileStatusCache(fileSystem));
+
+		// repeated lookups share one status and one listing call
+		for (int i = 0; i < 3; i++) {
+			assertTrue((Boolean) exists.invoke(ImmutableList.of("/a/b"), cachedContext));
+			assertTrue((Boolean) isDir.invoke(ImmutableList.of("/a/b"), cachedContext));
+			Function predicate = (params, context) -> params.get(0).toString().equals("2.dat");
+			assertEquals(dirListName.invoke(ImmutableList.of("/a/b", predicate), cachedContext),
+					ImmutableList.of("2.dat"));
+			assertEquals(dirList.invoke(ImmutableList.of("/a/b"), cachedContext),
+					ImmutableList.of("/a/b/1.dat", "/a/b/2.dat"));
+			assertFalse((Boolean) isDir.invoke(ImmutableList.of("/a/b/1.dat"), cachedContext));
+		}
+		verify(fileSystem, times(1)).getFileStatus(dir);
+		verify(fileSystem, times(1)).listStatus(dir);
+		verify(fileSystem, never()).exists(any(org.apache.hadoop.fs.Path.class));
+		verify(fileSystem, never()).isDirectory(any(org.apache.hadoop.fs.Path.class));
+	}
+
 }
@@ -15,20 +15,30 @@
 package com.turn.camino.render.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
 import com.turn.camino.*;
 import com.turn.camino.config.Metric;
 import com.turn.camino.config.Path;
+import com.turn.camino.config.Tag;
 import com.turn.camino.render.Function;
 import com.turn.camino.render.FunctionCallException;
 import com.turn.camino.render.TimeValue;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.util.TimeZone;
 
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Tests for metrics
@@ -299,4 +309,252 @@ public class MetricFunctionsTest {
 		creationDelay.invoke(mock(Metric.class), emptyPathStatus, context);
 	}
 
+	/**
+	 * Test merging aggregates of parts of values
+	 */
+	@Test
+	public void testMergeAggregates() {
+		MetricFunctions.Aggregate[][] aggregates = {
+				{ new MetricFunctions.SumAggregate(), new MetricFunctions.SumAggregate() },
+				{ new MetricFunctions.AvgAggregate(), new MetricFunctions.AvgAggregate() },
+				{ new MetricFunctions.MaxAggregate(), new MetricFunctions.MaxAggregate() },
+				{ new MetricFunctions.MinAggregate(), new MetricFunctions.MinAggregate() } };
+		double[] expected = { 10, 2.5, 4, 1 };
+		for (int i = 0; i < aggregates.length; i++) {
+			aggregates[i][0].put(1);
+			aggregates[i][0].put(2);
+			aggregates[i][1].put(3);
+			aggregates[i][1].put(4);
+			aggregates[i][0].merge(aggregates[i][1]);
+			assertEquals(aggregates[i][0].get(), expected[i], EPSILON);
+		}
+	}
+
+	/**
+	 * Test percentile aggregates
+	 *
+	 * @throws FunctionCallException
+	 */
+	@Test
+	public void testPercentile() throws FunctionCallException {
+		assertEquals(metricAgg.invoke(new Metric("p50Size", "size", "p50", null, 0),
+				pathStatus, context), 135, 135 * 0.01);
+		assertEquals(metricAgg.invoke(new Metric("p99Age", "age", "p99.9", null, 0),
+				pathStatus, context), 4000, 4000 * 0.01);
+		assertEquals(metricAgg.invoke(new Metric("p0Size", "size", "p0", null, 0),
+				pathStatus, context), 100, 100 * 0.01);
+	}
+
+	/**
+	 * Test that percentile above 100 is invalid
+	 *
+	 * @throws FunctionCallException
+	 */
+	@Test(expectedExceptions = FunctionCallException.class)
+	public void testInvalidPercentile() throws FunctionCallException {
+		metricAgg.invoke(new Metric("p101Size", "size", "p101", null, 0), emptyPathStatus,
+				context);
+	}
+
+	/**
+	 * Test that path details with largest values are kept with aggregate
+	 *
+	 * @throws FunctionCallException
+	 */
+	@Test
+	public void testTopPathDetails() throws FunctionCallException {
+		MetricFunctions.AggregateResult result = metricAgg.aggregate(
+				new Metric("maxAge", "age", "max", null, 0, 2), pathStatus, context);
+		assertEquals(result.getValue(), 19000, EPSILON);
+		assertEquals(result.getTopPathDetails().size(), 2);
+		assertEquals(result.getTopPathDetails().get(0).getPathValue(), "/data/3.txt");
+		assertEquals(result.getTopPathDetails().get(1).getPathValue(), "/data/1.txt");
+
+		// top path details are not kept unless asked for
+		result = metricAgg.aggregate(new Metric("maxAge", "age", "max", null, 0), pathStatus,
+				context);
+		assertTrue(result.getTopPathDetails().isEmpty());
+	}
+
+	/**
+	 * Test aggregating a list large enough to be split into parallel chunks
+	 *
+	 * @throws FunctionCallException
+	 */
+	@Test
+	public void testParallelAggregate() throws FunctionCallException {
+		int count = MetricFunctions.PARALLEL_THRESHOLD * 2 + 7;
+		PathDetailList.Builder builder = new PathDetailList.Builder(count);
+		for (int i = 0; i < count; i++) {
+			builder.add("/data/" + i, false, i, now - i);
+		}
+		PathStatus largePathStatus = new PathStatus("big", "/data/*", mock(Path.class),
+				builder.build(), null);
+		assertEquals(metricAgg.invoke(new Metric("sumSize", "size", "sum", null, 0),
+				largePathStatus, context), (double) count * (count - 1) / 2, EPSILON);
+		assertEquals(metricAgg.invoke(new Metric("avgSize", "size", "avg", null, 0),
+				largePathStatus, context), (count - 1) / 2.0, EPSILON);
+		assertEquals(metricAgg.invoke(new Metric("maxAge", "age", "max", null, 0),
+				largePathStatus, context), count - 1, EPSILON);
+		assertEquals(metricAgg.invoke(new Metric("minAge", "age", "min", null, 0),
+				largePathStatus, context), 0, EPSILON);
+		assertEquals(metricAgg.aggregate(new Metric("maxSize", "size", "max", null, 0, 1),
+				largePathStatus, context).getTopPathDetails().get(0).getLength(), count - 1);
+	}
+
+	/**
+	 * Test that an error of a function in parallel chunks fails the metric
+	 *
+	 * @throws FunctionCallException
+	 * @throws WrongTypeException
+	 */
+	@Test(expectedExceptions = FunctionCallException.class)
+	public void testParallelAggregateError() throws FunctionCallException,
+			WrongTypeException {
+		int count = MetricFunctions.PARALLEL_THRESHOLD * 2 + 7;
+		PathDetailList.Builder builder = new PathDetailList.Builder(count);
+		for (int i = 0; i < count; i++) {
+			builder.add("/data/" + i, false, i, now - i);
+		}
+		PathStatus largePathStatus = new PathStatus("big", "/data/*", mock(Path.class),
+				builder.build(), null);
+
+		// function fails in all chunks but the first, so also on other worker threads
+		Function failing = (params, context) -> {
+			PathDetail pathDetail = (PathDetail) params.get(1);
+			if (pathDetail.getLength() >= MetricFunctions.CHUNK_SIZE) {
+				throw new FunctionCallException("Cannot read " + pathDetail.getPathValue());
+			}
+			return pathDetail.getLength();
+		};
+		when(context.getProperty("failing", Function.class)).thenReturn(failing);
+		metricAgg.invoke(new Metric("sumFailing", "failing", "sum", null, 0),
+				largePathStatus, context);
+	}
+
+	/**
+	 * Test recursive functions on a directory and a file
+	 *
+	 * @throws IOException
+	 * @throws FunctionCallException
+	 */
+	@Test
+	public void testRecursiveFunctions() throws IOException, FunctionCallException {
+		FileSystem fileSystem = mock(FileSystem.class);
+		org.apache.hadoop.fs.Path dir = new org.apache.hadoop.fs.Path("/data");
+		when(fileSystem.listStatus(dir)).thenReturn(new FileStatus[] {
+				new FileStatus(100L, false, 3, 100L, now - 3000,
+						new org.apache.hadoop.fs.Path("/data/1.txt")),
+				new FileStatus(200L, false, 3, 100L, now - 1000,
+						new org.apache.hadoop.fs.Path("/data/2.txt")) });
+		ContentSummary contentSummary = mock(ContentSummary.class);
+		when(contentSummary.getLength()).thenReturn(300L);
+		when(contentSummary.getFileCount()).thenReturn(2L);
+		when(fileSystem.getContentSummary(dir)).thenReturn(contentSummary);
+		Env env = mock(Env.class);
+		when(env.getFileSystem()).thenReturn(fileSystem);
+		Context fsContext = mock(Context.class);
+		when(fsContext.getEnv()).thenReturn(env);
+		when(fsContext.getGlobalInstanceTime()).thenReturn(now);
+		when(fsContext.getFileStatusCache()).thenReturn(new FileStatusCache(fileSystem));
+
+		PathDetail dirDetail = new PathDetail("/data", true, 0, now - 500);
+		PathDetail fileDetail = new PathDetail("/data/1.txt", false, 100, now - 3000);
+		Metric metric = new Metric("m", "f", "sum", null, 0);
+		assertEquals(new MetricFunctions.RecursiveSize().invoke(metric, dirDetail, fsContext),
+				300, EPSILON);
+		assertEquals(new MetricFunctions.RecursiveFileCount().invoke(metric, dirDetail,
+				fsContext), 2, EPSILON);
+		assertEquals(new MetricFunctions.MaxDescendantAge().invoke(metric, dirDetail,
+				fsContext), 3000, EPSILON);
+		assertEquals(new MetricFunctions.ContentSummarySize().invoke(metric, dirDetail,
+				fsContext), 300, EPSILON);
+		assertEquals(new MetricFunctions.ContentSummaryFileCount().invoke(metric, dirDetail,
+				fsContext), 2, EPSILON);
+		assertEquals(new MetricFunctions.RecursiveSize().invoke(metric, fileDetail, fsContext),
+				100, EPSILON);
+		assertEquals(new MetricFunctions.RecursiveFileCount().invoke(metric, fileDetail,
+				fsContext), 1, EPSILON);
+		assertEquals(new MetricFunctions.MaxDescendantAge().invoke(metric, fileDetail,
+				fsContext), 3000, EPSILON);
+		verify(fileSystem, times(1)).listStatus(dir);
+	}
+
+	@Test
+	public void testHistoryFunctions() throws IOException, FunctionCallException {
+		MetricHistory metricHistory = new MetricHistory(Files.createTempDir(), 10);
+		Env env = mock(Env.class);
+		when(env.getMetricHistory()).thenReturn(metricHistory);
+		Context historyContext = mock(Context.class);
+		when(historyContext.getEnv()).thenReturn(env);
+		when(historyContext.getGlobalInstanceTime()).thenReturn(now);
+		PathStatus pathStatus = new PathStatus("p", "/data/*", null,
+				ImmutableList.<PathDetail>of(), null, false, null,
+				ImmutableList.of(new Tag("pk", "x")));
+		Metric growthRate = new Metric("growth", "size", null, "growthRate", 0);
+		Metric stalledFor = new Metric("stalled", "size", null, "stalledFor", 0);
+
+		// no history yet
+		assertTrue(Double.isNaN(new MetricFunctions.GrowthRate().invoke(growthRate, pathStatus,
+				historyContext)));
+		assertTrue(Double.isNaN(new MetricFunctions.StalledFor().invoke(stalledFor, pathStatus,
+				historyContext)));
+
+		// size grew by 600 over 3 minutes, and then stayed for 2 minutes
+		MetricId sizeId = new MetricId("size", "p", ImmutableList.of(new Tag("pk", "x")));
+		metricHistory.append(sizeId, now - 300000, 1000);
+		metricHistory.append(sizeId, now - 240000, 1200);
+		metricHistory.append(sizeId, now - 120000, 1600);
+		metricHistory.append(sizeId, now - 60000, 1600);
+		metricHistory.append(sizeId, now, 1600);
+		assertEquals(new MetricFunctions.GrowthRate().invoke(growthRate, pathStatus,
+				historyContext), 120, EPSILON);
+		assertEquals(new MetricFunctions.StalledFor().invoke(stalledFor, pathStatus,
+				historyContext), 120000, EPSILON);
+	}
+
+	@Test(expectedExceptions = FunctionCallException.class)
+	public void testHistoryFunctionsWithoutHistory() throws FunctionCallException {
+		Env env = mock(Env.class);
+		Context historyContext = mock(Context.class);
+		when(historyContext.getEnv()).thenReturn(env);
+		new MetricFunctions.GrowthRate().invoke(new Metric("growth", "size", null,
+				"growthRate", 0), new PathStatus("p", "/data", null,
+				ImmutableList.<PathDetail>of(), null), historyContext);
+	}
+
+	/**
+	 * Test estimating aggregates from sampled path details
+	 *
+	 * @throws FunctionCallException
+	 */
+	@Test
+	public void testEstimate() throws FunctionCallException {
+		// two of four directories sampled, with sizes {100, 300} and {200}
+		PathDetailList.Builder builder = new PathDetailList.Builder(3);
+		builder.add("/data/a/1.txt", false, 100, now - 1000);
+		builder.add("/data/a/2.txt", false, 300, now - 3000);
+		builder.add("/data/b/1.txt", false, 200, now - 2000);
+		PathSample sample = new PathSample(4, builder.build(), new int[] { 2, 3 });
+		PathStatus sampledPathStatus = new PathStatus("s", "/data/*/*", mock(Path.class),
+				sample.getPathDetails(), null, false, sample);
+
+		MetricFunctions.AggregateResult sum = metricAgg.estimate(new Metric("sumSize", "size",
+				"sum", null, 0), sampledPathStatus, context);
+		assertEquals(sum.getValue(), 1200, EPSILON);
+		assertEquals(sum.getError(), sample.estimateTotal(new double[] { 400, 200 })
+				.getError(), EPSILON);
+		assertTrue(sum.getError() > 0);
+
+		MetricFunctions.AggregateResult avg = metricAgg.estimate(new Metric("avgSize", "size",
+				"avg", null, 0), sampledPathStatus, context);
+		assertEquals(avg.getValue(), 200, EPSILON);
+
+		MetricFunctions.AggregateResult max = metricAgg.estimate(new Metric("maxAge", "age",
+				"max", null, 0, 1), sampledPathStatus, context);
+		assertEquals(max.getValue(), 3000, EPSILON);
+		assertTrue(Double.isNaN(max.getError()));
+		assertEquals(max.getTopPathDetails().get(0).getPathValue(), "/data/a/2.txt");
+	}
+
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for QuantileSketch
+ *
+ * @author llo
+ */
+@Test
+public class QuantileSketchTest {
+
+	/**
+	 * Test that quantiles of merged sketches are within relative accuracy
+	 */
+	@Test
+	public void testQuantiles() {
+		Random random = new Random(1);
+		double[] values = new double[100000];
+		QuantileSketch sketch = new QuantileSketch();
+		QuantileSketch other = new QuantileSketch();
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Math.exp(random.nextGaussian() * 5) * (i % 10 == 0 ? -1 : 1);
+			if (i % 13 == 0) {
+				values[i] = 0;
+			}
+			(i % 2 == 0 ? sketch : other).add(values[i]);
+		}
+		sketch.merge(other);
+		assertEquals(sketch.getCount(), values.length);
+
+		Arrays.sort(values);
+		for (double quantile : new double[] { 0, 0.01, 0.05, 0.1, 0.5, 0.95, 0.99, 1 }) {
+			double expected = values[(int) (quantile * (values.length - 1))];
+			assertEquals(sketch.getQuantile(quantile), expected,
+					Math.abs(expected) * sketch.getRelativeAccuracy(), "quantile " + quantile);
+		}
+	}
+
+	/**
+	 * Test that lowest buckets are collapsed when values span too many buckets
+	 */
+	@Test
+	public void testCollapse() {
+		QuantileSketch sketch = new QuantileSketch(0.01, 64);
+		for (int i = 1; i <= 1000; i++) {
+			sketch.add(Math.pow(10, i % 10));
+		}
+		assertEquals(sketch.getQuantile(1), 1e9, 1e7);
+		assertEquals(sketch.getQuantile(0.95), 1e9, 1e7);
+		assertTrue(sketch.getQuantile(0) >= 1);
+	}
+
+	/**
+	 * Test empty sketch
+	 */
+	@Test
+	public void testEmpty() {
+		assertTrue(Double.isNaN(new QuantileSketch().getQuantile(0.5)));
+	}
+
+	/**
+	 * Test invalid value
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidValue() {
+		new QuantileSketch().add(Double.NaN);
+	}
+
+	/**
+	 * Test merging sketches of different accuracy
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testMergeDifferentAccuracy() {
+		new QuantileSketch().merge(new QuantileSketch(0.05, 64));
+	}
+
+}
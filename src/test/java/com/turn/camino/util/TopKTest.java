@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2014-2018, Amobee Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ */
+package com.turn.camino.util;
+
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Unit test for TopK
+ *
+ * @author llo
+ */
+@Test
+public class TopKTest {
+
+	/**
+	 * Test that items with largest keys are kept in descending order
+	 */
+	@Test
+	public void testOffer() {
+		TopK<String> topK = new TopK<>(3);
+		topK.offer(5, "e");
+		topK.offer(1, "a");
+		topK.offer(9, "i");
+		topK.offer(3, "c");
+		topK.offer(7, "g");
+		assertEquals(topK.getItems(), ImmutableList.of("i", "g", "e"));
+	}
+
+	/**
+	 * Test merging top K of disjoint items
+	 */
+	@Test
+	public void testMerge() {
+		TopK<String> topK = new TopK<>(2);
+		topK.offer(1, "a");
+		topK.offer(8, "h");
+		TopK<String> other = new TopK<>(2);
+		other.offer(9, "i");
+		other.offer(2, "b");
+		topK.merge(other);
+		assertEquals(topK.getItems(), ImmutableList.of("i", "h"));
+	}
+
+	/**
+	 * Test fewer items than K
+	 */
+	@Test
+	public void testFewItems() {
+		TopK<String> topK = new TopK<>(5);
+		assertTrue(topK.getItems().isEmpty());
+		topK.offer(1, "a");
+		assertEquals(topK.getItems(), ImmutableList.of("a"));
+	}
+
+	/**
+	 * Test invalid K
+	 */
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidK() {
+		new TopK<String>(0);
+	}
+
+}